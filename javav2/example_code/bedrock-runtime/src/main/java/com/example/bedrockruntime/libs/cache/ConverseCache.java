@@ -0,0 +1,462 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.bedrockruntime.libs.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.SdkField;
+import software.amazon.awssdk.core.SdkPojo;
+import software.amazon.awssdk.core.document.Document;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ConversationRole;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseResponse;
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A response cache in front of {@link BedrockRuntimeAsyncClient#converse(ConverseRequest)}.
+ *
+ * Two requests share a cache entry only if they're identical: the same model ID, messages,
+ * system prompts, inference configuration, tool configuration, and every other request field.
+ * The key is a SHA-256 digest of all those fields, read through the SDK's field metadata.
+ *
+ * Responses are kept in a least-recently-used in-memory map with a fixed number of entries,
+ * and, if a directory is given, also written to disk so that they survive a restart. Only
+ * responses made up entirely of text are written to disk. The disk tier is bounded in bytes:
+ * once it grows past the limit, the least recently used files are deleted. An optional time to
+ * live makes both tiers treat older responses as misses. When several identical requests are
+ * sent at the same time, only the first one goes to Amazon Bedrock and the others wait for its
+ * response. Failed calls aren't cached.
+ *
+ * A cached response is returned as is, so the same prompt always gets the same answer, whatever
+ * its temperature. Use a separate client, or no cache, for requests that need a fresh answer.
+ */
+public class ConverseCache {
+    private static final Logger logger = LoggerFactory.getLogger(ConverseCache.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long DEFAULT_MAX_DISK_BYTES = 256L * 1024 * 1024;
+
+    private final BedrockRuntimeAsyncClient client;
+    private final Map<String, Entry> memory;
+    private final Path directory;
+    private final long timeToLiveMillis;
+    private final long maxDiskBytes;
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final Map<String, CompletableFuture<ConverseResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Cache counters.
+     *
+     * @param requests   the number of calls to {@link #converse(ConverseRequest)}
+     * @param memoryHits the number answered from memory
+     * @param diskHits   the number answered from disk
+     * @param coalesced  the number that waited for an identical request that was already in flight
+     * @param misses     the number sent to Amazon Bedrock
+     */
+    public record Stats(long requests, long memoryHits, long diskHits, long coalesced, long misses) {
+        /**
+         * Returns the share of requests that didn't need their own call to Amazon Bedrock.
+         */
+        public double hitRatio() {
+            return requests == 0 ? 0 : (double) (memoryHits + diskHits + coalesced) / requests;
+        }
+    }
+
+    private record Entry(ConverseResponse response, long storedAtMillis) {
+    }
+
+    /**
+     * Creates a cache whose entries don't expire, with a disk tier of up to 256 MB.
+     *
+     * @param client     the client that sends requests on a miss
+     * @param maxEntries the largest number of responses kept in memory
+     * @param directory  the directory for the on-disk tier, or {@code null} to keep responses only in memory
+     */
+    public ConverseCache(BedrockRuntimeAsyncClient client, int maxEntries, Path directory) throws IOException {
+        this(client, maxEntries, directory, null, DEFAULT_MAX_DISK_BYTES);
+    }
+
+    /**
+     * @param client       the client that sends requests on a miss
+     * @param maxEntries   the largest number of responses kept in memory
+     * @param directory    the directory for the on-disk tier, or {@code null} to keep responses only in memory
+     * @param timeToLive   how long a response is served from the cache, or {@code null} to keep it until it's evicted
+     * @param maxDiskBytes the largest total size of the files in the on-disk tier
+     */
+    public ConverseCache(BedrockRuntimeAsyncClient client, int maxEntries, Path directory, Duration timeToLive,
+                         long maxDiskBytes) throws IOException {
+        this.client = client;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.directory = directory;
+        this.timeToLiveMillis = timeToLive == null ? Long.MAX_VALUE : timeToLive.toMillis();
+        this.maxDiskBytes = maxDiskBytes;
+        if (directory != null) {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = entryFiles()) {
+                diskBytes.set(files.mapToLong(ConverseCache::sizeOf).sum());
+            }
+        }
+    }
+
+    public CompletableFuture<ConverseResponse> converse(Consumer<ConverseRequest.Builder> request) {
+        return converse(ConverseRequest.builder().applyMutation(request).build());
+    }
+
+    /**
+     * Returns the cached response to an identical request, or sends the request.
+     *
+     * @param request the Converse request
+     * @return a future that completes with the response
+     */
+    public CompletableFuture<ConverseResponse> converse(ConverseRequest request) {
+        requests.increment();
+        String key = key(request);
+        ConverseResponse cached = fromMemory(key);
+        if (cached != null) {
+            memoryHits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<ConverseResponse> created = new CompletableFuture<>();
+        CompletableFuture<ConverseResponse> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            // A copy, so a caller that cancels or completes its future doesn't affect the others.
+            return existing.copy();
+        }
+
+        // An identical request may have finished between the first look and the putIfAbsent.
+        cached = fromMemory(key);
+        if (cached != null) {
+            memoryHits.increment();
+            inFlight.remove(key, created);
+            created.complete(cached);
+            return created.copy();
+        }
+
+        Entry stored = fromDisk(key);
+        if (stored != null) {
+            diskHits.increment();
+            toMemory(key, stored.response(), stored.storedAtMillis());
+            inFlight.remove(key, created);
+            created.complete(stored.response());
+            return created.copy();
+        }
+
+        misses.increment();
+        CompletableFuture<ConverseResponse> call;
+        try {
+            call = client.converse(request);
+        } catch (RuntimeException e) {
+            // Complete the shared future too, so requests that coalesced onto it don't wait forever.
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+            return created.copy();
+        }
+        call.whenComplete((response, e) -> {
+            if (e == null) {
+                toMemory(key, response);
+                toDisk(key, response);
+            }
+            inFlight.remove(key, created);
+            if (e == null) {
+                created.complete(response);
+            } else {
+                created.completeExceptionally(e);
+            }
+        });
+        return created.copy();
+    }
+
+    public Stats stats() {
+        return new Stats(requests.sum(), memoryHits.sum(), diskHits.sum(), coalesced.sum(), misses.sum());
+    }
+
+    private ConverseResponse fromMemory(String key) {
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (isExpired(entry.storedAtMillis())) {
+                memory.remove(key);
+                return null;
+            }
+            return entry.response();
+        }
+    }
+
+    private void toMemory(String key, ConverseResponse response) {
+        toMemory(key, response, System.currentTimeMillis());
+    }
+
+    private void toMemory(String key, ConverseResponse response, long storedAtMillis) {
+        synchronized (memory) {
+            memory.put(key, new Entry(response, storedAtMillis));
+        }
+    }
+
+    private boolean isExpired(long storedAtMillis) {
+        return System.currentTimeMillis() - storedAtMillis >= timeToLiveMillis;
+    }
+
+    private Entry fromDisk(String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = directory.resolve(key + ".json");
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            JsonNode json = MAPPER.readTree(file.toFile());
+            long storedAt = json.path("storedAt").asLong();
+            if (isExpired(storedAt)) {
+                deleteEntry(file);
+                return null;
+            }
+            // The modification time orders files for eviction, so a hit makes a file recently used.
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            List<ContentBlock> content = new ArrayList<>();
+            json.get("content").forEach(text -> content.add(ContentBlock.fromText(text.asText())));
+            JsonNode usage = json.get("usage");
+            return new Entry(ConverseResponse.builder()
+                .output(output -> output.message(Message.builder()
+                    .role(ConversationRole.fromValue(json.get("role").asText()))
+                    .content(content)
+                    .build()))
+                .stopReason(json.get("stopReason").asText())
+                .usage(u -> u
+                    .inputTokens(usage.get("inputTokens").asInt())
+                    .outputTokens(usage.get("outputTokens").asInt())
+                    .totalTokens(usage.get("totalTokens").asInt()))
+                .build(), storedAt);
+        } catch (IOException | RuntimeException e) {
+            // Treat an unreadable entry as a miss; it's overwritten once the request is answered.
+            logger.warn("Ignoring cache file {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void toDisk(String key, ConverseResponse response) {
+        if (directory == null || response.output() == null || response.output().message() == null
+                || response.usage() == null) {
+            return;
+        }
+        Message message = response.output().message();
+        ObjectNode json = MAPPER.createObjectNode();
+        json.put("role", message.roleAsString());
+        ArrayNode content = json.putArray("content");
+        for (ContentBlock block : message.content()) {
+            if (block.text() == null) {
+                return;
+            }
+            content.add(block.text());
+        }
+        json.put("storedAt", System.currentTimeMillis());
+        json.put("stopReason", response.stopReasonAsString());
+        json.putObject("usage")
+            .put("inputTokens", response.usage().inputTokens())
+            .put("outputTokens", response.usage().outputTokens())
+            .put("totalTokens", response.usage().totalTokens());
+        try {
+            // Write to a temporary file first, so a reader never sees half an entry.
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            MAPPER.writeValue(temp.toFile(), json);
+            Path file = directory.resolve(key + ".json");
+            long replaced = sizeOf(file);
+            long written = Files.size(temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (diskBytes.addAndGet(written - replaced) > maxDiskBytes) {
+                evictFromDisk();
+            }
+        } catch (IOException e) {
+            logger.warn("Couldn't write cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the least recently used files until the disk tier fits in its limit again. The total is
+     * recounted from the directory, so entries that other processes wrote are counted too.
+     */
+    private synchronized void evictFromDisk() throws IOException {
+        List<Path> files;
+        try (Stream<Path> entries = entryFiles()) {
+            files = new ArrayList<>(entries.toList());
+        }
+        Map<Path, Long> modified = new LinkedHashMap<>();
+        long total = 0;
+        for (Path file : files) {
+            modified.put(file, Files.getLastModifiedTime(file).toMillis());
+            total += sizeOf(file);
+        }
+        files.sort(Comparator.comparing(modified::get));
+        for (Path file : files) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+            long size = sizeOf(file);
+            Files.deleteIfExists(file);
+            total -= size;
+        }
+        diskBytes.set(total);
+    }
+
+    private void deleteEntry(Path file) throws IOException {
+        long size = sizeOf(file);
+        if (Files.deleteIfExists(file)) {
+            diskBytes.addAndGet(-size);
+        }
+    }
+
+    private Stream<Path> entryFiles() throws IOException {
+        return Files.list(directory).filter(file -> file.getFileName().toString().endsWith(".json"));
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the cache key of a request: the SHA-256 digest of a canonical rendering of all its
+     * fields. The request's toString() can't be used, because it hides sensitive fields.
+     */
+    static String key(ConverseRequest request) {
+        StringBuilder canonical = new StringBuilder(256);
+        canonicalize(request, canonical);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void canonicalize(Object value, StringBuilder out) {
+        switch (value) {
+            case null -> out.append("null");
+            case SdkPojo pojo -> {
+                out.append('{');
+                for (SdkField<?> field : pojo.sdkFields()) {
+                    Object fieldValue = field.getValueOrDefault(pojo);
+                    if (fieldValue != null) {
+                        out.append(field.memberName()).append(':');
+                        canonicalize(fieldValue, out);
+                        out.append(',');
+                    }
+                }
+                out.append('}');
+            }
+            case List<?> list -> {
+                out.append('[');
+                for (Object element : list) {
+                    canonicalize(element, out);
+                    out.append(',');
+                }
+                out.append(']');
+            }
+            case Map<?, ?> map -> {
+                out.append('{');
+                new TreeMap<>(map).forEach((k, v) -> {
+                    canonicalize(String.valueOf(k), out);
+                    out.append(':');
+                    canonicalize(v, out);
+                    out.append(',');
+                });
+                out.append('}');
+            }
+            case String s -> out.append('"').append(s.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            case SdkBytes bytes -> out.append("b64:").append(Base64.getEncoder().encodeToString(bytes.asByteArrayUnsafe()));
+            case Document document -> out.append("doc:").append(document);
+            default -> out.append(value);
+        }
+    }
+
+    /**
+     * Sends the same prompt several times, some of them concurrently, and prints the cache counters.
+     */
+    public static void main(String[] args) throws IOException {
+        var modelId = "amazon.nova-lite-v1:0";
+        var message = Message.builder()
+                .content(ContentBlock.fromText("Describe the purpose of a 'hello world' program in one line."))
+                .role(ConversationRole.USER)
+                .build();
+
+        try (var client = BedrockRuntimeAsyncClient.builder()
+                .region(Region.US_EAST_1)
+                .build()) {
+            var cache = new ConverseCache(client, 1000, Path.of(System.getProperty("java.io.tmpdir"), "converse-cache"));
+
+            // Five identical requests at once: one call, four coalesced.
+            List<CompletableFuture<ConverseResponse>> concurrent = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                concurrent.add(cache.converse(request -> request
+                        .modelId(modelId)
+                        .messages(message)
+                        .inferenceConfig(config -> config.maxTokens(256).temperature(0.5F))));
+            }
+            concurrent.forEach(CompletableFuture::join);
+
+            // The same request again: answered from memory.
+            long start = System.nanoTime();
+            var response = cache.converse(request -> request
+                    .modelId(modelId)
+                    .messages(message)
+                    .inferenceConfig(config -> config.maxTokens(256).temperature(0.5F))).join();
+            System.out.printf("Cached response in %.3f ms: %s%n", (System.nanoTime() - start) / 1e6,
+                    response.output().message().content().getFirst().text());
+
+            var stats = cache.stats();
+            System.out.printf("Requests: %d, memory hits: %d, disk hits: %d, coalesced: %d, misses: %d, hit ratio: %.0f%%%n",
+                    stats.requests(), stats.memoryHits(), stats.diskHits(), stats.coalesced(), stats.misses(),
+                    stats.hitRatio() * 100);
+        }
+    }
+}
@@ -5,10 +5,17 @@ package com.example.bedrockruntime.libs.demo.scenarios;
 
 import com.example.bedrockruntime.libs.TriFunction;
 import com.example.bedrockruntime.libs.demo.DemoRunner.DemoState;
+import com.example.bedrockruntime.libs.vectorindex.VectorIndex;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static com.example.bedrockruntime.libs.demo.Utils.printResponse;
 
@@ -16,6 +23,15 @@ public class TextEmbeddingScenario extends Scenario {
 
     public static final String TITLE = "How to create an embedding with custom inference parameters";
 
+    private static final List<String> BOOKS = List.of(
+            "Dark Matter by Blake Crouch: a physicist is abducted into a world where his life took a different turn.",
+            "The Lord of the Rings by J.R.R. Tolkien: a hobbit sets out to destroy a powerful ring.",
+            "Recursion by Blake Crouch: a memory-altering technology lets people relive and rewrite the past.",
+            "Pride and Prejudice by Jane Austen: a clever young woman and a proud gentleman misjudge each other.",
+            "Ubik by Philip K. Dick: after an explosion, a group of people can no longer tell what is real.",
+            "A Brief History of Time by Stephen Hawking: black holes, the big bang, and the nature of time."
+    );
+
     public TextEmbeddingScenario(TriFunction<String, Integer, Boolean, JSONObject> action) {
         super(action, TITLE);
     }
@@ -29,13 +45,55 @@ public class TextEmbeddingScenario extends Scenario {
         var inputText = "Please recommend books with a theme similar to the movie 'Inception'.";
         System.out.printf("%nInput text: \"%s\"%n%n", inputText);
 
+        JSONObject response;
+        Function<String, JSONObject> embed;
         if (action instanceof TriFunction<?, ?, ?, ?>) {
-            printResponse(runV2((TriFunction<String, Integer, Boolean, JSONObject>) action, inputText));
+            var func = (TriFunction<String, Integer, Boolean, JSONObject>) action;
+            response = runV2(func, inputText);
+            embed = text -> func.apply(text, 256, true);
         } else if (action instanceof Function<?, ?>) {
-            printResponse(runG1((Function<String, JSONObject>) action, inputText));
+            embed = (Function<String, JSONObject>) action;
+            response = runG1(embed, inputText);
         } else {
             throw new IllegalArgumentException("Error: The action is of an invalid type.");
         }
+        printResponse(response);
+
+        findSimilarBooks(embed, toVector(response), 3);
+    }
+
+    /**
+     * Embeds a few book descriptions, adds them to a local vector index, and prints the
+     * descriptions closest to the input text.
+     */
+    private void findSimilarBooks(Function<String, JSONObject> embed, float[] query, int k) throws IOException {
+        System.out.printf("%nEmbedding %d book descriptions and adding them to a local vector index...%n", BOOKS.size());
+        Path directory = Files.createTempDirectory("embeddings");
+        try (VectorIndex index = VectorIndex.open(directory, query.length)) {
+            for (String book : BOOKS) {
+                index.add(book, toVector(embed.apply(book)));
+            }
+
+            System.out.printf("The %d books closest to the input text (similarity kernel: %s):%n", k, index.kernel());
+            for (VectorIndex.Match match : index.search(query, k)) {
+                System.out.printf("  %.3f  %s%n", match.score(), match.id());
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static float[] toVector(JSONObject response) {
+        JSONArray embedding = response.getJSONArray("embedding");
+        float[] vector = new float[embedding.length()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = embedding.getFloat(i);
+        }
+        return vector;
     }
 
     private JSONObject runG1(Function<String, JSONObject> func, String inputText) {
@@ -0,0 +1,92 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.bedrockruntime.libs.streaming;
+
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ConversationRole;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseStreamRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Compares the streaming latency of several models under concurrent load.
+ *
+ * Sends the same prompt to each model with ConverseStream, keeping a fixed number of streams
+ * in flight, and prints time-to-first-token, inter-token latency, and tokens per second per model.
+ */
+public class StreamingBenchmark {
+    private static final List<String> DEFAULT_MODELS = List.of(
+            "anthropic.claude-3-haiku-20240307-v1:0",
+            "amazon.nova-lite-v1:0",
+            "meta.llama3-8b-instruct-v1:0",
+            "mistral.mistral-small-2402-v1:0",
+            "cohere.command-r-v1:0"
+    );
+
+    public static void main(String[] args) throws InterruptedException {
+        final String usage = """
+                Usage:
+                    <concurrency> <requestsPerModel> [modelId...]
+
+                Where:
+                    concurrency - The number of streams in flight at once (for example, 8).
+                    requestsPerModel - The number of requests to send to each model (for example, 20).
+                    modelId - Optional. The models to compare. Defaults to Claude 3 Haiku, Nova Lite,
+                              Llama 3 8B, Mistral Small, and Command R.
+                """;
+
+        if (args.length < 2) {
+            System.out.println(usage);
+            return;
+        }
+        int concurrency = Integer.parseInt(args[0]);
+        int requestsPerModel = Integer.parseInt(args[1]);
+        List<String> modelIds = args.length > 2 ? List.of(args).subList(2, args.length) : DEFAULT_MODELS;
+
+        var prompt = "Explain in three sentences why streaming responses feel faster to users.";
+        var message = Message.builder()
+                .content(ContentBlock.fromText(prompt))
+                .role(ConversationRole.USER)
+                .build();
+
+        try (var client = BedrockRuntimeAsyncClient.builder()
+                .region(Region.US_EAST_1)
+                .build()) {
+            var streaming = new StreamingConverse(client, new StreamingMetrics());
+            var inFlight = new Semaphore(concurrency);
+            List<CompletableFuture<String>> responses = new ArrayList<>();
+
+            // Interleave the models so that each one sees the same load over time.
+            for (int i = 0; i < requestsPerModel; i++) {
+                for (String modelId : modelIds) {
+                    var request = ConverseStreamRequest.builder()
+                            .modelId(modelId)
+                            .messages(message)
+                            .inferenceConfig(config -> config.maxTokens(256).temperature(0.5F))
+                            .build();
+                    inFlight.acquire();
+                    responses.add(streaming.collect(request).whenComplete((text, e) -> inFlight.release()));
+                }
+            }
+
+            long failed = 0;
+            for (CompletableFuture<String> response : responses) {
+                Throwable error = response.handle((text, e) -> e).join();
+                if (error != null) {
+                    failed++;
+                    System.err.println("Stream failed: " + error.getMessage());
+                }
+            }
+            System.out.printf("%nCompleted %d streams (%d failed) with %d in flight.%n%n",
+                    responses.size(), failed, concurrency);
+            streaming.metrics().printReport();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.bedrockruntime.libs.streaming;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlockDeltaEvent;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseStreamMetadataEvent;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseStreamOutput;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseStreamRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseStreamResponseHandler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams the text of a ConverseStream response as a {@link Flow.Publisher}, and records
+ * time-to-first-token, inter-token latency, and tokens per second in {@link StreamingMetrics}.
+ *
+ * The publisher passes the subscriber's demand straight through to the SDK's event stream, so a
+ * slow subscriber slows down reading from the connection instead of buffering the response.
+ * Events other than text deltas (message start and stop, metadata, and so on) are consumed
+ * internally and don't count against the subscriber's demand.
+ *
+ * Works with every model that supports the Converse API, such as Anthropic Claude, Amazon Nova,
+ * Meta Llama, Mistral, and Cohere Command.
+ */
+public class StreamingConverse {
+    private static final int COLLECT_BATCH = 32;
+
+    private final BedrockRuntimeAsyncClient client;
+    private final StreamingMetrics metrics;
+    private final StringBuilderPool builders = new StringBuilderPool(64, 1024, 64 * 1024);
+
+    public StreamingConverse(BedrockRuntimeAsyncClient client, StreamingMetrics metrics) {
+        this.client = client;
+        this.metrics = metrics;
+    }
+
+    public StreamingMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns a publisher of the response's text deltas. The request is sent when the publisher
+     * is subscribed to, and each subscription sends it again.
+     *
+     * @param request the ConverseStream request
+     * @return a cold publisher of text deltas
+     */
+    public Flow.Publisher<String> stream(ConverseStreamRequest request) {
+        return subscriber -> {
+            DeltaSubscription subscription = new DeltaSubscription(subscriber, metrics.start(request.modelId()));
+            ConverseStreamResponseHandler handler = ConverseStreamResponseHandler.builder()
+                .onEventStream(publisher -> publisher.subscribe(subscription))
+                .onError(subscription::error)
+                .build();
+            client.converseStream(request, handler).whenComplete((ignored, e) -> {
+                if (e != null) {
+                    subscription.error(e instanceof CompletionException ? e.getCause() : e);
+                }
+            });
+        };
+    }
+
+    /**
+     * Streams a response and returns its complete text. The text is accumulated in a pooled
+     * StringBuilder, and deltas are requested {@value #COLLECT_BATCH} at a time.
+     *
+     * @param request the ConverseStream request
+     * @return a future that completes with the response text
+     */
+    public CompletableFuture<String> collect(ConverseStreamRequest request) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        stream(request).subscribe(new Flow.Subscriber<>() {
+            private final StringBuilder text = builders.acquire();
+            private Flow.Subscription subscription;
+            private int outstanding;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                outstanding = COLLECT_BATCH;
+                subscription.request(COLLECT_BATCH);
+            }
+
+            @Override
+            public void onNext(String delta) {
+                text.append(delta);
+                if (--outstanding == 0) {
+                    outstanding = COLLECT_BATCH;
+                    subscription.request(COLLECT_BATCH);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                builders.release(text);
+                result.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                String complete = text.toString();
+                builders.release(text);
+                result.complete(complete);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Bridges the SDK's Reactive Streams event publisher to a {@link Flow.Subscriber} of text.
+     */
+    private static class DeltaSubscription implements Subscriber<ConverseStreamOutput>, Flow.Subscription {
+        private static final Flow.Subscription NO_OP = new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        };
+
+        private final Flow.Subscriber<? super String> downstream;
+        private final StreamingMetrics.StreamTimer timer;
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile Subscription upstream;
+
+        DeltaSubscription(Flow.Subscriber<? super String> downstream, StreamingMetrics.StreamTimer timer) {
+            this.downstream = downstream;
+            this.timer = timer;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            if (!subscribed.compareAndSet(false, true)) {
+                // The request already failed and the subscriber was told.
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(ConverseStreamOutput event) {
+            if (event instanceof ContentBlockDeltaEvent deltaEvent && deltaEvent.delta().text() != null) {
+                timer.onDelta();
+                downstream.onNext(deltaEvent.delta().text());
+                return;
+            }
+            if (event instanceof ConverseStreamMetadataEvent metadata
+                    && metadata.usage() != null && metadata.usage().outputTokens() != null) {
+                timer.onOutputTokens(metadata.usage().outputTokens());
+            }
+            // The subscriber didn't see this event, so replace the demand it used up.
+            upstream.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done.compareAndSet(false, true)) {
+                timer.complete();
+                downstream.onComplete();
+            }
+        }
+
+        void error(Throwable throwable) {
+            if (done.compareAndSet(false, true)) {
+                timer.fail();
+                if (subscribed.compareAndSet(false, true)) {
+                    downstream.onSubscribe(NO_OP);
+                }
+                downstream.onError(throwable);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            upstream.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            done.set(true);
+            upstream.cancel();
+        }
+    }
+}
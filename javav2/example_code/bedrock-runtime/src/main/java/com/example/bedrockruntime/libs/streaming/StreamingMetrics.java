@@ -0,0 +1,163 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.bedrockruntime.libs.streaming;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and throughput of streamed responses, per model ID.
+ *
+ * For each model it records:
+ * <ul>
+ *   <li>time to first token: from sending the request to the first text delta</li>
+ *   <li>inter-token latency: the gap between consecutive text deltas</li>
+ *   <li>output tokens per second: the output tokens the model reported, divided by the time
+ *       from sending the request to the end of the stream</li>
+ * </ul>
+ * Latencies are kept in fixed-size random samples, so percentiles stay cheap however long a
+ * benchmark runs. All methods are thread-safe.
+ */
+public class StreamingMetrics {
+    private static final int SAMPLE_SIZE = 10_000;
+
+    private final Map<String, ModelStats> models = new ConcurrentHashMap<>();
+
+    /**
+     * A snapshot of one model's metrics. Latencies are in milliseconds.
+     */
+    public record Summary(String modelId, long streams, long failures, long outputTokens,
+                          double timeToFirstTokenP50, double timeToFirstTokenP90, double timeToFirstTokenP99,
+                          double interTokenP50, double interTokenP99, double tokensPerSecond) {
+    }
+
+    /**
+     * Starts timing one stream.
+     *
+     * @param modelId the model the request was sent to
+     * @return a timer to report the stream's events to
+     */
+    public StreamTimer start(String modelId) {
+        return new StreamTimer(models.computeIfAbsent(modelId, id -> new ModelStats()));
+    }
+
+    /**
+     * Returns a summary of every model, sorted by model ID.
+     */
+    public Map<String, Summary> summaries() {
+        Map<String, Summary> summaries = new TreeMap<>();
+        models.forEach((modelId, stats) -> summaries.put(modelId, stats.summary(modelId)));
+        return summaries;
+    }
+
+    public void printReport() {
+        System.out.printf("%-45s %7s %6s %9s %9s %9s %8s %8s %9s%n", "Model", "Streams", "Errors",
+            "TTFT p50", "TTFT p90", "TTFT p99", "ITL p50", "ITL p99", "Tokens/s");
+        for (Summary s : summaries().values()) {
+            System.out.printf("%-45s %7d %6d %7.0fms %7.0fms %7.0fms %6.1fms %6.1fms %9.1f%n", s.modelId(),
+                s.streams(), s.failures(), s.timeToFirstTokenP50(), s.timeToFirstTokenP90(),
+                s.timeToFirstTokenP99(), s.interTokenP50(), s.interTokenP99(), s.tokensPerSecond());
+        }
+    }
+
+    /**
+     * Times one stream. Call {@link #onDelta()} for each text delta, {@link #onOutputTokens(long)} when
+     * the model reports its usage, and {@link #complete()} or {@link #fail()} once at the end.
+     * The events of one stream arrive one at a time, so the timer itself isn't synchronized.
+     */
+    public static class StreamTimer {
+        private final ModelStats stats;
+        private final long startNanos = System.nanoTime();
+        private long lastDeltaNanos;
+        private long deltas;
+        private long outputTokens = -1;
+
+        private StreamTimer(ModelStats stats) {
+            this.stats = stats;
+        }
+
+        public void onDelta() {
+            long now = System.nanoTime();
+            if (deltas++ == 0) {
+                stats.timeToFirstToken.add(now - startNanos);
+            } else {
+                stats.interToken.add(now - lastDeltaNanos);
+            }
+            lastDeltaNanos = now;
+        }
+
+        public void onOutputTokens(long tokens) {
+            outputTokens = tokens;
+        }
+
+        public void complete() {
+            stats.streams.increment();
+            // Without a usage report, each delta is counted as one token.
+            stats.outputTokens.add(outputTokens >= 0 ? outputTokens : deltas);
+            stats.streamingNanos.add(System.nanoTime() - startNanos);
+        }
+
+        public void fail() {
+            stats.failures.increment();
+        }
+    }
+
+    private static class ModelStats {
+        final Reservoir timeToFirstToken = new Reservoir();
+        final Reservoir interToken = new Reservoir();
+        final LongAdder streams = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder outputTokens = new LongAdder();
+        final LongAdder streamingNanos = new LongAdder();
+
+        Summary summary(String modelId) {
+            long[] ttft = timeToFirstToken.snapshot();
+            long[] itl = interToken.snapshot();
+            double seconds = streamingNanos.sum() / 1e9;
+            return new Summary(modelId, streams.sum(), failures.sum(), outputTokens.sum(),
+                millis(ttft, 0.50), millis(ttft, 0.90), millis(ttft, 0.99),
+                millis(itl, 0.50), millis(itl, 0.99),
+                seconds > 0 ? outputTokens.sum() / seconds : 0);
+        }
+
+        private static double millis(long[] sortedNanos, double quantile) {
+            if (sortedNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sortedNanos.length) - 1;
+            return sortedNanos[Math.max(0, index)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+
+    /**
+     * A uniform random sample of at most {@value #SAMPLE_SIZE} values (reservoir sampling).
+     */
+    private static class Reservoir {
+        private final long[] values = new long[SAMPLE_SIZE];
+        private long seen;
+
+        synchronized void add(long value) {
+            if (seen < SAMPLE_SIZE) {
+                values[(int) seen] = value;
+            } else {
+                long slot = ThreadLocalRandom.current().nextLong(seen + 1);
+                if (slot < SAMPLE_SIZE) {
+                    values[(int) slot] = value;
+                }
+            }
+            seen++;
+        }
+
+        synchronized long[] snapshot() {
+            long[] copy = Arrays.copyOf(values, (int) Math.min(seen, SAMPLE_SIZE));
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.bedrockruntime.libs.streaming;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A small pool of StringBuilders for accumulating streamed responses, so that each response
+ * doesn't grow a new buffer from 16 characters up to the full length of the text.
+ *
+ * Builders that grew past {@code maxRetainedCapacity} are dropped instead of pooled, so that one
+ * unusually long response doesn't pin a large buffer for the life of the pool.
+ */
+public class StringBuilderPool {
+    private final BlockingQueue<StringBuilder> pool;
+    private final int initialCapacity;
+    private final int maxRetainedCapacity;
+
+    /**
+     * @param maxPooled           the largest number of idle builders kept
+     * @param initialCapacity     the capacity of new builders
+     * @param maxRetainedCapacity the largest capacity of a builder that's returned to the pool
+     */
+    public StringBuilderPool(int maxPooled, int initialCapacity, int maxRetainedCapacity) {
+        this.pool = new ArrayBlockingQueue<>(maxPooled);
+        this.initialCapacity = initialCapacity;
+        this.maxRetainedCapacity = maxRetainedCapacity;
+    }
+
+    /**
+     * Returns an empty builder, from the pool if one is idle.
+     */
+    public StringBuilder acquire() {
+        StringBuilder builder = pool.poll();
+        return builder != null ? builder : new StringBuilder(initialCapacity);
+    }
+
+    /**
+     * Returns a builder to the pool. The caller must not use it afterwards.
+     */
+    public void release(StringBuilder builder) {
+        if (builder.capacity() <= maxRetainedCapacity) {
+            builder.setLength(0);
+            pool.offer(builder);
+        }
+    }
+}
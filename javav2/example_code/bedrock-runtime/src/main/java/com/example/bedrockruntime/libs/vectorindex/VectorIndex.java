@@ -0,0 +1,597 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.bedrockruntime.libs.vectorindex;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-process nearest-neighbour index for embeddings, such as those returned by Amazon Titan
+ * Text Embeddings, so that the closest documents to a query can be found without a vector database.
+ *
+ * Vectors are normalized to unit length when they're added, so the dot product of two vectors is
+ * their cosine similarity. They're stored in a memory-mapped file ({@code vectors.bin}) with their
+ * document IDs in {@code ids.txt} next to it, so an index larger than the heap can be searched and
+ * reopened later. The dot products run on a {@link VectorKernel}, which uses the Java Vector API
+ * when it's available.
+ *
+ * Searches use a Hierarchical Navigable Small World (HNSW) graph: each vector is linked to its
+ * nearest neighbours on a few layers, from a sparse top layer down to a dense bottom layer, and a
+ * search walks the graph greedily from the top. The graph is kept in memory only: opening an index
+ * rebuilds it by linking every stored vector again, which takes O(n log n) similarity computations,
+ * so reopening a large index takes about as long as adding its vectors did. {@link #searchExact(float[], int)}
+ * compares the query with every vector instead, which is slower but exact, and is also used while the
+ * index is small.
+ *
+ * The vectors file is mapped as a single buffer, so an index holds at most 2 GB of vectors, for example
+ * about 520,000 vectors of 1,024 dimensions. Adding a vector beyond that fails with an {@link IOException}.
+ *
+ * Any number of threads can search at once; adding a vector blocks searches briefly.
+ */
+public class VectorIndex implements AutoCloseable {
+    private static final int MAGIC = 0x56494458;
+    private static final int HEADER_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int EXACT_SEARCH_THRESHOLD = 256;
+
+    private final Path directory;
+    private final int dimensions;
+    private final int maxConnections;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final VectorKernel kernel;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<SearchContext> searchContexts;
+
+    private final FileChannel channel;
+    private BufferedWriter idWriter;
+    private MappedByteBuffer mapped;
+    private FloatBuffer vectors;
+    private int capacity;
+    private int count;
+
+    private final List<String> ids = new ArrayList<>();
+    // links.get(node)[level] holds the neighbour count followed by the neighbours, and
+    // linkScores.get(node)[level] the similarity of the node to each of those neighbours.
+    private final List<int[][]> links = new ArrayList<>();
+    private final List<float[][]> linkScores = new ArrayList<>();
+    private int entryPoint = -1;
+    private int topLevel = -1;
+
+    /**
+     * A search result.
+     *
+     * @param id    the document ID
+     * @param score the cosine similarity to the query, from -1 to 1
+     */
+    public record Match(String id, float score) {
+    }
+
+    private record Candidate(int node, float score) {
+    }
+
+    private VectorIndex(Path directory, int dimensions, int maxConnections, int efConstruction, int efSearch,
+                        VectorKernel kernel) throws IOException {
+        this.directory = directory;
+        this.dimensions = dimensions;
+        this.maxConnections = maxConnections;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(maxConnections);
+        this.kernel = kernel;
+        this.searchContexts = ThreadLocal.withInitial(() -> new SearchContext(dimensions));
+        this.channel = FileChannel.open(directory.resolve("vectors.bin"), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Opens the index in a directory, or creates an empty one, with typical graph settings. The graph of
+     * an existing index is rebuilt from its vectors, which takes O(n log n) time.
+     *
+     * @param directory  the directory that holds the index files
+     * @param dimensions the number of dimensions of every vector
+     */
+    public static VectorIndex open(Path directory, int dimensions) throws IOException {
+        return open(directory, dimensions, 16, 100, 64, VectorKernel.best());
+    }
+
+    /**
+     * Opens the index in a directory, or creates an empty one. The graph of an existing index is rebuilt
+     * from its vectors, which takes O(n log n) time.
+     *
+     * @param directory      the directory that holds the index files
+     * @param dimensions     the number of dimensions of every vector
+     * @param maxConnections the number of neighbours each vector is linked to on the upper layers
+     *                       (twice as many on the bottom layer); more gives better recall and a larger graph
+     * @param efConstruction the number of candidates considered when linking a new vector
+     * @param efSearch       the number of candidates considered by a search; more gives better recall
+     * @param kernel         the similarity kernel
+     */
+    public static VectorIndex open(Path directory, int dimensions, int maxConnections, int efConstruction,
+                                   int efSearch, VectorKernel kernel) throws IOException {
+        Files.createDirectories(directory);
+        VectorIndex index = new VectorIndex(directory, dimensions, maxConnections, efConstruction, efSearch, kernel);
+        try {
+            index.load();
+        } catch (IOException | RuntimeException e) {
+            index.channel.close();
+            throw e;
+        }
+        return index;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public VectorKernel kernel() {
+        return kernel;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a vector to the index and saves it.
+     *
+     * @param id     the document ID, which can't contain line breaks
+     * @param vector the vector; it's copied and normalized, so the caller's array isn't changed
+     */
+    public void add(String id, float[] vector) throws IOException {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        if (id.indexOf('\n') >= 0 || id.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("The document ID can't contain line breaks.");
+        }
+        float[] normalized = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            // The ID is saved before the count, so a crash can't leave a vector without an ID.
+            idWriter.write(id);
+            idWriter.write('\n');
+            idWriter.flush();
+            ensureCapacity(count + 1);
+            vectors.put(count * dimensions, normalized);
+            ids.add(id);
+            count++;
+            mapped.putInt(12, count);
+            link(count - 1, normalized);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the vectors most similar to a query with the HNSW graph. The results are approximate:
+     * now and then a close vector is missed.
+     *
+     * @param query the query vector; it doesn't have to be normalized
+     * @param k     the number of results, at least 1
+     * @return up to {@code k} matches, most similar first
+     */
+    public List<Match> search(float[] query, int k) {
+        checkK(k);
+        float[] normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (count <= EXACT_SEARCH_THRESHOLD) {
+                return exact(normalized, k);
+            }
+            SearchContext context = searchContexts.get();
+            int node = entryPoint;
+            for (int level = topLevel; level > 0; level--) {
+                node = greedyClosest(normalized, node, level, context);
+            }
+            PriorityQueue<Candidate> nearest = searchLayer(normalized, node, Math.max(efSearch, k), 0, context);
+            return toMatches(nearest, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the vectors most similar to a query by comparing it with every vector in the index.
+     *
+     * @param query the query vector; it doesn't have to be normalized
+     * @param k     the number of results, at least 1
+     * @return up to {@code k} matches, most similar first
+     */
+    public List<Match> searchExact(float[] query, int k) {
+        checkK(k);
+        float[] normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            return exact(normalized, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (mapped != null) {
+                mapped.force();
+            }
+            if (idWriter != null) {
+                idWriter.close();
+            }
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() throws IOException {
+        Path idsFile = directory.resolve("ids.txt");
+        List<String> storedIds = Files.exists(idsFile) ? Files.readAllLines(idsFile, StandardCharsets.UTF_8) : List.of();
+        int storedCount = 0;
+        if (channel.size() >= HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != 1) {
+                throw new IOException(directory + " doesn't hold a vector index.");
+            }
+            int storedDimensions = header.getInt();
+            if (storedDimensions != dimensions) {
+                throw new IOException("The index holds vectors with " + storedDimensions + " dimensions, not " + dimensions + ".");
+            }
+            storedCount = header.getInt();
+        }
+        // A vector is only counted once its ID was written, so trust the shorter of the two.
+        int loaded = Math.min(storedCount, storedIds.size());
+        map(Math.max(loaded, (int) Math.min(maxCapacity(),
+            Math.max(INITIAL_CAPACITY, (long) Integer.highestOneBit(Math.max(loaded, 1)) * 2))));
+        mapped.putInt(0, MAGIC).putInt(4, 1).putInt(8, dimensions).putInt(12, loaded);
+        if (storedIds.size() > loaded) {
+            Files.write(idsFile, storedIds.subList(0, loaded), StandardCharsets.UTF_8);
+        }
+        idWriter = Files.newBufferedWriter(idsFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+
+        float[] vector = new float[dimensions];
+        for (int node = 0; node < loaded; node++) {
+            vectors.get(node * dimensions, vector);
+            ids.add(storedIds.get(node));
+            count++;
+            link(node, vector);
+        }
+    }
+
+    private void ensureCapacity(int needed) throws IOException {
+        if (needed > capacity) {
+            if (needed > maxCapacity()) {
+                throw new IOException("The index is full: one mapping holds at most " + maxCapacity()
+                    + " vectors of " + dimensions + " dimensions.");
+            }
+            mapped.force();
+            map((int) Math.min(maxCapacity(), (long) capacity * 2));
+        }
+    }
+
+    // The vectors are one FloatBuffer, whose size and indexes are ints.
+    private int maxCapacity() {
+        return (Integer.MAX_VALUE - HEADER_SIZE) / (dimensions * Float.BYTES);
+    }
+
+    private static void checkK(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1 but was " + k);
+        }
+    }
+
+    private void map(int newCapacity) throws IOException {
+        long bytes = HEADER_SIZE + (long) newCapacity * dimensions * Float.BYTES;
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        // Little-endian, the byte order of nearly every CPU, so copying a vector out is a plain memory copy.
+        vectors = mapped.slice(HEADER_SIZE, (int) (bytes - HEADER_SIZE)).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        capacity = newCapacity;
+    }
+
+    /**
+     * Links a new node into the graph. The caller holds the write lock.
+     */
+    private void link(int node, float[] vector) {
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        int[][] nodeLinks = new int[level + 1][];
+        float[][] nodeLinkScores = new float[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[maxConnections(l) + 1];
+            nodeLinkScores[l] = new float[maxConnections(l) + 1];
+        }
+        links.add(nodeLinks);
+        linkScores.add(nodeLinkScores);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            topLevel = level;
+            return;
+        }
+
+        SearchContext context = searchContexts.get();
+        int closest = entryPoint;
+        for (int l = topLevel; l > level; l--) {
+            closest = greedyClosest(vector, closest, l, context);
+        }
+        for (int l = Math.min(level, topLevel); l >= 0; l--) {
+            PriorityQueue<Candidate> candidates = searchLayer(vector, closest, efConstruction, l, context);
+            List<Candidate> neighbours = selectNeighbours(candidates, maxConnections(l), context);
+            for (Candidate neighbour : neighbours) {
+                addLink(node, neighbour.node(), neighbour.score(), l);
+                addLink(neighbour.node(), node, neighbour.score(), l, context);
+            }
+            closest = neighbours.get(0).node();
+        }
+        if (level > topLevel) {
+            topLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxConnections * 2 : maxConnections;
+    }
+
+    private void addLink(int from, int to, float score, int level) {
+        int[] list = links.get(from)[level];
+        int size = ++list[0];
+        list[size] = to;
+        linkScores.get(from)[level][size] = score;
+    }
+
+    /**
+     * Links an existing node to a new one. If the node already has all the links it can hold,
+     * its neighbours are chosen again from the old ones plus the new one, unless the new one is
+     * further away than all of them, which is the common case once the graph is large.
+     */
+    private void addLink(int from, int to, float score, int level, SearchContext context) {
+        int[] list = links.get(from)[level];
+        float[] scores = linkScores.get(from)[level];
+        int max = list.length - 1;
+        if (list[0] < max) {
+            addLink(from, to, score, level);
+            return;
+        }
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+        float weakest = Float.MAX_VALUE;
+        for (int i = 1; i <= list[0]; i++) {
+            candidates.add(new Candidate(list[i], scores[i]));
+            weakest = Math.min(weakest, scores[i]);
+        }
+        if (score <= weakest) {
+            return;
+        }
+        candidates.add(new Candidate(to, score));
+        List<Candidate> kept = selectNeighbours(candidates, max, context);
+        list[0] = 0;
+        for (Candidate candidate : kept) {
+            addLink(from, candidate.node(), candidate.score(), level);
+        }
+    }
+
+    /**
+     * Chooses neighbours with the HNSW heuristic: a candidate is kept only if it's closer to the
+     * new node than to any neighbour kept so far, so the links point in different directions.
+     * Skipped candidates fill up the list if the heuristic keeps too few.
+     *
+     * @param candidates a min-heap on score; it's emptied
+     */
+    private List<Candidate> selectNeighbours(PriorityQueue<Candidate> candidates, int max, SearchContext context) {
+        List<Candidate> closestFirst = new ArrayList<>(candidates.size());
+        while (!candidates.isEmpty()) {
+            closestFirst.add(candidates.poll());
+        }
+        Collections.reverse(closestFirst);
+
+        List<Candidate> selected = new ArrayList<>(max);
+        List<Candidate> skipped = new ArrayList<>();
+        for (Candidate candidate : closestFirst) {
+            if (selected.size() == max) {
+                break;
+            }
+            float[] candidateVector = context.vector(vectors, candidate.node(), dimensions);
+            boolean diverse = true;
+            for (Candidate chosen : selected) {
+                if (similarity(candidateVector, chosen.node(), context) > candidate.score()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            (diverse ? selected : skipped).add(candidate);
+        }
+        for (int i = 0; i < skipped.size() && selected.size() < max; i++) {
+            selected.add(skipped.get(i));
+        }
+        return selected;
+    }
+
+    private int greedyClosest(float[] query, int start, int level, SearchContext context) {
+        int best = start;
+        float bestScore = similarity(query, start, context);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] list = links.get(best)[level];
+            for (int i = 1; i <= list[0]; i++) {
+                float score = similarity(query, list[i], context);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = list[i];
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The HNSW layer search: a best-first walk from the entry node that keeps the {@code ef}
+     * closest nodes found so far, and stops when no unexplored node can improve on them.
+     *
+     * @return the closest nodes found, as a min-heap on score
+     */
+    private PriorityQueue<Candidate> searchLayer(float[] query, int start, int ef, int level, SearchContext context) {
+        context.newVisit(count);
+        PriorityQueue<Candidate> toExplore = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score).reversed());
+        PriorityQueue<Candidate> nearest = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+        Candidate first = new Candidate(start, similarity(query, start, context));
+        context.visit(start);
+        toExplore.add(first);
+        nearest.add(first);
+
+        while (!toExplore.isEmpty()) {
+            Candidate current = toExplore.poll();
+            if (nearest.size() >= ef && current.score() < nearest.peek().score()) {
+                break;
+            }
+            int[][] nodeLinks = links.get(current.node());
+            if (level >= nodeLinks.length) {
+                continue;
+            }
+            int[] list = nodeLinks[level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbour = list[i];
+                if (!context.visit(neighbour)) {
+                    continue;
+                }
+                float score = similarity(query, neighbour, context);
+                if (nearest.size() < ef || score > nearest.peek().score()) {
+                    Candidate candidate = new Candidate(neighbour, score);
+                    toExplore.add(candidate);
+                    nearest.add(candidate);
+                    if (nearest.size() > ef) {
+                        nearest.poll();
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    private List<Match> exact(float[] query, int k) {
+        SearchContext context = searchContexts.get();
+        PriorityQueue<Candidate> nearest = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+        for (int node = 0; node < count; node++) {
+            float score = similarity(query, node, context);
+            if (nearest.size() < k) {
+                nearest.add(new Candidate(node, score));
+            } else if (score > nearest.peek().score()) {
+                nearest.poll();
+                nearest.add(new Candidate(node, score));
+            }
+        }
+        return toMatches(nearest, k);
+    }
+
+    private List<Match> toMatches(PriorityQueue<Candidate> nearest, int k) {
+        while (nearest.size() > k) {
+            nearest.poll();
+        }
+        Match[] matches = new Match[nearest.size()];
+        for (int i = matches.length - 1; i >= 0; i--) {
+            Candidate candidate = nearest.poll();
+            matches[i] = new Match(ids.get(candidate.node()), candidate.score());
+        }
+        return Arrays.asList(matches);
+    }
+
+    private float similarity(float[] query, int node, SearchContext context) {
+        return kernel.dot(query, context.scratch(vectors, node, dimensions));
+    }
+
+    private static float[] normalize(float[] vector) {
+        double sumOfSquares = 0;
+        for (float value : vector) {
+            sumOfSquares += value * value;
+        }
+        float[] normalized = vector.clone();
+        if (sumOfSquares > 0) {
+            float scale = (float) (1 / Math.sqrt(sumOfSquares));
+            for (int i = 0; i < normalized.length; i++) {
+                normalized[i] *= scale;
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * Per-thread buffers for a search: arrays to copy stored vectors into, so the kernel can work
+     * on plain arrays, and visit marks that are reset by bumping a generation number.
+     */
+    private static class SearchContext {
+        private final float[] scratch;
+        private final float[] vector;
+        private int[] visited = new int[INITIAL_CAPACITY];
+        private int generation;
+
+        SearchContext(int dimensions) {
+            this.scratch = new float[dimensions];
+            this.vector = new float[dimensions];
+        }
+
+        float[] scratch(FloatBuffer vectors, int node, int dimensions) {
+            vectors.get(node * dimensions, scratch);
+            return scratch;
+        }
+
+        /**
+         * Copies a vector into a second array that stays valid while {@link #scratch} is reused.
+         */
+        float[] vector(FloatBuffer vectors, int node, int dimensions) {
+            vectors.get(node * dimensions, vector);
+            return vector;
+        }
+
+        void newVisit(int nodes) {
+            if (visited.length < nodes) {
+                visited = new int[Math.max(nodes, visited.length * 2)];
+                generation = 0;
+            }
+            if (++generation == 0) {
+                Arrays.fill(visited, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * Marks a node as visited, and returns {@code false} if it already was.
+         */
+        boolean visit(int node) {
+            if (visited[node] == generation) {
+                return false;
+            }
+            visited[node] = generation;
+            return true;
+        }
+    }
+}
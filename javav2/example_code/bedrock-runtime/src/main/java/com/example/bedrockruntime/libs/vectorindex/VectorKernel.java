@@ -0,0 +1,41 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.bedrockruntime.libs.vectorindex;
+
+/**
+ * The similarity function used by {@link VectorIndex}.
+ *
+ * The index stores unit-length vectors, so the dot product is the cosine similarity.
+ */
+public interface VectorKernel {
+
+    /**
+     * Returns the dot product of two vectors of the same length.
+     */
+    float dot(float[] a, float[] b);
+
+    /**
+     * Returns the fastest kernel that this JVM can run.
+     *
+     * The SIMD kernel needs the incubating Vector API. It's only compiled by the {@code simd} Maven
+     * profile, and only loads when the JVM is started with {@code --add-modules jdk.incubator.vector}.
+     * Otherwise, the scalar kernel is used.
+     */
+    static VectorKernel best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (VectorKernel) Class.forName("com.example.bedrockruntime.libs.vectorindex.SimdVectorKernel")
+                    .getDeclaredConstructor()
+                    .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Fall through to the scalar kernel.
+            }
+        }
+        return scalar();
+    }
+
+    static VectorKernel scalar() {
+        return new ScalarVectorKernel();
+    }
+}
@@ -0,0 +1,113 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.bedrockruntime.models.amazonTitanTextEmbeddings;
+
+/**
+ * A concurrency limit that shrinks when requests are throttled and grows back as they succeed
+ * (additive increase, multiplicative decrease).
+ *
+ * Every request gets a ticket when it's let in. A throttle halves the limit only if the throttled
+ * request was let in after the last cut. Requests that were already in flight when the limit was cut
+ * were sent at the old rate, so their throttles don't cut it again; the window halves at most once
+ * until those requests have been replaced by requests sent under the new limit.
+ */
+public class AdaptiveWindow {
+    private final int max;
+    private int limit;
+    private int inFlight;
+    private int successesSinceGrowth;
+    private long issued;
+    private long cutAt;
+
+    /**
+     * @param max the largest number of requests in flight at once
+     */
+    public AdaptiveWindow(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("max must be at least 1");
+        }
+        this.max = max;
+        this.limit = max;
+    }
+
+    /**
+     * Waits until there's room in the window and lets one request in.
+     *
+     * @return the request's ticket, to pass to {@link #onThrottled(long)}
+     */
+    public synchronized long acquire() throws InterruptedException {
+        while (inFlight >= limit) {
+            wait();
+        }
+        inFlight++;
+        return ++issued;
+    }
+
+    /**
+     * Returns the ticket of the request let in last. A request that didn't go through
+     * {@link #acquire()} can use it to report throttling.
+     */
+    public synchronized long lastTicket() {
+        return issued;
+    }
+
+    /**
+     * Lets another request in. The limit grows by one after a full window of successes.
+     */
+    public synchronized void release(boolean succeeded) {
+        inFlight--;
+        if (succeeded && limit < max && ++successesSinceGrowth >= limit) {
+            limit++;
+            successesSinceGrowth = 0;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Halves the limit, unless it was already cut after the throttled request was let in.
+     *
+     * @param ticket the ticket of the throttled request
+     * @return whether the limit was cut
+     */
+    public synchronized boolean onThrottled(long ticket) {
+        if (ticket <= cutAt) {
+            return false;
+        }
+        limit = Math.max(1, limit / 2);
+        successesSinceGrowth = 0;
+        cutAt = issued;
+        return true;
+    }
+
+    public synchronized int limit() {
+        return limit;
+    }
+
+    /**
+     * Waits until no requests are in flight.
+     */
+    public synchronized void awaitIdle() throws InterruptedException {
+        while (inFlight > 0) {
+            wait();
+        }
+    }
+
+    /**
+     * Waits until no requests are in flight, even if the thread is interrupted. Use it to let
+     * requests finish before releasing what they use. The interrupt status is restored afterwards.
+     */
+    public synchronized void awaitIdleUninterruptibly() {
+        boolean interrupted = false;
+        while (inFlight > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
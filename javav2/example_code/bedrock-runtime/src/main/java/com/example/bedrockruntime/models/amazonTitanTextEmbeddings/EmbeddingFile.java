@@ -0,0 +1,204 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.bedrockruntime.models.amazonTitanTextEmbeddings;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * An append-only file of embeddings, one record per document.
+ *
+ * The file starts with a 12-byte header (the magic number "TEMB", the format version, and the
+ * number of dimensions). Each record is the document ID (a 2-byte length and the UTF-8 bytes)
+ * followed by the vector as big-endian floats.
+ *
+ * Because records are only ever appended, a run that stops part-way leaves at most one partial
+ * record at the end. Opening the file drops that record and remembers which documents are already
+ * in the file, so the next run can skip them.
+ */
+public class EmbeddingFile implements AutoCloseable {
+    private static final int MAGIC = 0x54454D42;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int MAX_ID_BYTES = 0xFFFF;
+
+    private final FileChannel channel;
+    private final int dimensions;
+    private final Set<String> ids;
+    private final ByteBuffer buffer;
+    private boolean closed;
+
+    private EmbeddingFile(FileChannel channel, int dimensions, Set<String> ids) {
+        this.channel = channel;
+        this.dimensions = dimensions;
+        this.ids = ids;
+        this.buffer = ByteBuffer.allocateDirect(2 + MAX_ID_BYTES + dimensions * Float.BYTES);
+    }
+
+    /**
+     * Opens an embedding file for appending, creating it if it doesn't exist.
+     *
+     * @param path       the file
+     * @param dimensions the number of dimensions of every vector in the file
+     * @return the open file
+     * @throws IOException if the file can't be read, or holds vectors with a different number of dimensions
+     */
+    public static EmbeddingFile open(Path path, int dimensions) throws IOException {
+        Set<String> ids = new HashSet<>();
+        long validLength = 0;
+        if (Files.exists(path) && Files.size(path) >= HEADER_SIZE) {
+            validLength = scan(path, (id, vector) -> ids.add(id), false);
+            if (validLength == 0) {
+                throw new IOException(path + " isn't an embedding file.");
+            }
+            int fileDimensions = readDimensions(path);
+            if (fileDimensions != dimensions) {
+                throw new IOException(path + " holds vectors with " + fileDimensions + " dimensions, not " + dimensions + ".");
+            }
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            if (validLength == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putInt(dimensions);
+                channel.truncate(0);
+                channel.write(header.flip(), 0);
+                validLength = HEADER_SIZE;
+            } else {
+                // Drop a record that a previous run only partly wrote.
+                channel.truncate(validLength);
+            }
+            channel.position(validLength);
+            return new EmbeddingFile(channel, dimensions, ids);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads every complete record of an embedding file.
+     *
+     * @param path     the file
+     * @param consumer called with the document ID and vector of each record
+     * @throws IOException if the file can't be read
+     */
+    public static void forEach(Path path, BiConsumer<String, float[]> consumer) throws IOException {
+        scan(path, consumer, true);
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Returns whether the file already holds an embedding for the document.
+     */
+    public synchronized boolean contains(String id) {
+        return ids.contains(id);
+    }
+
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    /**
+     * Appends an embedding. Safe to call from several threads.
+     *
+     * @param id     the document ID
+     * @param vector the embedding, which must have {@link #dimensions()} values
+     * @throws IOException if the file is closed or can't be written
+     */
+    public synchronized void append(String id, float[] vector) throws IOException {
+        if (closed) {
+            throw new IOException("The embedding file is closed.");
+        }
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        if (idBytes.length > MAX_ID_BYTES) {
+            throw new IllegalArgumentException("The document ID is longer than " + MAX_ID_BYTES + " bytes.");
+        }
+        buffer.clear();
+        buffer.putShort((short) idBytes.length).put(idBytes);
+        buffer.asFloatBuffer().put(vector);
+        buffer.position(buffer.position() + vector.length * Float.BYTES);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ids.add(id);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static int readDimensions(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            in.readInt();
+            in.readInt();
+            return in.readInt();
+        }
+    }
+
+    /**
+     * Reads the records of a file and returns the length of its valid part: the header and every
+     * complete record. Returns 0 if the file has no valid header.
+     */
+    private static long scan(Path path, BiConsumer<String, float[]> consumer, boolean readVectors) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return 0;
+            }
+            int dimensions = in.readInt();
+            long validLength = HEADER_SIZE;
+            byte[] vectorBytes = new byte[dimensions * Float.BYTES];
+            while (true) {
+                try {
+                    int idLength = in.readUnsignedShort();
+                    byte[] idBytes = in.readNBytes(idLength);
+                    in.readFully(vectorBytes);
+                    if (idBytes.length < idLength) {
+                        break;
+                    }
+                    float[] vector = null;
+                    if (readVectors) {
+                        vector = new float[dimensions];
+                        ByteBuffer.wrap(vectorBytes).asFloatBuffer().get(vector);
+                    }
+                    consumer.accept(new String(idBytes, StandardCharsets.UTF_8), vector);
+                    validLength += 2 + idLength + vectorBytes.length;
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+            return validLength;
+        } catch (EOFException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.bedrockruntime.models.amazonTitanTextEmbeddings;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.model.ModelNotReadyException;
+import software.amazon.awssdk.services.bedrockruntime.model.ServiceUnavailableException;
+import software.amazon.awssdk.services.bedrockruntime.model.ThrottlingException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Embeds large numbers of documents with Amazon Titan Text Embeddings V2 on a shared
+ * {@link BedrockRuntimeAsyncClient}.
+ *
+ * Requests are sent concurrently inside an {@link AdaptiveWindow} that adapts to throttling:
+ * throttling halves the window at most once per window of requests, throttled requests are
+ * retried after a backoff, and the window grows back by one request for every window's worth
+ * of successes, up to the configured maximum.
+ *
+ * Request bodies are written with Jackson, so any input text is encoded correctly, and the
+ * embedding is parsed straight into a {@code float[]}. Vectors are appended to an
+ * {@link EmbeddingFile}; documents already in that file are skipped, so a run that stops
+ * part-way can be started again with the same output file. A document ID that appears more than
+ * once in the input is embedded only the first time.
+ */
+public class EmbeddingPipeline {
+    public static final String MODEL_ID = "amazon.titan-embed-text-v2:0";
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long BASE_BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 20_000;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory JSON_FACTORY = MAPPER.getFactory();
+
+    private final BedrockRuntimeAsyncClient client;
+    private final int dimensions;
+    private final boolean normalize;
+    private final AdaptiveWindow window;
+
+    private final LongAdder embedded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder inputTokens = new LongAdder();
+
+    /**
+     * A document to embed.
+     *
+     * @param id   a unique ID, used to skip documents that are already in the output file
+     * @param text the text to embed
+     */
+    public record Document(String id, String text) {
+    }
+
+    /**
+     * The outcome of a run.
+     *
+     * @param embedded    the number of documents embedded by this run
+     * @param skipped     the number of documents that were already in the output file or earlier in the input
+     * @param failed      the number of documents that couldn't be embedded; a later run retries them
+     * @param throttled   the number of requests that were throttled and retried
+     * @param inputTokens the number of input tokens the model reported
+     * @param elapsed     the time the run took
+     */
+    public record Result(long embedded, long skipped, long failed, long throttled, long inputTokens, Duration elapsed) {
+        public double documentsPerSecond() {
+            return embedded / Math.max(elapsed.toNanos() / 1e9, 1e-9);
+        }
+    }
+
+    /**
+     * @param client         the shared async client
+     * @param dimensions     the number of dimensions of each embedding: 256, 512, or 1024
+     * @param normalize      whether the model should normalize the embeddings
+     * @param maxConcurrency the largest number of requests in flight at once
+     */
+    public EmbeddingPipeline(BedrockRuntimeAsyncClient client, int dimensions, boolean normalize, int maxConcurrency) {
+        this.client = client;
+        this.dimensions = dimensions;
+        this.normalize = normalize;
+        this.window = new AdaptiveWindow(maxConcurrency);
+    }
+
+    /**
+     * Embeds every document that isn't already in the output file, and waits until all are done.
+     * If the thread is interrupted, no more documents are sent, and the requests in flight finish
+     * before the output file is closed.
+     *
+     * @param documents  the documents to embed
+     * @param outputFile the embedding file to append to; it's created if it doesn't exist
+     * @return a summary of the run
+     */
+    public Result embedAll(Stream<Document> documents, Path outputFile) throws IOException, InterruptedException {
+        long startTime = System.nanoTime();
+        long embeddedBefore = embedded.sum();
+        long failedBefore = failed.sum();
+        long throttledBefore = throttled.sum();
+        long tokensBefore = inputTokens.sum();
+        long skipped = 0;
+
+        try (EmbeddingFile output = EmbeddingFile.open(outputFile, dimensions);
+             Stream<Document> docs = documents) {
+            // IDs sent by this run, so a duplicate isn't sent again while the first is still in flight.
+            Set<String> submitted = new HashSet<>();
+            try {
+                for (Document document : (Iterable<Document>) docs::iterator) {
+                    if (output.contains(document.id()) || !submitted.add(document.id())) {
+                        skipped++;
+                        continue;
+                    }
+                    long ticket = window.acquire();
+                    embed(document.text(), 1, ticket).whenComplete((vector, e) -> {
+                        boolean succeeded = false;
+                        try {
+                            if (e == null) {
+                                output.append(document.id(), vector);
+                                embedded.increment();
+                                succeeded = true;
+                            } else {
+                                failed.increment();
+                                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                                System.err.printf("Couldn't embed document '%s': %s%n", document.id(), cause.getMessage());
+                            }
+                        } catch (IOException writeError) {
+                            failed.increment();
+                            System.err.printf("Couldn't write document '%s': %s%n", document.id(), writeError.getMessage());
+                        } finally {
+                            window.release(succeeded);
+                        }
+                    });
+                }
+            } finally {
+                // The callbacks append to the output file, so let them finish before it's closed.
+                window.awaitIdleUninterruptibly();
+            }
+        }
+
+        return new Result(embedded.sum() - embeddedBefore, skipped, failed.sum() - failedBefore,
+            throttled.sum() - throttledBefore, inputTokens.sum() - tokensBefore,
+            Duration.ofNanos(System.nanoTime() - startTime));
+    }
+
+    /**
+     * Embeds one text. The returned future completes with the embedding.
+     */
+    public CompletableFuture<float[]> embed(String text) {
+        return embed(text, 1, window.lastTicket());
+    }
+
+    private CompletableFuture<float[]> embed(String text, int attempt, long ticket) {
+        return client.invokeModel(request -> request
+                .modelId(MODEL_ID)
+                .contentType("application/json")
+                .accept("application/json")
+                .body(SdkBytes.fromByteArrayUnsafe(requestBody(text))))
+            .thenApply(response -> parseEmbedding(response.body()))
+            .handle((vector, e) -> {
+                if (e == null) {
+                    return CompletableFuture.completedFuture(vector);
+                }
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                boolean retryable = cause instanceof ThrottlingException
+                    || cause instanceof ServiceUnavailableException
+                    || cause instanceof ModelNotReadyException;
+                if (!retryable || attempt >= MAX_ATTEMPTS) {
+                    return CompletableFuture.<float[]>failedFuture(cause);
+                }
+                if (cause instanceof ThrottlingException) {
+                    throttled.increment();
+                    window.onThrottled(ticket);
+                }
+                long cap = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (attempt - 1));
+                long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+                return CompletableFuture.supplyAsync(() -> null, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> embed(text, attempt + 1, ticket));
+            })
+            .thenCompose(future -> future);
+    }
+
+    private byte[] requestBody(String text) {
+        ObjectNode body = MAPPER.createObjectNode()
+            .put("inputText", text)
+            .put("dimensions", dimensions)
+            .put("normalize", normalize);
+        try {
+            return MAPPER.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the "embedding" array of the response into a float array, and adds up the
+     * "inputTextTokenCount" field, without building a JSON tree.
+     */
+    private float[] parseEmbedding(SdkBytes body) {
+        float[] vector = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(body.asByteArrayUnsafe())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("The response isn't a JSON object.");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("embedding".equals(field)) {
+                    vector = new float[dimensions];
+                    int count = 0;
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (count == vector.length) {
+                            vector = Arrays.copyOf(vector, vector.length * 2);
+                        }
+                        vector[count++] = parser.getFloatValue();
+                    }
+                    if (count != dimensions) {
+                        throw new IOException("Expected " + dimensions + " dimensions but got " + count + ".");
+                    }
+                } else if ("inputTextTokenCount".equals(field)) {
+                    inputTokens.add(parser.getLongValue());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't parse the model's response", e);
+        }
+        if (vector == null) {
+            throw new IllegalStateException("The model's response has no embedding.");
+        }
+        return vector;
+    }
+
+    /**
+     * Embeds a text file, one document per line, into an embedding file. Run it again with the
+     * same arguments to finish a run that was stopped.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final String usage = """
+                Usage:
+                    <inputFile> <outputFile>
+
+                Where:
+                    inputFile - A UTF-8 text file with one document per line.
+                    outputFile - The embedding file to write. Documents already in it are skipped.
+                """;
+
+        if (args.length != 2) {
+            System.out.println(usage);
+            return;
+        }
+
+        try (BedrockRuntimeAsyncClient client = BedrockRuntimeAsyncClient.builder()
+                .region(Region.US_WEST_2)
+                .build()) {
+            EmbeddingPipeline pipeline = new EmbeddingPipeline(client, 256, true, 32);
+            long[] lineNumber = {0};
+            Stream<Document> documents = Files.lines(Path.of(args[0]), StandardCharsets.UTF_8)
+                .map(line -> new Document("line-" + ++lineNumber[0], line))
+                .filter(document -> !document.text().isBlank());
+            Result result = pipeline.embedAll(documents, Path.of(args[1]));
+            System.out.printf("Embedded %d documents (%d skipped, %d failed, %d throttled) in %s, %.1f documents/sec, %d input tokens.%n",
+                result.embedded(), result.skipped(), result.failed(), result.throttled(), result.elapsed(),
+                result.documentsPerSecond(), result.inputTokens());
+        }
+    }
+}
@@ -23,6 +23,12 @@ import java.util.List;
 public class TextEmbeddingsScenarios {
     // snippet-start:[bedrock-runtime.java2.InvokeModel_TitanTextEmbeddings_AdditionalFields]
 
+    // Create a Bedrock Runtime client in the AWS Region of your choice.
+    // Clients are thread-safe and expensive to create, so one client is shared by every call.
+    private static final BedrockRuntimeClient client = BedrockRuntimeClient.builder()
+            .region(Region.US_WEST_2)
+            .build();
+
     /**
      * Invoke Amazon Titan Text Embeddings V2 with additional inference parameters.
      *
@@ -34,22 +40,16 @@ public class TextEmbeddingsScenarios {
      */
     public static JSONObject invokeModel(String inputText, int dimensions, boolean normalize) {
 
-        // Create a Bedrock Runtime client in the AWS Region of your choice.
-        var client = BedrockRuntimeClient.builder()
-                .region(Region.US_WEST_2)
-                .build();
-
         // Set the model ID, e.g., Titan Embed Text v2.0.
         var modelId = "amazon.titan-embed-text-v2:0";
 
-        // Create the request for the model.
-        var nativeRequest = """
-                {
-                    "inputText": "%s",
-                    "dimensions": %d,
-                    "normalize": %b
-                }
-                """.formatted(inputText, dimensions, normalize);
+        // Create the request for the model. JSONObject escapes quotes and other
+        // special characters in the input text.
+        var nativeRequest = new JSONObject()
+                .put("inputText", inputText)
+                .put("dimensions", dimensions)
+                .put("normalize", normalize)
+                .toString();
 
         // Encode and send the request.
         var response = client.invokeModel(request -> {
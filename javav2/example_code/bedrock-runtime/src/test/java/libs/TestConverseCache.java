@@ -0,0 +1,219 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package libs;
+
+import com.example.bedrockruntime.libs.cache.ConverseCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeServiceClientConfiguration;
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ConversationRole;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseResponse;
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+import software.amazon.awssdk.services.bedrockruntime.model.StopReason;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the cache against a client that answers locally, so no calls go to Amazon Bedrock.
+ */
+public class TestConverseCache {
+    private static final String MODEL_ID = "amazon.nova-lite-v1:0";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void identicalRequestsShareAKey() throws IOException {
+        FakeClient client = new FakeClient(request -> CompletableFuture.completedFuture(response("Hello")));
+        ConverseCache cache = new ConverseCache(client, 10, null);
+
+        // Built separately, but equal field by field.
+        cache.converse(request("Say hello", 0.5F)).join();
+        cache.converse(request("Say hello", 0.5F)).join();
+        assertEquals(1, client.calls.size());
+
+        // Any field that differs gives a different key.
+        cache.converse(request("Say hello", 0.7F)).join();
+        cache.converse(request("Say goodbye", 0.5F)).join();
+        cache.converse(request("Say hello", 0.5F).toBuilder().modelId("amazon.nova-pro-v1:0").build()).join();
+        assertEquals(4, client.calls.size());
+
+        ConverseCache.Stats stats = cache.stats();
+        assertEquals(5, stats.requests());
+        assertEquals(1, stats.memoryHits());
+        assertEquals(4, stats.misses());
+    }
+
+    @Test
+    public void concurrentIdenticalRequestsAreCoalesced() throws IOException {
+        CompletableFuture<ConverseResponse> pending = new CompletableFuture<>();
+        FakeClient client = new FakeClient(request -> pending);
+        ConverseCache cache = new ConverseCache(client, 10, null);
+
+        List<CompletableFuture<ConverseResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(cache.converse(request("Say hello", 0.5F)));
+        }
+        assertEquals(1, client.calls.size());
+        assertFalse(futures.get(4).isDone());
+
+        pending.complete(response("Hello"));
+        for (CompletableFuture<ConverseResponse> future : futures) {
+            assertEquals("Hello", text(future.join()));
+        }
+        assertEquals(4, cache.stats().coalesced());
+    }
+
+    @Test
+    public void failedCallIsNotCachedOrLeftInFlight() throws IOException {
+        List<Function<ConverseRequest, CompletableFuture<ConverseResponse>>> answers = new ArrayList<>(List.of(
+            request -> {
+                throw new IllegalStateException("The client is closed.");
+            },
+            request -> CompletableFuture.failedFuture(new IllegalStateException("Throttled")),
+            request -> CompletableFuture.completedFuture(response("Hello"))));
+        FakeClient client = new FakeClient(request -> answers.remove(0).apply(request));
+        ConverseCache cache = new ConverseCache(client, 10, null);
+
+        assertThrows(CompletionException.class, () -> cache.converse(request("Say hello", 0.5F)).join());
+        assertThrows(CompletionException.class, () -> cache.converse(request("Say hello", 0.5F)).join());
+        assertEquals("Hello", text(cache.converse(request("Say hello", 0.5F)).join()));
+        assertEquals(3, client.calls.size());
+    }
+
+    @Test
+    public void expiredEntriesAreMisses() throws IOException, InterruptedException {
+        FakeClient client = new FakeClient(request -> CompletableFuture.completedFuture(response("Hello")));
+        ConverseCache cache = new ConverseCache(client, 10, directory, Duration.ofMillis(100), Long.MAX_VALUE);
+
+        cache.converse(request("Say hello", 0.5F)).join();
+        cache.converse(request("Say hello", 0.5F)).join();
+        assertEquals(1, client.calls.size());
+
+        Thread.sleep(200);
+        cache.converse(request("Say hello", 0.5F)).join();
+        assertEquals(2, client.calls.size());
+        assertEquals(0, cache.stats().diskHits());
+    }
+
+    @Test
+    public void diskTierSurvivesARestart() throws IOException {
+        FakeClient client = new FakeClient(request -> CompletableFuture.completedFuture(response("Hello")));
+        new ConverseCache(client, 10, directory).converse(request("Say hello", 0.5F)).join();
+
+        ConverseCache restarted = new ConverseCache(client, 10, directory);
+        ConverseResponse stored = restarted.converse(request("Say hello", 0.5F)).join();
+        assertEquals(1, client.calls.size());
+        assertEquals(1, restarted.stats().diskHits());
+        assertEquals("Hello", text(stored));
+        assertEquals(ConversationRole.ASSISTANT, stored.output().message().role());
+        assertEquals(StopReason.END_TURN, stored.stopReason());
+        assertEquals(7, stored.usage().inputTokens());
+        assertEquals(3, stored.usage().outputTokens());
+        assertEquals(10, stored.usage().totalTokens());
+    }
+
+    @Test
+    public void diskTierEvictsLeastRecentlyUsedFiles() throws IOException {
+        FakeClient client = new FakeClient(request -> CompletableFuture.completedFuture(response("Hello")));
+        ConverseCache first = new ConverseCache(client, 10, directory);
+        first.converse(request("One", 0.5F)).join();
+        Path oldest;
+        try (Stream<Path> files = Files.list(directory)) {
+            oldest = files.findFirst().orElseThrow();
+        }
+        long entryBytes = Files.size(oldest);
+        Files.setLastModifiedTime(oldest, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+
+        // Room for two entries.
+        ConverseCache cache = new ConverseCache(client, 10, directory, null, entryBytes * 2 + entryBytes / 2);
+        cache.converse(request("Two", 0.5F)).join();
+        cache.converse(request("Three", 0.5F)).join();
+        assertEquals(2, countFiles());
+
+        // "One" was evicted from disk, so a new cache has to send it again.
+        ConverseCache restarted = new ConverseCache(client, 10, directory);
+        int calls = client.calls.size();
+        restarted.converse(request("One", 0.5F)).join();
+        assertEquals(calls + 1, client.calls.size());
+        restarted.converse(request("Three", 0.5F)).join();
+        assertEquals(calls + 1, client.calls.size());
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static ConverseRequest request(String prompt, float temperature) {
+        return ConverseRequest.builder()
+            .modelId(MODEL_ID)
+            .messages(Message.builder()
+                .role(ConversationRole.USER)
+                .content(ContentBlock.fromText(prompt))
+                .build())
+            .inferenceConfig(config -> config.maxTokens(256).temperature(temperature))
+            .build();
+    }
+
+    private static ConverseResponse response(String text) {
+        return ConverseResponse.builder()
+            .output(output -> output.message(Message.builder()
+                .role(ConversationRole.ASSISTANT)
+                .content(ContentBlock.fromText(text))
+                .build()))
+            .stopReason(StopReason.END_TURN)
+            .usage(usage -> usage.inputTokens(7).outputTokens(3).totalTokens(10))
+            .build();
+    }
+
+    private static String text(ConverseResponse response) {
+        return response.output().message().content().get(0).text();
+    }
+
+    private static class FakeClient implements BedrockRuntimeAsyncClient {
+        final List<ConverseRequest> calls = new ArrayList<>();
+        private final Function<ConverseRequest, CompletableFuture<ConverseResponse>> answer;
+
+        FakeClient(Function<ConverseRequest, CompletableFuture<ConverseResponse>> answer) {
+            this.answer = answer;
+        }
+
+        @Override
+        public synchronized CompletableFuture<ConverseResponse> converse(ConverseRequest request) {
+            calls.add(request);
+            return answer.apply(request);
+        }
+
+        @Override
+        public BedrockRuntimeServiceClientConfiguration serviceClientConfiguration() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,167 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package libs;
+
+import com.example.bedrockruntime.models.amazonTitanTextEmbeddings.AdaptiveWindow;
+import com.example.bedrockruntime.models.amazonTitanTextEmbeddings.EmbeddingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestEmbeddingPipeline {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void windowHalvesOncePerCongestionWindow() throws InterruptedException {
+        AdaptiveWindow window = new AdaptiveWindow(8);
+        long[] tickets = new long[8];
+        for (int i = 0; i < tickets.length; i++) {
+            tickets[i] = window.acquire();
+        }
+
+        assertTrue(window.onThrottled(tickets[2]));
+        assertEquals(4, window.limit());
+        // The other requests were sent before the cut, so their throttles don't cut again.
+        assertFalse(window.onThrottled(tickets[5]));
+        assertFalse(window.onThrottled(tickets[7]));
+        assertEquals(4, window.limit());
+
+        for (int i = 0; i < tickets.length; i++) {
+            window.release(false);
+        }
+        assertTrue(window.onThrottled(window.acquire()));
+        assertEquals(2, window.limit());
+    }
+
+    @Test
+    public void windowGrowsByOneAfterAWindowOfSuccesses() throws InterruptedException {
+        AdaptiveWindow window = new AdaptiveWindow(4);
+        window.onThrottled(window.acquire());
+        window.release(false);
+        assertEquals(2, window.limit());
+
+        window.acquire();
+        window.release(true);
+        assertEquals(2, window.limit());
+        window.acquire();
+        window.release(true);
+        assertEquals(3, window.limit());
+
+        for (int i = 0; i < 10; i++) {
+            window.acquire();
+            window.release(true);
+        }
+        assertEquals(4, window.limit());
+    }
+
+    @Test
+    public void windowNeverShrinksBelowOne() throws InterruptedException {
+        AdaptiveWindow window = new AdaptiveWindow(2);
+        for (int i = 0; i < 3; i++) {
+            window.onThrottled(window.acquire());
+            window.release(false);
+        }
+        assertEquals(1, window.limit());
+    }
+
+    @Test
+    public void windowWaitsForRequestsThroughAnInterrupt() throws InterruptedException {
+        AdaptiveWindow window = new AdaptiveWindow(2);
+        window.acquire();
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                return;
+            }
+            window.release(true);
+        });
+        releaser.start();
+
+        Thread.currentThread().interrupt();
+        window.awaitIdleUninterruptibly();
+        assertTrue(Thread.interrupted());
+        releaser.join();
+    }
+
+    @Test
+    public void embeddingFileRoundTrip() throws IOException {
+        Path path = directory.resolve("embeddings.bin");
+        Map<String, float[]> written = new LinkedHashMap<>();
+        written.put("first", new float[]{0.5f, -1.25f, 3f});
+        written.put("second-é", new float[]{Float.MIN_VALUE, 0f, -0f});
+        try (EmbeddingFile file = EmbeddingFile.open(path, 3)) {
+            for (Map.Entry<String, float[]> entry : written.entrySet()) {
+                file.append(entry.getKey(), entry.getValue());
+            }
+        }
+
+        Map<String, float[]> read = new LinkedHashMap<>();
+        EmbeddingFile.forEach(path, read::put);
+        assertEquals(written.keySet(), read.keySet());
+        for (String id : written.keySet()) {
+            assertArrayEquals(written.get(id), read.get(id));
+        }
+
+        try (EmbeddingFile file = EmbeddingFile.open(path, 3)) {
+            assertEquals(2, file.size());
+            assertTrue(file.contains("first"));
+            assertFalse(file.contains("third"));
+        }
+    }
+
+    @Test
+    public void embeddingFileDropsPartialRecord() throws IOException {
+        Path path = directory.resolve("partial.bin");
+        try (EmbeddingFile file = EmbeddingFile.open(path, 2)) {
+            file.append("kept", new float[]{1f, 2f});
+            file.append("torn", new float[]{3f, 4f});
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(path) - 3);
+        }
+
+        try (EmbeddingFile file = EmbeddingFile.open(path, 2)) {
+            assertEquals(1, file.size());
+            assertFalse(file.contains("torn"));
+            file.append("torn", new float[]{3f, 4f});
+        }
+        Map<String, float[]> read = new LinkedHashMap<>();
+        EmbeddingFile.forEach(path, read::put);
+        assertArrayEquals(new float[]{3f, 4f}, read.get("torn"));
+    }
+
+    @Test
+    public void embeddingFileRejectsOtherDimensions() throws IOException {
+        Path path = directory.resolve("dimensions.bin");
+        try (EmbeddingFile file = EmbeddingFile.open(path, 2)) {
+            file.append("a", new float[]{1f, 2f});
+        }
+        assertThrows(IOException.class, () -> EmbeddingFile.open(path, 3));
+    }
+
+    @Test
+    public void embeddingFileRejectsAppendAfterClose() throws IOException {
+        Path path = directory.resolve("closed.bin");
+        EmbeddingFile file = EmbeddingFile.open(path, 2);
+        file.append("a", new float[]{1f, 2f});
+        file.close();
+        file.close();
+
+        assertThrows(IOException.class, () -> file.append("b", new float[]{3f, 4f}));
+        Map<String, float[]> read = new LinkedHashMap<>();
+        EmbeddingFile.forEach(path, read::put);
+        assertEquals(1, read.size());
+    }
+}
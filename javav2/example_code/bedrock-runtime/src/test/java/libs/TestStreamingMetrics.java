@@ -0,0 +1,74 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package libs;
+
+import com.example.bedrockruntime.libs.streaming.StreamingMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestStreamingMetrics {
+    private static final String MODEL_A = "amazon.nova-lite-v1:0";
+    private static final String MODEL_B = "anthropic.claude-3-haiku-20240307-v1:0";
+
+    @Test
+    public void summariesAggregatePerModel() throws InterruptedException {
+        StreamingMetrics metrics = new StreamingMetrics();
+
+        StreamingMetrics.StreamTimer first = metrics.start(MODEL_B);
+        Thread.sleep(5);
+        first.onDelta();
+        Thread.sleep(5);
+        first.onDelta();
+        first.onOutputTokens(40);
+        first.complete();
+
+        StreamingMetrics.StreamTimer second = metrics.start(MODEL_B);
+        second.onDelta();
+        second.onOutputTokens(60);
+        second.complete();
+
+        metrics.start(MODEL_B).fail();
+
+        StreamingMetrics.StreamTimer other = metrics.start(MODEL_A);
+        other.onDelta();
+        other.onDelta();
+        other.onDelta();
+        other.complete();
+
+        Map<String, StreamingMetrics.Summary> summaries = metrics.summaries();
+        assertEquals(List.of(MODEL_A, MODEL_B), List.copyOf(summaries.keySet()));
+
+        StreamingMetrics.Summary b = summaries.get(MODEL_B);
+        assertEquals(2, b.streams());
+        assertEquals(1, b.failures());
+        assertEquals(100, b.outputTokens());
+        assertTrue(b.timeToFirstTokenP99() >= 5, "TTFT p99 was " + b.timeToFirstTokenP99());
+        assertTrue(b.timeToFirstTokenP50() <= b.timeToFirstTokenP90());
+        assertTrue(b.interTokenP50() >= 5, "ITL p50 was " + b.interTokenP50());
+        assertTrue(b.tokensPerSecond() > 0);
+
+        // Without a usage report, each delta counts as one token.
+        StreamingMetrics.Summary a = summaries.get(MODEL_A);
+        assertEquals(1, a.streams());
+        assertEquals(0, a.failures());
+        assertEquals(3, a.outputTokens());
+    }
+
+    @Test
+    public void emptyModelSummaryIsZero() {
+        StreamingMetrics metrics = new StreamingMetrics();
+        metrics.start(MODEL_A).fail();
+
+        StreamingMetrics.Summary summary = metrics.summaries().get(MODEL_A);
+        assertEquals(0, summary.streams());
+        assertEquals(1, summary.failures());
+        assertEquals(0.0, summary.timeToFirstTokenP50());
+        assertEquals(0.0, summary.interTokenP99());
+        assertEquals(0.0, summary.tokensPerSecond());
+    }
+}
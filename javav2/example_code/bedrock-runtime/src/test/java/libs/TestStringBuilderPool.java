@@ -0,0 +1,52 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package libs;
+
+import com.example.bedrockruntime.libs.streaming.StringBuilderPool;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestStringBuilderPool {
+
+    @Test
+    public void releasedBuilderIsReusedEmpty() {
+        StringBuilderPool pool = new StringBuilderPool(2, 64, 1024);
+        StringBuilder builder = pool.acquire();
+        assertEquals(64, builder.capacity());
+        builder.append("streamed text");
+        pool.release(builder);
+
+        StringBuilder reused = pool.acquire();
+        assertSame(builder, reused);
+        assertEquals(0, reused.length());
+    }
+
+    @Test
+    public void oversizedBuilderIsDropped() {
+        StringBuilderPool pool = new StringBuilderPool(2, 16, 64);
+        StringBuilder builder = pool.acquire();
+        builder.append("x".repeat(200));
+        pool.release(builder);
+
+        assertNotSame(builder, pool.acquire());
+    }
+
+    @Test
+    public void poolKeepsAtMostMaxPooledBuilders() {
+        StringBuilderPool pool = new StringBuilderPool(2, 16, 64);
+        StringBuilder first = pool.acquire();
+        StringBuilder second = pool.acquire();
+        StringBuilder third = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+
+        assertSame(first, pool.acquire());
+        assertSame(second, pool.acquire());
+        StringBuilder fresh = pool.acquire();
+        assertNotSame(third, fresh);
+        assertEquals(16, fresh.capacity());
+    }
+}
@@ -0,0 +1,114 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package libs;
+
+import com.example.bedrockruntime.libs.vectorindex.VectorIndex;
+import com.example.bedrockruntime.libs.vectorindex.VectorKernel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestVectorIndex {
+    private static final int DIMENSIONS = 32;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void bestKernelMatchesTheJvm() throws IOException {
+        // With -Psimd, Surefire adds the incubator module and the SIMD kernel must load. Otherwise,
+        // including runs from an IDE, the index must fall back to the scalar kernel.
+        String expected = simdAvailable() ? "SimdVectorKernel" : "ScalarVectorKernel";
+        assertEquals(expected, VectorKernel.best().getClass().getSimpleName());
+        try (VectorIndex index = VectorIndex.open(directory, DIMENSIONS)) {
+            assertEquals(expected, index.kernel().getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    public void kernelsAgree() {
+        Random random = new Random(7);
+        float[] a = randomVector(random, 1027);
+        float[] b = randomVector(random, 1027);
+        assertEquals(VectorKernel.scalar().dot(a, b), VectorKernel.best().dot(a, b), 1e-3);
+    }
+
+    @Test
+    public void approximateSearchFindsMostExactNeighbours() throws IOException {
+        Random random = new Random(42);
+        try (VectorIndex index = VectorIndex.open(directory, DIMENSIONS)) {
+            for (int i = 0; i < 3000; i++) {
+                index.add("doc-" + i, randomVector(random, DIMENSIONS));
+            }
+
+            int found = 0;
+            for (int i = 0; i < 50; i++) {
+                float[] query = randomVector(random, DIMENSIONS);
+                Set<String> exact = new HashSet<>();
+                index.searchExact(query, 10).forEach(match -> exact.add(match.id()));
+                for (VectorIndex.Match match : index.search(query, 10)) {
+                    if (exact.contains(match.id())) {
+                        found++;
+                    }
+                }
+            }
+            assertTrue(found >= 0.8 * 50 * 10, "Recall too low: " + found / 500.0);
+        }
+    }
+
+    @Test
+    public void reopenedIndexKeepsVectors() throws IOException {
+        Random random = new Random(1);
+        float[] stored = randomVector(random, DIMENSIONS);
+        try (VectorIndex index = VectorIndex.open(directory, DIMENSIONS)) {
+            index.add("first", randomVector(random, DIMENSIONS));
+            index.add("second", stored);
+        }
+        try (VectorIndex index = VectorIndex.open(directory, DIMENSIONS)) {
+            assertEquals(2, index.size());
+            List<VectorIndex.Match> matches = index.search(stored, 1);
+            assertEquals("second", matches.get(0).id());
+            assertEquals(1.0, matches.get(0).score(), 1e-5);
+        }
+    }
+
+    @Test
+    public void searchRejectsNonPositiveK() throws IOException {
+        try (VectorIndex index = VectorIndex.open(directory, DIMENSIONS)) {
+            index.add("only", randomVector(new Random(3), DIMENSIONS));
+            float[] query = randomVector(new Random(4), DIMENSIONS);
+            assertThrows(IllegalArgumentException.class, () -> index.search(query, 0));
+            assertThrows(IllegalArgumentException.class, () -> index.searchExact(query, -1));
+        }
+    }
+
+    private static boolean simdAvailable() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            Class.forName("com.example.bedrockruntime.libs.vectorindex.SimdVectorKernel", false,
+                TestVectorIndex.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static float[] randomVector(Random random, int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -825,6 +825,30 @@ public class CloudWatchActions {
     }
     // snippet-end:[cloudwatch.java2.scenario.create.metric.main]
 
+    /**
+     * Creates a metric aggregator that publishes to the given namespace with this class's client.
+     * Use it instead of {@link #createNewCustomMetricAsync(Double)} when an application records many
+     * values: they are combined in memory and sent in batched PutMetricData requests.
+     *
+     * @param namespace     the namespace of the metrics
+     * @param flushInterval how often the accumulated metrics are sent
+     * @return a started {@link MetricAggregator}; close it to send the remaining values
+     */
+    public MetricAggregator createMetricAggregator(String namespace, Duration flushInterval) {
+        return new MetricAggregator(getAsyncClient(), namespace, flushInterval);
+    }
+
+    /**
+     * Creates an exporter that copies long ranges of metric data to a columnar file with this class's client.
+     * Use it instead of {@link #getCustomMetricDataAsync(String)} for ranges too long to hold in memory.
+     *
+     * @param maxConcurrentSlices the maximum number of time slices fetched at once
+     * @return a {@link MetricDataExporter}
+     */
+    public MetricDataExporter createMetricDataExporter(int maxConcurrentSlices) {
+        return new MetricDataExporter(getAsyncClient(), maxConcurrentSlices);
+    }
+
     // snippet-start:[cloudwatch.java2.scenario.list.dashboard.main]
     /**
      * Lists the available dashboards.
@@ -0,0 +1,369 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.cloudwatch.scenario;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates metric values in the application and publishes them to Amazon CloudWatch on an interval.
+ *
+ * <p>
+ * Sending one {@code PutMetricData} request per data point costs a request for every value. This class
+ * records values into per-metric accumulators instead, and a single scheduler thread sends the accumulated
+ * metrics every flush interval, up to {@value #MAX_METRICS_PER_REQUEST} metrics per request. There are two
+ * kinds of metric:
+ * <ul>
+ *     <li>{@link #statistic} metrics keep the minimum, maximum, sum, and sample count of the interval and are
+ *     sent as a {@link StatisticSet}.</li>
+ *     <li>{@link #distribution} metrics keep a count for each distinct value and are sent as value and count
+ *     arrays, so CloudWatch can compute percentiles. Round the values before recording them if they have many
+ *     distinct values.</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * Recording a value doesn't take a lock. Each metric accumulates into striped adders, and at flush time the
+ * scheduler thread swaps in a fresh accumulator and waits for writers that are still adding to the old one.
+ * Sending is best effort: the client retries throttled requests, and metrics from a request that still fails
+ * are logged and counted by {@link #failedCount()}.
+ * </p>
+ */
+public class MetricAggregator implements AutoCloseable {
+    public static final int MAX_METRICS_PER_REQUEST = 1000;
+    private static final int MAX_VALUES_PER_DATUM = 150;
+    private static final int MAX_DIMENSIONS = 30;
+    // PutMetricData accepts up to 1 MB per request. The sizes below are rough, conservative estimates.
+    private static final int MAX_REQUEST_BYTES = 900 * 1024;
+    private static final int DATUM_BYTES = 200;
+    private static final int VALUE_BYTES = 64;
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricAggregator.class);
+
+    private final CloudWatchAsyncClient client;
+    private final String namespace;
+    private final int storageResolution;
+    private final Map<MetricKey, Metric> metrics = new ConcurrentHashMap<>();
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+    private final ScheduledFuture<?> schedule;
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+
+    /**
+     * Creates an aggregator and starts its flush schedule. Intervals shorter than one minute publish
+     * high-resolution metrics.
+     *
+     * @param client        the CloudWatch client used to send the metrics
+     * @param namespace     the namespace of every metric recorded with this aggregator
+     * @param flushInterval how often the accumulated metrics are sent
+     */
+    public MetricAggregator(CloudWatchAsyncClient client, String namespace, Duration flushInterval) {
+        this.client = client;
+        this.namespace = namespace;
+        this.storageResolution = flushInterval.compareTo(Duration.ofMinutes(1)) < 0 ? 1 : 60;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cloudwatch-metric-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        this.schedule = scheduler.scheduleAtFixedRate(this::sendAccumulated, intervalMillis, intervalMillis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the statistic set metric with the given name, unit, and dimensions, creating it if needed.
+     * Keep the returned metric to avoid looking it up on every value.
+     */
+    public Metric statistic(String metricName, StandardUnit unit, Dimension... dimensions) {
+        return metric(metricName, unit, dimensions, false);
+    }
+
+    /**
+     * Returns the distribution metric with the given name, unit, and dimensions, creating it if needed.
+     * Keep the returned metric to avoid looking it up on every value.
+     */
+    public Metric distribution(String metricName, StandardUnit unit, Dimension... dimensions) {
+        return metric(metricName, unit, dimensions, true);
+    }
+
+    /**
+     * Records one value of a statistic set metric.
+     */
+    public void record(String metricName, double value, StandardUnit unit, Dimension... dimensions) {
+        statistic(metricName, unit, dimensions).record(value);
+    }
+
+    private Metric metric(String metricName, StandardUnit unit, Dimension[] dimensions, boolean distribution) {
+        if (dimensions.length > MAX_DIMENSIONS) {
+            throw new IllegalArgumentException("A metric can have at most " + MAX_DIMENSIONS + " dimensions.");
+        }
+        MetricKey key = new MetricKey(metricName, unit, List.of(dimensions));
+        Metric metric = metrics.computeIfAbsent(key, k -> new Metric(k, distribution));
+        if (metric.distribution != distribution) {
+            throw new IllegalArgumentException("Metric " + metricName + " was already created as a "
+                + (metric.distribution ? "distribution." : "statistic set."));
+        }
+        return metric;
+    }
+
+    /**
+     * Sends the values accumulated so far without waiting for the next interval.
+     *
+     * @return a future that completes when the requests for those values have completed
+     */
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.supplyAsync(this::sendAccumulated, scheduler).thenCompose(sent -> sent);
+    }
+
+    /**
+     * The number of metric data items that CloudWatch accepted.
+     */
+    public long sentCount() {
+        return sentCount.sum();
+    }
+
+    /**
+     * The number of metric data items in requests that failed.
+     */
+    public long failedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * Stops the flush schedule, sends the remaining values, and waits for every request to complete.
+     * The client isn't closed.
+     */
+    @Override
+    public void close() {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        schedule.cancel(false);
+        try {
+            flush().join();
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Swaps out the accumulator of every metric and sends the data in as few requests as possible.
+     * Runs only on the scheduler thread.
+     */
+    private CompletableFuture<Void> sendAccumulated() {
+        Instant timestamp = Instant.now();
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        List<MetricDatum> batch = new ArrayList<>();
+        int batchBytes = 0;
+        try {
+            for (Metric metric : metrics.values()) {
+                for (MetricDatum datum : metric.swap().toData(metric.key, timestamp, storageResolution)) {
+                    int datumBytes = estimateBytes(datum);
+                    if (batch.size() == MAX_METRICS_PER_REQUEST || batchBytes + datumBytes > MAX_REQUEST_BYTES) {
+                        requests.add(send(batch));
+                        batch = new ArrayList<>();
+                        batchBytes = 0;
+                    }
+                    batch.add(datum);
+                    batchBytes += datumBytes;
+                }
+            }
+            if (!batch.isEmpty()) {
+                requests.add(send(batch));
+            }
+        } catch (RuntimeException e) {
+            // Don't let one failure cancel the schedule.
+            logger.error("Failed to send metrics: {}", e.getMessage(), e);
+        }
+        return CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new));
+    }
+
+    private CompletableFuture<Void> send(List<MetricDatum> data) {
+        PutMetricDataRequest request = PutMetricDataRequest.builder()
+            .namespace(namespace)
+            .metricData(data)
+            .build();
+
+        CompletableFuture<Void> future = client.putMetricData(request)
+            .handle((response, ex) -> {
+                if (ex != null) {
+                    failedCount.add(data.size());
+                    logger.error("Failed to put {} metrics: {}", data.size(), ex.getMessage());
+                } else {
+                    sentCount.add(data.size());
+                }
+                return null;
+            });
+        inFlight.add(future);
+        future.whenComplete((ignored, ex) -> inFlight.remove(future));
+        return future;
+    }
+
+    private static int estimateBytes(MetricDatum datum) {
+        int bytes = DATUM_BYTES + datum.metricName().length() + VALUE_BYTES * datum.values().size();
+        for (Dimension dimension : datum.dimensions()) {
+            bytes += DATUM_BYTES / 2 + dimension.name().length() + dimension.value().length();
+        }
+        return bytes;
+    }
+
+    private record MetricKey(String metricName, StandardUnit unit, List<Dimension> dimensions) {
+    }
+
+    /**
+     * A metric that values are recorded into. Safe to use from any number of threads.
+     */
+    public static final class Metric {
+        private final MetricKey key;
+        private final boolean distribution;
+        private final AtomicReference<Window> window;
+
+        private Metric(MetricKey key, boolean distribution) {
+            this.key = key;
+            this.distribution = distribution;
+            this.window = new AtomicReference<>(newWindow());
+        }
+
+        /**
+         * Records one value in the current interval.
+         *
+         * @param value a finite value
+         */
+        public void record(double value) {
+            if (!Double.isFinite(value)) {
+                throw new IllegalArgumentException("CloudWatch accepts only finite values: " + value);
+            }
+            while (true) {
+                Window current = window.get();
+                current.entered.increment();
+                // If the window was swapped out after we read it, the flush may already be reading it.
+                if (window.get() == current) {
+                    current.add(value);
+                    current.exited.increment();
+                    return;
+                }
+                current.exited.increment();
+            }
+        }
+
+        private Window newWindow() {
+            return distribution ? new DistributionWindow() : new StatisticWindow();
+        }
+
+        /**
+         * Replaces the current window and returns the old one once no writer is still adding to it.
+         */
+        private Window swap() {
+            Window old = window.getAndSet(newWindow());
+            // Read exits before entries, so a writer that's still adding can't look finished.
+            while (old.exited.sum() != old.entered.sum()) {
+                Thread.onSpinWait();
+            }
+            return old;
+        }
+    }
+
+    private abstract static class Window {
+        final LongAdder entered = new LongAdder();
+        final LongAdder exited = new LongAdder();
+
+        abstract void add(double value);
+
+        abstract List<MetricDatum> toData(MetricKey key, Instant timestamp, int storageResolution);
+
+        static MetricDatum.Builder datum(MetricKey key, Instant timestamp, int storageResolution) {
+            return MetricDatum.builder()
+                .metricName(key.metricName())
+                .unit(key.unit())
+                .dimensions(key.dimensions())
+                .timestamp(timestamp)
+                .storageResolution(storageResolution);
+        }
+    }
+
+    private static final class StatisticWindow extends Window {
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+        private final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+        private final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+
+        @Override
+        void add(double value) {
+            count.increment();
+            sum.add(value);
+            min.accumulate(value);
+            max.accumulate(value);
+        }
+
+        @Override
+        List<MetricDatum> toData(MetricKey key, Instant timestamp, int storageResolution) {
+            long samples = count.sum();
+            if (samples == 0) {
+                return List.of();
+            }
+            StatisticSet statistics = StatisticSet.builder()
+                .sampleCount((double) samples)
+                .sum(sum.sum())
+                .minimum(min.get())
+                .maximum(max.get())
+                .build();
+            return List.of(datum(key, timestamp, storageResolution).statisticValues(statistics).build());
+        }
+    }
+
+    private static final class DistributionWindow extends Window {
+        private final Map<Double, LongAdder> counts = new ConcurrentHashMap<>();
+
+        @Override
+        void add(double value) {
+            counts.computeIfAbsent(value, v -> new LongAdder()).increment();
+        }
+
+        @Override
+        List<MetricDatum> toData(MetricKey key, Instant timestamp, int storageResolution) {
+            List<MetricDatum> data = new ArrayList<>();
+            List<Double> values = new ArrayList<>(MAX_VALUES_PER_DATUM);
+            List<Double> valueCounts = new ArrayList<>(MAX_VALUES_PER_DATUM);
+            for (Map.Entry<Double, LongAdder> entry : counts.entrySet()) {
+                values.add(entry.getKey());
+                valueCounts.add((double) entry.getValue().sum());
+                if (values.size() == MAX_VALUES_PER_DATUM) {
+                    data.add(datum(key, timestamp, storageResolution).values(values).counts(valueCounts).build());
+                    values = new ArrayList<>(MAX_VALUES_PER_DATUM);
+                    valueCounts = new ArrayList<>(MAX_VALUES_PER_DATUM);
+                }
+            }
+            if (!values.isEmpty()) {
+                data.add(datum(key, timestamp, storageResolution).values(values).counts(valueCounts).build());
+            }
+            return data;
+        }
+    }
+}
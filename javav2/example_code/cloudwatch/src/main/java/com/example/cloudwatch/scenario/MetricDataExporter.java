@@ -0,0 +1,367 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.cloudwatch.scenario;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
+import software.amazon.awssdk.services.cloudwatch.model.GetMetricDataRequest;
+import software.amazon.awssdk.services.cloudwatch.model.GetMetricDataResponse;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDataQuery;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDataResult;
+import software.amazon.awssdk.services.cloudwatch.model.ScanBy;
+import software.amazon.awssdk.services.cloudwatch.model.StatusCode;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Exports long ranges of CloudWatch metric data to a columnar file.
+ *
+ * <p>
+ * Reading a long range, such as 90 days of one-minute data, through one {@code GetMetricData} paginator
+ * fetches the pages one after another and, if the results are collected into lists, holds every datapoint
+ * on the heap as boxed objects. This class splits the range into time slices aligned to the queries'
+ * period and fetches a bounded number of slices at once. As each page arrives, its timestamps and values
+ * are written as primitives to spill files for the slice, so the heap only holds the pages in flight.
+ * When every slice is done, the spill files are concatenated in slice order into one
+ * {@link MetricDataFile}, which keeps each series in ascending timestamp order.
+ * </p>
+ *
+ * <p>
+ * CloudWatch keeps high-resolution data for a limited time, so older slices return datapoints at the
+ * coarser resolution that CloudWatch retained for them.
+ * </p>
+ */
+public class MetricDataExporter {
+    // GetMetricData returns at most 100,800 datapoints per page.
+    private static final int MAX_DATAPOINTS_PER_PAGE = 100_800;
+    private static final Duration MAX_SLICE = Duration.ofDays(1);
+    private static final int SPILL_BUFFER_BYTES = 64 * 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricDataExporter.class);
+
+    private final CloudWatchAsyncClient client;
+    private final int maxConcurrentSlices;
+
+    /**
+     * The outcome of an export.
+     *
+     * @param file       the columnar file that was written
+     * @param series     the number of series in the file
+     * @param datapoints the total number of datapoints in the file
+     * @param slices     the number of time slices that were fetched
+     */
+    public record Result(Path file, int series, long datapoints, int slices) {
+    }
+
+    /**
+     * @param client              the CloudWatch client used to fetch the data
+     * @param maxConcurrentSlices the maximum number of slices fetched at once
+     */
+    public MetricDataExporter(CloudWatchAsyncClient client, int maxConcurrentSlices) {
+        this.client = client;
+        this.maxConcurrentSlices = maxConcurrentSlices;
+    }
+
+    /**
+     * Exports the data of the given queries, using slices that fit in one page of results, up to one day.
+     *
+     * @see #export(List, Instant, Instant, Duration, Path)
+     */
+    public CompletableFuture<Result> export(List<MetricDataQuery> queries, Instant start, Instant end, Path output) {
+        long period = period(queries);
+        long pointsPerSeries = Math.max(1, MAX_DATAPOINTS_PER_PAGE / queries.size());
+        Duration slice = Duration.ofSeconds(period * pointsPerSeries);
+        return export(queries, start, end, slice.compareTo(MAX_SLICE) < 0 ? slice : MAX_SLICE, output);
+    }
+
+    /**
+     * Exports the data of the given queries between {@code start} (inclusive) and {@code end} (exclusive).
+     * Both ends and the slice length are rounded to the largest period of the queries.
+     *
+     * @param queries     the queries; each one with {@code returnData} set becomes a series in the file
+     * @param start       the start of the range
+     * @param end         the end of the range
+     * @param sliceLength the length of each time slice
+     * @param output      the file to write; it's replaced only when the export succeeds
+     * @return a future that completes with a summary of the export
+     */
+    public CompletableFuture<Result> export(List<MetricDataQuery> queries, Instant start, Instant end,
+                                            Duration sliceLength, Path output) {
+        long period = period(queries);
+        long from = Math.floorDiv(start.getEpochSecond(), period) * period;
+        long to = Math.floorDiv(end.getEpochSecond() + period - 1, period) * period;
+        long step = Math.max(1, sliceLength.getSeconds() / period) * period;
+        List<Instant> boundaries = new ArrayList<>();
+        for (long second = from; second < to; second += step) {
+            boundaries.add(Instant.ofEpochSecond(second));
+        }
+        boundaries.add(Instant.ofEpochSecond(to));
+
+        List<String> seriesIds = queries.stream()
+            .filter(query -> !Boolean.FALSE.equals(query.returnData()))
+            .map(MetricDataQuery::id)
+            .toList();
+
+        Path spillDirectory;
+        try {
+            Path parent = output.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            spillDirectory = Files.createTempDirectory(parent, ".metric-export-");
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException("Failed to create the spill directory", e));
+        }
+
+        Export export = new Export(queries, seriesIds, boundaries, spillDirectory);
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(maxConcurrentSlices, export.slices.length); i++) {
+            workers.add(export.fetchNextSlice());
+        }
+
+        return CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> export.merge(output))
+            .whenComplete((result, ex) -> {
+                deleteDirectory(spillDirectory);
+                if (ex != null) {
+                    logger.error("Metric data export failed: {}", ex.getMessage());
+                } else {
+                    logger.info("Exported {} datapoints in {} series to {}.", result.datapoints(), result.series(),
+                        result.file());
+                }
+            });
+    }
+
+    /**
+     * Returns the largest period of the queries in seconds. Slices are aligned to it so that no datapoint
+     * is split between two slices.
+     */
+    private static long period(List<MetricDataQuery> queries) {
+        long period = 60;
+        for (MetricDataQuery query : queries) {
+            Integer queryPeriod = query.metricStat() != null ? query.metricStat().period() : query.period();
+            if (queryPeriod != null) {
+                period = Math.max(period, queryPeriod);
+            }
+        }
+        return period;
+    }
+
+    private static void deleteDirectory(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Failed to delete {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void transfer(Path spill, FileChannel out) throws IOException {
+        if (!Files.exists(spill)) {
+            return;
+        }
+        try (FileChannel in = FileChannel.open(spill, StandardOpenOption.READ)) {
+            long size = in.size();
+            long copied = 0;
+            while (copied < size) {
+                copied += in.transferTo(copied, size - copied, out);
+            }
+        }
+    }
+
+    /**
+     * The state of one export.
+     */
+    private class Export {
+        private final List<MetricDataQuery> queries;
+        private final List<String> seriesIds;
+        private final Map<String, Integer> seriesIndexes = new HashMap<>();
+        private final List<Instant> boundaries;
+        private final Path spillDirectory;
+        private final SliceSpill[] slices;
+        private final AtomicInteger nextSlice = new AtomicInteger();
+        private final AtomicBoolean failed = new AtomicBoolean();
+
+        Export(List<MetricDataQuery> queries, List<String> seriesIds, List<Instant> boundaries, Path spillDirectory) {
+            this.queries = queries;
+            this.seriesIds = seriesIds;
+            this.boundaries = boundaries;
+            this.spillDirectory = spillDirectory;
+            this.slices = new SliceSpill[boundaries.size() - 1];
+            for (int i = 0; i < seriesIds.size(); i++) {
+                seriesIndexes.put(seriesIds.get(i), i);
+            }
+        }
+
+        /**
+         * Fetches slices one after another until none are left. Several of these chains run at once,
+         * which bounds the number of slices in flight.
+         */
+        CompletableFuture<Void> fetchNextSlice() {
+            int index = nextSlice.getAndIncrement();
+            if (index >= slices.length || failed.get()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            SliceSpill spill = new SliceSpill(index);
+            slices[index] = spill;
+
+            GetMetricDataRequest request = GetMetricDataRequest.builder()
+                .metricDataQueries(queries)
+                .startTime(boundaries.get(index))
+                .endTime(boundaries.get(index + 1))
+                .scanBy(ScanBy.TIMESTAMP_ASCENDING)
+                .build();
+
+            return client.getMetricDataPaginator(request)
+                .subscribe(spill::write)
+                .whenComplete((ignored, ex) -> {
+                    spill.close();
+                    if (ex != null) {
+                        failed.set(true);
+                    }
+                })
+                .thenCompose(ignored -> fetchNextSlice());
+        }
+
+        /**
+         * Writes the output file by copying the spill files of every series in slice order.
+         */
+        Result merge(Path output) {
+            Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+            long datapoints = 0;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(out, MetricDataFile.fileHeader(seriesIds.size()));
+                for (int series = 0; series < seriesIds.size(); series++) {
+                    long count = 0;
+                    String label = null;
+                    for (SliceSpill slice : slices) {
+                        count += slice.counts[series];
+                        if (label == null) {
+                            label = slice.labels[series];
+                        }
+                    }
+                    String id = seriesIds.get(series);
+                    writeFully(out, MetricDataFile.seriesHeader(id, label != null ? label : id, count));
+                    for (SliceSpill slice : slices) {
+                        transfer(slice.timestampsFile(series), out);
+                    }
+                    for (SliceSpill slice : slices) {
+                        transfer(slice.valuesFile(series), out);
+                    }
+                    datapoints += count;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write " + output, e);
+            }
+            try {
+                Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to replace " + output, e);
+            }
+            return new Result(output, seriesIds.size(), datapoints, slices.length);
+        }
+
+        /**
+         * The spill files of one slice: a timestamp file and a value file per series, opened when the
+         * series' first datapoint in the slice arrives. The pages of one paginator arrive one at a time,
+         * so a spill isn't shared between threads.
+         */
+        private class SliceSpill {
+            private final int index;
+            private final long[] counts = new long[seriesIds.size()];
+            private final String[] labels = new String[seriesIds.size()];
+            private final DataOutputStream[] timestamps = new DataOutputStream[seriesIds.size()];
+            private final DataOutputStream[] values = new DataOutputStream[seriesIds.size()];
+
+            SliceSpill(int index) {
+                this.index = index;
+            }
+
+            Path timestampsFile(int series) {
+                return spillDirectory.resolve(index + "-" + series + ".ts");
+            }
+
+            Path valuesFile(int series) {
+                return spillDirectory.resolve(index + "-" + series + ".val");
+            }
+
+            void write(GetMetricDataResponse page) {
+                page.messages().forEach(message ->
+                    logger.warn("GetMetricData message for slice {}: {}", index, message.value()));
+                try {
+                    for (MetricDataResult result : page.metricDataResults()) {
+                        Integer series = seriesIndexes.get(result.id());
+                        if (series == null) {
+                            continue;
+                        }
+                        if (result.statusCode() == StatusCode.INTERNAL_ERROR) {
+                            throw new IllegalStateException("CloudWatch failed to return data for " + result.id());
+                        }
+                        if (labels[series] == null) {
+                            labels[series] = result.label();
+                        }
+                        List<Instant> resultTimestamps = result.timestamps();
+                        List<Double> resultValues = result.values();
+                        if (resultTimestamps.isEmpty()) {
+                            continue;
+                        }
+                        if (timestamps[series] == null) {
+                            timestamps[series] = open(timestampsFile(series));
+                            values[series] = open(valuesFile(series));
+                        }
+                        for (int i = 0; i < resultTimestamps.size(); i++) {
+                            timestamps[series].writeLong(resultTimestamps.get(i).toEpochMilli());
+                            values[series].writeDouble(resultValues.get(i));
+                        }
+                        counts[series] += resultTimestamps.size();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to spill slice " + index, e);
+                }
+            }
+
+            void close() {
+                for (int series = 0; series < timestamps.length; series++) {
+                    try {
+                        if (timestamps[series] != null) {
+                            timestamps[series].close();
+                            values[series].close();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to close spill files of slice " + index, e);
+                    }
+                }
+            }
+
+            private DataOutputStream open(Path path) throws IOException {
+                return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), SPILL_BUFFER_BYTES));
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.cloudwatch.scenario;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the columnar metric data files written by {@link MetricDataExporter}.
+ *
+ * <p>
+ * A file starts with a header (magic number, version, and number of series) followed by one block per
+ * series. Each block holds the query ID and label, the number of datapoints, and then two columns: every
+ * timestamp as a {@code long} of epoch milliseconds, followed by every value as a {@code double}, in
+ * ascending timestamp order. All numbers are big-endian.
+ * </p>
+ *
+ * <p>
+ * The columns are memory-mapped rather than read into objects, so a long export can be scanned without
+ * boxing a timestamp or value.
+ * </p>
+ */
+public final class MetricDataFile {
+    static final int MAGIC = 0x43574D44; // "CWMD"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 12;
+
+    private MetricDataFile() {
+    }
+
+    /**
+     * One exported series. The buffers are read-only views of the file.
+     */
+    public record Series(String id, String label, LongBuffer timestamps, DoubleBuffer values) {
+        public int size() {
+            return timestamps.limit();
+        }
+    }
+
+    /**
+     * Maps every series in an exported file.
+     *
+     * @param file the file written by {@link MetricDataExporter}
+     * @return the series in the order of their queries
+     * @throws IOException if the file can't be read or isn't a metric data file
+     */
+    public static List<Series> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(file + " isn't a metric data file.");
+            }
+            int seriesCount = header.getInt();
+            List<Series> series = new ArrayList<>(seriesCount);
+            long position = HEADER_BYTES;
+            for (int i = 0; i < seriesCount; i++) {
+                String id = readString(channel, position);
+                position += 2 + id.getBytes(StandardCharsets.UTF_8).length;
+                String label = readString(channel, position);
+                position += 2 + label.getBytes(StandardCharsets.UTF_8).length;
+                long count = readFully(channel, position, Long.BYTES).getLong();
+                position += Long.BYTES;
+
+                long columnBytes = count * Long.BYTES;
+                LongBuffer timestamps = channel.map(FileChannel.MapMode.READ_ONLY, position, columnBytes).asLongBuffer();
+                position += columnBytes;
+                DoubleBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, position, columnBytes).asDoubleBuffer();
+                position += columnBytes;
+                series.add(new Series(id, label, timestamps, values));
+            }
+            return series;
+        }
+    }
+
+    /**
+     * Encodes the start of a series block: the ID, label, and datapoint count.
+     */
+    static ByteBuffer seriesHeader(String id, String label, long count) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        byte[] labelBytes = label.getBytes(StandardCharsets.UTF_8);
+        if (idBytes.length > 0xFFFF || labelBytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("The ID and label must be shorter than 64 KiB.");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(2 + idBytes.length + 2 + labelBytes.length + Long.BYTES);
+        buffer.putShort((short) idBytes.length).put(idBytes);
+        buffer.putShort((short) labelBytes.length).put(labelBytes);
+        buffer.putLong(count);
+        return buffer.flip();
+    }
+
+    static ByteBuffer fileHeader(int seriesCount) {
+        return ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putInt(seriesCount).flip();
+    }
+
+    private static String readString(FileChannel channel, long position) throws IOException {
+        int length = Short.toUnsignedInt(readFully(channel, position, 2).getShort());
+        return StandardCharsets.UTF_8.decode(readFully(channel, position + 2, length)).toString();
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of metric data file.");
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -2,6 +2,9 @@
 // SPDX-License-Identifier: Apache-2.0
 
 import com.example.cloudwatch.scenario.CloudWatchActions;
+import com.example.cloudwatch.scenario.MetricAggregator;
+import com.example.cloudwatch.scenario.MetricDataExporter;
+import com.example.cloudwatch.scenario.MetricDataFile;
 import com.google.gson.Gson;
 import org.junit.jupiter.api.*;
 import org.slf4j.Logger;
@@ -14,19 +17,28 @@ import software.amazon.awssdk.services.cloudwatch.model.DeleteAnomalyDetectorRes
 import software.amazon.awssdk.services.cloudwatch.model.DeleteDashboardsResponse;
 import software.amazon.awssdk.services.cloudwatch.model.Dimension;
 import software.amazon.awssdk.services.cloudwatch.model.GetMetricStatisticsResponse;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDataQuery;
 import software.amazon.awssdk.services.cloudwatch.model.PutDashboardResponse;
 import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataResponse;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
 import com.example.cloudwatch.*;
 import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /**
@@ -258,6 +270,66 @@ public class CloudWatchTest {
         logger.info("\n Test 17 passed");
     }
 
+    @Test
+    @Tag("IntegrationTest")
+    @Order(18)
+    public void testMetricAggregator() {
+        assertDoesNotThrow(() -> {
+            Dimension dimension = Dimension.builder()
+                .name("UNIQUE_PAGES")
+                .value("URLS")
+                .build();
+            try (MetricAggregator aggregator = cwActions.createMetricAggregator("SITE/TRAFFIC", Duration.ofMinutes(1))) {
+                MetricAggregator.Metric pages = aggregator.statistic("PAGES_VISITED", StandardUnit.NONE, dimension);
+                MetricAggregator.Metric latency = aggregator.distribution("PAGE_LATENCY", StandardUnit.MILLISECONDS, dimension);
+                for (int i = 0; i < 10_000; i++) {
+                    pages.record(i % 20);
+                    latency.record(10 + i % 200);
+                }
+                aggregator.flush().join();
+                assertEquals(0, aggregator.failedCount());
+                // One statistic set, and 200 distinct latencies split into two value arrays.
+                assertEquals(3, aggregator.sentCount());
+            }
+        });
+        logger.info("\n Test 18 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(19)
+    public void testExportMetricData() {
+        assertDoesNotThrow(() -> {
+            MetricDataQuery query = MetricDataQuery.builder()
+                .id("pages")
+                .metricStat(stat -> stat
+                    .metric(metric -> metric
+                        .namespace("SITE/TRAFFIC")
+                        .metricName("PAGES_VISITED")
+                        .dimensions(Dimension.builder().name("UNIQUE_PAGES").value("URLS").build()))
+                    .period(60)
+                    .stat("Sum"))
+                .build();
+            Path output = Files.createTempFile("pages", ".cwmd");
+            Instant end = Instant.now();
+            try {
+                MetricDataExporter.Result result = cwActions.createMetricDataExporter(4)
+                    .export(List.of(query), end.minus(Duration.ofDays(7)), end, output)
+                    .join();
+                assertTrue(result.slices() >= 7);
+                List<MetricDataFile.Series> series = MetricDataFile.read(output);
+                assertEquals(1, series.size());
+                assertEquals(result.datapoints(), series.get(0).size());
+                for (int i = 1; i < series.get(0).size(); i++) {
+                    assertTrue(series.get(0).timestamps().get(i - 1) < series.get(0).timestamps().get(i));
+                }
+            } finally {
+                Files.deleteIfExists(output);
+            }
+        });
+        logger.info("\n Test 19 passed");
+    }
+
     private static String getSecretValues() {
         SecretsManagerClient secretClient = SecretsManagerClient.builder()
                 .region(Region.US_EAST_1)
@@ -0,0 +1,377 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.dynamodb;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// snippet-start:[dynamodb.java2.parallel_scan.main]
+
+/**
+ * Before running this Java V2 code example, set up your development
+ * environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ *
+ * This example scans a whole table in parallel with the DynamoDbAsyncClient. The
+ * table is split into segments with the Segment and TotalSegments parameters, and
+ * each segment is scanned page by page at the same time as the others:
+ *
+ * - The pages of all segments are merged into one stream of calls to a page
+ *   handler. The handler sees one page at a time, and a segment asks for its next
+ *   page only after the handler has taken the previous one, so a slow handler
+ *   slows the scan down instead of filling memory.
+ * - After each page is handled, the segment's LastEvaluatedKey is saved to a
+ *   checkpoint file. If the scan stops, running it again with the same checkpoint
+ *   file continues each segment from where it stopped.
+ * - The read capacity units (RCU) that the scan consumes are limited to a rate, so
+ *   a nightly export doesn't take the capacity that the application needs.
+ */
+public class ParallelScan {
+    private final DynamoDbAsyncClient ddb;
+    private final String tableName;
+    private final int totalSegments;
+    private final ReadCapacityLimiter limiter;
+    private final Path checkpointFile;
+    private final Object pageHandlerLock = new Object();
+
+    /**
+     * The outcome of a scan.
+     *
+     * @param items       the number of items scanned by this run
+     * @param pages       the number of pages scanned by this run
+     * @param consumedRcu the read capacity units consumed by this run
+     * @param elapsed     the time the scan took
+     */
+    public record ScanResult(long items, long pages, double consumedRcu, Duration elapsed) {
+        public double itemsPerSecond() {
+            return elapsed.toMillis() == 0 ? items : items * 1000.0 / elapsed.toMillis();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final String usage = """
+
+                Usage:
+                    <tableName> <totalSegments> <maxRcuPerSecond> <checkpointFile>
+
+                Where:
+                    tableName - The Amazon DynamoDB table to scan (for example, Movies).
+                    totalSegments - The number of segments to scan at the same time (for example, 16).
+                    maxRcuPerSecond - The most read capacity units to consume each second (for example, 1000).
+                    checkpointFile - The file that keeps the scan's progress (for example, movies-scan.checkpoint).
+                """;
+
+        if (args.length != 4) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        Region region = Region.US_EAST_1;
+        try (DynamoDbAsyncClient ddb = DynamoDbAsyncClient.builder()
+                .region(region)
+                .build()) {
+            ParallelScan scan = new ParallelScan(ddb, args[0], Integer.parseInt(args[1]),
+                    Double.parseDouble(args[2]), Paths.get(args[3]));
+            ScanResult result = scan.scan(page -> { });
+            System.out.printf("Scanned %d items in %d pages in %s (%.0f items/sec, %.1f RCU).%n",
+                    result.items(), result.pages(), result.elapsed(), result.itemsPerSecond(), result.consumedRcu());
+        }
+    }
+
+    /**
+     * Creates a parallel scan.
+     *
+     * @param ddb             the async client; its HTTP client should allow at least {@code totalSegments}
+     *                        connections
+     * @param tableName       the table to scan
+     * @param totalSegments   the number of segments to scan at the same time
+     * @param maxRcuPerSecond the most read capacity units to consume each second
+     * @param checkpointFile  the file that keeps the progress of each segment
+     */
+    public ParallelScan(DynamoDbAsyncClient ddb, String tableName, int totalSegments, double maxRcuPerSecond,
+                        Path checkpointFile) {
+        this.ddb = ddb;
+        this.tableName = tableName;
+        this.totalSegments = totalSegments;
+        this.limiter = new ReadCapacityLimiter(maxRcuPerSecond);
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Scans the table and maps each item with a table schema, such as
+     * {@code TableSchema.fromBean(Movies.class)}.
+     *
+     * @param tableSchema the schema that maps items to objects
+     * @param pageHandler the code that takes each page of objects
+     * @return the items, pages, and RCU of this run
+     * @throws IOException if the checkpoint file can't be read or written
+     */
+    public <T> ScanResult scan(TableSchema<T> tableSchema, Consumer<List<T>> pageHandler) throws IOException {
+        return scan(page -> {
+            List<T> items = new ArrayList<>(page.size());
+            page.forEach(item -> items.add(tableSchema.mapToItem(item)));
+            pageHandler.accept(items);
+        });
+    }
+
+    /**
+     * Scans the table, continuing from the checkpoint file if it exists. The checkpoint file is deleted
+     * when every segment is done.
+     *
+     * @param pageHandler the code that takes each page of items; it's never called by two segments at once
+     * @return the items, pages, and RCU of this run
+     * @throws IOException if the checkpoint file can't be read or written
+     */
+    public ScanResult scan(Consumer<List<Map<String, AttributeValue>>> pageHandler) throws IOException {
+        ScanCheckpoint checkpoint = ScanCheckpoint.load(checkpointFile, tableName, totalSegments);
+        LongAdder items = new LongAdder();
+        LongAdder pages = new LongAdder();
+        long start = System.nanoTime();
+
+        List<CompletableFuture<Void>> segments = new ArrayList<>();
+        for (int segment = 0; segment < totalSegments; segment++) {
+            if (checkpoint.isDone(segment)) {
+                continue;
+            }
+            SegmentScan segmentScan = new SegmentScan(segment, checkpoint, pageHandler, items, pages);
+            segments.add(segmentScan.scanFrom(checkpoint.lastEvaluatedKey(segment)));
+        }
+        try {
+            CompletableFuture.allOf(segments.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw DynamoDbException.builder()
+                    .message("Scan of " + tableName + " failed; it can be resumed from " + checkpointFile + ".")
+                    .cause(e.getCause())
+                    .build();
+        }
+        Files.deleteIfExists(checkpointFile);
+        return new ScanResult(items.sum(), pages.sum(), limiter.consumed(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Scans one segment, one page at a time.
+     */
+    private class SegmentScan {
+        private final int segment;
+        private final ScanCheckpoint checkpoint;
+        private final Consumer<List<Map<String, AttributeValue>>> pageHandler;
+        private final LongAdder items;
+        private final LongAdder pages;
+
+        SegmentScan(int segment, ScanCheckpoint checkpoint, Consumer<List<Map<String, AttributeValue>>> pageHandler,
+                    LongAdder items, LongAdder pages) {
+            this.segment = segment;
+            this.checkpoint = checkpoint;
+            this.pageHandler = pageHandler;
+            this.items = items;
+            this.pages = pages;
+        }
+
+        CompletableFuture<Void> scanFrom(Map<String, AttributeValue> exclusiveStartKey) {
+            ScanRequest.Builder request = ScanRequest.builder()
+                    .tableName(tableName)
+                    .segment(segment)
+                    .totalSegments(totalSegments)
+                    .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+            if (exclusiveStartKey != null && !exclusiveStartKey.isEmpty()) {
+                request.exclusiveStartKey(exclusiveStartKey);
+            }
+            return limiter.acquire()
+                    .thenCompose(ignored -> ddb.scan(request.build()))
+                    .thenCompose(this::handlePage);
+        }
+
+        private CompletableFuture<Void> handlePage(ScanResponse response) {
+            if (response.consumedCapacity() != null && response.consumedCapacity().capacityUnits() != null) {
+                limiter.consume(response.consumedCapacity().capacityUnits());
+            }
+            // Merge: only one segment's page is handed over at a time.
+            synchronized (pageHandlerLock) {
+                pageHandler.accept(response.items());
+            }
+            items.add(response.items().size());
+            pages.increment();
+
+            Map<String, AttributeValue> lastKey = response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null;
+            try {
+                checkpoint.save(segment, lastKey);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return lastKey == null ? CompletableFuture.completedFuture(null) : scanFrom(lastKey);
+        }
+    }
+
+    /**
+     * Limits consumed read capacity to a rate. A scan page's cost is known only from its response, so each
+     * page is charged after it arrives, and the next request waits until the charge has been paid back.
+     */
+    static class ReadCapacityLimiter {
+        private final double unitsPerSecond;
+        private double balance;
+        private long lastRefillNanos = System.nanoTime();
+        private double consumed;
+
+        ReadCapacityLimiter(double unitsPerSecond) {
+            this.unitsPerSecond = unitsPerSecond;
+            this.balance = unitsPerSecond;
+        }
+
+        /**
+         * Returns a future that completes when the balance isn't negative.
+         */
+        synchronized CompletableFuture<Void> acquire() {
+            refill();
+            if (balance >= 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            long waitMillis = (long) Math.ceil(-balance / unitsPerSecond * 1000);
+            return CompletableFuture.runAsync(() -> { },
+                            CompletableFuture.delayedExecutor(waitMillis, TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> acquire());
+        }
+
+        synchronized void consume(double units) {
+            refill();
+            balance -= units;
+            consumed += units;
+        }
+
+        synchronized double consumed() {
+            return consumed;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            // Allow at most one second of unused capacity to build up.
+            balance = Math.min(unitsPerSecond, balance + (now - lastRefillNanos) / 1e9 * unitsPerSecond);
+            lastRefillNanos = now;
+        }
+    }
+
+    /**
+     * Keeps the LastEvaluatedKey of every segment in a properties file. The file is replaced atomically, so a
+     * crash leaves either the old or the new checkpoint.
+     */
+    static class ScanCheckpoint {
+        private static final String DONE = "done";
+        private final Path file;
+        private final Properties properties;
+
+        private ScanCheckpoint(Path file, Properties properties) {
+            this.file = file;
+            this.properties = properties;
+        }
+
+        static ScanCheckpoint load(Path file, String tableName, int totalSegments) throws IOException {
+            Properties properties = new Properties();
+            if (Files.exists(file)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    properties.load(in);
+                }
+                if (!tableName.equals(properties.getProperty("tableName"))
+                        || !Integer.toString(totalSegments).equals(properties.getProperty("totalSegments"))) {
+                    throw new IOException(file + " is a checkpoint for a different table or number of segments.");
+                }
+            }
+            properties.setProperty("tableName", tableName);
+            properties.setProperty("totalSegments", Integer.toString(totalSegments));
+            return new ScanCheckpoint(file, properties);
+        }
+
+        synchronized boolean isDone(int segment) {
+            return DONE.equals(properties.getProperty("segment." + segment));
+        }
+
+        synchronized Map<String, AttributeValue> lastEvaluatedKey(int segment) {
+            String prefix = "segment." + segment + ".key.";
+            Map<String, AttributeValue> key = new HashMap<>();
+            for (String name : properties.stringPropertyNames()) {
+                if (name.startsWith(prefix)) {
+                    key.put(name.substring(prefix.length()), decode(properties.getProperty(name)));
+                }
+            }
+            return key;
+        }
+
+        /**
+         * Records a segment's progress.
+         *
+         * @param segment          the segment
+         * @param lastEvaluatedKey the key to continue from, or {@code null} if the segment is done
+         */
+        synchronized void save(int segment, Map<String, AttributeValue> lastEvaluatedKey) throws IOException {
+            String prefix = "segment." + segment + ".key.";
+            properties.stringPropertyNames().stream()
+                    .filter(name -> name.startsWith(prefix))
+                    .forEach(properties::remove);
+            if (lastEvaluatedKey == null) {
+                properties.setProperty("segment." + segment, DONE);
+            } else {
+                lastEvaluatedKey.forEach((name, value) -> properties.setProperty(prefix + name, encode(value)));
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "Parallel scan checkpoint");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        // Key attributes can only be strings, numbers, or binary.
+        private static String encode(AttributeValue value) {
+            if (value.s() != null) {
+                return "S:" + value.s();
+            }
+            if (value.n() != null) {
+                return "N:" + value.n();
+            }
+            return "B:" + Base64.getEncoder().encodeToString(value.b().asByteArray());
+        }
+
+        private static AttributeValue decode(String encoded) {
+            String value = encoded.substring(2);
+            return switch (encoded.charAt(0)) {
+                case 'S' -> AttributeValue.builder().s(value).build();
+                case 'N' -> AttributeValue.builder().n(value).build();
+                default -> AttributeValue.builder().b(SdkBytes.fromByteArray(Base64.getDecoder().decode(value)))
+                        .build();
+            };
+        }
+    }
+}
+// snippet-end:[dynamodb.java2.parallel_scan.main]
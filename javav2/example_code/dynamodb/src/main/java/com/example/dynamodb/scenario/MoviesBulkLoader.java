@@ -0,0 +1,281 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.dynamodb.scenario;
+
+import com.example.dynamodb.Movies;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// snippet-start:[dynamodb.java2.scenario.bulk_load.main]
+
+/**
+ * Before running this Java V2 code example, set up your development
+ * environment, including your credentials.
+ * <p>
+ * For more information, see the following documentation topic:
+ * <p>
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ * <p>
+ * This Java example loads a large movies JSON file into the Movies table that
+ * {@link Scenario} creates. Unlike {@link Scenario#loadData}, it:
+ * <p>
+ * 1. Reads the file one movie at a time with the Jackson streaming parser, so
+ * files with millions of movies don't have to fit in memory.
+ * 2. Groups the movies into batches of 25, the most that BatchWriteItem accepts.
+ * 3. Writes many batches at the same time with the enhanced async client. A
+ * semaphore limits the batches in flight, which also keeps the parser from
+ * running far ahead of the writes.
+ * 4. Sends the unprocessed items that DynamoDB returns when it throttles a batch
+ * again, after an exponential backoff with jitter.
+ * 5. Reports items per second and the write capacity units (WCU) used. One WCU
+ * is charged for each 1 KB, rounded up, of every item written.
+ */
+public class MoviesBulkLoader {
+    static final int MAX_ITEMS_PER_BATCH = 25;
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long BASE_BACKOFF_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    private final DynamoDbEnhancedAsyncClient enhancedClient;
+    private final DynamoDbAsyncTable<Movies> mappedTable;
+    private final int concurrency;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder writeCapacityUnits = new LongAdder();
+    private final ConcurrentLinkedQueue<Movies> failures = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The outcome of a load.
+     *
+     * @param written            the number of movies written
+     * @param retried            the number of times a movie was sent again because it was unprocessed
+     * @param failures           the movies that were still unprocessed after all attempts
+     * @param writeCapacityUnits the write capacity units used by the movies that were written
+     * @param elapsed            the time the load took
+     */
+    public record LoadResult(long written, long retried, List<Movies> failures, long writeCapacityUnits,
+                             Duration elapsed) {
+        public double itemsPerSecond() {
+            return elapsed.toMillis() == 0 ? written : written * 1000.0 / elapsed.toMillis();
+        }
+
+        public double writeCapacityUnitsPerSecond() {
+            return elapsed.toMillis() == 0 ? writeCapacityUnits : writeCapacityUnits * 1000.0 / elapsed.toMillis();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final String usage = """
+
+            Usage:
+                <tableName> <fileName> <concurrency>
+
+            Where:
+                tableName - The Amazon DynamoDB table to load (for example, Movies).
+                fileName - The movies JSON file (for example, ../../../resources/sample_files/movies.json).
+                concurrency - The number of BatchWriteItem calls to run at the same time (for example, 32).
+            """;
+
+        if (args.length != 3) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        Region region = Region.US_EAST_1;
+        try (DynamoDbAsyncClient ddb = DynamoDbAsyncClient.builder()
+            .region(region)
+            .build()) {
+            LoadResult result = new MoviesBulkLoader(ddb, args[0], Integer.parseInt(args[2])).load(args[1]);
+            System.out.printf("Wrote %d movies in %s (%.0f items/sec, %d WCU, %.0f WCU/sec, %d retried, %d failed).%n",
+                result.written(), result.elapsed(), result.itemsPerSecond(), result.writeCapacityUnits(),
+                result.writeCapacityUnitsPerSecond(), result.retried(), result.failures().size());
+        }
+    }
+
+    /**
+     * Creates a loader.
+     *
+     * @param ddb         the async client; its HTTP client should allow at least {@code concurrency} connections
+     * @param tableName   the table to load; it must have the Movies key schema
+     * @param concurrency the number of BatchWriteItem calls to run at the same time
+     */
+    public MoviesBulkLoader(DynamoDbAsyncClient ddb, String tableName, int concurrency) {
+        this.enhancedClient = DynamoDbEnhancedAsyncClient.builder()
+            .dynamoDbClient(ddb)
+            .build();
+        this.mappedTable = enhancedClient.table(tableName, TableSchema.fromBean(Movies.class));
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Loads every movie in the file.
+     *
+     * @param fileName a JSON file that holds an array of movies
+     * @return the number of movies written, the WCU used, and the elapsed time
+     * @throws IOException if the file can't be read or isn't a JSON array
+     */
+    public LoadResult load(String fileName) throws IOException {
+        written.reset();
+        retried.reset();
+        writeCapacityUnits.reset();
+        failures.clear();
+        long start = System.nanoTime();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> System.out.printf("%d movies written (%d items/sec).%n",
+            written.sum(), written.sum() * 1_000_000_000L / Math.max(1, System.nanoTime() - start)),
+            5, 5, TimeUnit.SECONDS);
+
+        Semaphore batchesInFlight = new Semaphore(concurrency);
+        ObjectMapper mapper = new ObjectMapper();
+        try (JsonParser parser = new JsonFactory().createParser(new File(fileName))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException(fileName + " doesn't hold a JSON array.");
+            }
+            // BatchWriteItem rejects a batch that has the same key twice, so keep the last movie for each key.
+            Map<String, Movies> batch = new LinkedHashMap<>();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                // readTree reads only the current movie, not the rest of the file.
+                JsonNode node = mapper.readTree(parser);
+                Movies movie = new Movies();
+                movie.setYear(node.path("year").asInt());
+                movie.setTitle(node.path("title").asText());
+                movie.setInfo(node.path("info").toString());
+                batch.put(key(movie), movie);
+                if (batch.size() == MAX_ITEMS_PER_BATCH) {
+                    submit(batch.values(), batchesInFlight);
+                    batch = new LinkedHashMap<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(batch.values(), batchesInFlight);
+            }
+            // Wait for the batches in flight by taking every permit.
+            batchesInFlight.acquireUninterruptibly(concurrency);
+        } finally {
+            reporter.shutdownNow();
+        }
+
+        return new LoadResult(written.sum(), retried.sum(), new ArrayList<>(failures), writeCapacityUnits.sum(),
+            Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private void submit(Collection<Movies> movies, Semaphore batchesInFlight) {
+        batchesInFlight.acquireUninterruptibly();
+        // writeBatch records its own failures, so the future always completes normally.
+        writeBatch(new ArrayList<>(movies), 1)
+            .whenComplete((result, exception) -> batchesInFlight.release());
+    }
+
+    /**
+     * Writes one batch, then writes the unprocessed movies again after a backoff until none are left or
+     * the attempts run out. If a call fails, only the movies sent in that call are recorded as failures;
+     * the movies that earlier attempts wrote are not.
+     */
+    private CompletableFuture<Void> writeBatch(List<Movies> movies, int attempt) {
+        WriteBatch.Builder<Movies> writeBatch = WriteBatch.builder(Movies.class).mappedTableResource(mappedTable);
+        movies.forEach(writeBatch::addPutItem);
+        BatchWriteItemEnhancedRequest request = BatchWriteItemEnhancedRequest.builder()
+            .writeBatches(writeBatch.build())
+            .build();
+
+        CompletableFuture<BatchWriteResult> call;
+        try {
+            call = enhancedClient.batchWriteItem(request);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        return call.handle((result, exception) -> {
+            if (exception != null) {
+                System.err.println("A batch failed: " + exception.getMessage());
+                failures.addAll(movies);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            return writeRemaining(movies, result, attempt);
+        }).thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Void> writeRemaining(List<Movies> movies, BatchWriteResult result, int attempt) {
+        List<Movies> unprocessed = result.unprocessedPutItemsForTable(mappedTable);
+        Set<String> unprocessedKeys = unprocessed.stream().map(MoviesBulkLoader::key).collect(Collectors.toSet());
+        for (Movies movie : movies) {
+            if (!unprocessedKeys.contains(key(movie))) {
+                written.increment();
+                writeCapacityUnits.add(writeCapacityUnits(movie));
+            }
+        }
+        if (unprocessed.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (attempt == MAX_ATTEMPTS) {
+            failures.addAll(unprocessed);
+            return CompletableFuture.completedFuture(null);
+        }
+        retried.add(unprocessed.size());
+        return CompletableFuture.runAsync(() -> { },
+                CompletableFuture.delayedExecutor(backoffMillis(attempt), TimeUnit.MILLISECONDS))
+            .thenCompose(ignored -> writeBatch(unprocessed, attempt + 1));
+    }
+
+    private static String key(Movies movie) {
+        return movie.getYear() + "/" + movie.getTitle();
+    }
+
+    /**
+     * Returns a random delay between zero and an exponentially growing cap ("full jitter"), so that batches
+     * throttled at the same time don't all retry at the same time.
+     */
+    private static long backoffMillis(int attempt) {
+        long cap = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt - 1, 16));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /**
+     * Returns the WCU that a put of the movie uses: one for each 1 KB, rounded up, of the item's attribute
+     * names and values. Numbers are counted as their digits, which slightly overestimates their stored size.
+     */
+    static long writeCapacityUnits(Movies movie) {
+        long size = "year".length() + Integer.toString(movie.getYear()).length()
+            + "title".length() + utf8Length(movie.getTitle())
+            + "info".length() + utf8Length(movie.getInfo());
+        return Math.max(1, (size + 1023) / 1024);
+    }
+
+    private static int utf8Length(String value) {
+        return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
+// snippet-end:[dynamodb.java2.scenario.bulk_load.main]
@@ -8,8 +8,10 @@ import com.example.dynamodb.DescribeTable;
 import com.example.dynamodb.DynamoDBScanItems;
 import com.example.dynamodb.GetItem;
 import com.example.dynamodb.ListTables;
+import com.example.dynamodb.ParallelScan;
 import com.example.dynamodb.PutItem;
 import com.example.dynamodb.Query;
+import com.example.dynamodb.scenario.MoviesBulkLoader;
 import com.example.dynamodb.scenario.Scenario;
 import com.example.dynamodb.scenario.ScenarioPartiQ;
 import com.example.dynamodb.SyncPagination;
@@ -30,17 +32,21 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * To run these integration tests, you must set the required values
@@ -309,6 +315,50 @@ public class DynamoDBTest {
         logger.info("\n Test 16 passed");
     }
 
+    @Test
+    @Tag("IntegrationTest")
+    @Order(17)
+    public void testMoviesBulkLoader() {
+        String bulkTableName = "MoviesBulk" + new Random().nextInt(1000);
+        assertDoesNotThrow(() -> Scenario.createTable(ddb, bulkTableName));
+        try (DynamoDbAsyncClient asyncClient = DynamoDbAsyncClient.builder()
+                .region(Region.US_EAST_1)
+                .build()) {
+            MoviesBulkLoader.LoadResult result = assertDoesNotThrow(() ->
+                    new MoviesBulkLoader(asyncClient, bulkTableName, 8).load(fileName));
+            assertTrue(result.written() > 0);
+            assertTrue(result.failures().isEmpty());
+            assertTrue(result.writeCapacityUnits() >= result.written());
+        } finally {
+            Scenario.deleteDynamoDBTable(ddb, bulkTableName);
+        }
+        logger.info("\n Test 17 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(18)
+    public void testParallelScan() throws IOException {
+        String scanTableName = "MoviesScan" + new Random().nextInt(1000);
+        assertDoesNotThrow(() -> Scenario.createTable(ddb, scanTableName));
+        try (DynamoDbAsyncClient asyncClient = DynamoDbAsyncClient.builder()
+                .region(Region.US_EAST_1)
+                .build()) {
+            MoviesBulkLoader.LoadResult loaded = assertDoesNotThrow(() ->
+                    new MoviesBulkLoader(asyncClient, scanTableName, 8).load(fileName));
+
+            Path checkpointFile = Files.createTempFile("parallel-scan", ".checkpoint");
+            Files.delete(checkpointFile);
+            ParallelScan.ScanResult scanResult = new ParallelScan(asyncClient, scanTableName, 4, 1000,
+                    checkpointFile).scan(page -> { });
+            assertEquals(loaded.written(), scanResult.items());
+            assertFalse(Files.exists(checkpointFile));
+        } finally {
+            Scenario.deleteDynamoDBTable(ddb, scanTableName);
+        }
+        logger.info("\n Test 18 passed");
+    }
+
     private static String getSecretValues() {
         SecretsManagerClient secretClient = SecretsManagerClient.builder()
                 .region(Region.US_EAST_1)
@@ -0,0 +1,210 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.firehose.scenario;
+
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.firehose.FirehoseAsyncClient;
+import software.amazon.awssdk.services.firehose.model.PutRecordBatchResponse;
+import software.amazon.awssdk.services.firehose.model.PutRecordBatchResponseEntry;
+import software.amazon.awssdk.services.firehose.model.Record;
+import software.amazon.awssdk.services.firehose.model.ServiceUnavailableException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// snippet-start:[firehose.java2.batch_sender.main]
+/**
+ * Sends records to a Firehose delivery stream with PutRecordBatch calls on a {@link FirehoseAsyncClient}.
+ *
+ * Records are serialized to JSON as they're added and packed into batches that stay within both
+ * PutRecordBatch limits, 500 records and 4 MiB. Several batches are in flight at once; when the limit
+ * is reached, {@link #add(Object)} waits, so a fast producer can't queue up unbounded memory.
+ *
+ * PutRecordBatch can succeed for some records and fail for others, so each response is checked and
+ * only the failed records are sent again, after a backoff with full jitter. Records that still fail
+ * after the last attempt are counted and logged.
+ *
+ * The sender is thread-safe.
+ */
+public class FirehoseBatchSender implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FirehoseBatchSender.class);
+    public static final int MAX_BATCH_RECORDS = 500;
+    public static final int MAX_BATCH_BYTES = 4 * 1024 * 1024;
+    public static final int MAX_RECORD_BYTES = 1000 * 1024;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+    private static final ObjectWriter WRITER = new ObjectMapper().writer();
+
+    private final FirehoseAsyncClient firehoseClient;
+    private final String deliveryStreamName;
+    private final int maxBatchRecords;
+    private final int maxConcurrentBatches;
+    private final Semaphore inFlight;
+
+    // Reused for every record, so serializing doesn't grow a new buffer each time.
+    private final ByteArrayBuilder serializeBuffer = new ByteArrayBuilder(4096);
+    private List<Record> batch = new ArrayList<>();
+    private int batchBytes;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    /**
+     * @param firehoseClient       the async client
+     * @param deliveryStreamName   the delivery stream to send to
+     * @param maxBatchRecords      the largest number of records in one call, at most {@value #MAX_BATCH_RECORDS}
+     * @param maxConcurrentBatches the number of PutRecordBatch calls that can be in flight at once
+     */
+    public FirehoseBatchSender(FirehoseAsyncClient firehoseClient, String deliveryStreamName, int maxBatchRecords,
+                               int maxConcurrentBatches) {
+        if (maxBatchRecords < 1 || maxBatchRecords > MAX_BATCH_RECORDS) {
+            throw new IllegalArgumentException("maxBatchRecords must be between 1 and " + MAX_BATCH_RECORDS);
+        }
+        if (maxConcurrentBatches < 1) {
+            throw new IllegalArgumentException("maxConcurrentBatches must be at least 1");
+        }
+        this.firehoseClient = firehoseClient;
+        this.deliveryStreamName = deliveryStreamName;
+        this.maxBatchRecords = maxBatchRecords;
+        this.maxConcurrentBatches = maxConcurrentBatches;
+        this.inFlight = new Semaphore(maxConcurrentBatches);
+    }
+
+    /**
+     * Serializes a record to JSON and adds it to the current batch. The batch is sent when it's full.
+     *
+     * @param record any object that Jackson can serialize, for example a {@code Map<String, Object>}
+     * @throws IllegalArgumentException if the serialized record is larger than {@value #MAX_RECORD_BYTES} bytes
+     * @throws InterruptedException     if interrupted while waiting for an in-flight batch to finish
+     */
+    public synchronized void add(Object record) throws InterruptedException {
+        byte[] data;
+        try {
+            WRITER.writeValue(serializeBuffer, record);
+            data = serializeBuffer.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize record", e);
+        } finally {
+            serializeBuffer.reset();
+        }
+        if (data.length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("The record is " + data.length + " bytes, more than the "
+                + MAX_RECORD_BYTES + " bytes that Firehose accepts.");
+        }
+        if (batch.size() == maxBatchRecords || batchBytes + data.length > MAX_BATCH_BYTES) {
+            sendBatch();
+        }
+        batch.add(Record.builder().data(SdkBytes.fromByteArrayUnsafe(data)).build());
+        batchBytes += data.length;
+    }
+
+    /**
+     * Sends the current batch, even if it isn't full, and waits until every batch has been delivered
+     * or has failed for good.
+     */
+    public void flush() throws InterruptedException {
+        synchronized (this) {
+            if (!batch.isEmpty()) {
+                sendBatch();
+            }
+        }
+        inFlight.acquire(maxConcurrentBatches);
+        inFlight.release(maxConcurrentBatches);
+    }
+
+    /**
+     * Flushes the sender. The client isn't closed because it belongs to the caller.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        flush();
+    }
+
+    public long deliveredCount() {
+        return delivered.sum();
+    }
+
+    public long failedCount() {
+        return failed.sum();
+    }
+
+    public long retriedCount() {
+        return retried.sum();
+    }
+
+    private void sendBatch() throws InterruptedException {
+        List<Record> records = batch;
+        batch = new ArrayList<>();
+        batchBytes = 0;
+        inFlight.acquire();
+        send(records, 1).whenComplete((ignored, e) -> inFlight.release());
+    }
+
+    private CompletableFuture<Void> send(List<Record> records, int attempt) {
+        return firehoseClient.putRecordBatch(b -> b.deliveryStreamName(deliveryStreamName).records(records))
+            .handle((response, e) -> {
+                if (e != null) {
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    // The client has already retried the call, so only throttling is worth another try.
+                    if (cause instanceof ServiceUnavailableException) {
+                        return retry(records, attempt, cause.getMessage());
+                    }
+                    failed.add(records.size());
+                    logger.error("PutRecordBatch failed for {} records: {}", records.size(), cause.getMessage());
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+                return handleResponse(records, response, attempt);
+            })
+            .thenCompose(next -> next);
+    }
+
+    private CompletableFuture<Void> handleResponse(List<Record> records, PutRecordBatchResponse response, int attempt) {
+        if (response.failedPutCount() == 0) {
+            delivered.add(records.size());
+            return CompletableFuture.completedFuture(null);
+        }
+        // The entries are in the same order as the records in the request.
+        List<Record> failedRecords = new ArrayList<>(response.failedPutCount());
+        String lastError = null;
+        List<PutRecordBatchResponseEntry> entries = response.requestResponses();
+        for (int i = 0; i < entries.size(); i++) {
+            PutRecordBatchResponseEntry entry = entries.get(i);
+            if (entry.errorCode() != null) {
+                failedRecords.add(records.get(i));
+                lastError = entry.errorCode() + ": " + entry.errorMessage();
+            }
+        }
+        delivered.add(records.size() - failedRecords.size());
+        return retry(failedRecords, attempt, lastError);
+    }
+
+    private CompletableFuture<Void> retry(List<Record> records, int attempt, String error) {
+        if (attempt >= MAX_ATTEMPTS) {
+            failed.add(records.size());
+            logger.error("Giving up on {} records after {} attempts. Last error: {}", records.size(), attempt, error);
+            return CompletableFuture.completedFuture(null);
+        }
+        retried.add(records.size());
+        long cap = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (attempt - 1));
+        long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+        return CompletableFuture.supplyAsync(() -> null, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+            .thenCompose(ignored -> send(records, attempt + 1));
+    }
+}
+// snippet-end:[firehose.java2.batch_sender.main]
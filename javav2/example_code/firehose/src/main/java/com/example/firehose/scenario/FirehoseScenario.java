@@ -9,6 +9,7 @@ import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
 import software.amazon.awssdk.services.cloudwatch.model.*;
+import software.amazon.awssdk.services.firehose.FirehoseAsyncClient;
 import software.amazon.awssdk.services.firehose.FirehoseClient;
 import software.amazon.awssdk.services.firehose.model.*;
 import software.amazon.awssdk.services.firehose.model.Record;
@@ -18,7 +19,6 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
 // snippet-start:[firehose.java2.scenario.main]
 /**
  * Amazon Firehose Scenario example using Java V2 SDK.
@@ -28,7 +28,9 @@ import java.util.stream.Collectors;
  */
 public class FirehoseScenario {
 
+    private static final ObjectMapper objectMapper = new ObjectMapper();
     private static FirehoseClient firehoseClient;
+    private static FirehoseAsyncClient firehoseAsyncClient;
     private static CloudWatchClient cloudWatchClient;
 
     public static void main(String[] args) {
@@ -49,7 +51,6 @@ public class FirehoseScenario {
         try {
             // Read and parse sample data.
             String jsonContent = readJsonFile("sample_records.json");
-            ObjectMapper objectMapper = new ObjectMapper();
             List<Map<String, Object>> sampleData = objectMapper.readValue(jsonContent, new TypeReference<>() {});
 
             // Process individual records.
@@ -86,6 +87,15 @@ public class FirehoseScenario {
         return firehoseClient;
     }
 
+    private static FirehoseAsyncClient getFirehoseAsyncClient() {
+        if (firehoseAsyncClient == null) {
+            firehoseAsyncClient = FirehoseAsyncClient.builder()
+                    .region(Region.US_EAST_1)
+                    .build();
+        }
+        return firehoseAsyncClient;
+    }
+
     private static CloudWatchClient getCloudWatchClient() {
         if (cloudWatchClient == null) {
             cloudWatchClient = CloudWatchClient.builder()
@@ -109,7 +119,7 @@ public class FirehoseScenario {
             throw new IllegalArgumentException("Invalid input: record or delivery stream name cannot be null/empty");
         }
         try {
-            String jsonRecord = new ObjectMapper().writeValueAsString(record);
+            String jsonRecord = objectMapper.writeValueAsString(record);
             Record firehoseRecord = Record.builder()
                 .data(SdkBytes.fromByteArray(jsonRecord.getBytes(StandardCharsets.UTF_8)))
                 .build();
@@ -132,50 +142,40 @@ public class FirehoseScenario {
     /**
      * Puts a batch of records to an Amazon Kinesis Data Firehose delivery stream.
      *
+     * The records are packed into PutRecordBatch calls of up to {@code batchSize} records and 4 MiB,
+     * and several calls are sent at once with a {@link FirehoseBatchSender}. Records that a call
+     * reports as failed are sent again with backoff.
+     *
      * @param records           a list of maps representing the records to be sent
      * @param batchSize         the maximum number of records to include in each batch
      * @param deliveryStreamName the name of the Kinesis Data Firehose delivery stream
+     * @return the number of records that couldn't be delivered
      * @throws IllegalArgumentException if the input parameters are invalid (null or empty)
      * @throws RuntimeException         if there is an error putting the record batch
      */
-    public static void putRecordBatch(List<Map<String, Object>> records, int batchSize, String deliveryStreamName) {
+    public static long putRecordBatch(List<Map<String, Object>> records, int batchSize, String deliveryStreamName) {
         if (records == null || records.isEmpty() || deliveryStreamName == null || deliveryStreamName.isEmpty()) {
             throw new IllegalArgumentException("Invalid input: records or delivery stream name cannot be null/empty");
         }
-        ObjectMapper objectMapper = new ObjectMapper();
 
-        try {
-            for (int i = 0; i < records.size(); i += batchSize) {
-                List<Map<String, Object>> batch = records.subList(i, Math.min(i + batchSize, records.size()));
-
-                List<Record> batchRecords = batch.stream().map(record -> {
-                    try {
-                        String jsonRecord = objectMapper.writeValueAsString(record);
-                        return Record.builder()
-                            .data(SdkBytes.fromByteArray(jsonRecord.getBytes(StandardCharsets.UTF_8)))
-                            .build();
-                    } catch (Exception e) {
-                        throw new RuntimeException("Error creating Firehose record", e);
-                    }
-                }).collect(Collectors.toList());
-
-                PutRecordBatchRequest request = PutRecordBatchRequest.builder()
-                    .deliveryStreamName(deliveryStreamName)
-                    .records(batchRecords)
-                    .build();
-
-                PutRecordBatchResponse response = getFirehoseClient().putRecordBatch(request);
-
-                if (response.failedPutCount() > 0) {
-                    response.requestResponses().stream()
-                        .filter(r -> r.errorCode() != null)
-                        .forEach(r -> System.err.println("Failed record: " + r.errorMessage()));
-                }
-                System.out.println("Batch sent with size: " + batchRecords.size());
+        long startTime = System.nanoTime();
+        FirehoseBatchSender sender = new FirehoseBatchSender(getFirehoseAsyncClient(), deliveryStreamName,
+            Math.min(batchSize, FirehoseBatchSender.MAX_BATCH_RECORDS), 8);
+        try (sender) {
+            for (Map<String, Object> record : records) {
+                sender.add(record);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while putting record batch", e);
         } catch (Exception e) {
             throw new RuntimeException("Failed to put record batch: " + e.getMessage(), e);
         }
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.printf("Delivered %d records in %.1f seconds (%d retried, %d failed).%n",
+            sender.deliveredCount(), seconds, sender.retriedCount(), sender.failedCount());
+        return sender.failedCount();
     }
     // snippet-end:[firehose.java2.put_batch_records.main]
 
@@ -219,6 +219,7 @@ public class FirehoseScenario {
     private static void closeClients() {
         try {
             if (firehoseClient != null) firehoseClient.close();
+            if (firehoseAsyncClient != null) firehoseAsyncClient.close();
             if (cloudWatchClient != null) cloudWatchClient.close();
         } catch (Exception e) {
             System.err.println("Error closing clients: " + e.getMessage());
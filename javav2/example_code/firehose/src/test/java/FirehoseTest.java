@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
  * To run these integration tests, you must set the required values
@@ -101,6 +102,28 @@ public class FirehoseTest {
         logger.info("Test 4 passed");
     }
 
+    @Test
+    @Tag("IntegrationTest")
+    @Order(5)
+    public void testPutRecordBatch() throws IOException {
+        String jsonContent = FirehoseScenario.readJsonFile("sample_records.json");
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Map<String, Object>> sampleData = objectMapper.readValue(jsonContent, new TypeReference<>() {});
+
+        // The shared stream is deleted by test 4, so this test uses a stream of its own.
+        String batchStream = newStream + "-batch";
+        CreateDeliveryStream.createStream(firehoseClient, bucketARN, roleARN, batchStream);
+        try {
+            CreateDeliveryStream.waitForStreamToBecomeActive(firehoseClient, batchStream);
+            long failed = FirehoseScenario.putRecordBatch(sampleData.subList(100, sampleData.size()), 500,
+                    batchStream);
+            assertEquals(0, failed);
+        } finally {
+            DeleteStream.delStream(firehoseClient, batchStream);
+        }
+        logger.info("Test 5 passed");
+    }
+
     private static String getSecretValues() {
         SecretsManagerClient secretClient = SecretsManagerClient.builder()
                 .region(Region.US_EAST_1)
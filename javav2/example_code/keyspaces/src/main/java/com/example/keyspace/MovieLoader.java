@@ -0,0 +1,359 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.keyspace;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.servererrors.ServerError;
+import com.datastax.oss.driver.api.core.servererrors.WriteTimeoutException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Loads a movie data file into the Movie table of Amazon Keyspaces at high throughput.
+ *
+ * <p>
+ * The file is read with a Jackson token parser, one movie at a time, so it can be larger than memory.
+ * The INSERT statement is prepared once, and rows are grouped by partition key into UNLOGGED batches
+ * of up to {@value #MAX_BATCH_STATEMENTS} statements. A batch that writes to a single partition is
+ * applied atomically and sent to a replica that owns it, while a batch that spans partitions makes
+ * the coordinator do the fan-out, so rows are never batched across partitions. A group with only one
+ * row is sent as a plain statement. With the scenario's (year, title) partition key, each movie is
+ * its own partition, so every row is sent on its own.
+ * </p>
+ *
+ * <p>
+ * Statements are sent with {@code executeAsync}, and a semaphore bounds the number in flight. Amazon
+ * Keyspaces reports exceeded capacity as {@link WriteTimeoutException} or {@link ServerError}; those
+ * writes are retried with backoff and counted, so you can tell when the table needs more capacity.
+ * </p>
+ */
+public class MovieLoader {
+    private static final Logger logger = LoggerFactory.getLogger(MovieLoader.class);
+    private static final int MAX_BATCH_STATEMENTS = 30;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    private final CqlSession session;
+    private final PreparedStatement insert;
+    private final int maxInFlight;
+    private final int maxBufferedRows;
+    private final Semaphore inFlight;
+
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder rowsFailed = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder writeTimeouts = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private volatile long startNanos = System.nanoTime();
+    private volatile long startRows;
+
+    /**
+     * The outcome of a load.
+     */
+    public record Result(long rowsWritten, long rowsFailed, long requests, long writeTimeouts, long serverErrors,
+                         Duration elapsed) {
+        public double rowsPerSecond() {
+            return elapsed.isZero() ? 0 : rowsWritten * 1e9 / elapsed.toNanos();
+        }
+    }
+
+    record Movie(int year, String title, String plot) {
+    }
+
+    /**
+     * Groups rows by partition key and hands each group to a sink. A group is sent when it reaches
+     * the maximum batch size, and every group is sent when the buffered rows reach their limit or
+     * on {@link #flush()}. A row without a partition key can't be grouped safely, so it's sent alone.
+     */
+    static final class PartitionGrouper<K, R> {
+        private final int maxGroupSize;
+        private final int maxBufferedRows;
+        private final Consumer<List<R>> sink;
+        private final Map<K, List<R>> partitions = new HashMap<>();
+        private int buffered;
+
+        PartitionGrouper(int maxGroupSize, int maxBufferedRows, Consumer<List<R>> sink) {
+            this.maxGroupSize = maxGroupSize;
+            this.maxBufferedRows = maxBufferedRows;
+            this.sink = sink;
+        }
+
+        void add(K partitionKey, R row) {
+            if (partitionKey == null) {
+                sink.accept(List.of(row));
+                return;
+            }
+            List<R> partition = partitions.computeIfAbsent(partitionKey, key -> new ArrayList<>());
+            partition.add(row);
+            buffered++;
+            if (partition.size() == maxGroupSize) {
+                partitions.remove(partitionKey);
+                buffered -= partition.size();
+                sink.accept(partition);
+            }
+            if (buffered >= maxBufferedRows) {
+                flush();
+            }
+        }
+
+        void flush() {
+            partitions.values().forEach(sink);
+            partitions.clear();
+            buffered = 0;
+        }
+    }
+
+    /**
+     * @param session     the session to write with
+     * @param statements  the cache to prepare the INSERT statement with
+     * @param keyspace    the keyspace that contains the Movie table
+     * @param maxInFlight the maximum number of requests in flight at once
+     */
+    public MovieLoader(CqlSession session, PreparedStatementCache statements, String keyspace, int maxInFlight) {
+        this.session = session;
+        this.insert = statements.get(
+                "INSERT INTO \"" + keyspace + "\".\"Movie\" (title, year, plot) values (:k0, :k1, :k2)");
+        this.maxInFlight = maxInFlight;
+        // Enough partial batches to keep every permit busy, without holding the whole file.
+        this.maxBufferedRows = maxInFlight * MAX_BATCH_STATEMENTS;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Loads every movie in a JSON array of movies, such as resources/sample_files/movies.json.
+     * Blocks until every write has completed or failed.
+     *
+     * @param file the movie data file
+     * @return the counters for this load
+     * @throws IOException if the file can't be read or isn't a JSON array of objects
+     */
+    public Result load(Path file) throws IOException, InterruptedException {
+        long written = rowsWritten.sum();
+        long failed = rowsFailed.sum();
+        long sent = requests.sum();
+        long timeouts = writeTimeouts.sum();
+        long errors = serverErrors.sum();
+        startRows = written;
+        startNanos = System.nanoTime();
+
+        PartitionGrouper<ByteBuffer, BoundStatement> partitions =
+                new PartitionGrouper<>(MAX_BATCH_STATEMENTS, maxBufferedRows, this::send);
+        try (JsonParser parser = new JsonFactory().createParser(file.toFile())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException(file + " doesn't contain a JSON array of movies.");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                Movie movie = readMovie(parser);
+                if (movie.title() == null) {
+                    continue;
+                }
+                BoundStatement row = insert.boundStatementBuilder()
+                        .setString("k0", movie.title())
+                        .setInt("k1", movie.year())
+                        .setString("k2", movie.plot())
+                        .setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM)
+                        .setIdempotent(true)
+                        .build();
+
+                partitions.add(row.getRoutingKey(), row);
+            }
+        }
+        partitions.flush();
+
+        // Wait for the writes in flight to finish.
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+
+        return new Result(rowsWritten.sum() - written, rowsFailed.sum() - failed, requests.sum() - sent,
+                writeTimeouts.sum() - timeouts, serverErrors.sum() - errors,
+                Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    public long rowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    public long writeTimeouts() {
+        return writeTimeouts.sum();
+    }
+
+    public long serverErrors() {
+        return serverErrors.sum();
+    }
+
+    /**
+     * The rows written per second since the current (or last) load started.
+     */
+    public double rowsPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed == 0 ? 0 : (rowsWritten.sum() - startRows) * 1e9 / elapsed;
+    }
+
+    /**
+     * Sends the rows of one partition, waiting for a permit first. The permit is released when the
+     * write succeeds or runs out of retries.
+     */
+    private void send(List<BoundStatement> partition) {
+        Statement<?> statement = partition.size() == 1
+                ? partition.get(0)
+                : BatchStatement.builder(DefaultBatchType.UNLOGGED)
+                        .addStatements(new ArrayList<>(partition))
+                        .setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM)
+                        .setIdempotent(true)
+                        .build();
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to send rows", e);
+        }
+        int rows = partition.size();
+        execute(statement, 1).whenComplete((ignored, e) -> {
+            if (e == null) {
+                rowsWritten.add(rows);
+            } else {
+                rowsFailed.add(rows);
+                logger.warn("Failed to write {} rows: {}", rows, e.getMessage());
+            }
+            inFlight.release();
+        });
+    }
+
+    private CompletableFuture<Void> execute(Statement<?> statement, int attempt) {
+        requests.increment();
+        return session.executeAsync(statement).toCompletableFuture()
+                .thenApply(resultSet -> (Void) null)
+                .exceptionallyCompose(e -> {
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (!isThrottled(cause)) {
+                        return CompletableFuture.failedFuture(cause);
+                    }
+                    if (cause instanceof WriteTimeoutException) {
+                        writeTimeouts.increment();
+                    } else {
+                        serverErrors.increment();
+                    }
+                    if (attempt >= MAX_ATTEMPTS) {
+                        return CompletableFuture.failedFuture(cause);
+                    }
+                    // Full jitter, so throttled writers don't retry in lockstep.
+                    long cap = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << attempt);
+                    long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+                    return CompletableFuture.supplyAsync(() -> null,
+                                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                            .thenCompose(ignored -> execute(statement, attempt + 1));
+                });
+    }
+
+    /**
+     * Returns whether a failed write was throttled, and so should be retried. Amazon Keyspaces reports
+     * exceeded capacity as a write timeout or a server error; any other failure is final.
+     */
+    static boolean isThrottled(Throwable cause) {
+        return cause instanceof WriteTimeoutException || cause instanceof ServerError;
+    }
+
+    /**
+     * Reads one movie object. The parser is on its START_OBJECT token and is left on its END_OBJECT.
+     * Fields other than year, title, and info.plot are skipped without being materialized.
+     */
+    static Movie readMovie(JsonParser parser) throws IOException {
+        int year = 0;
+        String title = null;
+        String plot = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "year" -> year = parser.getValueAsInt();
+                case "title" -> title = parser.getValueAsString();
+                case "info" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        plot = readPlot(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new Movie(year, title, plot);
+    }
+
+    private static String readPlot(JsonParser parser) throws IOException {
+        String plot = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (field.equals("plot")) {
+                plot = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return plot;
+    }
+
+    /*
+     * Usage:
+     * fileName - The name of the JSON file that contains movie data. (Get this file
+     * from the GitHub repo at resources/sample_file.)
+     * keyspaceName - The name of a keyspace that contains the Movie table created by ScenarioKeyspaces.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final String usage = """
+
+                Usage:
+                    <fileName> <keyspaceName>
+
+                Where:
+                    fileName - The name of the JSON file that contains movie data.
+                    keyspaceName - The name of a keyspace that contains the Movie table.
+                """;
+
+        if (args.length != 2) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        DriverConfigLoader loader = DriverConfigLoader.fromClasspath("application.conf");
+        try (CqlSession session = CqlSession.builder()
+                .withConfigLoader(loader)
+                .build()) {
+            MovieLoader movieLoader = new MovieLoader(session, new PreparedStatementCache(session), args[1], 64);
+            Result result = movieLoader.load(Path.of(args[0]));
+            System.out.printf("Wrote %d rows in %d requests (%d failed) at %.0f rows/s.%n", result.rowsWritten(),
+                    result.requests(), result.rowsFailed(), result.rowsPerSecond());
+            System.out.printf("Throttled writes: %d write timeouts, %d server errors.%n", result.writeTimeouts(),
+                    result.serverErrors());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.keyspace;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prepares each CQL statement once per session and returns the same {@link PreparedStatement}
+ * afterwards.
+ *
+ * Preparing a statement is a round trip to the cluster, so code that prepares inside a loop pays
+ * it on every row. Bind values to the cached statement instead.
+ */
+public class PreparedStatementCache {
+    private final CqlSession session;
+    private final Map<String, PreparedStatement> statements = new ConcurrentHashMap<>();
+
+    public PreparedStatementCache(CqlSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Returns the prepared statement for the given CQL, preparing it on first use.
+     *
+     * @param cql the CQL text, with named or positional bind markers
+     * @return the prepared statement
+     */
+    public PreparedStatement get(String cql) {
+        return statements.computeIfAbsent(cql, session::prepare);
+    }
+}
@@ -417,6 +417,7 @@ public class ScenarioKeyspaces {
         Iterator<JsonNode> iter = rootNode.iterator();
         ObjectNode currentNode;
         int t = 0;
+        PreparedStatement preparedStatement = session.prepare(sqlStatement);
         while (iter.hasNext()) {
 
             // Add 20 movies to the table.
@@ -431,7 +432,6 @@ public class ScenarioKeyspaces {
             // Insert the data into the Amazon Keyspaces table.
             BatchStatementBuilder builder = BatchStatement.builder(DefaultBatchType.UNLOGGED);
             builder.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
-            PreparedStatement preparedStatement = session.prepare(sqlStatement);
             builder.addStatement(preparedStatement.boundStatementBuilder()
                     .setString("k0", title)
                     .setInt("k1", year)
@@ -0,0 +1,110 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.keyspace;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.servererrors.InvalidQueryException;
+import com.datastax.oss.driver.api.core.servererrors.ServerError;
+import com.datastax.oss.driver.api.core.servererrors.WriteTimeoutException;
+import com.datastax.oss.driver.api.core.servererrors.WriteType;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the parts of MovieLoader that don't need a session.
+ */
+public class MovieLoaderTest {
+
+    @Test
+    public void readMovieTakesYearTitleAndPlot() throws IOException {
+        String json = """
+                [
+                  {"year": 2013, "title": "Rush",
+                   "info": {"directors": ["Ron Howard"], "plot": "A re-creation of a rivalry.", "rating": 8.3},
+                   "extra": {"nested": [1, {"plot": "not this one"}]}},
+                  {"title": "No Info", "year": 1999, "info": "not an object"},
+                  {"year": 2001}
+                ]
+                """;
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            assertEquals(JsonToken.START_ARRAY, parser.nextToken());
+
+            assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+            assertEquals(new MovieLoader.Movie(2013, "Rush", "A re-creation of a rivalry."),
+                    MovieLoader.readMovie(parser));
+            assertEquals(JsonToken.END_OBJECT, parser.currentToken());
+
+            assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+            assertEquals(new MovieLoader.Movie(1999, "No Info", null), MovieLoader.readMovie(parser));
+
+            assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+            assertNull(MovieLoader.readMovie(parser).title());
+
+            assertEquals(JsonToken.END_ARRAY, parser.nextToken());
+        }
+    }
+
+    @Test
+    public void rowsAreGroupedByPartitionOnly() {
+        List<List<String>> sent = new ArrayList<>();
+        MovieLoader.PartitionGrouper<String, String> grouper = new MovieLoader.PartitionGrouper<>(3, 100, sent::add);
+
+        grouper.add("a", "a1");
+        grouper.add("b", "b1");
+        grouper.add("a", "a2");
+        assertTrue(sent.isEmpty());
+
+        // A full group is sent right away, with only its own partition's rows.
+        grouper.add("a", "a3");
+        assertEquals(List.of(List.of("a1", "a2", "a3")), sent);
+
+        // A row without a partition key is sent on its own.
+        grouper.add(null, "x1");
+        assertEquals(List.of("x1"), sent.get(1));
+
+        grouper.flush();
+        assertEquals(List.of("b1"), sent.get(2));
+        assertEquals(3, sent.size());
+    }
+
+    @Test
+    public void partialGroupsAreSentWhenTheBufferIsFull() {
+        List<List<String>> sent = new ArrayList<>();
+        MovieLoader.PartitionGrouper<String, String> grouper = new MovieLoader.PartitionGrouper<>(30, 3, sent::add);
+
+        grouper.add("a", "a1");
+        grouper.add("b", "b1");
+        grouper.add("a", "a2");
+        assertEquals(2, sent.size());
+        assertTrue(sent.contains(List.of("a1", "a2")));
+        assertTrue(sent.contains(List.of("b1")));
+
+        // The buffer starts over empty.
+        grouper.add("a", "a3");
+        assertEquals(2, sent.size());
+        grouper.flush();
+        assertEquals(List.of("a3"), sent.get(2));
+    }
+
+    @Test
+    public void onlyThrottlingIsRetried() {
+        assertTrue(MovieLoader.isThrottled(
+                new WriteTimeoutException(null, ConsistencyLevel.LOCAL_QUORUM, 1, 2, WriteType.SIMPLE)));
+        assertTrue(MovieLoader.isThrottled(new ServerError(null, "Capacity exceeded")));
+
+        assertFalse(MovieLoader.isThrottled(new InvalidQueryException(null, "Unknown column")));
+        assertFalse(MovieLoader.isThrottled(new IllegalStateException("Session closed")));
+    }
+}
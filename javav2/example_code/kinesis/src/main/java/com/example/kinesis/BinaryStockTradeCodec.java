@@ -0,0 +1,127 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.kinesis;
+
+import software.amazon.awssdk.core.SdkBytes;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A compact binary format for stock trades.
+ *
+ * Version 1 is a fixed 28-byte header followed by the ticker symbol, all big-endian:
+ * <pre>
+ * offset  size  field
+ *      0     1  marker (0xB7, which can't start a JSON document)
+ *      1     1  schema version (1)
+ *      2     1  trade type (0 = BUY, 1 = SELL)
+ *      3     1  ticker symbol length in bytes
+ *      4     8  id
+ *     12     8  price
+ *     20     8  quantity
+ *     28     n  ticker symbol (US-ASCII)
+ * </pre>
+ *
+ * Decoding reads the fields straight from the ByteBuffer view of the record data, without
+ * copying the data. Ticker symbols repeat across trades, so short symbols are kept in a small
+ * direct-mapped cache and most records are decoded without creating a String.
+ *
+ * The decoder reads every version it knows, so a new version can be rolled out by updating
+ * the consumers first and the producers second.
+ */
+class BinaryStockTradeCodec implements StockTradeCodec {
+    static final BinaryStockTradeCodec INSTANCE = new BinaryStockTradeCodec();
+    static final byte MARKER = (byte) 0xB7;
+    static final byte CURRENT_VERSION = 1;
+    private static final int HEADER_SIZE = 28;
+    private static final int SYMBOL_CACHE_SIZE = 1024;
+    private static final StockTrade.TradeType[] TRADE_TYPES = StockTrade.TradeType.values();
+
+    // Symbols of up to 7 bytes, keyed by their bytes packed into a long together with their length.
+    // Entries are immutable, so threads that race on a slot see either entry whole.
+    private final CachedSymbol[] symbolCache = new CachedSymbol[SYMBOL_CACHE_SIZE];
+
+    private record CachedSymbol(long key, String symbol) {
+    }
+
+    private BinaryStockTradeCodec() {
+    }
+
+    static boolean isBinary(SdkBytes data) {
+        ByteBuffer buffer = data.asByteBuffer();
+        return buffer.remaining() > 0 && buffer.get(buffer.position()) == MARKER;
+    }
+
+    @Override
+    public SdkBytes encode(StockTrade trade) {
+        byte[] symbol = trade.getTickerSymbol().getBytes(StandardCharsets.US_ASCII);
+        if (symbol.length > 255) {
+            throw new IllegalArgumentException("Ticker symbol is longer than 255 bytes: " + trade.getTickerSymbol());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + symbol.length);
+        buffer.put(MARKER)
+            .put(CURRENT_VERSION)
+            .put((byte) trade.getTradeType().ordinal())
+            .put((byte) symbol.length)
+            .putLong(trade.getId())
+            .putDouble(trade.getPrice())
+            .putLong(trade.getQuantity())
+            .put(symbol);
+        return SdkBytes.fromByteArrayUnsafe(buffer.array());
+    }
+
+    @Override
+    public StockTrade decode(SdkBytes data) {
+        ByteBuffer buffer = data.asByteBuffer();
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE || buffer.get(start) != MARKER) {
+            throw new IllegalArgumentException("The record data isn't a binary stock trade.");
+        }
+        byte version = buffer.get(start + 1);
+        return switch (version) {
+            case 1 -> decodeVersion1(buffer, start);
+            default -> throw new IllegalArgumentException("Unsupported stock trade schema version " + version + ".");
+        };
+    }
+
+    private StockTrade decodeVersion1(ByteBuffer buffer, int start) {
+        int symbolLength = buffer.get(start + 3) & 0xFF;
+        if (buffer.remaining() < HEADER_SIZE + symbolLength) {
+            throw new IllegalArgumentException("The binary stock trade is truncated.");
+        }
+        int tradeType = buffer.get(start + 2) & 0xFF;
+        if (tradeType >= TRADE_TYPES.length) {
+            throw new IllegalArgumentException("Unknown trade type " + tradeType + ".");
+        }
+        return new StockTrade(
+            symbol(buffer, start + HEADER_SIZE, symbolLength),
+            TRADE_TYPES[tradeType],
+            buffer.getDouble(start + 12),
+            buffer.getLong(start + 20),
+            buffer.getLong(start + 4));
+    }
+
+    private String symbol(ByteBuffer buffer, int offset, int length) {
+        if (length > 7) {
+            byte[] bytes = new byte[length];
+            buffer.get(offset, bytes);
+            return new String(bytes, StandardCharsets.US_ASCII);
+        }
+        long key = length;
+        for (int i = 0; i < length; i++) {
+            key = (key << 8) | (buffer.get(offset + i) & 0xFF);
+        }
+        int slot = (int) (key ^ (key >>> 29) ^ (key >>> 43)) & (SYMBOL_CACHE_SIZE - 1);
+        CachedSymbol cached = symbolCache[slot];
+        if (cached != null && cached.key() == key) {
+            return cached.symbol();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        String symbol = new String(bytes, StandardCharsets.US_ASCII);
+        symbolCache[slot] = new CachedSymbol(key, symbol);
+        return symbol;
+    }
+}
@@ -0,0 +1,401 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.kinesis;
+
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.ListShardsRequest;
+import software.amazon.awssdk.services.kinesis.model.ListShardsResponse;
+import software.amazon.awssdk.services.kinesis.model.Record;
+import software.amazon.awssdk.services.kinesis.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.kinesis.model.Shard;
+import software.amazon.awssdk.services.kinesis.model.ShardIteratorType;
+import software.amazon.awssdk.services.kinesis.model.StartingPosition;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardEvent;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardRequest;
+import software.amazon.awssdk.services.kinesis.model.SubscribeToShardResponseHandler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Before running this Java V2 code example, set up your development
+ * environment, including your credentials.
+ *
+ * For more information, see the following documentation topic:
+ *
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ *
+ * This example reads every shard of a stream with enhanced fan-out, spread across any
+ * number of worker processes. It's a small version of what the Kinesis Client Library does:
+ *
+ * - The shards are found with ListShards, and each one gets a lease in a DynamoDB table
+ *   (see {@link ShardLeaseTable})
+ * - Each worker takes an even share of the leases, taking free or expired leases first and
+ *   stealing one lease per round from the busiest worker when there are none
+ * - For each lease it holds, a worker keeps a SubscribeToShard subscription open. A
+ *   subscription ends after 5 minutes, so it's renewed from the last continuation
+ *   sequence number
+ * - A child shard from a split or merge is read only after its parents are finished
+ * - Checkpoints are written to the lease table every 1,000 records or 10 seconds
+ *
+ * Records are delivered at least once: after a lease moves to another worker, the records
+ * since the last checkpoint are read again.
+ */
+public class FanOutConsumer implements AutoCloseable {
+    private static final long LEASE_DURATION_MILLIS = 30_000;
+    private static final long COORDINATE_INTERVAL_MILLIS = 10_000;
+    private static final int CHECKPOINT_EVERY_RECORDS = 1000;
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 10_000;
+    private static final long RESUBSCRIBE_DELAY_MILLIS = 1000;
+
+    private final KinesisAsyncClient kinesisClient;
+    private final String streamName;
+    private final String consumerArn;
+    private final ShardLeaseTable leaseTable;
+    private final String workerId;
+    private final BiConsumer<String, List<Record>> recordHandler;
+    private final ScheduledExecutorService coordinator = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, ShardSubscription> subscriptions = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public static void main(String[] args) throws InterruptedException {
+        final String usage = """
+
+                Usage:
+                    <streamName> <consumerArn> <leaseTableName>
+
+                Where:
+                    streamName - The Amazon Kinesis data stream to read (for example, StockTradeStream).
+                    consumerArn - The ARN of a consumer registered with RegisterStreamConsumer.
+                    leaseTableName - The DynamoDB table that holds the shard leases (for example, StockTradeLeases).
+                """;
+
+        if (args.length != 3) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        Region region = Region.US_EAST_1;
+        AtomicLong count = new AtomicLong();
+        try (KinesisAsyncClient kinesisClient = KinesisAsyncClient.builder().region(region).build();
+             DynamoDbAsyncClient ddb = DynamoDbAsyncClient.builder().region(region).build();
+             FanOutConsumer consumer = new FanOutConsumer(kinesisClient, ddb, args[0], args[1], args[2],
+                 (shardId, records) -> {
+                     for (Record record : records) {
+                         StockTrade trade = StockTradeCodec.forData(record.data()).decode(record.data());
+                         System.out.println(shardId + ": " + trade);
+                     }
+                     count.addAndGet(records.size());
+                 })) {
+            consumer.start();
+            TimeUnit.MINUTES.sleep(10);
+            System.out.println("Read " + count.get() + " records.");
+        }
+    }
+
+    /**
+     * Creates a consumer. Call {@link #start()} to begin reading.
+     *
+     * @param kinesisClient  the async client used for ListShards and SubscribeToShard
+     * @param ddb            the async client used for the lease table
+     * @param streamName     the stream to read
+     * @param consumerArn    the ARN of the registered enhanced fan-out consumer
+     * @param leaseTableName the lease table; it's created if it doesn't exist
+     * @param recordHandler  the code that processes the records of one shard, called with the shard ID; it's
+     *                       never called for the same shard by two threads at once
+     */
+    public FanOutConsumer(KinesisAsyncClient kinesisClient, DynamoDbAsyncClient ddb, String streamName,
+                          String consumerArn, String leaseTableName, BiConsumer<String, List<Record>> recordHandler) {
+        this.kinesisClient = kinesisClient;
+        this.streamName = streamName;
+        this.consumerArn = consumerArn;
+        this.leaseTable = new ShardLeaseTable(ddb, leaseTableName);
+        this.workerId = UUID.randomUUID().toString();
+        this.recordHandler = recordHandler;
+    }
+
+    /**
+     * Creates the lease table if needed and starts taking leases.
+     */
+    public void start() {
+        leaseTable.createIfMissing();
+        coordinator.scheduleWithFixedDelay(this::coordinateSafely, 0, COORDINATE_INTERVAL_MILLIS,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops every subscription, saves the checkpoints, and releases the leases so that other workers can take
+     * them right away.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        coordinator.shutdown();
+        coordinator.awaitTermination(1, TimeUnit.MINUTES);
+        for (ShardSubscription subscription : subscriptions.values()) {
+            subscription.stop();
+            subscription.saveCheckpoint();
+            leaseTable.release(subscription.shardId, workerId);
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * Returns the shards this worker reads now.
+     */
+    public List<String> ownedShards() {
+        return new ArrayList<>(subscriptions.keySet());
+    }
+
+    private void coordinateSafely() {
+        try {
+            coordinate();
+        } catch (RuntimeException e) {
+            System.err.println("Lease coordination failed: " + e.getMessage());
+        }
+    }
+
+    private void coordinate() {
+        syncShards();
+        long now = System.currentTimeMillis();
+
+        // Renew the leases this worker holds, and stop reading the shards whose leases were lost.
+        for (ShardSubscription subscription : subscriptions.values()) {
+            if (subscription.finished) {
+                subscriptions.remove(subscription.shardId);
+            } else if (!leaseTable.renew(subscription.shardId, workerId, now + LEASE_DURATION_MILLIS)) {
+                System.out.println("Lost the lease of " + subscription.shardId + ".");
+                subscription.stop();
+                subscriptions.remove(subscription.shardId);
+            }
+        }
+
+        List<ShardLeaseTable.Lease> leases = leaseTable.listLeases();
+        Map<String, ShardLeaseTable.Lease> leasesByShard = leases.stream()
+            .collect(Collectors.toMap(ShardLeaseTable.Lease::shardId, lease -> lease));
+        List<ShardLeaseTable.Lease> readable = leases.stream()
+            .filter(lease -> !lease.isFinished() && parentsFinished(lease, leasesByShard))
+            .toList();
+
+        Map<String, Integer> leasesPerWorker = new HashMap<>();
+        leasesPerWorker.put(workerId, subscriptions.size());
+        readable.stream()
+            .filter(lease -> lease.isHeld(now) && !workerId.equals(lease.owner()))
+            .forEach(lease -> leasesPerWorker.merge(lease.owner(), 1, Integer::sum));
+        int target = (readable.size() + leasesPerWorker.size() - 1) / leasesPerWorker.size();
+
+        for (ShardLeaseTable.Lease lease : readable) {
+            if (subscriptions.size() >= target) {
+                return;
+            }
+            if (!lease.isHeld(now) && leaseTable.take(lease, workerId, now + LEASE_DURATION_MILLIS)) {
+                startSubscription(lease);
+            }
+        }
+
+        // No free leases are left, so take one from the worker that holds the most, if it holds more than its share.
+        Map.Entry<String, Integer> busiest = leasesPerWorker.entrySet().stream()
+            .max(Map.Entry.comparingByValue())
+            .orElseThrow();
+        if (subscriptions.size() < target && busiest.getValue() > target) {
+            readable.stream()
+                .filter(lease -> busiest.getKey().equals(lease.owner()) && lease.isHeld(now))
+                .findFirst()
+                .filter(lease -> leaseTable.take(lease, workerId, now + LEASE_DURATION_MILLIS))
+                .ifPresent(this::startSubscription);
+        }
+    }
+
+    private static boolean parentsFinished(ShardLeaseTable.Lease lease, Map<String, ShardLeaseTable.Lease> leases) {
+        // A parent without a lease has expired from the stream, so there is nothing left to read in it.
+        return lease.parentShardIds().stream()
+            .map(leases::get)
+            .allMatch(parent -> parent == null || parent.isFinished());
+    }
+
+    /**
+     * Adds a lease for every shard of the stream, including the closed shards that are still readable.
+     */
+    private void syncShards() {
+        String nextToken = null;
+        do {
+            ListShardsRequest.Builder request = ListShardsRequest.builder();
+            if (nextToken == null) {
+                request.streamName(streamName);
+            } else {
+                request.nextToken(nextToken);
+            }
+            ListShardsResponse response = kinesisClient.listShards(request.build()).join();
+            for (Shard shard : response.shards()) {
+                List<String> parents = new ArrayList<>();
+                if (shard.parentShardId() != null) {
+                    parents.add(shard.parentShardId());
+                }
+                if (shard.adjacentParentShardId() != null) {
+                    parents.add(shard.adjacentParentShardId());
+                }
+                leaseTable.createLeaseIfMissing(shard.shardId(), parents);
+            }
+            nextToken = response.nextToken();
+        } while (nextToken != null);
+    }
+
+    private void startSubscription(ShardLeaseTable.Lease lease) {
+        System.out.println("Took the lease of " + lease.shardId() + ".");
+        ShardSubscription subscription = new ShardSubscription(lease.shardId(), lease.checkpoint());
+        subscriptions.put(lease.shardId(), subscription);
+        subscription.subscribe();
+    }
+
+    /**
+     * Reads one shard with a chain of SubscribeToShard subscriptions.
+     */
+    private class ShardSubscription {
+        final String shardId;
+        private volatile String sequenceNumber;
+        private volatile String checkpointedSequenceNumber;
+        private volatile boolean stopped;
+        private volatile boolean finished;
+        private volatile CompletableFuture<Void> current;
+        private int recordsSinceCheckpoint;
+        private long lastCheckpointMillis = System.currentTimeMillis();
+
+        ShardSubscription(String shardId, String checkpoint) {
+            this.shardId = shardId;
+            this.sequenceNumber = checkpoint;
+            this.checkpointedSequenceNumber = checkpoint;
+        }
+
+        void subscribe() {
+            if (stopped || closed) {
+                return;
+            }
+            StartingPosition startingPosition = sequenceNumber == null
+                ? StartingPosition.builder().type(ShardIteratorType.TRIM_HORIZON).build()
+                : StartingPosition.builder().type(ShardIteratorType.AFTER_SEQUENCE_NUMBER)
+                    .sequenceNumber(sequenceNumber).build();
+            SubscribeToShardRequest request = SubscribeToShardRequest.builder()
+                .consumerARN(consumerArn)
+                .shardId(shardId)
+                .startingPosition(startingPosition)
+                .build();
+            SubscribeToShardResponseHandler responseHandler = SubscribeToShardResponseHandler.builder()
+                .subscriber(SubscribeToShardResponseHandler.Visitor.builder()
+                    .onSubscribeToShardEvent(this::onEvent)
+                    .build())
+                .build();
+            current = kinesisClient.subscribeToShard(request, responseHandler);
+            current.whenComplete((result, exception) -> onSubscriptionEnd(exception));
+        }
+
+        /**
+         * Called for each event, one at a time; the next event is requested only after this returns.
+         */
+        private void onEvent(SubscribeToShardEvent event) {
+            if (stopped) {
+                return;
+            }
+            if (!event.records().isEmpty()) {
+                recordHandler.accept(shardId, event.records());
+                recordsSinceCheckpoint += event.records().size();
+            }
+            if (event.continuationSequenceNumber() == null) {
+                // The shard was split or merged and every record has been read; its children can start now.
+                finish();
+                return;
+            }
+            sequenceNumber = event.continuationSequenceNumber();
+            long now = System.currentTimeMillis();
+            if (recordsSinceCheckpoint >= CHECKPOINT_EVERY_RECORDS
+                || now - lastCheckpointMillis >= CHECKPOINT_INTERVAL_MILLIS) {
+                recordsSinceCheckpoint = 0;
+                lastCheckpointMillis = now;
+                // Write the checkpoint on the coordinator thread so that the event stream isn't blocked.
+                runOnCoordinator(this::saveCheckpoint);
+            }
+        }
+
+        private void onSubscriptionEnd(Throwable exception) {
+            if (stopped || finished || closed) {
+                return;
+            }
+            Throwable cause = exception != null && exception.getCause() != null ? exception.getCause() : exception;
+            if (cause instanceof ResourceNotFoundException) {
+                // The shard has expired from the stream.
+                finish();
+                return;
+            }
+            if (cause != null) {
+                System.err.println("Subscription to " + shardId + " failed: " + cause.getMessage());
+            }
+            // A subscription lasts at most 5 minutes; continue from the last continuation sequence number.
+            try {
+                coordinator.schedule(this::subscribe, RESUBSCRIBE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // The consumer is closing.
+            }
+        }
+
+        private void finish() {
+            finished = true;
+            stopped = true;
+            sequenceNumber = ShardLeaseTable.SHARD_END;
+            runOnCoordinator(() -> {
+                saveCheckpoint();
+                leaseTable.release(shardId, workerId);
+                System.out.println("Finished reading " + shardId + ".");
+            });
+        }
+
+        void saveCheckpoint() {
+            String toSave = sequenceNumber;
+            if (toSave == null || toSave.equals(checkpointedSequenceNumber)) {
+                return;
+            }
+            if (leaseTable.checkpoint(shardId, workerId, toSave)) {
+                checkpointedSequenceNumber = toSave;
+            } else {
+                System.out.println("Lost the lease of " + shardId + " while saving a checkpoint.");
+                stop();
+                subscriptions.remove(shardId);
+            }
+        }
+
+        void stop() {
+            stopped = true;
+            CompletableFuture<Void> subscription = current;
+            if (subscription != null) {
+                subscription.cancel(true);
+            }
+        }
+
+        private void runOnCoordinator(Runnable task) {
+            try {
+                coordinator.execute(() -> {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("Checkpoint of " + shardId + " failed: " + e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The consumer is closing; close() saves the checkpoint.
+            }
+        }
+    }
+}
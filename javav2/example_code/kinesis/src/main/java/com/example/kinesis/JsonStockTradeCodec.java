@@ -0,0 +1,34 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.kinesis;
+
+import software.amazon.awssdk.core.SdkBytes;
+
+/**
+ * The JSON format written by {@link StockTrade#toJsonAsBytes()}.
+ */
+class JsonStockTradeCodec implements StockTradeCodec {
+    static final JsonStockTradeCodec INSTANCE = new JsonStockTradeCodec();
+
+    private JsonStockTradeCodec() {
+    }
+
+    @Override
+    public SdkBytes encode(StockTrade trade) {
+        byte[] bytes = trade.toJsonAsBytes();
+        if (bytes == null) {
+            throw new IllegalArgumentException("Could not get JSON bytes for stock trade " + trade);
+        }
+        return SdkBytes.fromByteArrayUnsafe(bytes);
+    }
+
+    @Override
+    public StockTrade decode(SdkBytes data) {
+        StockTrade trade = StockTrade.fromJsonAsBytes(data.asByteArrayUnsafe());
+        if (trade == null) {
+            throw new IllegalArgumentException("The record data isn't a JSON stock trade.");
+        }
+        return trade;
+    }
+}
@@ -0,0 +1,425 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.kinesis;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.KinesisException;
+import software.amazon.awssdk.services.kinesis.model.ListShardsRequest;
+import software.amazon.awssdk.services.kinesis.model.ListShardsResponse;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsRequestEntry;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsResultEntry;
+import software.amazon.awssdk.services.kinesis.model.Shard;
+import software.amazon.awssdk.services.kinesis.model.ShardFilterType;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A high-throughput producer that sends records to a Kinesis data stream with PutRecords.
+ *
+ * How it works:
+ * - {@link #put(String, byte[])} only queues the record and returns a future
+ * - Every 50 milliseconds, a flush thread routes the queued records to the shard that owns
+ *   their partition key (the MD5 hash of the key falls in the shard's hash key range)
+ * - Each shard has token buckets for its write limits of 1,000 records and 1 MiB per second,
+ *   and a shard's records are sent only while its buckets allow it
+ * - Records from all shards are packed into PutRecords calls of up to 500 records and 5 MiB
+ * - Optionally, small records for the same shard are aggregated KPL-style by a
+ *   {@link RecordAggregator}, which raises the records-per-second ceiling of a shard
+ * - Only the entries that PutRecords reports as failed are queued again, after an exponential
+ *   backoff with full jitter so that throttled shards get time to recover
+ *
+ * The number of queued records is bounded, so put blocks when the stream can't keep up.
+ */
+public class KinesisBatchingProducer implements AutoCloseable {
+    static final int MAX_RECORDS_PER_REQUEST = 500;
+    static final long MAX_BYTES_PER_REQUEST = 5L * 1024 * 1024;
+    static final int MAX_RECORD_BYTES = 1024 * 1024;
+    static final int SHARD_RECORDS_PER_SECOND = 1000;
+    static final long SHARD_BYTES_PER_SECOND = 1024 * 1024;
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long BASE_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 10_000;
+    private static final int MAX_REQUESTS_IN_FLIGHT = 16;
+    private static final long LINGER_MILLIS = 50;
+    private static final long SHARD_REFRESH_MILLIS = 30_000;
+
+    private final KinesisAsyncClient kinesisClient;
+    private final String streamName;
+    private final boolean aggregate;
+    private final int maxBufferedRecords;
+    private final Semaphore bufferedRecords;
+    private final Semaphore requestsInFlight = new Semaphore(MAX_REQUESTS_IN_FLIGHT);
+    private final ConcurrentLinkedQueue<PendingRecord> incoming = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<PendingRecord> retries = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+    private volatile boolean closed;
+
+    // Owned by the flush thread.
+    private TreeMap<BigInteger, ShardBuffer> shardsByStartingHashKey = new TreeMap<>();
+    private long lastShardRefreshMillis;
+
+    private final LongAdder recordsSent = new LongAdder();
+    private final LongAdder recordsRetried = new LongAdder();
+    private final LongAdder recordsFailed = new LongAdder();
+    private final LongAdder putRecordsCalls = new LongAdder();
+
+    /**
+     * Creates a producer. Call {@link #start()} before putting records.
+     *
+     * @param kinesisClient      the async client; its HTTP client should allow at least 16 connections
+     * @param streamName         the stream to write to
+     * @param aggregate          whether to aggregate small records for the same shard into one Kinesis record
+     * @param maxBufferedRecords the most records that can be queued or in flight before put blocks
+     */
+    public KinesisBatchingProducer(KinesisAsyncClient kinesisClient, String streamName, boolean aggregate,
+                                   int maxBufferedRecords) {
+        this.kinesisClient = kinesisClient;
+        this.streamName = streamName;
+        this.aggregate = aggregate;
+        this.maxBufferedRecords = maxBufferedRecords;
+        this.bufferedRecords = new Semaphore(maxBufferedRecords);
+    }
+
+    /**
+     * Lists the stream's shards and starts the flush thread.
+     */
+    public void start() {
+        refreshShards();
+        flusher.scheduleWithFixedDelay(this::flushSafely, LINGER_MILLIS, LINGER_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a record. Blocks if too many records are queued.
+     *
+     * @param partitionKey the partition key, which decides the shard
+     * @param data         the record data, up to 1 MiB including the partition key
+     * @return a future that completes when the record is written, or fails when it can't be written
+     */
+    public CompletableFuture<Void> put(String partitionKey, byte[] data) {
+        if (closed) {
+            throw new IllegalStateException("The producer is closed.");
+        }
+        if (data.length + partitionKey.getBytes(StandardCharsets.UTF_8).length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("A record can't be larger than 1 MiB.");
+        }
+        bufferedRecords.acquireUninterruptibly();
+        PendingRecord record = new PendingRecord(partitionKey, data);
+        record.future.whenComplete((result, exception) -> bufferedRecords.release());
+        incoming.add(record);
+        return record.future;
+    }
+
+    /**
+     * Sends the queued records, waits until every record is written or has failed, and stops the flush thread.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        while (bufferedRecords.availablePermits() < maxBufferedRecords) {
+            Thread.sleep(LINGER_MILLIS);
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(1, TimeUnit.MINUTES);
+        System.out.printf("Producer closed: %d records sent in %d PutRecords calls, %d retried, %d failed.%n",
+            recordsSent.sum(), putRecordsCalls.sum(), recordsRetried.sum(), recordsFailed.sum());
+    }
+
+    public long recordsSent() {
+        return recordsSent.sum();
+    }
+
+    public long recordsRetried() {
+        return recordsRetried.sum();
+    }
+
+    public long recordsFailed() {
+        return recordsFailed.sum();
+    }
+
+    public long putRecordsCalls() {
+        return putRecordsCalls.sum();
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Keep the flush thread alive; the records stay queued and are tried again on the next flush.
+            System.err.println("Flush failed: " + e.getMessage());
+        }
+    }
+
+    private void flush() {
+        long now = System.currentTimeMillis();
+        if (now - lastShardRefreshMillis > SHARD_REFRESH_MILLIS) {
+            refreshShards();
+        }
+
+        // Retried records go to the front of their shard, so they aren't overtaken by newer ones more than needed.
+        List<PendingRecord> retried = new ArrayList<>();
+        for (PendingRecord record; (record = retries.poll()) != null; ) {
+            retried.add(record);
+        }
+        for (int i = retried.size() - 1; i >= 0; i--) {
+            shardFor(retried.get(i)).records.addFirst(retried.get(i));
+        }
+        for (PendingRecord record; (record = incoming.poll()) != null; ) {
+            shardFor(record).records.addLast(record);
+        }
+
+        Batch batch = null;
+        for (ShardBuffer shard : shardsByStartingHashKey.values()) {
+            shard.refill(now);
+            while (!shard.records.isEmpty()) {
+                Entry entry = nextEntry(shard);
+                if (!shard.tryTake(entry.sizeBytes())) {
+                    shard.putBack(entry);
+                    break;
+                }
+                if (batch != null && !batch.fits(entry)) {
+                    send(batch);
+                    batch = null;
+                }
+                if (batch == null) {
+                    if (!requestsInFlight.tryAcquire()) {
+                        // Too many calls in flight: leave the rest queued until the next flush.
+                        shard.putBack(entry);
+                        shard.refund(entry.sizeBytes());
+                        return;
+                    }
+                    batch = new Batch();
+                }
+                batch.add(entry);
+            }
+        }
+        if (batch != null) {
+            send(batch);
+        }
+    }
+
+    /**
+     * Takes the next entry from the front of a shard's queue: one record, or an aggregate of several.
+     */
+    private Entry nextEntry(ShardBuffer shard) {
+        PendingRecord first = shard.records.pollFirst();
+        List<PendingRecord> members = new ArrayList<>();
+        members.add(first);
+        if (!aggregate) {
+            return new Entry(first.partitionKey, first.data, members);
+        }
+        RecordAggregator aggregator = new RecordAggregator();
+        aggregator.tryAdd(first.partitionKey, first.data);
+        while (!shard.records.isEmpty()
+            && aggregator.tryAdd(shard.records.peekFirst().partitionKey, shard.records.peekFirst().data)) {
+            members.add(shard.records.pollFirst());
+        }
+        if (members.size() == 1) {
+            return new Entry(first.partitionKey, first.data, members);
+        }
+        return new Entry(first.partitionKey, aggregator.toBytes(), members);
+    }
+
+    private void send(Batch batch) {
+        List<PutRecordsRequestEntry> requestEntries = new ArrayList<>(batch.entries.size());
+        for (Entry entry : batch.entries) {
+            requestEntries.add(PutRecordsRequestEntry.builder()
+                .partitionKey(entry.partitionKey)
+                .data(SdkBytes.fromByteArrayUnsafe(entry.data))
+                .build());
+        }
+        putRecordsCalls.increment();
+        kinesisClient.putRecords(b -> b.streamName(streamName).records(requestEntries))
+            .whenComplete((response, exception) -> {
+                requestsInFlight.release();
+                if (exception != null) {
+                    batch.entries.forEach(entry -> retry(entry, exception.getMessage()));
+                    return;
+                }
+                List<PutRecordsResultEntry> results = response.records();
+                for (int i = 0; i < results.size(); i++) {
+                    Entry entry = batch.entries.get(i);
+                    PutRecordsResultEntry result = results.get(i);
+                    if (result.errorCode() == null) {
+                        recordsSent.add(entry.members.size());
+                        entry.members.forEach(member -> member.future.complete(null));
+                    } else {
+                        retry(entry, result.errorCode() + ": " + result.errorMessage());
+                    }
+                }
+            });
+    }
+
+    /**
+     * Queues the entry's records again after a backoff, or fails the ones that are out of attempts.
+     * The records of an entry are requeued together, so an aggregate stays in order.
+     */
+    private void retry(Entry entry, String error) {
+        List<PendingRecord> retried = new ArrayList<>(entry.members.size());
+        int attempts = 0;
+        for (PendingRecord member : entry.members) {
+            if (++member.attempts >= MAX_ATTEMPTS) {
+                recordsFailed.increment();
+                member.future.completeExceptionally(KinesisException.builder()
+                    .message("Record not written after " + MAX_ATTEMPTS + " attempts: " + error)
+                    .build());
+            } else {
+                recordsRetried.increment();
+                retried.add(member);
+                attempts = Math.max(attempts, member.attempts);
+            }
+        }
+        if (!retried.isEmpty()) {
+            CompletableFuture.runAsync(() -> retries.addAll(retried),
+                CompletableFuture.delayedExecutor(backoffMillis(attempts), TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Returns a random delay between 0 and an exponentially growing cap (full jitter), so records that
+     * failed together don't all come back at once.
+     */
+    private static long backoffMillis(int attempt) {
+        long cap = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt - 1, 16));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /**
+     * Lists the open shards. Shards that still exist keep their queues and rate limits; records queued for
+     * shards that were split or merged are routed again.
+     */
+    private void refreshShards() {
+        Map<String, ShardBuffer> existing = new HashMap<>();
+        shardsByStartingHashKey.values().forEach(shard -> existing.put(shard.shardId, shard));
+        TreeMap<BigInteger, ShardBuffer> refreshed = new TreeMap<>();
+
+        String nextToken = null;
+        do {
+            ListShardsRequest.Builder request = ListShardsRequest.builder();
+            if (nextToken == null) {
+                request.streamName(streamName).shardFilter(f -> f.type(ShardFilterType.AT_LATEST));
+            } else {
+                request.nextToken(nextToken);
+            }
+            ListShardsResponse response = kinesisClient.listShards(request.build()).join();
+            for (Shard shard : response.shards()) {
+                ShardBuffer buffer = existing.remove(shard.shardId());
+                if (buffer == null) {
+                    buffer = new ShardBuffer(shard.shardId());
+                }
+                refreshed.put(new BigInteger(shard.hashKeyRange().startingHashKey()), buffer);
+            }
+            nextToken = response.nextToken();
+        } while (nextToken != null);
+
+        shardsByStartingHashKey = refreshed;
+        lastShardRefreshMillis = System.currentTimeMillis();
+        for (ShardBuffer closedShard : existing.values()) {
+            closedShard.records.forEach(record -> shardFor(record).records.addLast(record));
+        }
+    }
+
+    private ShardBuffer shardFor(PendingRecord record) {
+        if (record.hashKey == null) {
+            byte[] keyBytes = record.partitionKey.getBytes(StandardCharsets.UTF_8);
+            record.hashKey = new BigInteger(1, RecordAggregator.md5(keyBytes));
+        }
+        Map.Entry<BigInteger, ShardBuffer> shard = shardsByStartingHashKey.floorEntry(record.hashKey);
+        return shard != null ? shard.getValue() : shardsByStartingHashKey.firstEntry().getValue();
+    }
+
+    private static class PendingRecord {
+        final String partitionKey;
+        final byte[] data;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        BigInteger hashKey;
+        int attempts;
+
+        PendingRecord(String partitionKey, byte[] data) {
+            this.partitionKey = partitionKey;
+            this.data = data;
+        }
+    }
+
+    /**
+     * One PutRecords entry: a single user record, or an aggregate of several.
+     */
+    private record Entry(String partitionKey, byte[] data, List<PendingRecord> members) {
+        long sizeBytes() {
+            return data.length + partitionKey.getBytes(StandardCharsets.UTF_8).length;
+        }
+    }
+
+    private static class Batch {
+        final List<Entry> entries = new ArrayList<>();
+        long sizeBytes;
+
+        boolean fits(Entry entry) {
+            return entries.size() < MAX_RECORDS_PER_REQUEST && sizeBytes + entry.sizeBytes() <= MAX_BYTES_PER_REQUEST;
+        }
+
+        void add(Entry entry) {
+            entries.add(entry);
+            sizeBytes += entry.sizeBytes();
+        }
+    }
+
+    /**
+     * The queue and write limits of one shard. Each bucket holds at most one second of capacity.
+     */
+    private static class ShardBuffer {
+        final String shardId;
+        final Deque<PendingRecord> records = new ArrayDeque<>();
+        private double recordTokens = SHARD_RECORDS_PER_SECOND;
+        private double byteTokens = SHARD_BYTES_PER_SECOND;
+        private long lastRefillMillis = System.currentTimeMillis();
+
+        ShardBuffer(String shardId) {
+            this.shardId = shardId;
+        }
+
+        void refill(long now) {
+            double seconds = (now - lastRefillMillis) / 1000.0;
+            recordTokens = Math.min(SHARD_RECORDS_PER_SECOND, recordTokens + seconds * SHARD_RECORDS_PER_SECOND);
+            byteTokens = Math.min(SHARD_BYTES_PER_SECOND, byteTokens + seconds * SHARD_BYTES_PER_SECOND);
+            lastRefillMillis = now;
+        }
+
+        boolean tryTake(long bytes) {
+            if (recordTokens < 1 || byteTokens < bytes) {
+                return false;
+            }
+            recordTokens -= 1;
+            byteTokens -= bytes;
+            return true;
+        }
+
+        void refund(long bytes) {
+            recordTokens += 1;
+            byteTokens += bytes;
+        }
+
+        void putBack(Entry entry) {
+            for (int i = entry.members().size() - 1; i >= 0; i--) {
+                records.addFirst(entry.members().get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.kinesis;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs several small user records into one Kinesis record in the aggregated record
+ * format of the Kinesis Producer Library (KPL), so that consumers built on the Kinesis
+ * Client Library can split them up again.
+ *
+ * The format is a 4-byte magic number, an AggregatedRecord protocol buffer message,
+ * and the MD5 digest of that message. The message holds a table of partition keys
+ * and one Record message (a partition key index and the data) for each user record.
+ * The protocol buffer encoding is written by hand because only these two messages are needed.
+ */
+class RecordAggregator {
+    static final int MAX_AGGREGATE_BYTES = 50 * 1024;
+    private static final byte[] MAGIC = {(byte) 0xF3, (byte) 0x89, (byte) 0x9A, (byte) 0xC2};
+    private static final int DIGEST_LENGTH = 16;
+
+    // Protocol buffer tags: (field number << 3) | wire type.
+    private static final int PARTITION_KEY_TABLE_TAG = (1 << 3) | 2;
+    private static final int RECORDS_TAG = (3 << 3) | 2;
+    private static final int PARTITION_KEY_INDEX_TAG = 1 << 3;
+    private static final int DATA_TAG = (3 << 3) | 2;
+
+    private final Map<String, Integer> partitionKeyIndexes = new LinkedHashMap<>();
+    private final List<Integer> recordKeyIndexes = new ArrayList<>();
+    private final List<byte[]> recordData = new ArrayList<>();
+    private int sizeBytes = MAGIC.length + DIGEST_LENGTH;
+
+    /**
+     * Adds a user record if it fits.
+     *
+     * @param partitionKey the record's partition key
+     * @param data         the record's data
+     * @return {@code false} if the aggregate already holds records and this one would make it too large
+     */
+    boolean tryAdd(String partitionKey, byte[] data) {
+        Integer keyIndex = partitionKeyIndexes.get(partitionKey);
+        int added = 0;
+        if (keyIndex == null) {
+            int keyLength = partitionKey.getBytes(StandardCharsets.UTF_8).length;
+            added += 1 + varintSize(keyLength) + keyLength;
+        }
+        int index = keyIndex == null ? partitionKeyIndexes.size() : keyIndex;
+        int recordSize = recordMessageSize(index, data.length);
+        added += 1 + varintSize(recordSize) + recordSize;
+        if (!recordData.isEmpty() && sizeBytes + added > MAX_AGGREGATE_BYTES) {
+            return false;
+        }
+        if (keyIndex == null) {
+            partitionKeyIndexes.put(partitionKey, index);
+        }
+        recordKeyIndexes.add(index);
+        recordData.add(data);
+        sizeBytes += added;
+        return true;
+    }
+
+    int count() {
+        return recordData.size();
+    }
+
+    int sizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Returns the aggregated record.
+     */
+    byte[] toBytes() {
+        ByteArrayOutputStream message = new ByteArrayOutputStream(sizeBytes);
+        for (String partitionKey : partitionKeyIndexes.keySet()) {
+            byte[] key = partitionKey.getBytes(StandardCharsets.UTF_8);
+            writeVarint(message, PARTITION_KEY_TABLE_TAG);
+            writeVarint(message, key.length);
+            message.writeBytes(key);
+        }
+        for (int i = 0; i < recordData.size(); i++) {
+            byte[] data = recordData.get(i);
+            int keyIndex = recordKeyIndexes.get(i);
+            writeVarint(message, RECORDS_TAG);
+            writeVarint(message, recordMessageSize(keyIndex, data.length));
+            writeVarint(message, PARTITION_KEY_INDEX_TAG);
+            writeVarint(message, keyIndex);
+            writeVarint(message, DATA_TAG);
+            writeVarint(message, data.length);
+            message.writeBytes(data);
+        }
+        byte[] messageBytes = message.toByteArray();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(sizeBytes);
+        out.writeBytes(MAGIC);
+        out.writeBytes(messageBytes);
+        out.writeBytes(md5(messageBytes));
+        return out.toByteArray();
+    }
+
+    private static int recordMessageSize(int keyIndex, int dataLength) {
+        return 1 + varintSize(keyIndex) + 1 + varintSize(dataLength) + dataLength;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static byte[] md5(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.kinesis;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A DynamoDB table of shard leases that lets several consumer processes share the shards of one stream.
+ *
+ * Each item is the lease of one shard. It holds the worker that owns the lease, the time the lease
+ * expires, the shard's parent shards, and the checkpoint (the sequence number of the last record
+ * processed, or SHARD_END once the shard is finished). Every change to a lease is a conditional
+ * write on its current owner, so two workers can never both think they own a shard.
+ *
+ * Expiry times are wall-clock times, so the clocks of the workers must be roughly in sync.
+ */
+class ShardLeaseTable {
+    static final String SHARD_END = "SHARD_END";
+    private static final String LEASE_KEY = "leaseKey";
+    private static final String OWNER = "leaseOwner";
+    private static final String EXPIRES_AT = "expiresAt";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final String PARENT_SHARD_IDS = "parentShardIds";
+
+    private final DynamoDbAsyncClient ddb;
+    private final String tableName;
+
+    /**
+     * One shard lease.
+     *
+     * @param shardId        the shard
+     * @param owner          the worker that holds the lease, or {@code null}
+     * @param expiresAt      the time in epoch milliseconds when the lease can be taken by another worker
+     * @param checkpoint     the last processed sequence number, {@link #SHARD_END}, or {@code null}
+     * @param parentShardIds the shards this shard was split or merged from
+     */
+    record Lease(String shardId, String owner, long expiresAt, String checkpoint, List<String> parentShardIds) {
+        boolean isFinished() {
+            return SHARD_END.equals(checkpoint);
+        }
+
+        boolean isHeld(long now) {
+            return owner != null && expiresAt > now;
+        }
+    }
+
+    ShardLeaseTable(DynamoDbAsyncClient ddb, String tableName) {
+        this.ddb = ddb;
+        this.tableName = tableName;
+    }
+
+    /**
+     * Creates the lease table if it doesn't exist and waits until it's active.
+     */
+    void createIfMissing() {
+        try {
+            ddb.createTable(b -> b
+                    .tableName(tableName)
+                    .billingMode(BillingMode.PAY_PER_REQUEST)
+                    .attributeDefinitions(a -> a.attributeName(LEASE_KEY).attributeType(ScalarAttributeType.S))
+                    .keySchema(k -> k.attributeName(LEASE_KEY).keyType(KeyType.HASH)))
+                .join();
+        } catch (CompletionException e) {
+            if (!(e.getCause() instanceof ResourceInUseException)) {
+                throw e;
+            }
+        }
+        ddb.waiter().waitUntilTableExists(b -> b.tableName(tableName)).join();
+    }
+
+    /**
+     * Adds a lease for a shard unless one already exists.
+     */
+    void createLeaseIfMissing(String shardId, List<String> parentShardIds) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(LEASE_KEY, AttributeValue.fromS(shardId));
+        if (!parentShardIds.isEmpty()) {
+            item.put(PARENT_SHARD_IDS, AttributeValue.fromSs(parentShardIds));
+        }
+        conditional(() -> ddb.putItem(b -> b
+            .tableName(tableName)
+            .item(item)
+            .conditionExpression("attribute_not_exists(" + LEASE_KEY + ")")).join());
+    }
+
+    List<Lease> listLeases() {
+        List<Lease> leases = new ArrayList<>();
+        Map<String, AttributeValue> startKey = null;
+        do {
+            ScanRequest.Builder request = ScanRequest.builder()
+                .tableName(tableName)
+                .consistentRead(true);
+            if (startKey != null) {
+                request.exclusiveStartKey(startKey);
+            }
+            ScanResponse response = ddb.scan(request.build()).join();
+            response.items().forEach(item -> leases.add(toLease(item)));
+            startKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                ? response.lastEvaluatedKey() : null;
+        } while (startKey != null);
+        return leases;
+    }
+
+    /**
+     * Takes a lease. The write succeeds only if the lease still has the owner and expiry time that
+     * {@code lease} was read with, which covers free leases, expired leases, and leases stolen from a
+     * worker that holds more than its share.
+     *
+     * @return {@code false} if another worker changed the lease first
+     */
+    boolean take(Lease lease, String workerId, long expiresAt) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":me", AttributeValue.fromS(workerId));
+        values.put(":expiresAt", AttributeValue.fromN(Long.toString(expiresAt)));
+        String condition;
+        if (lease.owner() == null) {
+            condition = "attribute_not_exists(" + OWNER + ")";
+        } else {
+            condition = OWNER + " = :previousOwner AND " + EXPIRES_AT + " = :previousExpiresAt";
+            values.put(":previousOwner", AttributeValue.fromS(lease.owner()));
+            values.put(":previousExpiresAt", AttributeValue.fromN(Long.toString(lease.expiresAt())));
+        }
+        return conditional(() -> ddb.updateItem(b -> b
+            .tableName(tableName)
+            .key(key(lease.shardId()))
+            .updateExpression("SET " + OWNER + " = :me, " + EXPIRES_AT + " = :expiresAt")
+            .conditionExpression(condition)
+            .expressionAttributeValues(values)).join());
+    }
+
+    /**
+     * Extends a lease that this worker holds.
+     *
+     * @return {@code false} if the lease was lost to another worker
+     */
+    boolean renew(String shardId, String workerId, long expiresAt) {
+        return conditional(() -> ddb.updateItem(b -> b
+            .tableName(tableName)
+            .key(key(shardId))
+            .updateExpression("SET " + EXPIRES_AT + " = :expiresAt")
+            .conditionExpression(OWNER + " = :me")
+            .expressionAttributeValues(Map.of(
+                ":me", AttributeValue.fromS(workerId),
+                ":expiresAt", AttributeValue.fromN(Long.toString(expiresAt))))).join());
+    }
+
+    /**
+     * Saves a checkpoint for a lease that this worker holds.
+     *
+     * @return {@code false} if the lease was lost to another worker
+     */
+    boolean checkpoint(String shardId, String workerId, String sequenceNumber) {
+        return conditional(() -> ddb.updateItem(b -> b
+            .tableName(tableName)
+            .key(key(shardId))
+            .updateExpression("SET " + CHECKPOINT + " = :checkpoint")
+            .conditionExpression(OWNER + " = :me")
+            .expressionAttributeValues(Map.of(
+                ":me", AttributeValue.fromS(workerId),
+                ":checkpoint", AttributeValue.fromS(sequenceNumber)))).join());
+    }
+
+    /**
+     * Gives up a lease so that another worker can take it right away.
+     */
+    void release(String shardId, String workerId) {
+        conditional(() -> ddb.updateItem(b -> b
+            .tableName(tableName)
+            .key(key(shardId))
+            .updateExpression("REMOVE " + OWNER + ", " + EXPIRES_AT)
+            .conditionExpression(OWNER + " = :me")
+            .expressionAttributeValues(Map.of(":me", AttributeValue.fromS(workerId)))).join());
+    }
+
+    private static boolean conditional(Runnable write) {
+        try {
+            write.run();
+            return true;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ConditionalCheckFailedException) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static Map<String, AttributeValue> key(String shardId) {
+        return Map.of(LEASE_KEY, AttributeValue.fromS(shardId));
+    }
+
+    private static Lease toLease(Map<String, AttributeValue> item) {
+        AttributeValue owner = item.get(OWNER);
+        AttributeValue expiresAt = item.get(EXPIRES_AT);
+        AttributeValue checkpoint = item.get(CHECKPOINT);
+        AttributeValue parents = item.get(PARENT_SHARD_IDS);
+        return new Lease(item.get(LEASE_KEY).s(),
+            owner == null ? null : owner.s(),
+            expiresAt == null ? 0 : Long.parseLong(expiresAt.n()),
+            checkpoint == null ? null : checkpoint.s(),
+            parents == null ? List.of() : parents.ss());
+    }
+}
@@ -0,0 +1,52 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.kinesis;
+
+import software.amazon.awssdk.core.SdkBytes;
+
+/**
+ * Turns a {@link StockTrade} into Kinesis record data and back.
+ *
+ * Two codecs are available: {@link #json()}, the JSON format the examples have always
+ * written, and {@link #binary()}, a compact fixed-layout format that is much cheaper to
+ * encode and decode. Because the first byte tells the formats apart, a consumer can use
+ * {@link #forData(SdkBytes)} to read a stream that holds both while producers move over.
+ */
+public interface StockTradeCodec {
+
+    /**
+     * Encodes a trade.
+     *
+     * @param trade the trade
+     * @return the record data
+     */
+    SdkBytes encode(StockTrade trade);
+
+    /**
+     * Decodes a trade.
+     *
+     * @param data the record data
+     * @return the trade
+     * @throws IllegalArgumentException if the data isn't a trade in this codec's format
+     */
+    StockTrade decode(SdkBytes data);
+
+    static StockTradeCodec json() {
+        return JsonStockTradeCodec.INSTANCE;
+    }
+
+    static StockTradeCodec binary() {
+        return BinaryStockTradeCodec.INSTANCE;
+    }
+
+    /**
+     * Returns the codec that wrote the data, judged by its first byte.
+     *
+     * @param data the record data
+     * @return the binary codec if the data starts with its marker byte, otherwise the JSON codec
+     */
+    static StockTradeCodec forData(SdkBytes data) {
+        return BinaryStockTradeCodec.isBinary(data) ? binary() : json();
+    }
+}
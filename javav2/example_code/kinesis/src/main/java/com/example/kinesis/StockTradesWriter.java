@@ -7,11 +7,17 @@ package com.example.kinesis;
 // snippet-start:[kinesis.java2.putrecord.import]
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
 import software.amazon.awssdk.services.kinesis.KinesisClient;
 import software.amazon.awssdk.services.kinesis.model.PutRecordRequest;
 import software.amazon.awssdk.services.kinesis.model.KinesisException;
 import software.amazon.awssdk.services.kinesis.model.DescribeStreamRequest;
 import software.amazon.awssdk.services.kinesis.model.DescribeStreamResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 // snippet-end:[kinesis.java2.putrecord.import]
 
 /**
@@ -27,13 +33,14 @@ public class StockTradesWriter {
         final String usage = """
 
                 Usage:
-                    <streamName>
+                    <streamName> [recordCount]
 
                 Where:
                     streamName - The Amazon Kinesis data stream to which records are written (for example, StockTradeStream)
+                    recordCount - Optional. The number of trades to send with the batching producer (for example, 100000).
                 """;
 
-        if (args.length != 1) {
+        if (args.length < 1 || args.length > 2) {
             System.out.println(usage);
             System.exit(1);
         }
@@ -46,10 +53,81 @@ public class StockTradesWriter {
 
         // Ensure that the Kinesis Stream is valid.
         validateStream(kinesisClient, streamName);
-        setStockData(kinesisClient, streamName);
+        if (args.length == 2) {
+            try (KinesisAsyncClient kinesisAsyncClient = KinesisAsyncClient.builder()
+                    .region(region)
+                    .build()) {
+                setStockDataBatched(kinesisAsyncClient, streamName, Integer.parseInt(args[1]), true);
+            }
+        } else {
+            setStockData(kinesisClient, streamName);
+        }
         kinesisClient.close();
     }
 
+    /**
+     * Sends random stock trades through a {@link KinesisBatchingProducer}, which groups them into
+     * PutRecords calls per shard instead of sending one putRecord call per trade.
+     *
+     * @param kinesisAsyncClient the async client
+     * @param streamName         the stream to write to
+     * @param count              the number of trades to send
+     * @param aggregate          whether to aggregate trades KPL-style
+     * @return the number of trades written
+     */
+    public static long setStockDataBatched(KinesisAsyncClient kinesisAsyncClient, String streamName, int count,
+            boolean aggregate) {
+        return setStockDataBatched(kinesisAsyncClient, streamName, count, aggregate, StockTradeCodec.json());
+    }
+
+    /**
+     * Sends random stock trades through a {@link KinesisBatchingProducer}, encoded with the given codec.
+     *
+     * @param kinesisAsyncClient the async client
+     * @param streamName         the stream to write to
+     * @param count              the number of trades to send
+     * @param aggregate          whether to aggregate trades KPL-style
+     * @param codec              the record format, for example {@link StockTradeCodec#binary()}
+     * @return the number of trades written
+     */
+    public static long setStockDataBatched(KinesisAsyncClient kinesisAsyncClient, String streamName, int count,
+            boolean aggregate, StockTradeCodec codec) {
+        StockTradeGenerator stockTradeGenerator = new StockTradeGenerator();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(count);
+        long start = System.nanoTime();
+        try (KinesisBatchingProducer producer = new KinesisBatchingProducer(kinesisAsyncClient, streamName,
+                aggregate, 100_000)) {
+            producer.start();
+            for (int x = 0; x < count; x++) {
+                StockTrade trade = stockTradeGenerator.getRandomTrade();
+                byte[] bytes;
+                try {
+                    bytes = codec.encode(trade).asByteArrayUnsafe();
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                    continue;
+                }
+                futures.add(producer.put(trade.getTickerSymbol(), bytes));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw KinesisException.builder().message("Interrupted while sending trades").cause(e).build();
+        }
+
+        long written = futures.stream().filter(f -> !f.isCompletedExceptionally()).count();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Sent %d of %d trades in %.1f seconds (%.0f records/sec).%n", written, count, seconds,
+                written / seconds);
+        if (written < futures.size()) {
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            } catch (CompletionException e) {
+                System.err.println(e.getCause().getMessage());
+            }
+        }
+        return written;
+    }
+
     public static void setStockData(KinesisClient kinesisClient, String streamName) {
         try {
             // Repeatedly send stock trades with a 100 milliseconds wait in between.
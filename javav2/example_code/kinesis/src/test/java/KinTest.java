@@ -7,10 +7,12 @@ import org.junit.jupiter.api.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
 import software.amazon.awssdk.services.kinesis.KinesisClient;
 import com.example.kinesis.*;
 import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @TestInstance(TestInstance.Lifecycle.PER_METHOD)
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -81,4 +83,27 @@ public class KinTest {
         assertDoesNotThrow(() -> DeleteDataStream.deleteStream(kinesisClient, streamName));
         logger.info("Test 6 passed");
     }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(7)
+    public void testPutRecordsBatched() {
+        // The shared stream is deleted by test 6, so this test uses a stream of its own.
+        String batchedStreamName = "batchedStreamName" + java.util.UUID.randomUUID();
+        CreateDataStream.createStream(kinesisClient, batchedStreamName);
+        try (KinesisAsyncClient kinesisAsyncClient = KinesisAsyncClient.builder()
+                .region(Region.US_EAST_1)
+                .build()) {
+            kinesisClient.waiter().waitUntilStreamExists(r -> r.streamName(batchedStreamName));
+            assertEquals(2000, StockTradesWriter.setStockDataBatched(kinesisAsyncClient, batchedStreamName, 2000,
+                    false));
+            assertEquals(2000, StockTradesWriter.setStockDataBatched(kinesisAsyncClient, batchedStreamName, 2000,
+                    true));
+            assertEquals(2000, StockTradesWriter.setStockDataBatched(kinesisAsyncClient, batchedStreamName, 2000,
+                    true, StockTradeCodec.binary()));
+        } finally {
+            DeleteDataStream.deleteStream(kinesisClient, batchedStreamName);
+        }
+        logger.info("Test 7 passed");
+    }
 }
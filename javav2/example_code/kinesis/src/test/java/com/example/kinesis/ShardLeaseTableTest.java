@@ -0,0 +1,105 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.kinesis;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the conditional writes of the lease table let only one worker hold a lease at a time.
+ * Each test uses its own shard ID in a lease table that is created for the test class.
+ */
+@Tag("IntegrationTest")
+public class ShardLeaseTableTest {
+    private static DynamoDbAsyncClient ddb;
+    private static String tableName;
+    private static ShardLeaseTable leases;
+
+    @BeforeAll
+    public static void setUp() {
+        ddb = DynamoDbAsyncClient.builder()
+                .region(Region.US_EAST_1)
+                .build();
+        tableName = "leaseTable" + UUID.randomUUID();
+        leases = new ShardLeaseTable(ddb, tableName);
+        leases.createIfMissing();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        ddb.deleteTable(b -> b.tableName(tableName)).join();
+        ddb.close();
+    }
+
+    @Test
+    public void testOnlyOneWorkerAcquiresAFreeLease() {
+        String shardId = newShard();
+        ShardLeaseTable.Lease free = lease(shardId);
+        assertNull(free.owner());
+
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        assertTrue(leases.take(free, "worker-a", expiresAt));
+        // worker-b read the lease while it was free, so its write must lose.
+        assertFalse(leases.take(free, "worker-b", expiresAt));
+
+        ShardLeaseTable.Lease held = lease(shardId);
+        assertEquals("worker-a", held.owner());
+        assertTrue(held.isHeld(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void testOnlyTheOwnerRenews() {
+        String shardId = newShard();
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        assertTrue(leases.take(lease(shardId), "worker-a", expiresAt));
+
+        assertTrue(leases.renew(shardId, "worker-a", expiresAt + 60_000));
+        assertFalse(leases.renew(shardId, "worker-b", expiresAt + 120_000));
+        assertEquals(expiresAt + 60_000, lease(shardId).expiresAt());
+    }
+
+    @Test
+    public void testStealNeedsAnUpToDateLease() {
+        String shardId = newShard();
+        long now = System.currentTimeMillis();
+        assertTrue(leases.take(lease(shardId), "worker-a", now + 60_000));
+        ShardLeaseTable.Lease stale = lease(shardId);
+        assertTrue(leases.renew(shardId, "worker-a", now + 120_000));
+
+        // The renewal changed the expiry time, so a steal based on the earlier read must fail.
+        assertFalse(leases.take(stale, "worker-b", now + 180_000));
+        assertTrue(leases.take(lease(shardId), "worker-b", now + 180_000));
+
+        assertEquals("worker-b", lease(shardId).owner());
+        assertFalse(leases.renew(shardId, "worker-a", now + 240_000));
+        assertFalse(leases.checkpoint(shardId, "worker-a", "49590338271490256608559692538361571095921575989136588898"));
+        assertTrue(leases.checkpoint(shardId, "worker-b", ShardLeaseTable.SHARD_END));
+        assertTrue(lease(shardId).isFinished());
+    }
+
+    private static String newShard() {
+        String shardId = "shardId-" + UUID.randomUUID();
+        leases.createLeaseIfMissing(shardId, List.of());
+        return shardId;
+    }
+
+    private static ShardLeaseTable.Lease lease(String shardId) {
+        return leases.listLeases().stream()
+                .filter(lease -> lease.shardId().equals(shardId))
+                .findFirst()
+                .orElseThrow();
+    }
+}
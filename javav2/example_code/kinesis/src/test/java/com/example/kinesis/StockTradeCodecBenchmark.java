@@ -0,0 +1,91 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.kinesis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import software.amazon.awssdk.core.SdkBytes;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON and binary stock trade codecs on throughput and allocation rate.
+ *
+ * Each benchmark works through a fixed set of random trades so that the ticker symbols repeat
+ * the way they do on a real stream. Run the main method with the test classpath, for example
+ * from an IDE. The GC profiler adds the {@code gc.alloc.rate.norm} column, the number of bytes
+ * allocated for each operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockTradeCodecBenchmark {
+    private static final int TRADE_COUNT = 1024;
+
+    @Param({"json", "binary"})
+    public String format;
+
+    private StockTradeCodec codec;
+    private StockTrade[] trades;
+    private SdkBytes[] encoded;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        codec = "binary".equals(format) ? StockTradeCodec.binary() : StockTradeCodec.json();
+        StockTradeGenerator generator = new StockTradeGenerator();
+        trades = new StockTrade[TRADE_COUNT];
+        encoded = new SdkBytes[TRADE_COUNT];
+        for (int i = 0; i < TRADE_COUNT; i++) {
+            trades[i] = generator.getRandomTrade();
+            encoded[i] = codec.encode(trades[i]);
+        }
+    }
+
+    @Benchmark
+    public SdkBytes encode() {
+        return codec.encode(trades[nextIndex()]);
+    }
+
+    @Benchmark
+    public StockTrade decode() {
+        return codec.decode(encoded[nextIndex()]);
+    }
+
+    @Benchmark
+    public StockTrade detectAndDecode() {
+        SdkBytes data = encoded[nextIndex()];
+        return StockTradeCodec.forData(data).decode(data);
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (TRADE_COUNT - 1);
+        return next;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(StockTradeCodecBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -25,7 +25,6 @@ import software.amazon.awssdk.services.redshift.model.ModifyClusterRequest;
 import software.amazon.awssdk.services.redshift.model.ModifyClusterResponse;
 import software.amazon.awssdk.services.redshift.model.RedshiftException;
 import software.amazon.awssdk.services.redshiftdata.RedshiftDataAsyncClient;
-import software.amazon.awssdk.services.redshiftdata.model.DescribeStatementRequest;
 import software.amazon.awssdk.services.redshiftdata.model.ExecuteStatementRequest;
 import software.amazon.awssdk.services.redshiftdata.model.ExecuteStatementResponse;
 import software.amazon.awssdk.services.redshiftdata.model.Field;
@@ -41,12 +40,15 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 // snippet-start:[redshift.java2.actions.main]
 public class RedshiftActions {
 
     private static final Logger logger = LoggerFactory.getLogger(RedshiftActions.class);
+    // The most INSERT statements that popTableAsync has in flight at once.
+    private static final int MAX_CONCURRENT_INSERTS = 8;
     private static RedshiftDataAsyncClient redshiftDataAsyncClient;
 
     private static RedshiftAsyncClient redshiftAsyncClient;
@@ -277,54 +279,67 @@ public class RedshiftActions {
     }
 
     private CompletableFuture<Integer> processNodesAsync(String clusterId, String databaseName, String userName, Iterator<JsonNode> iter, int number) {
-        return CompletableFuture.supplyAsync(() -> {
-            int t = 0;
+        List<CompletableFuture<ExecuteStatementResponse>> inserts = new ArrayList<>();
+        Semaphore inFlight = new Semaphore(MAX_CONCURRENT_INSERTS);
+        int t = 0;
+        while (iter.hasNext()) {
+            if (t == number)
+                break;
+            JsonNode currentNode = iter.next();
+            int year = currentNode.get("year").asInt();
+            String title = currentNode.get("title").asText();
+
+            // Use SqlParameter to avoid SQL injection.
+            List<SqlParameter> parameterList = new ArrayList<>();
+            String sqlStatement = "INSERT INTO Movies VALUES( :id , :title, :year);";
+            SqlParameter idParam = SqlParameter.builder()
+                .name("id")
+                .value(String.valueOf(t))
+                .build();
+
+            SqlParameter titleParam = SqlParameter.builder()
+                .name("title")
+                .value(title)
+                .build();
+
+            SqlParameter yearParam = SqlParameter.builder()
+                .name("year")
+                .value(String.valueOf(year))
+                .build();
+            parameterList.add(idParam);
+            parameterList.add(titleParam);
+            parameterList.add(yearParam);
+
+            ExecuteStatementRequest insertStatementRequest = ExecuteStatementRequest.builder()
+                .clusterIdentifier(clusterId)
+                .sql(sqlStatement)
+                .database(databaseName)
+                .dbUser(userName)
+                .parameters(parameterList)
+                .build();
+
+            // Wait for a free permit so that a large file doesn't start every insert at once.
             try {
-                while (iter.hasNext()) {
-                    if (t == number)
-                        break;
-                    JsonNode currentNode = iter.next();
-                    int year = currentNode.get("year").asInt();
-                    String title = currentNode.get("title").asText();
-
-                    // Use SqlParameter to avoid SQL injection.
-                    List<SqlParameter> parameterList = new ArrayList<>();
-                    String sqlStatement = "INSERT INTO Movies VALUES( :id , :title, :year);";
-                    SqlParameter idParam = SqlParameter.builder()
-                        .name("id")
-                        .value(String.valueOf(t))
-                        .build();
-
-                    SqlParameter titleParam = SqlParameter.builder()
-                        .name("title")
-                        .value(title)
-                        .build();
-
-                    SqlParameter yearParam = SqlParameter.builder()
-                        .name("year")
-                        .value(String.valueOf(year))
-                        .build();
-                    parameterList.add(idParam);
-                    parameterList.add(titleParam);
-                    parameterList.add(yearParam);
-
-                    ExecuteStatementRequest insertStatementRequest = ExecuteStatementRequest.builder()
-                        .clusterIdentifier(clusterId)
-                        .sql(sqlStatement)
-                        .database(databaseName)
-                        .dbUser(userName)
-                        .parameters(parameterList)
-                        .build();
-
-                    getAsyncDataClient().executeStatement(insertStatementRequest);
-                    logger.info("Inserted: " + title + " (" + year + ")");
-                    t++;
-                }
-            } catch (RedshiftDataException e) {
-                throw new RuntimeException("Error inserting data: " + e.getMessage(), e);
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return CompletableFuture.failedFuture(e);
             }
-            return t;
-        });
+
+            // Keep the future so that a failed insert fails the whole operation.
+            inserts.add(getAsyncDataClient().executeStatement(insertStatementRequest)
+                .whenComplete((response, exception) -> {
+                    inFlight.release();
+                    if (exception == null) {
+                        logger.info("Inserted: " + title + " (" + year + ")");
+                    }
+                }));
+            t++;
+        }
+
+        int count = t;
+        return CompletableFuture.allOf(inserts.toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> count);
     }
     // snippet-end:[redshiftdata.java2.add.record.main]
 
@@ -333,33 +348,14 @@ public class RedshiftActions {
      * Checks the status of an SQL statement asynchronously and handles the completion of the statement.
      *
      * @param sqlId the ID of the SQL statement to check
-     * @return a {@link CompletableFuture} that completes when the SQL statement's status is either "FINISHED" or "FAILED"
+     * @return a {@link CompletableFuture} that completes when the SQL statement is finished, or completes
+     * exceptionally if it failed or was aborted
      */
     public CompletableFuture<Void> checkStatementAsync(String sqlId) {
-        DescribeStatementRequest statementRequest = DescribeStatementRequest.builder()
-            .id(sqlId)
-            .build();
-
-        return getAsyncDataClient().describeStatement(statementRequest)
-            .thenCompose(response -> {
-                String status = response.statusAsString();
-                logger.info("... Status: {} ", status);
-
-                if ("FAILED".equals(status)) {
-                    throw new RuntimeException("The Query Failed. Ending program");
-                } else if ("FINISHED".equals(status)) {
-                    return CompletableFuture.completedFuture(null);
-                } else {
-                    // Sleep for 1 second and recheck status
-                    return CompletableFuture.runAsync(() -> {
-                        try {
-                            TimeUnit.SECONDS.sleep(1);
-                        } catch (InterruptedException e) {
-                            throw new RuntimeException("Error during sleep: " + e.getMessage(), e);
-                        }
-                    }).thenCompose(ignore -> checkStatementAsync(sqlId)); // Recursively call until status is FINISHED or FAILED
-                }
-            }).whenComplete((result, exception) -> {
+        // StatementWaiter polls DescribeStatement until the statement is FINISHED, FAILED, or ABORTED.
+        return new StatementWaiter(getAsyncDataClient()).waitFor(sqlId)
+            .thenAccept(response -> logger.info("... Status: {} ", response.statusAsString()))
+            .whenComplete((result, exception) -> {
                 if (exception != null) {
                     // Handle exceptions
                     logger.info("Error: {} ", exception.getMessage());
@@ -382,23 +378,17 @@ public class RedshiftActions {
             .id(statementId)
             .build();
 
-        return getAsyncDataClient().getStatementResult(resultRequest)
-            .handle((response, exception) -> {
+        // A large result comes back in several pages. The paginator follows nextToken so no page is missed.
+        return getAsyncDataClient().getStatementResultPaginator(resultRequest)
+            .subscribe(response -> response.records().stream()
+                .flatMap(List::stream)
+                .map(Field::stringValue)
+                .filter(value -> value != null)
+                .forEach(value -> System.out.println("The Movie title field is " + value)))
+            .whenComplete((ignored, exception) -> {
                 if (exception != null) {
                     logger.info("Error getting statement result {} ", exception.getMessage());
-                    throw new RuntimeException("Error getting statement result: " + exception.getMessage(), exception);
                 }
-
-                // Extract and print the field values using streams if the response is valid.
-                response.records().stream()
-                    .flatMap(List::stream)
-                    .map(Field::stringValue)
-                    .filter(value -> value != null)
-                    .forEach(value -> System.out.println("The Movie title field is " + value));
-
-                return response;
-            }).thenAccept(response -> {
-                // Optionally add more logic here if needed after handling the response
             });
     }
     // snippet-end:[redshiftdata.java2.getresults.main]
@@ -447,6 +437,31 @@ public class RedshiftActions {
     }
     // snippet-end:[redshiftdata.java2.query.main]
 
+    /**
+     * Creates a bulk loader that runs its statements with this class's Data API client.
+     * Use it instead of {@link #popTableAsync} to load many rows.
+     *
+     * @param clusterId    the identifier of the cluster
+     * @param databaseName the name of the database
+     * @param userName     the database user
+     * @param staging      where to stage large inputs for COPY, or {@code null} to always insert
+     * @return a {@link RedshiftBulkLoader}
+     */
+    public RedshiftBulkLoader createBulkLoader(String clusterId, String databaseName, String userName,
+                                               RedshiftBulkLoader.S3Staging staging) {
+        return new RedshiftBulkLoader(getAsyncDataClient(), clusterId, databaseName, userName, 8, staging);
+    }
+
+    /**
+     * Creates a reader that streams every page of a statement result with this class's Data API client.
+     * Use it instead of {@link #getResultsAsync} to process the rows of a large result.
+     *
+     * @return a {@link StatementResultReader}
+     */
+    public StatementResultReader createResultReader() {
+        return new StatementResultReader(getAsyncDataClient());
+    }
+
     // snippet-start:[redshift.java2.mod_cluster.main]
     /**
      * Modifies an Amazon Redshift cluster asynchronously.
@@ -0,0 +1,559 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.redshift.scenario;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.redshiftdata.RedshiftDataAsyncClient;
+import software.amazon.awssdk.services.redshiftdata.model.ExecuteStatementRequest;
+import software.amazon.awssdk.services.redshiftdata.model.SqlParameter;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Loads rows into an Amazon Redshift table through the Redshift Data API.
+ *
+ * <p>
+ * There are two ways to load:
+ * <ul>
+ *     <li>{@link #insertRows} sends multi-row INSERT statements of up to {@value #MAX_ROWS_PER_INSERT} rows,
+ *     with every value passed as a SQL parameter. Several statements run at once, and each one is waited
+ *     for with {@link StatementWaiter}.</li>
+ *     <li>{@link #copyRows} writes the rows as gzip-compressed CSV parts, uploads the parts to Amazon S3 in
+ *     parallel while the next part is being written, and loads them all with one COPY statement that reads
+ *     a manifest of the parts. COPY loads the parts on every slice of the cluster at once, which is how
+ *     Redshift is meant to ingest millions of rows.</li>
+ * </ul>
+ * {@link #load} picks one: inputs of up to {@value #COPY_THRESHOLD_ROWS} rows are inserted, and larger
+ * inputs are copied when S3 staging is configured.
+ * </p>
+ *
+ * <p>
+ * Both modes read the rows one at a time and bound the number of statements or parts in flight, so the
+ * input can be larger than memory. Row values are strings, and {@code null} loads SQL NULL.
+ * </p>
+ */
+public class RedshiftBulkLoader {
+    private static final int MAX_ROWS_PER_INSERT = 200;
+    // The Data API accepts statements of up to 100 KB; leave room for the parameter names.
+    private static final int MAX_INSERT_BYTES = 64 * 1024;
+    private static final int COPY_THRESHOLD_ROWS = 10_000;
+    private static final int PART_BYTES = 32 * 1024 * 1024;
+    private static final String NULL_MARKER = "\\N";
+
+    private static final Logger logger = LoggerFactory.getLogger(RedshiftBulkLoader.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final RedshiftDataAsyncClient client;
+    private final StatementWaiter waiter;
+    private final String clusterId;
+    private final String database;
+    private final String dbUser;
+    private final int maxConcurrency;
+    private final S3Staging staging;
+
+    /**
+     * Where {@link #copyRows} stages its parts.
+     *
+     * @param s3         the S3 client to upload with
+     * @param bucket     the bucket to stage the parts in
+     * @param prefix     the key prefix for the parts; each load uses its own folder under it
+     * @param iamRoleArn the ARN of an IAM role that the cluster can assume to read the bucket
+     */
+    public record S3Staging(S3AsyncClient s3, String bucket, String prefix, String iamRoleArn) {
+    }
+
+    /**
+     * The outcome of a load.
+     *
+     * @param rows       the number of rows loaded
+     * @param statements the number of SQL statements that were run
+     * @param parts      the number of parts staged in S3, or 0 for INSERT loads
+     * @param elapsed    how long the load took
+     */
+    public record Result(long rows, int statements, int parts, Duration elapsed) {
+    }
+
+    /**
+     * @param client         the Data API client
+     * @param clusterId      the identifier of the cluster
+     * @param database       the database that contains the table
+     * @param dbUser         the database user to run the statements as
+     * @param maxConcurrency the maximum number of statements or part uploads in flight
+     * @param staging        where to stage parts for COPY, or {@code null} to always insert
+     */
+    public RedshiftBulkLoader(RedshiftDataAsyncClient client, String clusterId, String database, String dbUser,
+                              int maxConcurrency, S3Staging staging) {
+        this.client = client;
+        this.waiter = new StatementWaiter(client);
+        this.clusterId = clusterId;
+        this.database = database;
+        this.dbUser = dbUser;
+        this.maxConcurrency = maxConcurrency;
+        this.staging = staging;
+    }
+
+    /**
+     * Loads the rows with INSERT statements, or with COPY if there are more than
+     * {@value #COPY_THRESHOLD_ROWS} rows and S3 staging is configured. Blocks until the load completes.
+     *
+     * @param table   the table to load
+     * @param columns the columns that each row has a value for, in order
+     * @param rows    the rows to load
+     * @return a summary of the load
+     */
+    public Result load(String table, List<String> columns, Iterator<List<String>> rows) {
+        if (staging == null) {
+            return insertRows(table, columns, rows);
+        }
+        List<List<String>> head = new ArrayList<>();
+        while (rows.hasNext() && head.size() <= COPY_THRESHOLD_ROWS) {
+            head.add(rows.next());
+        }
+        if (head.size() <= COPY_THRESHOLD_ROWS) {
+            return insertRows(table, columns, head.iterator());
+        }
+        return copyRows(table, columns, concat(head.iterator(), rows));
+    }
+
+    /**
+     * Loads the rows with multi-row INSERT statements. Blocks until every statement has finished.
+     */
+    public Result insertRows(String table, List<String> columns, Iterator<List<String>> rows) {
+        long start = System.nanoTime();
+        Semaphore inFlight = new Semaphore(maxConcurrency);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        String prefix = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ";
+        long loaded = 0;
+        int statements = 0;
+
+        // Everything appended after the prefix is ASCII, so only the prefix needs its UTF-8 length counted.
+        int prefixExtraBytes = utf8Length(prefix) - prefix.length();
+        StringBuilder sql = new StringBuilder(prefix);
+        List<SqlParameter> parameters = new ArrayList<>();
+        int batchRows = 0;
+        int batchBytes = 0;
+        while (rows.hasNext() && failure.get() == null) {
+            List<String> row = rows.next();
+            if (row.size() != columns.size()) {
+                throw new IllegalArgumentException("Expected " + columns.size() + " values but got " + row.size());
+            }
+            // Append the row, and if that takes the statement over the limit, take it back out, send the
+            // rows before it, and start the next statement with it.
+            int sqlMark = sql.length();
+            int rowBytes = appendRow(sql, parameters, row, batchRows == 0);
+            if (batchRows > 0 && sql.length() + prefixExtraBytes + batchBytes + rowBytes > MAX_INSERT_BYTES) {
+                sql.setLength(sqlMark);
+                parameters.subList(parameters.size() - countParameters(row), parameters.size()).clear();
+                execute(sql.toString(), parameters, inFlight, failure);
+                loaded += batchRows;
+                statements++;
+                sql = new StringBuilder(prefix);
+                parameters = new ArrayList<>();
+                batchRows = 0;
+                batchBytes = 0;
+                rowBytes = appendRow(sql, parameters, row, true);
+            }
+            if (batchRows == 0 && sql.length() + prefixExtraBytes + rowBytes > MAX_INSERT_BYTES) {
+                throw new IllegalArgumentException("A row is larger than the " + MAX_INSERT_BYTES
+                    + " bytes that one INSERT statement can hold; load it with copyRows instead.");
+            }
+            batchRows++;
+            batchBytes += rowBytes;
+
+            if (batchRows == MAX_ROWS_PER_INSERT) {
+                execute(sql.toString(), parameters, inFlight, failure);
+                loaded += batchRows;
+                statements++;
+                sql = new StringBuilder(prefix);
+                parameters = new ArrayList<>();
+                batchRows = 0;
+                batchBytes = 0;
+            }
+        }
+        if (batchRows > 0 && failure.get() == null) {
+            execute(sql.toString(), parameters, inFlight, failure);
+            loaded += batchRows;
+            statements++;
+        }
+
+        awaitAll(inFlight, failure);
+        Result result = new Result(loaded, statements, 0, Duration.ofNanos(System.nanoTime() - start));
+        logger.info("Inserted {} rows into {} with {} statements in {} ms.", loaded, table, statements,
+            result.elapsed().toMillis());
+        return result;
+    }
+
+    /**
+     * Loads the rows by staging them in S3 and running one COPY statement. The staged parts are deleted
+     * when the load completes. Blocks until the COPY has finished.
+     */
+    public Result copyRows(String table, List<String> columns, Iterator<List<String>> rows) {
+        if (staging == null) {
+            throw new IllegalStateException("COPY needs S3 staging.");
+        }
+        long start = System.nanoTime();
+        String folder = staging.prefix() + "/" + UUID.randomUUID();
+        Semaphore inFlight = new Semaphore(maxConcurrency);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<String> keys = new ArrayList<>();
+        long loaded = 0;
+
+        try {
+            Part part = new Part();
+            while (rows.hasNext() && failure.get() == null) {
+                List<String> row = rows.next();
+                if (row.size() != columns.size()) {
+                    throw new IllegalArgumentException("Expected " + columns.size() + " values but got " + row.size());
+                }
+                part.write(row);
+                loaded++;
+                if (part.uncompressedBytes >= PART_BYTES) {
+                    upload(folder, part, keys, inFlight, failure);
+                    part = new Part();
+                }
+            }
+            if (part.rows > 0 && failure.get() == null) {
+                upload(folder, part, keys, inFlight, failure);
+            }
+            awaitAll(inFlight, failure);
+
+            String manifestKey = folder + "/manifest";
+            staging.s3().putObject(request -> request.bucket(staging.bucket()).key(manifestKey),
+                AsyncRequestBody.fromBytes(manifest(keys))).join();
+            keys.add(manifestKey);
+
+            String copy = "COPY " + table + " (" + String.join(", ", columns) + ")"
+                + " FROM '" + literal("s3://" + staging.bucket() + "/" + manifestKey) + "'"
+                + " IAM_ROLE '" + literal(staging.iamRoleArn()) + "'"
+                + " FORMAT AS CSV GZIP NULL AS '\\\\N' MANIFEST";
+            client.executeStatement(statement(copy, List.of()))
+                .thenCompose(response -> waiter.waitFor(response.id()))
+                .join();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write a part", e);
+        } finally {
+            deleteStaged(keys);
+        }
+
+        int parts = Math.max(0, keys.size() - 1);
+        Result result = new Result(loaded, 1, parts, Duration.ofNanos(System.nanoTime() - start));
+        logger.info("Copied {} rows into {} from {} parts in {} ms.", loaded, table, parts,
+            result.elapsed().toMillis());
+        return result;
+    }
+
+    /*
+     * Usage:
+     * clusterId - The identifier of a cluster that has the Movies table created by RedshiftScenario.
+     * database - The database that contains the table.
+     * dbUser - The database user.
+     * fileName - The movie data file (resources/sample_files/movies.json).
+     * bucket, iamRoleArn - Optional. Stage large inputs in this bucket and COPY them with this role.
+     */
+    public static void main(String[] args) throws IOException {
+        final String usage = """
+
+            Usage:
+                <clusterId> <database> <dbUser> <fileName> [<bucket> <iamRoleArn>]
+
+            Where:
+                clusterId - The identifier of the cluster.
+                database - The database that contains the Movies table.
+                dbUser - The database user.
+                fileName - The JSON file that contains movie data.
+                bucket - Optional. An S3 bucket to stage large inputs in.
+                iamRoleArn - Optional. The ARN of a role that the cluster can use to read the bucket.
+            """;
+
+        if (args.length != 4 && args.length != 6) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        try (RedshiftDataAsyncClient client = RedshiftDataAsyncClient.create();
+             S3AsyncClient s3 = S3AsyncClient.create();
+             JsonParser parser = new JsonFactory().createParser(new File(args[3]))) {
+            S3Staging staging = args.length == 6 ? new S3Staging(s3, args[4], "redshift-staging", args[5]) : null;
+            RedshiftBulkLoader loader = new RedshiftBulkLoader(client, args[0], args[1], args[2], 8, staging);
+            Result result = loader.load("Movies", List.of("id", "title", "year"), movieRows(parser));
+            System.out.printf("Loaded %d rows with %d statements and %d staged parts in %d ms.%n",
+                result.rows(), result.statements(), result.parts(), result.elapsed().toMillis());
+        }
+    }
+
+    /**
+     * Reads a JSON array of movies one movie at a time and returns (id, title, year) rows.
+     */
+    private static Iterator<List<String>> movieRows(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array of movies.");
+        }
+        return new Iterator<>() {
+            private int id;
+            private JsonToken next = parser.nextToken();
+
+            @Override
+            public boolean hasNext() {
+                return next == JsonToken.START_OBJECT;
+            }
+
+            @Override
+            public List<String> next() {
+                try {
+                    JsonNode movie = mapper.readTree(parser);
+                    next = parser.nextToken();
+                    return List.of(String.valueOf(id++), movie.path("title").asText(), movie.path("year").asText());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    private ExecuteStatementRequest statement(String sql, List<SqlParameter> parameters) {
+        ExecuteStatementRequest.Builder builder = ExecuteStatementRequest.builder()
+            .clusterIdentifier(clusterId)
+            .database(database)
+            .dbUser(dbUser)
+            .sql(sql);
+        if (!parameters.isEmpty()) {
+            builder.parameters(parameters);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Runs a statement once a permit is free and releases the permit when the statement has finished.
+     */
+    private void execute(String sql, List<SqlParameter> parameters, Semaphore inFlight,
+                         AtomicReference<Throwable> failure) {
+        acquire(inFlight);
+        client.executeStatement(statement(sql, parameters))
+            .thenCompose(response -> waiter.waitFor(response.id()))
+            .whenComplete((response, e) -> {
+                if (e != null) {
+                    failure.compareAndSet(null, e);
+                }
+                inFlight.release();
+            });
+    }
+
+    private void upload(String folder, Part part, List<String> keys, Semaphore inFlight,
+                        AtomicReference<Throwable> failure) throws IOException {
+        String key = String.format("%s/part-%05d.csv.gz", folder, keys.size());
+        byte[] body = part.finish();
+        keys.add(key);
+        acquire(inFlight);
+        staging.s3().putObject(request -> request.bucket(staging.bucket()).key(key).contentEncoding("gzip"),
+                AsyncRequestBody.fromBytes(body))
+            .whenComplete((response, e) -> {
+                if (e != null) {
+                    failure.compareAndSet(null, e);
+                }
+                inFlight.release();
+            });
+    }
+
+    private byte[] manifest(List<String> keys) throws IOException {
+        ObjectNode manifest = mapper.createObjectNode();
+        ArrayNode entries = manifest.putArray("entries");
+        for (String key : keys) {
+            entries.addObject()
+                .put("url", "s3://" + staging.bucket() + "/" + key)
+                .put("mandatory", true);
+        }
+        return mapper.writeValueAsBytes(manifest);
+    }
+
+    private void deleteStaged(List<String> keys) {
+        for (int from = 0; from < keys.size(); from += 1000) {
+            List<ObjectIdentifier> objects = keys.subList(from, Math.min(keys.size(), from + 1000)).stream()
+                .map(key -> ObjectIdentifier.builder().key(key).build())
+                .toList();
+            staging.s3().deleteObjects(request -> request.bucket(staging.bucket()).delete(d -> d.objects(objects)))
+                .exceptionally(e -> {
+                    logger.warn("Failed to delete staged parts: {}", e.getMessage());
+                    return null;
+                })
+                .join();
+        }
+    }
+
+    /**
+     * Waits for every permit to come back, then rethrows the first failure, if any.
+     */
+    private void awaitAll(Semaphore inFlight, AtomicReference<Throwable> failure) {
+        acquire(inFlight, maxConcurrency);
+        inFlight.release(maxConcurrency);
+        Throwable e = failure.get();
+        if (e != null) {
+            throw new RuntimeException("Bulk load failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static void acquire(Semaphore semaphore) {
+        acquire(semaphore, 1);
+    }
+
+    private static void acquire(Semaphore semaphore, int permits) {
+        try {
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading", e);
+        }
+    }
+
+    private static String literal(String value) {
+        return value.replace("'", "''");
+    }
+
+    private static <T> Iterator<T> concat(Iterator<T> first, Iterator<T> second) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return first.hasNext() || second.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return first.hasNext() ? first.next() : second.next();
+            }
+        };
+    }
+
+    /**
+     * Appends one parenthesized row to an INSERT statement and adds a parameter for each value that needs
+     * one. NULL and empty strings are written inline.
+     *
+     * @return the number of UTF-8 bytes in the row's parameter values
+     */
+    private static int appendRow(StringBuilder sql, List<SqlParameter> parameters, List<String> row,
+                                 boolean first) {
+        int bytes = 0;
+        sql.append(first ? "(" : ", (");
+        for (int i = 0; i < row.size(); i++) {
+            String value = row.get(i);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            if (value == null) {
+                sql.append("NULL");
+            } else if (value.isEmpty()) {
+                sql.append("''");
+            } else {
+                String name = "p" + parameters.size();
+                sql.append(':').append(name);
+                parameters.add(SqlParameter.builder().name(name).value(value).build());
+                bytes += utf8Length(value);
+            }
+        }
+        sql.append(')');
+        return bytes;
+    }
+
+    private static int countParameters(List<String> row) {
+        int count = 0;
+        for (String value : row) {
+            if (value != null && !value.isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes in the UTF-8 encoding of the value, without encoding it. An unpaired
+     * surrogate counts as three bytes, so the result is never too small.
+     */
+    private static int utf8Length(String value) {
+        int bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * One gzip-compressed CSV part. Every value is quoted, so an empty string stays distinct from
+     * NULL, which is written as an unquoted {@value #NULL_MARKER}.
+     */
+    private static class Part {
+        private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        private final Writer writer;
+        private long uncompressedBytes;
+        private long rows;
+
+        Part() {
+            try {
+                writer = new OutputStreamWriter(new GZIPOutputStream(compressed, 64 * 1024), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void write(List<String> row) throws IOException {
+            for (int i = 0; i < row.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                String value = row.get(i);
+                if (value == null) {
+                    writer.write(NULL_MARKER);
+                    uncompressedBytes += NULL_MARKER.length();
+                } else {
+                    writer.write('"');
+                    writer.write(value.replace("\"", "\"\""));
+                    writer.write('"');
+                    uncompressedBytes += utf8Length(value) + 2;
+                }
+            }
+            writer.write('\n');
+            uncompressedBytes += row.size();
+            rows++;
+        }
+
+        byte[] finish() throws IOException {
+            writer.close();
+            return compressed.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,317 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.redshift.scenario;
+
+import software.amazon.awssdk.services.redshiftdata.RedshiftDataAsyncClient;
+import software.amazon.awssdk.services.redshiftdata.model.ColumnMetadata;
+import software.amazon.awssdk.services.redshiftdata.model.Field;
+import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultRequest;
+import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultResponse;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams every row of a finished Amazon Redshift Data API statement.
+ *
+ * <p>
+ * {@code GetStatementResult} returns the result in pages linked by {@code nextToken}; reading only the
+ * first page silently drops the rest of a large result. This class follows {@code nextToken} to the end.
+ * While the rows of one page are being consumed, the next page is already being fetched, so the consumer
+ * rarely waits on the network, and at most two pages are held in memory however large the result is.
+ * </p>
+ *
+ * <p>
+ * Rows are exposed through one reusable {@link Row} view per stream, which decodes a {@link Field} only
+ * when one of its typed getters is called. A row view is valid only until the next row is delivered, so
+ * read the values you need from it instead of keeping the view.
+ * </p>
+ */
+public class StatementResultReader {
+    private final RedshiftDataAsyncClient client;
+
+    public StatementResultReader(RedshiftDataAsyncClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Returns the rows of a statement as a sequential stream. Pages are fetched as the stream is consumed,
+     * and the stream blocks while it waits for a page that hasn't arrived yet.
+     *
+     * @param statementId the ID of a finished statement
+     * @return a stream of reusable row views
+     */
+    public Stream<Row> rows(String statementId) {
+        Cursor cursor = new Cursor(statementId);
+        Spliterator<Row> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+            Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Row> action) {
+                while (!cursor.hasRowInPage()) {
+                    if (cursor.isLastPage()) {
+                        return false;
+                    }
+                    cursor.moveTo(join(cursor.next));
+                }
+                action.accept(cursor.nextRow());
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Returns the rows of a statement as a publisher that honors the subscriber's demand. Each
+     * subscription reads the result from the start.
+     *
+     * @param statementId the ID of a finished statement
+     * @return a publisher of reusable row views
+     */
+    public Flow.Publisher<Row> publisher(String statementId) {
+        return subscriber -> subscriber.onSubscribe(new RowSubscription(new Cursor(statementId), subscriber));
+    }
+
+    private CompletableFuture<GetStatementResultResponse> fetch(String statementId, String nextToken) {
+        return client.getStatementResult(GetStatementResultRequest.builder()
+            .id(statementId)
+            .nextToken(nextToken)
+            .build());
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A position in the result: the page being read, the row within it, and the fetch of the next page.
+     */
+    private class Cursor {
+        private final String statementId;
+        private final Row row = new Row();
+        private GetStatementResultResponse page;
+        private int index;
+        private CompletableFuture<GetStatementResultResponse> next;
+
+        Cursor(String statementId) {
+            this.statementId = statementId;
+            this.next = fetch(statementId, null);
+        }
+
+        boolean hasRowInPage() {
+            return page != null && index < page.records().size();
+        }
+
+        boolean isLastPage() {
+            return page != null && next == null;
+        }
+
+        /**
+         * Starts reading a page and starts fetching the one after it.
+         */
+        void moveTo(GetStatementResultResponse response) {
+            if (page == null) {
+                row.columns(response.columnMetadata());
+            }
+            page = response;
+            index = 0;
+            next = response.nextToken() != null ? fetch(statementId, response.nextToken()) : null;
+        }
+
+        Row nextRow() {
+            return row.bind(page.records().get(index++));
+        }
+    }
+
+    /**
+     * Delivers rows as they are requested. A page that hasn't arrived yet resumes delivery when it does.
+     */
+    private static class RowSubscription implements Flow.Subscription {
+        private final Cursor cursor;
+        private final Flow.Subscriber<? super Row> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private boolean done;
+
+        RowSubscription(Cursor cursor, Flow.Subscriber<? super Row> subscriber) {
+            this.cursor = cursor;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("Demand must be positive: " + n));
+                return;
+            }
+            demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Delivers as many rows as there is demand for. Only one thread runs the loop at a time; a call
+         * that arrives while it runs makes it go around once more.
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (!cancelled && !done && demand.get() > 0) {
+                    if (cursor.hasRowInPage()) {
+                        subscriber.onNext(cursor.nextRow());
+                        demand.decrementAndGet();
+                    } else if (cursor.isLastPage()) {
+                        done = true;
+                        subscriber.onComplete();
+                    } else if (cursor.next.isDone()) {
+                        try {
+                            cursor.moveTo(join(cursor.next));
+                        } catch (RuntimeException e) {
+                            done = true;
+                            subscriber.onError(e);
+                        }
+                    } else {
+                        cursor.next.whenComplete((page, e) -> drain());
+                        break;
+                    }
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+    }
+
+    /**
+     * A view of the current row. Getters take a zero-based column index; use {@link #column(String)} to
+     * look one up by name once, before reading the rows.
+     */
+    public static class Row {
+        private List<ColumnMetadata> columns = List.of();
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private List<Field> fields;
+
+        private void columns(List<ColumnMetadata> metadata) {
+            columns = metadata;
+            for (int i = 0; i < metadata.size(); i++) {
+                indexes.putIfAbsent(metadata.get(i).name(), i);
+            }
+        }
+
+        private Row bind(List<Field> record) {
+            fields = record;
+            return this;
+        }
+
+        public List<ColumnMetadata> columns() {
+            return columns;
+        }
+
+        /**
+         * Returns the index of the named column.
+         *
+         * @throws IllegalArgumentException if the result has no such column
+         */
+        public int column(String name) {
+            Integer index = indexes.get(name);
+            if (index == null) {
+                throw new IllegalArgumentException("No column named " + name);
+            }
+            return index;
+        }
+
+        public int size() {
+            return fields.size();
+        }
+
+        public boolean isNull(int column) {
+            return Boolean.TRUE.equals(fields.get(column).isNull());
+        }
+
+        public String getString(int column) {
+            Field field = fields.get(column);
+            if (field.stringValue() != null) {
+                return field.stringValue();
+            }
+            if (field.longValue() != null) {
+                return Long.toString(field.longValue());
+            }
+            if (field.doubleValue() != null) {
+                return Double.toString(field.doubleValue());
+            }
+            if (field.booleanValue() != null) {
+                return Boolean.toString(field.booleanValue());
+            }
+            return null;
+        }
+
+        /**
+         * Returns the value as a long, or 0 for NULL. DECIMAL values arrive as strings such as "42.00" and
+         * are parsed exactly.
+         *
+         * @throws ArithmeticException if a DECIMAL value has a nonzero fraction or doesn't fit in a long
+         */
+        public long getLong(int column) {
+            Field field = fields.get(column);
+            if (field.longValue() != null) {
+                return field.longValue();
+            }
+            if (field.stringValue() != null) {
+                return new BigDecimal(field.stringValue()).longValueExact();
+            }
+            if (field.doubleValue() != null) {
+                return field.doubleValue().longValue();
+            }
+            return 0;
+        }
+
+        /**
+         * Returns the value as a double, or 0 for NULL. DECIMAL values arrive as strings and are parsed.
+         */
+        public double getDouble(int column) {
+            Field field = fields.get(column);
+            if (field.doubleValue() != null) {
+                return field.doubleValue();
+            }
+            if (field.longValue() != null) {
+                return field.longValue();
+            }
+            if (field.stringValue() != null) {
+                return Double.parseDouble(field.stringValue());
+            }
+            return 0;
+        }
+
+        public boolean getBoolean(int column) {
+            Field field = fields.get(column);
+            if (field.booleanValue() != null) {
+                return field.booleanValue();
+            }
+            return field.stringValue() != null && Boolean.parseBoolean(field.stringValue());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.redshift.scenario;
+
+import software.amazon.awssdk.services.redshiftdata.RedshiftDataAsyncClient;
+import software.amazon.awssdk.services.redshiftdata.model.DescribeStatementRequest;
+import software.amazon.awssdk.services.redshiftdata.model.DescribeStatementResponse;
+import software.amazon.awssdk.services.redshiftdata.model.StatusString;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for Amazon Redshift Data API statements to finish, polling {@code DescribeStatement} adaptively.
+ *
+ * <p>
+ * A fixed sleep between polls is either too slow for short statements or too chatty for long ones. The
+ * delay before each poll here is a quarter of the time the statement has run so far, between
+ * {@value #MIN_DELAY_MILLIS} ms and {@value #MAX_DELAY_MILLIS} ms. A query that finishes in 200 ms is
+ * seen within about 50 ms, and a COPY that runs for ten minutes is polled every few seconds. The delay
+ * uses a timer instead of a sleeping thread, so waiting for many statements at once costs no threads.
+ * </p>
+ */
+public class StatementWaiter {
+    private static final long MIN_DELAY_MILLIS = 50;
+    private static final long MAX_DELAY_MILLIS = 5_000;
+
+    private final RedshiftDataAsyncClient client;
+
+    public StatementWaiter(RedshiftDataAsyncClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Waits for a statement to finish.
+     *
+     * @param statementId the ID returned by ExecuteStatement or BatchExecuteStatement
+     * @return a future that completes with the final description of the statement, or completes
+     * exceptionally if the statement failed or was aborted
+     */
+    public CompletableFuture<DescribeStatementResponse> waitFor(String statementId) {
+        return poll(statementId, System.nanoTime());
+    }
+
+    private CompletableFuture<DescribeStatementResponse> poll(String statementId, long startNanos) {
+        DescribeStatementRequest request = DescribeStatementRequest.builder()
+            .id(statementId)
+            .build();
+
+        return client.describeStatement(request).thenCompose(response -> {
+            StatusString status = response.status();
+            if (status == StatusString.FINISHED) {
+                return CompletableFuture.completedFuture(response);
+            }
+            if (status == StatusString.FAILED || status == StatusString.ABORTED) {
+                return CompletableFuture.failedFuture(new RuntimeException(
+                    "Statement " + statementId + " " + response.statusAsString() + ": " + response.error()));
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            long delay = Math.max(MIN_DELAY_MILLIS, Math.min(MAX_DELAY_MILLIS, elapsedMillis / 4));
+            return CompletableFuture.runAsync(() -> { },
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                .thenCompose(ignored -> poll(statementId, startNanos));
+        });
+    }
+}
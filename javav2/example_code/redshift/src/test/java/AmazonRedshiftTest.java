@@ -3,10 +3,16 @@
 
 import com.example.redshift.*;
 import com.example.redshift.scenario.RedshiftActions;
+import com.example.redshift.scenario.RedshiftBulkLoader;
 import com.example.redshift.scenario.RedshiftScenario;
+import com.example.redshift.scenario.StatementResultReader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +25,7 @@ import software.amazon.awssdk.services.redshift.model.DeleteClusterResponse;
 import software.amazon.awssdk.services.redshift.model.ModifyClusterResponse;
 import software.amazon.awssdk.services.redshiftdata.RedshiftDataClient;
 import software.amazon.awssdk.services.redshiftdata.model.ExecuteStatementResponse;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
@@ -26,6 +33,7 @@ import java.io.*;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
  * To run these integration tests, you must set the required values
@@ -44,6 +52,10 @@ public class AmazonRedshiftTest {
     private static String userPassword = "" ;
     private static String databaseName = "" ;
     private static String id;
+    private static String bulkClusterId = "";
+    private static String bulkId;
+    private static String stagingBucket = "";
+    private static String copyRoleArn = "";
 
     @BeforeAll
     public static void setUp() {
@@ -64,9 +76,12 @@ public class AmazonRedshiftTest {
         String json = getSecretValues();
         SecretValues values = gson.fromJson(json, SecretValues.class);
         clusterId = values.getClusterId() +randomNum;
+        bulkClusterId = clusterId + "-bulk";
         userName = values.getUserName();
         userPassword = values.getPassword();
         fileNameSc = values.getFileName();
+        stagingBucket = values.getStagingBucket();
+        copyRoleArn = values.getCopyRoleArn();
     }
 
     @Test
@@ -195,6 +210,94 @@ public class AmazonRedshiftTest {
         logger.info("Test 11 passed");
     }
 
+    // The cluster from the earlier tests is deleted by test 11, so tests 12 to 14 use a cluster of their own.
+    @Test
+    @Tag("IntegrationTest")
+    @Order(12)
+    public void testBulkLoadMovies() {
+        assertDoesNotThrow(() -> {
+            redshiftActions.createClusterAsync(bulkClusterId, userName, userPassword).join();
+            redshiftActions.waitForClusterReadyAsync(bulkClusterId).join();
+            redshiftActions.createTableAsync(bulkClusterId, databaseName, userName).join();
+
+            JsonNode movies = new ObjectMapper().readTree(new File(fileNameSc));
+            List<List<String>> rows = new ArrayList<>();
+            for (JsonNode movie : movies) {
+                rows.add(List.of(String.valueOf(rows.size()), movie.path("title").asText(), movie.path("year").asText()));
+                if (rows.size() == 1000) {
+                    break;
+                }
+            }
+            RedshiftBulkLoader.Result result = redshiftActions.createBulkLoader(bulkClusterId, databaseName, userName, null)
+                .load("Movies", List.of("id", "title", "year"), rows.iterator());
+            assertEquals(rows.size(), result.rows());
+            bulkId = redshiftActions.queryMoviesByYearAsync(databaseName, userName, 2014, bulkClusterId).join();
+        });
+        logger.info("Test 12 passed");
+    }
+
+    // Loads more rows than the INSERT threshold, so the loader stages them in the staging bucket and runs COPY.
+    // The cluster needs the copy role attached before it can read the bucket.
+    @Test
+    @Tag("IntegrationTest")
+    @Order(13)
+    public void testCopyLoadMovies() {
+        assertDoesNotThrow(() -> {
+            redshiftClient.modifyClusterIamRoles(r -> r.clusterIdentifier(bulkClusterId).addIamRoles(copyRoleArn));
+            waitForRoleInSync(bulkClusterId, copyRoleArn);
+
+            JsonNode movies = new ObjectMapper().readTree(new File(fileNameSc));
+            List<List<String>> rows = new ArrayList<>();
+            while (rows.size() < 20_000) {
+                for (JsonNode movie : movies) {
+                    rows.add(List.of(String.valueOf(1000 + rows.size()), movie.path("title").asText(),
+                        movie.path("year").asText()));
+                }
+            }
+            try (S3AsyncClient s3 = S3AsyncClient.builder().region(Region.US_EAST_2).build()) {
+                RedshiftBulkLoader.S3Staging staging =
+                    new RedshiftBulkLoader.S3Staging(s3, stagingBucket, "redshift-test-staging", copyRoleArn);
+                RedshiftBulkLoader.Result result = redshiftActions.createBulkLoader(bulkClusterId, databaseName, userName, staging)
+                    .load("Movies", List.of("id", "title", "year"), rows.iterator());
+                assertEquals(rows.size(), result.rows());
+                assertEquals(1, result.statements());
+                assertTrue(result.parts() > 0);
+            }
+        });
+        logger.info("Test 13 passed");
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    @Order(14)
+    public void testStreamResults() {
+        try {
+            assertDoesNotThrow(() -> {
+                redshiftActions.checkStatementAsync(bulkId).join();
+                StatementResultReader reader = redshiftActions.createResultReader();
+                try (Stream<StatementResultReader.Row> rows = reader.rows(bulkId)) {
+                    long titles = rows.filter(row -> !row.isNull(row.column("title"))).count();
+                    assertTrue(titles > 0);
+                }
+            });
+        } finally {
+            redshiftActions.deleteRedshiftClusterAsync(bulkClusterId).join();
+        }
+        logger.info("Test 14 passed");
+    }
+
+    private static void waitForRoleInSync(String clusterId, String roleArn) throws InterruptedException {
+        for (int i = 0; i < 60; i++) {
+            boolean inSync = redshiftClient.describeClusters(r -> r.clusterIdentifier(clusterId)).clusters().stream()
+                .flatMap(cluster -> cluster.iamRoles().stream())
+                .anyMatch(role -> roleArn.equals(role.iamRoleArn()) && "in-sync".equals(role.applyStatus()));
+            if (inSync) {
+                return;
+            }
+            TimeUnit.SECONDS.sleep(10);
+        }
+        throw new IllegalStateException("The role " + roleArn + " was not attached to " + clusterId + " in time.");
+    }
 
     private static String getSecretValues() {
         SecretsManagerClient secretClient = SecretsManagerClient.builder()
@@ -218,6 +321,8 @@ public class AmazonRedshiftTest {
 
         private String password;
         private String fileName;
+        private String stagingBucket;
+        private String copyRoleArn;
 
         public String getClusterId() {
             return clusterId;
@@ -234,5 +339,13 @@ public class AmazonRedshiftTest {
         public String getFileName() {
             return fileName;
         }
+
+        public String getStagingBucket() {
+            return stagingBucket;
+        }
+
+        public String getCopyRoleArn() {
+            return copyRoleArn;
+        }
     }
 }
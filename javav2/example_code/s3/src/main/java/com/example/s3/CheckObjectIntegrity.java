@@ -23,6 +23,7 @@ import software.amazon.awssdk.services.s3.model.GetObjectAttributesResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.ObjectAttributes;
+import software.amazon.awssdk.services.s3.model.ObjectPart;
 import software.amazon.awssdk.services.s3.model.UploadPartRequest;
 import software.amazon.awssdk.services.s3.model.UploadPartResponse;
 
@@ -33,11 +34,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 // snippet-end:[s3.java2.s3_object_check_integrity.import]
 
 /**
@@ -51,6 +58,8 @@ import java.util.List;
 
 public class CheckObjectIntegrity {
     private final static int CHUNK_SIZE = 5 * 1024 * 1024;
+    private final static int COPY_BUFFER_SIZE = 64 * 1024;
+    private final static int DEFAULT_PARALLELISM = 8;
 
     public static void main(String[] args) {
         final String USAGE = """
@@ -83,6 +92,7 @@ public class CheckObjectIntegrity {
 
         putS3MultipartObjectBracketedByChecksum(s3, bucketName, objectKey, objectPath);
         downloadS3MultipartObjectBracketedByChecksum(s3, bucketName, objectKey);
+        downloadS3MultipartObjectBracketedByChecksumInParallel(s3, bucketName, objectKey, DEFAULT_PARALLELISM);
         validateExistingFileAgainstS3Checksum(s3, bucketName, objectKey, objectPath);
     }
 
@@ -212,6 +222,125 @@ public class CheckObjectIntegrity {
         }
     }
 
+    /**
+     * Downloads an S3 object that is split into multiple parts by fetching several parts at the same time, and
+     * verifies the checksum of each part as well as the overall checksum of the entire object.
+     * <p>
+     * The part sizes from GetObjectAttributes give each part's offset in the file, so every worker writes its part
+     * with a positional FileChannel write and computes the part's SHA-256 as the bytes arrive. Each worker reuses a
+     * small copy buffer instead of allocating a part-sized array. The checksum of checksums is assembled in part
+     * order after all parts finish.
+     *
+     * @param s3 the S3 client used for interacting with the S3 service
+     * @param bucketName the name of the S3 bucket where the object is located
+     * @param objectKey the key of the S3 object to be downloaded
+     * @param parallelism the maximum number of parts to download at the same time
+     */
+    public static void downloadS3MultipartObjectBracketedByChecksumInParallel(S3Client s3, String bucketName,
+                                                                              String objectKey, int parallelism) {
+        System.out.println("Starting downloading file in parallel and doing validation");
+        File file = new File("DOWNLOADED_" + objectKey);
+        // GetObjectAttributes returns at most 1,000 parts per call, so page through the rest.
+        GetObjectAttributesResponse objectAttributes = null;
+        List<ObjectPart> parts = new ArrayList<>();
+        Integer partNumberMarker = null;
+        do {
+            GetObjectAttributesResponse page = s3.getObjectAttributes(GetObjectAttributesRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .maxParts(1_000)
+                .partNumberMarker(partNumberMarker)
+                .objectAttributes(ObjectAttributes.OBJECT_PARTS, ObjectAttributes.CHECKSUM)
+                .build());
+            if (objectAttributes == null) {
+                objectAttributes = page;
+            }
+            parts.addAll(page.objectParts().parts());
+            partNumberMarker = Boolean.TRUE.equals(page.objectParts().isTruncated())
+                ? page.objectParts().nextPartNumberMarker()
+                : null;
+        } while (partNumberMarker != null);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        ThreadLocal<byte[]> copyBuffers = ThreadLocal.withInitial(() -> new byte[COPY_BUFFER_SIZE]);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            List<CompletableFuture<byte[]>> partChecksums = new ArrayList<>(parts.size());
+            long offset = 0;
+            for (ObjectPart part : parts) {
+                final long partOffset = offset;
+                partChecksums.add(CompletableFuture.supplyAsync(() -> downloadPartToChannel(s3, bucketName,
+                    objectKey, part, channel, partOffset, copyBuffers.get()), executor));
+                offset += part.size();
+            }
+
+            MessageDigest sha256ChecksumOfChecksums = MessageDigest.getInstance("SHA-256");
+            for (int i = 0; i < parts.size(); i++) {
+                byte[] sha256PartBytes = partChecksums.get(i).join();
+                sha256ChecksumOfChecksums.update(sha256PartBytes);
+                System.out.println(parts.get(i).partNumber() + " "
+                    + Base64.getEncoder().encodeToString(sha256PartBytes));
+            }
+
+            String base64ChecksumOfChecksums = Base64.getEncoder()
+                .encodeToString(sha256ChecksumOfChecksums.digest());
+            String base64ChecksumOfChecksumFromAttributes = objectAttributes.checksum().checksumSHA256();
+            if (base64ChecksumOfChecksumFromAttributes != null
+                && !base64ChecksumOfChecksums.equals(base64ChecksumOfChecksumFromAttributes)) {
+                throw new IOException(
+                    "Failed checksum validation for full object checksum of checksums");
+            }
+            System.out.println("Checksum of checksums: " + base64ChecksumOfChecksumFromAttributes);
+            channel.force(false);
+        } catch (IOException | NoSuchAlgorithmException | CompletionException e) {
+            file.delete();
+            e.printStackTrace();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Downloads one part of an object, writes it to the channel at the given offset, and verifies its checksum.
+     *
+     * @return the SHA-256 digest of the part
+     */
+    private static byte[] downloadPartToChannel(S3Client s3, String bucketName, String objectKey, ObjectPart part,
+                                                FileChannel channel, long offset, byte[] buffer) {
+        try (ResponseInputStream<GetObjectResponse> response = s3.getObject(GetObjectRequest.builder()
+            .bucket(bucketName)
+            .key(objectKey)
+            .partNumber(part.partNumber())
+            .checksumMode(ChecksumMode.ENABLED).build())) {
+
+            MessageDigest sha256PartChecksum = MessageDigest.getInstance("SHA-256");
+            long position = offset;
+            int read = response.read(buffer);
+            while (read != -1) {
+                sha256PartChecksum.update(buffer, 0, read);
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                while (bytes.hasRemaining()) {
+                    position += channel.write(bytes, position);
+                }
+                read = response.read(buffer);
+            }
+            if (position - offset != part.size()) {
+                throw new IOException("Part " + part.partNumber() + " has an unexpected size");
+            }
+
+            byte[] sha256PartBytes = sha256PartChecksum.digest();
+            String base64PartChecksum = Base64.getEncoder().encodeToString(sha256PartBytes);
+            if (!base64PartChecksum.equals(response.response().checksumSHA256())
+                || !base64PartChecksum.equals(part.checksumSHA256())) {
+                throw new IOException("Part checksum didn't match for the part " + part.partNumber());
+            }
+            return sha256PartBytes;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new CompletionException(e);
+        }
+    }
+
     /**
      * Validates the locally persisted file against the checksum stored in Amazon S3.
      *
@@ -0,0 +1,257 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A small memory-mapped file that records the progress of one multipart upload so that the upload can be
+ * resumed after the JVM stops.
+ * <p>
+ * The header holds the bucket, key, and ID of the upload, the size of the source file, and the part size. The
+ * bucket and key are kept so that a journal left by an upload to another object is never resumed against the
+ * wrong one. The header is followed by one
+ * fixed-size slot per part that holds the part's ETag and SHA-256 checksum. A slot's state byte is written
+ * last and each slot is forced to disk on its own, so a crash can lose at most the parts that were in flight.
+ * Slots are written at fixed offsets, so several upload threads can record parts at the same time.
+ */
+class MultipartUploadJournal implements Closeable {
+    private static final int MAGIC = 0x4d50554a; // "MPUJ"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4096;
+    private static final int SLOT_SIZE = 256;
+    private static final int MAX_ETAG_LENGTH = 128;
+    private static final int MAX_CHECKSUM_LENGTH = 64;
+    private static final byte PART_COMPLETE = 1;
+
+    // Header offsets.
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int FILE_SIZE_OFFSET = 8;
+    private static final int PART_SIZE_OFFSET = 16;
+    private static final int PART_COUNT_OFFSET = 24;
+    private static final int STRINGS_OFFSET = 28; // Bucket, key, and upload ID, each with a 2-byte length.
+
+    // Slot offsets, relative to the start of the slot.
+    private static final int STATE_OFFSET = 0;
+    private static final int ETAG_OFFSET = 1;
+    private static final int CHECKSUM_OFFSET = ETAG_OFFSET + 1 + MAX_ETAG_LENGTH;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final String bucketName;
+    private final String key;
+    private final String uploadId;
+    private final long fileSize;
+    private final long partSize;
+    private final int partCount;
+
+    private MultipartUploadJournal(Path path, FileChannel channel, MappedByteBuffer buffer, String bucketName,
+                                   String key, String uploadId, long fileSize, long partSize, int partCount) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.uploadId = uploadId;
+        this.fileSize = fileSize;
+        this.partSize = partSize;
+        this.partCount = partCount;
+    }
+
+    /**
+     * Creates a new journal, replacing any journal that already exists at the path.
+     *
+     * @param path       the journal file
+     * @param bucketName the bucket of the multipart upload
+     * @param key        the object key of the multipart upload
+     * @param uploadId   the ID of the multipart upload
+     * @param fileSize   the size of the file being uploaded
+     * @param partSize   the size of every part but the last
+     * @param partCount  the number of parts
+     * @return the open journal
+     * @throws IOException if the journal can't be written
+     */
+    static MultipartUploadJournal create(Path path, String bucketName, String key, String uploadId, long fileSize,
+                                         long partSize, int partCount) throws IOException {
+        byte[][] strings = {
+            bucketName.getBytes(StandardCharsets.UTF_8),
+            key.getBytes(StandardCharsets.UTF_8),
+            uploadId.getBytes(StandardCharsets.UTF_8)
+        };
+        int stringsEnd = STRINGS_OFFSET;
+        for (byte[] string : strings) {
+            stringsEnd += 2 + string.length;
+        }
+        if (stringsEnd > HEADER_SIZE) {
+            throw new IOException("Bucket, key, and upload ID are too long for the journal header.");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+            HEADER_SIZE + (long) partCount * SLOT_SIZE);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putLong(FILE_SIZE_OFFSET, fileSize);
+        buffer.putLong(PART_SIZE_OFFSET, partSize);
+        buffer.putInt(PART_COUNT_OFFSET, partCount);
+        int offset = STRINGS_OFFSET;
+        for (byte[] string : strings) {
+            buffer.putShort(offset, (short) string.length);
+            buffer.put(offset + 2, string);
+            offset += 2 + string.length;
+        }
+        // Write the magic number last so that a partly written header is never read back.
+        buffer.force(0, HEADER_SIZE);
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.force(0, HEADER_SIZE);
+        return new MultipartUploadJournal(path, channel, buffer, bucketName, key, uploadId, fileSize, partSize,
+            partCount);
+    }
+
+    /**
+     * Opens an existing journal.
+     *
+     * @param path the journal file
+     * @return the open journal, or {@code null} if the file is missing or isn't a complete journal
+     * @throws IOException if the journal can't be read
+     */
+    static MultipartUploadJournal open(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        int partCount = buffer.getInt(PART_COUNT_OFFSET);
+        if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION
+            || channel.size() != HEADER_SIZE + (long) partCount * SLOT_SIZE) {
+            channel.close();
+            return null;
+        }
+        String[] strings = new String[3];
+        int offset = STRINGS_OFFSET;
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buffer.getShort(offset) & 0xFFFF];
+            buffer.get(offset + 2, bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            offset += 2 + bytes.length;
+        }
+        return new MultipartUploadJournal(path, channel, buffer, strings[0], strings[1], strings[2],
+            buffer.getLong(FILE_SIZE_OFFSET), buffer.getLong(PART_SIZE_OFFSET), partCount);
+    }
+
+    String bucketName() {
+        return bucketName;
+    }
+
+    String key() {
+        return key;
+    }
+
+    String uploadId() {
+        return uploadId;
+    }
+
+    long fileSize() {
+        return fileSize;
+    }
+
+    long partSize() {
+        return partSize;
+    }
+
+    int partCount() {
+        return partCount;
+    }
+
+    /**
+     * Records a completed part and forces its slot to disk.
+     *
+     * @param partNumber     the part number, starting at 1
+     * @param eTag           the ETag returned by UploadPart
+     * @param checksumSHA256 the base64 SHA-256 checksum returned by UploadPart, or {@code null}
+     */
+    void recordPart(int partNumber, String eTag, String checksumSHA256) {
+        int slot = slotOffset(partNumber);
+        putString(slot + ETAG_OFFSET, eTag, MAX_ETAG_LENGTH);
+        putString(slot + CHECKSUM_OFFSET, checksumSHA256, MAX_CHECKSUM_LENGTH);
+        buffer.force(slot, SLOT_SIZE);
+        buffer.put(slot + STATE_OFFSET, PART_COMPLETE);
+        buffer.force(slot, SLOT_SIZE);
+    }
+
+    /**
+     * Marks a part as not uploaded, for example when Amazon S3 doesn't list it.
+     *
+     * @param partNumber the part number, starting at 1
+     */
+    void clearPart(int partNumber) {
+        int slot = slotOffset(partNumber);
+        buffer.put(slot + STATE_OFFSET, (byte) 0);
+        buffer.force(slot, SLOT_SIZE);
+    }
+
+    boolean isComplete(int partNumber) {
+        return buffer.get(slotOffset(partNumber) + STATE_OFFSET) == PART_COMPLETE;
+    }
+
+    String eTag(int partNumber) {
+        return isComplete(partNumber) ? getString(slotOffset(partNumber) + ETAG_OFFSET) : null;
+    }
+
+    String checksumSHA256(int partNumber) {
+        return isComplete(partNumber) ? getString(slotOffset(partNumber) + CHECKSUM_OFFSET) : null;
+    }
+
+    /**
+     * Closes and deletes the journal. Call this after the upload is completed or aborted.
+     *
+     * @throws IOException if the journal can't be deleted
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private int slotOffset(int partNumber) {
+        if (partNumber < 1 || partNumber > partCount) {
+            throw new IllegalArgumentException("Part number " + partNumber + " is outside 1.." + partCount);
+        }
+        return HEADER_SIZE + (partNumber - 1) * SLOT_SIZE;
+    }
+
+    private void putString(int offset, String value, int maxLength) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxLength) {
+            throw new IllegalArgumentException("Value is longer than " + maxLength + " bytes: " + value);
+        }
+        buffer.put(offset, (byte) bytes.length);
+        buffer.put(offset + 1, bytes);
+    }
+
+    private String getString(int offset) {
+        int length = buffer.get(offset) & 0xFF;
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
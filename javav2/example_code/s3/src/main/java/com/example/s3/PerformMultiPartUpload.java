@@ -5,12 +5,14 @@ package com.example.s3;
 
 // snippet-start:[s3.java2.performMultiPartUpload.import]
 
+import com.example.s3.util.ByteBufferInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
 import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
 import software.amazon.awssdk.services.s3.model.CompletedPart;
 import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
@@ -27,12 +29,21 @@ import java.io.RandomAccessFile;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 // snippet-end:[s3.java2.performMultiPartUpload.import]
 
 // snippet-start:[s3.java2.performMultiPartUpload.full]
@@ -40,6 +51,10 @@ public class PerformMultiPartUpload {
     static final S3Client s3Client = S3Client.create();
     static final String classPathFilePath = "/multipartUploadFiles/s3-userguide.pdf";
     static final String filePath = getFullFilePath(classPathFilePath);
+    static final long MIN_PART_SIZE = 5L * 1024 * 1024;       // S3 minimum size for every part but the last.
+    static final long MAX_PART_SIZE = 5L * 1024 * 1024 * 1024; // S3 maximum part size.
+    static final int MAX_PARTS = 10_000;                     // S3 maximum number of parts per upload.
+    static final int DEFAULT_PARALLELISM = 8;
     private static final Logger logger = LoggerFactory.getLogger(PerformMultiPartUpload.class);
 
     public static void main(String[] args) {
@@ -58,6 +73,10 @@ public class PerformMultiPartUpload {
 
             createBucket(bucketName);
             performMultiPartUpload.multipartUploadWithS3Client(bucketName, key, filePath);
+            deleteResources(bucketName, key);
+
+            createBucket(bucketName);
+            performMultiPartUpload.multipartUploadWithS3ClientInParallel(bucketName, key, filePath, DEFAULT_PARALLELISM);
         } catch (SdkException e) {
             logger.error(e.getMessage());
         } finally {
@@ -173,6 +192,122 @@ public class PerformMultiPartUpload {
     }
 
     // snippet-end:[s3.java2.performMultiPartUpload.s3Client]
+    // snippet-start:[s3.java2.performMultiPartUpload.s3ClientParallel]
+    /**
+     * Performs a multipart upload to Amazon S3 by sending several parts at the same time.
+     * <p>
+     * Each part is a read-only memory-mapped region of the file, so part data is never copied to the heap.
+     * A semaphore limits the number of parts in flight to {@code parallelism}. A mapping isn't released when
+     * its part finishes, only when the buffer is garbage collected, so mapped address space can exceed
+     * {@code parallelism * partSize} for a while. The mapped pages are backed by the file, not the heap, and
+     * the operating system can drop them under memory pressure. Parts can finish
+     * in any order; each completed part is stored in the slot for its part number so that the list sent to
+     * CompleteMultipartUpload is always in ascending order. If any part fails, the upload is aborted.
+     * <p>
+     * The default S3Client HTTP client allows 50 connections, so values of {@code parallelism} above that
+     * limit only queue more requests.
+     *
+     * @param bucketName  the name of the S3 bucket
+     * @param key         the object key
+     * @param filePath    the path to the file to be uploaded
+     * @param parallelism the maximum number of parts to upload at the same time
+     * @return the ordered list of completed parts, including each part's ETag and SHA-256 checksum
+     */
+    public List<CompletedPart> multipartUploadWithS3ClientInParallel(String bucketName, String key, String filePath,
+                                                                     int parallelism) {
+        Path path = Paths.get(filePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long partSize = computePartSize(fileSize);
+            int partCount = (int) Math.max(1, (fileSize + partSize - 1) / partSize);
+            logger.info("Uploading {} bytes in {} parts of {} bytes with {} parts in flight.",
+                fileSize, partCount, partSize, parallelism);
+
+            // Initiate the multipart upload.
+            String uploadId = s3Client.createMultipartUpload(b -> b
+                .bucket(bucketName)
+                .key(key)
+                .checksumAlgorithm(ChecksumAlgorithm.SHA256)).uploadId();
+
+            CompletedPart[] completedParts = new CompletedPart[partCount];
+            List<CompletableFuture<Void>> futures = new ArrayList<>(partCount);
+            Semaphore permits = new Semaphore(parallelism);
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+            try {
+                for (int i = 0; i < partCount; i++) {
+                    final int partNumber = i + 1;
+                    final long position = i * partSize;
+                    final long size = Math.min(partSize, fileSize - position);
+
+                    permits.acquire(); // Wait for a part to finish before mapping another one.
+                    futures.add(CompletableFuture.runAsync(() -> {
+                            MappedByteBuffer part = mapPart(channel, position, size);
+                            UploadPartResponse partResponse = s3Client.uploadPart(b -> b
+                                    .bucket(bucketName)
+                                    .key(key)
+                                    .uploadId(uploadId)
+                                    .partNumber(partNumber)
+                                    .contentLength(size)
+                                    .checksumAlgorithm(ChecksumAlgorithm.SHA256),
+                                RequestBody.fromContentProvider(() -> new ByteBufferInputStream(part), size,
+                                    "application/octet-stream"));
+
+                            completedParts[partNumber - 1] = CompletedPart.builder()
+                                .partNumber(partNumber)
+                                .eTag(partResponse.eTag())
+                                .checksumSHA256(partResponse.checksumSHA256())
+                                .build();
+                        }, executor)
+                        .whenComplete((result, exception) -> permits.release()));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            } catch (InterruptedException | CompletionException e) {
+                s3Client.abortMultipartUpload(b -> b.bucket(bucketName).key(key).uploadId(uploadId));
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                throw SdkException.builder().message("Multipart upload aborted: " + e.getMessage()).cause(e).build();
+            } finally {
+                executor.shutdown();
+            }
+
+            // Complete the multipart upload. The array is indexed by part number, so the parts are in order.
+            List<CompletedPart> parts = Arrays.asList(completedParts);
+            s3Client.completeMultipartUpload(b -> b
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build()));
+            return parts;
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+            throw SdkException.builder().message(e.getMessage()).cause(e).build();
+        }
+    }
+
+    /**
+     * Chooses a part size for a file of the given size. The result is at least the 5 MiB S3 minimum,
+     * is rounded up to a whole MiB, and is large enough that the file fits in 10,000 parts.
+     *
+     * @param fileSize the size of the file in bytes
+     * @return the part size in bytes
+     */
+    static long computePartSize(long fileSize) {
+        long mib = 1024 * 1024;
+        long partSize = (fileSize + MAX_PARTS - 1) / MAX_PARTS;
+        partSize = (partSize + mib - 1) / mib * mib;
+        return Math.min(MAX_PART_SIZE, Math.max(MIN_PART_SIZE, partSize));
+    }
+
+    private static MappedByteBuffer mapPart(FileChannel channel, long position, long size) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+    // snippet-end:[s3.java2.performMultiPartUpload.s3ClientParallel]
+
     // snippet-start:[s3.java2.performMultiPartUpload.s3AsyncClient]
     /**
      * Uploads a file to an S3 bucket using the S3AsyncClient and enabling multipart support.
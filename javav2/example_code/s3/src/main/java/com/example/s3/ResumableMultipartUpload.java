@@ -0,0 +1,271 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3;
+
+import com.example.s3.util.ByteBufferInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.Part;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Before running this Java V2 code example, set up your development
+ * environment, including your credentials.
+ * <p>
+ * For more information, see the following documentation topic:
+ * <p>
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ * <p>
+ * This example uploads a file with a multipart upload that can be resumed. Progress is kept in a
+ * {@link MultipartUploadJournal} next to the file. If the JVM stops during the upload, running the example
+ * again reads the journal, asks Amazon S3 which parts it already has by calling ListParts, and uploads only
+ * the parts that are missing.
+ */
+public class ResumableMultipartUpload {
+    private static final Logger logger = LoggerFactory.getLogger(ResumableMultipartUpload.class);
+    private static final String JOURNAL_SUFFIX = ".upload-journal";
+
+    public static void main(String[] args) {
+        final String usage = """
+
+            Usage:
+                <bucketName> <objectKey> <filePath>\s
+
+            Where:
+                bucketName - The Amazon S3 bucket to upload the file to.
+                objectKey - The key of the object to create.
+                filePath - The file to upload. If a previous run stopped, the upload resumes from its journal.
+            """;
+
+        if (args.length != 3) {
+            System.out.println(usage);
+            return;
+        }
+
+        try (S3Client s3Client = S3Client.create()) {
+            resumableUpload(s3Client, args[0], args[1], args[2], PerformMultiPartUpload.DEFAULT_PARALLELISM);
+        } catch (SdkException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the journal path for an upload of the given file.
+     *
+     * @param filePath the file being uploaded
+     * @return the journal path
+     */
+    static Path journalPath(String filePath) {
+        return Paths.get(filePath + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Uploads a file with a multipart upload, resuming an earlier upload of the same file if a journal exists.
+     *
+     * @param s3Client    the S3 client
+     * @param bucketName  the name of the S3 bucket
+     * @param key         the object key
+     * @param filePath    the path to the file to be uploaded
+     * @param parallelism the maximum number of parts to upload at the same time
+     * @return the number of parts that were uploaded by this call
+     */
+    public static int resumableUpload(S3Client s3Client, String bucketName, String key, String filePath,
+                                      int parallelism) {
+        Path journalPath = journalPath(filePath);
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            MultipartUploadJournal journal = MultipartUploadJournal.open(journalPath);
+            if (journal != null && (!journal.bucketName().equals(bucketName) || !journal.key().equals(key))) {
+                // The journal belongs to an upload of this file to another object. Abort that upload rather
+                // than leave its parts behind, since this journal was the only record of it.
+                logger.info("Upload {} was to s3://{}/{}; aborting it and starting over.", journal.uploadId(),
+                    journal.bucketName(), journal.key());
+                abortQuietly(s3Client, journal.bucketName(), journal.key(), journal.uploadId());
+                journal.delete();
+                journal = null;
+            }
+            if (journal != null && journal.fileSize() != fileSize) {
+                logger.info("File size changed since upload {} started; starting over.", journal.uploadId());
+                abortQuietly(s3Client, bucketName, key, journal.uploadId());
+                journal.delete();
+                journal = null;
+            }
+            if (journal != null && !reconcile(s3Client, bucketName, key, journal)) {
+                journal.delete();
+                journal = null;
+            }
+            if (journal == null) {
+                journal = startUpload(s3Client, bucketName, key, journalPath, fileSize);
+            }
+
+            try {
+                int uploaded = uploadMissingParts(s3Client, bucketName, key, channel, journal, parallelism);
+
+                List<CompletedPart> completedParts = new ArrayList<>(journal.partCount());
+                for (int partNumber = 1; partNumber <= journal.partCount(); partNumber++) {
+                    completedParts.add(CompletedPart.builder()
+                        .partNumber(partNumber)
+                        .eTag(journal.eTag(partNumber))
+                        .checksumSHA256(journal.checksumSHA256(partNumber))
+                        .build());
+                }
+                String uploadId = journal.uploadId();
+                s3Client.completeMultipartUpload(b -> b
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build()));
+                journal.delete();
+                logger.info("Completed upload {} of {} parts; {} were uploaded by this run.", uploadId,
+                    completedParts.size(), uploaded);
+                return uploaded;
+            } finally {
+                journal.close();
+            }
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+            throw SdkException.builder().message(e.getMessage()).cause(e).build();
+        }
+    }
+
+    private static MultipartUploadJournal startUpload(S3Client s3Client, String bucketName, String key,
+                                                      Path journalPath, long fileSize) throws IOException {
+        long partSize = PerformMultiPartUpload.computePartSize(fileSize);
+        int partCount = (int) Math.max(1, (fileSize + partSize - 1) / partSize);
+        String uploadId = s3Client.createMultipartUpload(b -> b
+            .bucket(bucketName)
+            .key(key)
+            .checksumAlgorithm(ChecksumAlgorithm.SHA256)).uploadId();
+        logger.info("Started upload {} with {} parts of {} bytes.", uploadId, partCount, partSize);
+        return MultipartUploadJournal.create(journalPath, bucketName, key, uploadId, fileSize, partSize, partCount);
+    }
+
+    /**
+     * Brings the journal in line with the parts that Amazon S3 reports for the upload. A part counts as done
+     * only if Amazon S3 lists it with the expected size and, when the journal has an ETag for it, the same ETag.
+     * Parts that were uploaded but not journaled before a crash are picked up from the listing.
+     *
+     * @return {@code false} if the upload no longer exists and must be started again
+     */
+    private static boolean reconcile(S3Client s3Client, String bucketName, String key,
+                                     MultipartUploadJournal journal) {
+        Map<Integer, Part> listedParts = new HashMap<>();
+        try {
+            s3Client.listPartsPaginator(b -> b
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(journal.uploadId()))
+                .parts()
+                .forEach(part -> listedParts.put(part.partNumber(), part));
+        } catch (NoSuchUploadException e) {
+            logger.info("Upload {} no longer exists; starting over.", journal.uploadId());
+            return false;
+        }
+
+        int resumed = 0;
+        for (int partNumber = 1; partNumber <= journal.partCount(); partNumber++) {
+            Part listed = listedParts.get(partNumber);
+            long expectedSize = Math.min(journal.partSize(),
+                journal.fileSize() - (partNumber - 1) * journal.partSize());
+            String journaledETag = journal.eTag(partNumber);
+            boolean matches = listed != null
+                && listed.size() == expectedSize
+                && (journaledETag == null || journaledETag.equals(listed.eTag()));
+            if (matches) {
+                journal.recordPart(partNumber, listed.eTag(), listed.checksumSHA256());
+                resumed++;
+            } else if (journal.isComplete(partNumber)) {
+                journal.clearPart(partNumber);
+            }
+        }
+        logger.info("Resuming upload {}: {} of {} parts are already in Amazon S3.", journal.uploadId(), resumed,
+            journal.partCount());
+        return true;
+    }
+
+    private static int uploadMissingParts(S3Client s3Client, String bucketName, String key, FileChannel channel,
+                                          MultipartUploadJournal journal, int parallelism) {
+        Semaphore permits = new Semaphore(parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        String uploadId = journal.uploadId();
+        try {
+            for (int partNumber = 1; partNumber <= journal.partCount(); partNumber++) {
+                if (journal.isComplete(partNumber)) {
+                    continue;
+                }
+                final int number = partNumber;
+                final long position = (partNumber - 1) * journal.partSize();
+                final long size = Math.min(journal.partSize(), journal.fileSize() - position);
+
+                permits.acquire(); // Wait for a part to finish before mapping another one.
+                futures.add(CompletableFuture.runAsync(() -> {
+                        MappedByteBuffer part = mapPart(channel, position, size);
+                        UploadPartResponse response = s3Client.uploadPart(b -> b
+                                .bucket(bucketName)
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(number)
+                                .contentLength(size)
+                                .checksumAlgorithm(ChecksumAlgorithm.SHA256),
+                            RequestBody.fromContentProvider(() -> new ByteBufferInputStream(part), size,
+                                "application/octet-stream"));
+                        journal.recordPart(number, response.eTag(), response.checksumSHA256());
+                    }, executor)
+                    .whenComplete((result, exception) -> permits.release()));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw SdkException.builder().message("Upload " + uploadId + " interrupted; it can be resumed.")
+                .cause(e).build();
+        } catch (CompletionException e) {
+            // The journal is kept, so running the upload again retries only the parts that failed.
+            throw SdkException.builder().message("Upload " + uploadId + " failed; it can be resumed.")
+                .cause(e.getCause()).build();
+        } finally {
+            executor.shutdown();
+        }
+        return futures.size();
+    }
+
+    private static MappedByteBuffer mapPart(FileChannel channel, long position, long size) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static void abortQuietly(S3Client s3Client, String bucketName, String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(b -> b.bucket(bucketName).key(key).uploadId(uploadId));
+        } catch (SdkException e) {
+            logger.info("Could not abort upload {}: {}", uploadId, e.getMessage());
+        }
+    }
+}
@@ -7,14 +7,19 @@ package com.example.s3;
 // snippet-start:[s3.java2.bucket_deletion.import]
 // snippet-start:[s3.java2.s3_bucket_ops.delete_bucket.import]
 
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.DeleteBucketRequest;
-import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.S3Exception;
-import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.util.List;
+import java.util.stream.Collectors;
 // snippet-end:[s3.java2.s3_bucket_ops.delete_bucket.import]
 // snippet-end:[s3.java2.bucket_deletion.import]
 
@@ -54,10 +59,12 @@ public class S3BucketDeletion {
 
     /**
      * Deletes all objects in the specified S3 bucket and then deletes the bucket.
+     * For buckets with millions of objects, or versioned buckets, see {@link S3BucketPurger}.
      *
      * @param s3     The S3Client instance to use for the S3 operations.
      * @param bucket The name of the S3 bucket to delete.
      * @throws S3Exception if any error occurs during the S3 operations.
+     * @throws SdkException if DeleteObjects reports that some objects couldn't be deleted.
      */
     public static void deleteObjectsInBucket(S3Client s3, String bucket) {
         try {
@@ -65,18 +72,33 @@ public class S3BucketDeletion {
             ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
                 .bucket(bucket)
                 .build();
-            ListObjectsV2Response listObjectsV2Response;
 
-            do {
-                listObjectsV2Response = s3.listObjectsV2(listObjectsV2Request);
-                for (S3Object s3Object : listObjectsV2Response.contents()) {
-                    DeleteObjectRequest request = DeleteObjectRequest.builder()
-                        .bucket(bucket)
-                        .key(s3Object.key())
+            // Each page holds up to 1,000 keys, which is also the most that one DeleteObjects call accepts.
+            // The paginator sets the continuation token for each page.
+            for (ListObjectsV2Response page : s3.listObjectsV2Paginator(listObjectsV2Request)) {
+                if (page.contents().isEmpty()) {
+                    continue;
+                }
+                List<ObjectIdentifier> keys = page.contents().stream()
+                    .map(s3Object -> ObjectIdentifier.builder().key(s3Object.key()).build())
+                    .toList();
+                DeleteObjectsRequest request = DeleteObjectsRequest.builder()
+                    .bucket(bucket)
+                    .delete(d -> d.objects(keys).quiet(true))
+                    .build();
+                DeleteObjectsResponse response = s3.deleteObjects(request);
+
+                // DeleteObjects succeeds even if some objects aren't deleted. In quiet mode, the response
+                // lists only the objects that failed, and the bucket can't be deleted while they remain.
+                if (!response.errors().isEmpty()) {
+                    String failed = response.errors().stream()
+                        .map(error -> error.key() + " (" + error.code() + ")")
+                        .collect(Collectors.joining(", "));
+                    throw SdkException.builder()
+                        .message("Could not delete objects from " + bucket + ": " + failed)
                         .build();
-                    s3.deleteObject(request);
                 }
-            } while (listObjectsV2Response.isTruncated());
+            }
             DeleteBucketRequest deleteBucketRequest = DeleteBucketRequest.builder().bucket(bucket).build();
             s3.deleteBucket(deleteBucketRequest);
 
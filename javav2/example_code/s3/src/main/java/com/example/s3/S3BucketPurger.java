@@ -0,0 +1,273 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.s3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.BucketVersioningStatus;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectVersionsResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Before running this Java V2 code example, set up your development
+ * environment, including your credentials.
+ * <p>
+ * For more information, see the following documentation topic:
+ * <p>
+ * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
+ * <p>
+ * This example empties a bucket that can hold millions of objects. The top-level prefixes of the bucket are
+ * listed in parallel, and the keys are grouped into batches of up to 1,000 that are removed with DeleteObjects.
+ * A semaphore limits the number of batches in flight, which also limits how far listing can run ahead of
+ * deleting. Keys that DeleteObjects reports as errors are retried with backoff. For a bucket that has
+ * versioning enabled or suspended, every object version and delete marker is removed.
+ */
+public class S3BucketPurger {
+    static final int MAX_KEYS_PER_BATCH = 1000;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MILLIS = 200;
+    private static final Logger logger = LoggerFactory.getLogger(S3BucketPurger.class);
+
+    private final S3Client s3;
+    private final int concurrency;
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final ConcurrentLinkedQueue<S3Error> failures = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The outcome of a purge.
+     *
+     * @param deleted  the number of keys or versions that were deleted
+     * @param retried  the number of keys that had to be sent again
+     * @param failures the keys that could not be deleted after all attempts
+     * @param elapsed  the time the purge took
+     */
+    public record PurgeResult(long deleted, long retried, List<S3Error> failures, Duration elapsed) {
+        public double keysPerSecond() {
+            return elapsed.toMillis() == 0 ? deleted : deleted * 1000.0 / elapsed.toMillis();
+        }
+    }
+
+    public static void main(String[] args) {
+        final String usage = """
+
+            Usage:
+                <bucket> <concurrency>
+
+            Where:
+                bucket - The bucket to empty (for example, bucket1).
+                concurrency - The number of listings and DeleteObjects batches to run at the same time (for example, 16).\s
+            """;
+
+        if (args.length != 2) {
+            System.out.println(usage);
+            System.exit(1);
+        }
+
+        String bucket = args[0];
+        int concurrency = Integer.parseInt(args[1]);
+        try (S3Client s3 = S3Client.builder()
+            .region(Region.US_EAST_1)
+            .build()) {
+            PurgeResult result = new S3BucketPurger(s3, concurrency).purge(bucket);
+            System.out.printf("Deleted %d keys in %s (%.0f keys/sec, %d retried, %d failed).%n",
+                result.deleted(), result.elapsed(), result.keysPerSecond(), result.retried(),
+                result.failures().size());
+        }
+    }
+
+    /**
+     * Creates a purger.
+     *
+     * @param s3          the S3Client to use; its HTTP client should allow at least {@code 2 * concurrency}
+     *                    connections
+     * @param concurrency the number of prefix listings and the number of DeleteObjects batches to run at once
+     */
+    public S3BucketPurger(S3Client s3, int concurrency) {
+        this.s3 = s3;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Deletes every object in the bucket, including all versions and delete markers if the bucket is versioned.
+     * The bucket itself is not deleted.
+     *
+     * @param bucket the name of the bucket to empty
+     * @return the number of deleted keys, retries, failures, and the elapsed time
+     */
+    public PurgeResult purge(String bucket) {
+        BucketVersioningStatus versioning = s3.getBucketVersioning(b -> b.bucket(bucket)).status();
+        boolean versioned = versioning != null && versioning != BucketVersioningStatus.UNKNOWN_TO_SDK_VERSION;
+
+        deleted.reset();
+        retried.reset();
+        failures.clear();
+        long start = System.nanoTime();
+        ExecutorService listers = Executors.newFixedThreadPool(concurrency);
+        ExecutorService deleters = Executors.newFixedThreadPool(concurrency);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> logger.info("{} keys deleted ({} keys/sec).", deleted.sum(),
+            deleted.sum() * 1_000_000_000L / Math.max(1, System.nanoTime() - start)), 5, 5, TimeUnit.SECONDS);
+
+        Semaphore batchesInFlight = new Semaphore(concurrency);
+        ConcurrentLinkedQueue<CompletableFuture<Void>> pendingDeletes = new ConcurrentLinkedQueue<>();
+        Consumer<List<ObjectIdentifier>> submitBatch = batch -> {
+            batchesInFlight.acquireUninterruptibly(); // Back-pressure: stop listing while batches are queued.
+            pendingDeletes.add(CompletableFuture
+                .runAsync(() -> deleteBatch(bucket, batch), deleters)
+                .whenComplete((result, exception) -> batchesInFlight.release()));
+        };
+
+        try {
+            // List the root level with a delimiter to find the top-level prefixes, then list each one in parallel.
+            List<String> prefixes = new ArrayList<>();
+            BatchCollector rootBatch = new BatchCollector(submitBatch);
+            if (versioned) {
+                for (ListObjectVersionsResponse page : s3.listObjectVersionsPaginator(b -> b
+                    .bucket(bucket).delimiter("/"))) {
+                    addVersions(page, rootBatch);
+                    page.commonPrefixes().stream().map(CommonPrefix::prefix).forEach(prefixes::add);
+                }
+            } else {
+                for (ListObjectsV2Response page : s3.listObjectsV2Paginator(b -> b
+                    .bucket(bucket).delimiter("/"))) {
+                    page.contents().forEach(o -> rootBatch.add(ObjectIdentifier.builder().key(o.key()).build()));
+                    page.commonPrefixes().stream().map(CommonPrefix::prefix).forEach(prefixes::add);
+                }
+            }
+            rootBatch.flush();
+            logger.info("Listing {} top-level prefixes of {} in parallel.", prefixes.size(), bucket);
+
+            List<CompletableFuture<Void>> listings = prefixes.stream()
+                .map(prefix -> CompletableFuture.runAsync(() -> listPrefix(bucket, prefix, versioned, submitBatch),
+                    listers))
+                .toList();
+            CompletableFuture.allOf(listings.toArray(new CompletableFuture[0])).join();
+            CompletableFuture.allOf(pendingDeletes.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            throw SdkException.builder().message("Purge of " + bucket + " failed: " + e.getMessage())
+                .cause(e.getCause()).build();
+        } finally {
+            listers.shutdownNow();
+            deleters.shutdownNow();
+            reporter.shutdownNow();
+        }
+
+        PurgeResult result = new PurgeResult(deleted.sum(), retried.sum(), new ArrayList<>(failures),
+            Duration.ofNanos(System.nanoTime() - start));
+        logger.info("Purged {} keys from {} in {} ({} keys/sec).", result.deleted(), bucket, result.elapsed(),
+            Math.round(result.keysPerSecond()));
+        return result;
+    }
+
+    private void listPrefix(String bucket, String prefix, boolean versioned,
+                            Consumer<List<ObjectIdentifier>> submitBatch) {
+        BatchCollector batch = new BatchCollector(submitBatch);
+        if (versioned) {
+            s3.listObjectVersionsPaginator(b -> b.bucket(bucket).prefix(prefix))
+                .forEach(page -> addVersions(page, batch));
+        } else {
+            s3.listObjectsV2Paginator(b -> b.bucket(bucket).prefix(prefix))
+                .contents()
+                .forEach(o -> batch.add(ObjectIdentifier.builder().key(o.key()).build()));
+        }
+        batch.flush();
+    }
+
+    private static void addVersions(ListObjectVersionsResponse page, BatchCollector batch) {
+        page.versions().forEach(v -> batch.add(ObjectIdentifier.builder()
+            .key(v.key())
+            .versionId(v.versionId())
+            .build()));
+        page.deleteMarkers().forEach(m -> batch.add(ObjectIdentifier.builder()
+            .key(m.key())
+            .versionId(m.versionId())
+            .build()));
+    }
+
+    /**
+     * Deletes one batch, then sends the keys that DeleteObjects reports as errors again, with exponential
+     * backoff and jitter, until they are deleted or the attempts run out.
+     */
+    private void deleteBatch(String bucket, List<ObjectIdentifier> batch) {
+        List<ObjectIdentifier> remaining = batch;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS && !remaining.isEmpty(); attempt++) {
+            if (attempt > 1) {
+                retried.add(remaining.size());
+                sleepBeforeRetry(attempt);
+            }
+            List<ObjectIdentifier> keys = remaining;
+            DeleteObjectsResponse response = s3.deleteObjects(b -> b
+                .bucket(bucket)
+                .delete(d -> d.objects(keys).quiet(true)));
+
+            // In quiet mode, the response lists only the keys that failed.
+            List<S3Error> errors = response.errors();
+            deleted.add(keys.size() - errors.size());
+            if (attempt == MAX_ATTEMPTS) {
+                failures.addAll(errors);
+            }
+            remaining = errors.stream()
+                .map(e -> ObjectIdentifier.builder().key(e.key()).versionId(e.versionId()).build())
+                .toList();
+        }
+    }
+
+    private static void sleepBeforeRetry(int attempt) {
+        long backoff = BASE_BACKOFF_MILLIS << (attempt - 2);
+        try {
+            Thread.sleep(backoff / 2 + (long) (Math.random() * backoff / 2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Collects keys from one listing and hands them off in batches of up to 1,000.
+     */
+    private static class BatchCollector {
+        private final Consumer<List<ObjectIdentifier>> submitBatch;
+        private List<ObjectIdentifier> keys = new ArrayList<>(MAX_KEYS_PER_BATCH);
+
+        BatchCollector(Consumer<List<ObjectIdentifier>> submitBatch) {
+            this.submitBatch = submitBatch;
+        }
+
+        void add(ObjectIdentifier key) {
+            keys.add(key);
+            if (keys.size() == MAX_KEYS_PER_BATCH) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!keys.isEmpty()) {
+                submitBatch.accept(keys);
+                keys = new ArrayList<>(MAX_KEYS_PER_BATCH);
+            }
+        }
+    }
+}
@@ -3,9 +3,14 @@
 
 package com.example.s3;
 
+import com.example.s3.util.MultipartUploadOutputStream;
 import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
@@ -17,7 +22,12 @@ import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequ
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -30,6 +40,10 @@ import java.util.zip.ZipOutputStream;
  * https://docs.aws.amazon.com/sdk-for-java/latest/developer-guide/get-started.html
  */
 public class S3ZipExample {
+    private static final int PART_SIZE = 8 * 1024 * 1024;
+    private static final int MAX_PARTS_IN_FLIGHT = 4;
+    private static final int PREFETCH_WINDOW = 8;
+
     public static void main(String[] args) {
         final String usage = """
 
@@ -55,6 +69,12 @@ public class S3ZipExample {
             .build();
 
         createZIPFile(s3, bucketName, imageKeys);
+
+        try (S3AsyncClient s3AsyncClient = S3AsyncClient.builder()
+            .region(region)
+            .build()) {
+            createZIPFileStreaming(s3AsyncClient, bucketName, imageKeys, PREFETCH_WINDOW);
+        }
     }
 
     /**
@@ -114,6 +134,78 @@ public class S3ZipExample {
         }
     }
 
+    /**
+     * Creates a ZIP file containing the specified image keys from an S3 bucket and streams it to S3.
+     * <p>
+     * Unlike {@link #createZIPFile}, the archive is never held in memory. Up to {@code prefetchWindow}
+     * source objects are requested ahead of the one being written, and their bodies are read as streams.
+     * The ZIP entries are written straight into a multipart upload that holds at most a few part-sized
+     * buffers, so memory use depends on the prefetch window and part size, not on the archive size.
+     *
+     * @param s3AsyncClient  the S3AsyncClient instance to use for interacting with S3
+     * @param bucketName     the name of the S3 bucket to use
+     * @param imageKeys      an array of image keys to include in the ZIP file
+     * @param prefetchWindow the maximum number of source objects requested ahead of the current entry
+     * @return the key of the ZIP file in the bucket
+     */
+    public static String createZIPFileStreaming(S3AsyncClient s3AsyncClient, String bucketName, String[] imageKeys,
+                                                int prefetchWindow) {
+        String zipName = java.util.UUID.randomUUID() + ".zip";
+        Deque<CompletableFuture<ResponseInputStream<GetObjectResponse>>> window = new ArrayDeque<>();
+        MultipartUploadOutputStream uploadStream = new MultipartUploadOutputStream(s3AsyncClient, bucketName,
+            zipName, PART_SIZE, MAX_PARTS_IN_FLIGHT);
+        int nextKey = 0;
+
+        try {
+            ZipOutputStream zipOutputStream = new ZipOutputStream(uploadStream);
+            for (String imageKey : imageKeys) {
+                // Keep the prefetch window full.
+                while (nextKey < imageKeys.length && window.size() < prefetchWindow) {
+                    window.add(getObjectAsStream(s3AsyncClient, bucketName, imageKeys[nextKey++]));
+                }
+
+                // Copy the object body into its ZipEntry as it arrives.
+                try (InputStream objectStream = window.poll().join()) {
+                    zipOutputStream.putNextEntry(new ZipEntry(imageKey));
+                    objectStream.transferTo(zipOutputStream);
+                    zipOutputStream.closeEntry();
+                }
+            }
+
+            // Closing the ZipOutputStream writes the central directory and completes the upload.
+            zipOutputStream.close();
+            String preSignUrl = signObjectToDownload(bucketName, zipName);
+            System.out.println("The Presigned URL is " + preSignUrl);
+            return zipName;
+
+        } catch (SdkException | CompletionException | IOException e) {
+            System.err.println(e.getMessage());
+            window.forEach(response -> response.thenAccept(S3ZipExample::closeQuietly));
+            try {
+                uploadStream.abort();
+            } catch (RuntimeException abortFailure) {
+                e.addSuppressed(abortFailure);
+            }
+            throw SdkException.builder().message("Failed to create " + zipName).cause(e).build();
+        }
+    }
+
+    private static CompletableFuture<ResponseInputStream<GetObjectResponse>> getObjectAsStream(
+        S3AsyncClient s3AsyncClient, String bucketName, String key) {
+        return s3AsyncClient.getObject(b -> b
+                .bucket(bucketName)
+                .key(key),
+            AsyncResponseTransformer.toBlockingInputStream());
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
     /**
      * Generates a pre-signed URL for downloading an object from an Amazon S3 bucket.
      *
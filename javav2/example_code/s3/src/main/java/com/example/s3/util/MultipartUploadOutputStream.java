@@ -0,0 +1,214 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+package com.example.s3.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * An OutputStream that writes its content to an Amazon S3 object by using a multipart upload.
+ * <p>
+ * Bytes are collected in part-sized buffers taken from a fixed pool. When a buffer is full it is sent
+ * as the next part with the S3AsyncClient, and the buffer returns to the pool once that part is done.
+ * When every buffer is in flight, {@code write} blocks until a part finishes, so memory use stays at
+ * {@code (maxPartsInFlight + 1) * partSize} no matter how much data is written.
+ * <p>
+ * Calling {@link #close()} uploads the last part and completes the upload. Call {@link #abort()}
+ * instead if the content is incomplete.
+ */
+public class MultipartUploadOutputStream extends OutputStream {
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+    private static final Logger logger = LoggerFactory.getLogger(MultipartUploadOutputStream.class);
+
+    private final S3AsyncClient s3AsyncClient;
+    private final String bucketName;
+    private final String key;
+    private final String uploadId;
+    private final int partSize;
+    private final int maxBuffers;
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+    private volatile Throwable failure;
+    private int allocatedBuffers;
+    private byte[] buffer;
+    private int position;
+    private boolean closed;
+    private boolean aborted;
+    private boolean completed;
+
+    /**
+     * Starts a multipart upload for the given object.
+     *
+     * @param s3AsyncClient    the S3AsyncClient used to upload the parts
+     * @param bucketName       the name of the bucket to upload to
+     * @param key              the key of the object to create
+     * @param partSize         the size of each part; at least 5 MiB
+     * @param maxPartsInFlight the maximum number of parts that are uploaded at the same time
+     */
+    public MultipartUploadOutputStream(S3AsyncClient s3AsyncClient, String bucketName, String key,
+                                       int partSize, int maxPartsInFlight) {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("partSize must be at least " + MIN_PART_SIZE + " bytes.");
+        }
+        this.s3AsyncClient = s3AsyncClient;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.partSize = partSize;
+        this.maxBuffers = maxPartsInFlight + 1;
+        this.freeBuffers = new ArrayBlockingQueue<>(maxBuffers);
+        this.uploadId = s3AsyncClient.createMultipartUpload(b -> b
+            .bucket(bucketName)
+            .key(key)).join().uploadId();
+        logger.info("Started multipart upload {} for {}/{}.", uploadId, bucketName, key);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureBuffer();
+        buffer[position++] = (byte) b;
+        if (position == partSize) {
+            sendPart();
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            ensureBuffer();
+            int count = Math.min(length, partSize - position);
+            System.arraycopy(bytes, offset, buffer, position, count);
+            position += count;
+            offset += count;
+            length -= count;
+            if (position == partSize) {
+                sendPart();
+            }
+        }
+    }
+
+    /**
+     * Uploads the remaining bytes as the last part, waits for every part, and completes the upload.
+     * If any part failed, the upload is aborted and an IOException is thrown.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (position > 0 || parts.isEmpty()) {
+            ensureBuffer();
+            sendPart();
+        }
+        closed = true;
+
+        List<CompletedPart> completedParts = new ArrayList<>(parts.size());
+        try {
+            for (CompletableFuture<CompletedPart> part : parts) {
+                completedParts.add(part.join());
+            }
+        } catch (CompletionException e) {
+            IOException failed = new IOException("Multipart upload " + uploadId + " failed and was aborted.",
+                e.getCause());
+            try {
+                abort();
+            } catch (RuntimeException abortFailure) {
+                // Report the part that failed, not the cleanup.
+                failed.addSuppressed(abortFailure);
+            }
+            throw failed;
+        }
+
+        s3AsyncClient.completeMultipartUpload(b -> b
+            .bucket(bucketName)
+            .key(key)
+            .uploadId(uploadId)
+            .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())).join();
+        completed = true;
+        logger.info("Completed multipart upload {} with {} parts.", uploadId, completedParts.size());
+    }
+
+    /**
+     * Abandons the upload. Parts that were already sent are discarded by Amazon S3. Does nothing if the
+     * upload was already aborted or completed, so it is safe to call after {@link #close()} failed.
+     */
+    public void abort() {
+        closed = true;
+        if (aborted || completed) {
+            return;
+        }
+        aborted = true;
+        parts.forEach(part -> part.cancel(false));
+        s3AsyncClient.abortMultipartUpload(b -> b
+            .bucket(bucketName)
+            .key(key)
+            .uploadId(uploadId)).join();
+        logger.info("Aborted multipart upload {}.", uploadId);
+    }
+
+    private void ensureBuffer() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed.");
+        }
+        if (failure != null) {
+            throw new IOException("A part of multipart upload " + uploadId + " failed.", failure);
+        }
+        if (buffer != null) {
+            return;
+        }
+        buffer = freeBuffers.poll();
+        if (buffer == null && allocatedBuffers < maxBuffers) {
+            allocatedBuffers++;
+            buffer = new byte[partSize];
+        }
+        if (buffer == null) {
+            try {
+                buffer = freeBuffers.take(); // Wait until an in-flight part finishes.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a part to finish uploading.");
+            }
+        }
+        position = 0;
+    }
+
+    private void sendPart() {
+        final byte[] data = buffer;
+        final int partNumber = parts.size() + 1;
+        final int length = position;
+        buffer = null;
+        position = 0;
+
+        CompletableFuture<CompletedPart> part = s3AsyncClient.uploadPart(b -> b
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber),
+                AsyncRequestBody.fromByteBufferUnsafe(ByteBuffer.wrap(data, 0, length)))
+            .thenApply(response -> CompletedPart.builder()
+                .partNumber(partNumber)
+                .eTag(response.eTag())
+                .build());
+        part.whenComplete((response, exception) -> {
+            if (exception != null) {
+                failure = exception;
+            }
+            freeBuffers.offer(data);
+        });
+        parts.add(part);
+    }
+}
@@ -9,8 +9,10 @@ import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
+import java.util.List;
 import java.util.UUID;
 
 class PerformMultiPartUploadTests {
@@ -67,4 +69,33 @@ class PerformMultiPartUploadTests {
             System.err.println(e.getMessage());
         }
     }
+
+    @Test
+    @Tag("IntegrationTest")
+    void multipartUploadWithS3ClientInParallelTest() {
+        try {
+            List<CompletedPart> parts = performMultiPartUpload.multipartUploadWithS3ClientInParallel(bucketName, key,
+                PerformMultiPartUpload.filePath, 4);
+            for (int i = 0; i < parts.size(); i++) {
+                Assertions.assertEquals(i + 1, parts.get(i).partNumber());
+                Assertions.assertNotNull(parts.get(i).checksumSHA256());
+            }
+            GetObjectResponse response = s3Client.getObject(b -> b.bucket(bucketName).key(key).partNumber(1)).response();
+            Assertions.assertEquals(parts.size(), response.partsCount());
+        } catch (SdkException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    @Test
+    @Tag("UnitTest")
+    void computePartSizeStaysWithinPartLimitTest() {
+        long fiveMiB = 5L * 1024 * 1024;
+        Assertions.assertEquals(fiveMiB, PerformMultiPartUpload.computePartSize(1024));
+        Assertions.assertEquals(fiveMiB, PerformMultiPartUpload.computePartSize(10_000 * fiveMiB));
+        long fiveTiB = 5L * 1024 * 1024 * 1024 * 1024;
+        long partSize = PerformMultiPartUpload.computePartSize(fiveTiB);
+        Assertions.assertTrue((fiveTiB + partSize - 1) / partSize <= 10_000);
+        Assertions.assertEquals(0, partSize % (1024 * 1024));
+    }
 }
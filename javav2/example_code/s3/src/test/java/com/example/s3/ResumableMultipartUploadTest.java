@@ -0,0 +1,89 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+package com.example.s3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+class ResumableMultipartUploadTest {
+    private final S3Client s3Client = PerformMultiPartUpload.s3Client;
+    private final String filePath = PerformMultiPartUpload.filePath;
+    private String bucketName;
+    private String key;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        bucketName = "test-bucket-" + UUID.randomUUID();
+        key = UUID.randomUUID().toString();
+        Files.deleteIfExists(ResumableMultipartUpload.journalPath(filePath));
+        PerformMultiPartUpload.createBucket(bucketName);
+    }
+
+    @AfterEach
+    void tearDown() {
+        PerformMultiPartUpload.deleteResources(bucketName, key);
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    void uploadWithoutJournalUploadsEveryPart() {
+        int uploaded = ResumableMultipartUpload.resumableUpload(s3Client, bucketName, key, filePath, 4);
+        GetObjectResponse response = s3Client.getObject(b -> b.bucket(bucketName).key(key).partNumber(1)).response();
+        Assertions.assertEquals(uploaded, response.partsCount());
+        Assertions.assertFalse(Files.exists(ResumableMultipartUpload.journalPath(filePath)));
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    void resumedUploadSkipsPartsAlreadyInS3() throws IOException {
+        // Simulate a run that uploaded the first part and stopped before recording it in the journal.
+        long fileSize = Files.size(Paths.get(filePath));
+        long partSize = PerformMultiPartUpload.computePartSize(fileSize);
+        int partCount = (int) ((fileSize + partSize - 1) / partSize);
+        String uploadId = s3Client.createMultipartUpload(b -> b.bucket(bucketName).key(key)
+            .checksumAlgorithm(ChecksumAlgorithm.SHA256)).uploadId();
+        byte[] firstPart = new byte[(int) Math.min(partSize, fileSize)];
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r")) {
+            file.readFully(firstPart);
+        }
+        s3Client.uploadPart(b -> b.bucket(bucketName).key(key).uploadId(uploadId).partNumber(1)
+            .checksumAlgorithm(ChecksumAlgorithm.SHA256), RequestBody.fromBytes(firstPart));
+        MultipartUploadJournal.create(ResumableMultipartUpload.journalPath(filePath), bucketName, key, uploadId,
+            fileSize, partSize, partCount).close();
+
+        int uploaded = ResumableMultipartUpload.resumableUpload(s3Client, bucketName, key, filePath, 4);
+        Assertions.assertEquals(partCount - 1, uploaded);
+        GetObjectResponse response = s3Client.getObject(b -> b.bucket(bucketName).key(key).partNumber(1)).response();
+        Assertions.assertEquals(partCount, response.partsCount());
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    void journalForAnotherKeyIsAbortedAndStartedOver() throws IOException {
+        long fileSize = Files.size(Paths.get(filePath));
+        long partSize = PerformMultiPartUpload.computePartSize(fileSize);
+        int partCount = (int) ((fileSize + partSize - 1) / partSize);
+        String otherKey = key + "-other";
+        String uploadId = s3Client.createMultipartUpload(b -> b.bucket(bucketName).key(otherKey)
+            .checksumAlgorithm(ChecksumAlgorithm.SHA256)).uploadId();
+        MultipartUploadJournal.create(ResumableMultipartUpload.journalPath(filePath), bucketName, otherKey, uploadId,
+            fileSize, partSize, partCount).close();
+
+        int uploaded = ResumableMultipartUpload.resumableUpload(s3Client, bucketName, key, filePath, 4);
+        Assertions.assertEquals(partCount, uploaded);
+        Assertions.assertTrue(s3Client.listMultipartUploads(b -> b.bucket(bucketName)).uploads().isEmpty());
+    }
+}
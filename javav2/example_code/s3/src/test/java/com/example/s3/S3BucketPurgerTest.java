@@ -0,0 +1,62 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+package com.example.s3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.BucketVersioningStatus;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+class S3BucketPurgerTest {
+    private final S3Client s3Client = PerformMultiPartUpload.s3Client;
+    private String bucketName;
+
+    @BeforeEach
+    void setUp() {
+        bucketName = "test-bucket-" + UUID.randomUUID();
+        PerformMultiPartUpload.createBucket(bucketName);
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3Client.deleteBucket(b -> b.bucket(bucketName));
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    void purgeDeletesKeysAcrossPrefixesAndBatches() {
+        int keyCount = S3BucketPurger.MAX_KEYS_PER_BATCH + 200;
+        IntStream.range(0, keyCount).parallel().forEach(i -> s3Client.putObject(b -> b
+            .bucket(bucketName)
+            .key((i % 3 == 0 ? "" : "prefix-" + (i % 3) + "/") + "key-" + i), RequestBody.fromString("x")));
+
+        S3BucketPurger.PurgeResult result = new S3BucketPurger(s3Client, 4).purge(bucketName);
+
+        Assertions.assertEquals(keyCount, result.deleted());
+        Assertions.assertTrue(result.failures().isEmpty());
+        Assertions.assertEquals(0, s3Client.listObjectsV2(b -> b.bucket(bucketName)).keyCount());
+    }
+
+    @Test
+    @Tag("IntegrationTest")
+    void purgeDeletesVersionsAndDeleteMarkers() {
+        s3Client.putBucketVersioning(b -> b.bucket(bucketName)
+            .versioningConfiguration(v -> v.status(BucketVersioningStatus.ENABLED)));
+        for (int i = 0; i < 3; i++) {
+            s3Client.putObject(b -> b.bucket(bucketName).key("versioned/key"), RequestBody.fromString("x"));
+        }
+        s3Client.deleteObject(b -> b.bucket(bucketName).key("versioned/key"));
+
+        S3BucketPurger.PurgeResult result = new S3BucketPurger(s3Client, 2).purge(bucketName);
+
+        Assertions.assertEquals(4, result.deleted());
+        Assertions.assertTrue(s3Client.listObjectVersions(b -> b.bucket(bucketName)).versions().isEmpty());
+    }
+}
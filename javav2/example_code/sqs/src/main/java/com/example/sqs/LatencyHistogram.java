@@ -0,0 +1,159 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+package com.example.sqs;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram for the SQS load test, in the style of HdrHistogram.
+ *
+ * Latencies are recorded in microseconds into log-linear buckets: values below 128 get a
+ * bucket each, and larger values keep their top 7 significant bits, which bounds the
+ * reporting error to under 2%. Values above about 12 days are clamped to the last bucket.
+ *
+ * To keep recording threads from contending on the same counters, the buckets are striped:
+ * each thread records into one of several copies of the bucket array, chosen by thread ID.
+ * A {@link Snapshot} adds the stripes together, and the difference between two snapshots
+ * gives the histogram for the interval between them.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int MAX_MAGNITUDE = 40;
+    static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    LatencyHistogram() {
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.stripes = new AtomicLongArray[stripeCount];
+        this.stripeMask = stripeCount - 1;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(BUCKET_COUNT);
+        }
+    }
+
+    /**
+     * Records one latency measured from {@code startNanos} (a {@link System#nanoTime()} value) until now.
+     *
+     * @param startNanos the time the operation started
+     */
+    void recordSince(long startNanos) {
+        recordMicros((System.nanoTime() - startNanos) / 1000);
+    }
+
+    /**
+     * Records one latency.
+     *
+     * @param micros the latency in microseconds
+     */
+    void recordMicros(long micros) {
+        int stripe = (int) Thread.currentThread().threadId() & stripeMask;
+        stripes[stripe].incrementAndGet(bucketIndex(Math.max(0, micros)));
+    }
+
+    /**
+     * Adds up all stripes. Recording can continue while a snapshot is taken.
+     *
+     * @return the counts recorded so far
+     */
+    Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return new Snapshot(counts);
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKET_COUNT) {
+            return (int) micros;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = magnitude - (SUB_BUCKET_BITS - 1);
+        int top = (int) (micros >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT + (top - HALF_SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * Returns the highest value that falls in a bucket.
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - SUB_BUCKET_COUNT;
+        int shift = offset / HALF_SUB_BUCKET_COUNT + 1;
+        long top = offset % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * Bucket counts at one point in time.
+     */
+    static class Snapshot {
+        private final long[] counts;
+        private final long total;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long sum = 0;
+            for (long count : counts) {
+                sum += count;
+            }
+            this.total = sum;
+        }
+
+        /**
+         * Returns the counts recorded after {@code earlier} was taken.
+         */
+        Snapshot minus(Snapshot earlier) {
+            long[] diff = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                diff[i] = counts[i] - earlier.counts[i];
+            }
+            return new Snapshot(diff);
+        }
+
+        long count() {
+            return total;
+        }
+
+        /**
+         * Returns the latency at the given percentile, in microseconds.
+         *
+         * @param percentile a value from 0 to 100, for example 99.9
+         * @return the upper bound of the bucket that holds the percentile, or 0 if nothing was recorded
+         */
+        long percentileMicros(double percentile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return bucketUpperBound(counts.length - 1);
+        }
+
+        long maxMicros() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
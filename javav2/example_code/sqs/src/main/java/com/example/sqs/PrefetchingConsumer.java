@@ -0,0 +1,324 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+package com.example.sqs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.batchmanager.SqsAsyncBatchManager;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A high-throughput Amazon SQS consumer that prefetches messages with long polling.
+ *
+ * How it works:
+ * - Several poller threads each run a long poll (up to 20 seconds, up to 10 messages) and put
+ *   every received message into a local buffer, so no received message is discarded
+ * - Worker threads take messages from the buffer and pass them to the message handler
+ * - The buffer is bounded by a semaphore: a poller reserves room for 10 messages before it
+ *   calls receiveMessage, so prefetching stops while the workers are behind
+ * - Successfully handled messages are deleted through SqsAsyncBatchManager, which groups the
+ *   deletes into DeleteMessageBatch calls
+ * - A heartbeat extends the visibility timeout of every message that is still buffered or
+ *   being handled, so slow handlers don't cause messages to be delivered twice
+ * - A message whose handler throws an exception is made visible again right away
+ * - Closing cancels the long polls that are in progress instead of waiting them out, and makes any
+ *   message that wasn't handled visible again right away
+ *
+ * Usage:
+ * <pre>
+ * try (PrefetchingConsumer consumer = new PrefetchingConsumer(sqsAsyncClient, queueUrl,
+ *         4, 16, 200, Duration.ofSeconds(30), message -> process(message))) {
+ *     consumer.start();
+ *     ...
+ * }
+ * </pre>
+ */
+public class PrefetchingConsumer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(PrefetchingConsumer.class);
+    private static final int MAX_MESSAGES_PER_RECEIVE = 10;
+    private static final int WAIT_TIME_SECONDS = 20;
+
+    private final SqsAsyncClient sqsAsyncClient;
+    private final SqsAsyncBatchManager batchManager;
+    private final String queueUrl;
+    private final int pollerCount;
+    private final int workerCount;
+    private final Duration visibilityTimeout;
+    private final Consumer<Message> handler;
+
+    private final BlockingQueue<Message> buffer = new LinkedBlockingQueue<>();
+    private final Semaphore bufferSpace;
+    private final Map<String, String> inFlightReceiptHandles = new ConcurrentHashMap<>();
+    private final Set<CompletableFuture<ReceiveMessageResponse>> pendingReceives = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile boolean pollersStopped;
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor();
+    private Thread[] pollers;
+    private Thread[] workers;
+
+    private final LongAdder receivedCount = new LongAdder();
+    private final LongAdder handledCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder deletedCount = new LongAdder();
+    private final LongAdder extendedCount = new LongAdder();
+
+    /**
+     * Creates a consumer. Call {@link #start()} to begin receiving messages.
+     *
+     * @param sqsAsyncClient the SQS client; its HTTP client must allow at least {@code pollerCount} connections
+     *                       plus some for deletes and visibility changes
+     * @param queueUrl the URL of the queue to consume
+     * @param pollerCount the number of concurrent long polls
+     * @param workerCount the number of threads that run the handler
+     * @param bufferCapacity the maximum number of received messages waiting for a worker; at least 10
+     * @param visibilityTimeout the visibility timeout to request, and to extend by on each heartbeat
+     * @param handler the code that processes one message; the message is deleted if it returns normally
+     */
+    public PrefetchingConsumer(SqsAsyncClient sqsAsyncClient, String queueUrl, int pollerCount, int workerCount,
+                               int bufferCapacity, Duration visibilityTimeout, Consumer<Message> handler) {
+        if (bufferCapacity < MAX_MESSAGES_PER_RECEIVE) {
+            throw new IllegalArgumentException("bufferCapacity must be at least " + MAX_MESSAGES_PER_RECEIVE);
+        }
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.batchManager = sqsAsyncClient.batchManager();
+        this.queueUrl = queueUrl;
+        this.pollerCount = pollerCount;
+        this.workerCount = workerCount;
+        this.bufferSpace = new Semaphore(bufferCapacity);
+        this.visibilityTimeout = visibilityTimeout;
+        this.handler = handler;
+    }
+
+    /**
+     * Starts the pollers, the workers, and the visibility heartbeat.
+     */
+    public void start() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        pollers = new Thread[pollerCount];
+        for (int i = 0; i < pollerCount; i++) {
+            pollers[i] = new Thread(this::poll, "sqs-poller-" + i);
+            pollers[i].start();
+        }
+        workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::work, "sqs-worker-" + i);
+            workers[i].start();
+        }
+        // Extend visibility well before it runs out: three heartbeats per timeout.
+        long periodMillis = Math.max(1000, visibilityTimeout.toMillis() / 3);
+        heartbeat.scheduleAtFixedRate(this::extendVisibility, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops receiving, lets the workers handle the messages already in the buffer, and waits for the
+     * outstanding deletes to be sent. Any message that still wasn't handled is made visible again.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (!running.compareAndSet(true, false)) {
+            return;
+        }
+        // join() on a receive future ignores interrupts, so cancel the long polls instead of waiting
+        // up to 20 seconds for them to return.
+        for (CompletableFuture<ReceiveMessageResponse> receive : pendingReceives) {
+            receive.cancel(true);
+        }
+        for (Thread poller : pollers) {
+            poller.interrupt();
+        }
+        for (Thread poller : pollers) {
+            poller.join();
+        }
+        // Only now is every received message in the buffer, so the workers can stop once it's empty.
+        pollersStopped = true;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        heartbeat.shutdownNow();
+        releaseUnhandled();
+        // Closing the batch manager sends the deletes that are still buffered.
+        batchManager.close();
+        log.info("Consumer closed: received = {}, handled = {}, failed = {}, deleted = {}, extended = {}",
+                receivedCount.sum(), handledCount.sum(), failedCount.sum(), deletedCount.sum(), extendedCount.sum());
+    }
+
+    public long receivedCount() {
+        return receivedCount.sum();
+    }
+
+    public long handledCount() {
+        return handledCount.sum();
+    }
+
+    public long failedCount() {
+        return failedCount.sum();
+    }
+
+    public long deletedCount() {
+        return deletedCount.sum();
+    }
+
+    /**
+     * Runs one long poll after another until the consumer is closed.
+     */
+    private void poll() {
+        final ReceiveMessageRequest request = ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl)
+                .maxNumberOfMessages(MAX_MESSAGES_PER_RECEIVE)
+                .waitTimeSeconds(WAIT_TIME_SECONDS)
+                .visibilityTimeout((int) visibilityTimeout.toSeconds())
+                .build();
+        while (running.get()) {
+            try {
+                // Reserve room for a full receive so the buffer never grows past its capacity.
+                bufferSpace.acquire(MAX_MESSAGES_PER_RECEIVE);
+            } catch (InterruptedException e) {
+                return;
+            }
+            CompletableFuture<ReceiveMessageResponse> receive = sqsAsyncClient.receiveMessage(request);
+            pendingReceives.add(receive);
+            if (!running.get()) {
+                // close() may have cancelled the pending receives before this one was added.
+                receive.cancel(true);
+            }
+            List<Message> messages;
+            try {
+                messages = receive.join().messages();
+            } catch (SdkException | CompletionException | CancellationException e) {
+                bufferSpace.release(MAX_MESSAGES_PER_RECEIVE);
+                if (running.get()) {
+                    log.error("Poller: " + e.getMessage());
+                }
+                continue;
+            } finally {
+                pendingReceives.remove(receive);
+            }
+            bufferSpace.release(MAX_MESSAGES_PER_RECEIVE - messages.size());
+            for (Message message : messages) {
+                inFlightReceiptHandles.put(message.messageId(), message.receiptHandle());
+                buffer.add(message);
+            }
+            receivedCount.add(messages.size());
+        }
+    }
+
+    /**
+     * Handles buffered messages until the pollers have stopped and the buffer is empty.
+     */
+    private void work() {
+        while (!pollersStopped || !buffer.isEmpty()) {
+            final Message message;
+            try {
+                message = buffer.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (message == null) {
+                continue;
+            }
+            bufferSpace.release();
+            try {
+                handler.accept(message);
+                handledCount.increment();
+                delete(message);
+            } catch (Exception e) {
+                // Exception, not RuntimeException: a handler can sneak a checked exception past the
+                // Consumer signature, and it mustn't end the worker.
+                failedCount.increment();
+                log.error("Handler failed for message " + message.messageId() + ": " + e.getMessage());
+                release(message);
+            }
+        }
+    }
+
+    private void delete(Message message) {
+        inFlightReceiptHandles.remove(message.messageId());
+        batchManager.deleteMessage(DeleteMessageRequest.builder()
+                        .queueUrl(queueUrl)
+                        .receiptHandle(message.receiptHandle())
+                        .build())
+                .whenComplete((response, throwable) -> {
+                    if (throwable == null) {
+                        deletedCount.increment();
+                    } else {
+                        log.error("Failed to delete message " + message.messageId() + ": " + throwable.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Makes a message visible again right away so another consumer can retry it.
+     */
+    private void release(Message message) {
+        inFlightReceiptHandles.remove(message.messageId());
+        batchManager.changeMessageVisibility(ChangeMessageVisibilityRequest.builder()
+                .queueUrl(queueUrl)
+                .receiptHandle(message.receiptHandle())
+                .visibilityTimeout(0)
+                .build());
+    }
+
+    /**
+     * Makes every message that was received but not handled visible again, so it doesn't wait out its
+     * visibility timeout. This covers messages left in the buffer if a worker was interrupted.
+     */
+    private void releaseUnhandled() {
+        buffer.clear();
+        for (Map.Entry<String, String> entry : inFlightReceiptHandles.entrySet()) {
+            inFlightReceiptHandles.remove(entry.getKey());
+            batchManager.changeMessageVisibility(ChangeMessageVisibilityRequest.builder()
+                    .queueUrl(queueUrl)
+                    .receiptHandle(entry.getValue())
+                    .visibilityTimeout(0)
+                    .build());
+        }
+    }
+
+    /**
+     * Extends the visibility timeout of every message that is buffered or being handled.
+     * The batch manager groups the requests into ChangeMessageVisibilityBatch calls.
+     */
+    private void extendVisibility() {
+        for (Map.Entry<String, String> entry : inFlightReceiptHandles.entrySet()) {
+            batchManager.changeMessageVisibility(ChangeMessageVisibilityRequest.builder()
+                            .queueUrl(queueUrl)
+                            .receiptHandle(entry.getValue())
+                            .visibilityTimeout((int) visibilityTimeout.toSeconds())
+                            .build())
+                    .whenComplete((response, throwable) -> {
+                        if (throwable == null) {
+                            extendedCount.increment();
+                        } else if (inFlightReceiptHandles.containsKey(entry.getKey())) {
+                            log.error("Failed to extend visibility of message " + entry.getKey() + ": "
+                                    + throwable.getMessage());
+                        }
+                    });
+        }
+    }
+}
@@ -5,6 +5,7 @@ package com.example.sqs;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 import software.amazon.awssdk.services.sqs.batchmanager.SqsAsyncBatchManager;
 import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
@@ -17,14 +18,24 @@ import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
 import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
 import software.amazon.awssdk.core.exception.SdkException;
 
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Locale;
 import java.util.Random;
 import java.util.Scanner;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Demonstrates the AWS SDK for Java 2.x Automatic Request Batching API for Amazon SQS.
@@ -57,6 +68,8 @@ import java.util.concurrent.atomic.AtomicInteger;
  * - Set batch size to 1 to use SqsAsyncClient for baseline performance measurement
  * - Set batch size > 1 to use SqsAsyncBatchManager for optimized batch processing
  * - Monitor real-time throughput metrics to observe performance improvements
+ * - Compare send, receive, and delete latency percentiles (p50, p99, p99.9) between runs
+ *   by using the CSV result file that each run writes to the working directory
  * 
  * Prerequisites:
  * - AWS SDK for Java 2.x version 2.28.0 or later
@@ -65,6 +78,14 @@ import java.util.concurrent.atomic.AtomicInteger;
  * 
  * The program displays real-time metrics showing the dramatic performance difference
  * between individual operations and automatic batching.
+ *
+ * Virtual-thread load generation mode:
+ * - Run the program with the argument {@code virtual} to drive the queue at target rates
+ *   instead of with one blocking platform thread per producer and consumer
+ * - Each producer and consumer thread becomes a pacer that starts one virtual thread per
+ *   request at its share of the target send or receive rate
+ * - A semaphore caps the number of requests in flight, so one JVM can keep thousands of
+ *   sends and receives outstanding without thousands of platform threads
  */
 public class SimpleProducerConsumer {
 
@@ -72,18 +93,25 @@ public class SimpleProducerConsumer {
     private final static int MAX_RUNTIME_MINUTES = 60;
     private final static Logger log = LoggerFactory.getLogger(SimpleProducerConsumer.class);
 
+    // Latency of each operation type, recorded by every producer and consumer.
+    // The monitor reports the difference between snapshots, so the histograms can be shared by runs.
+    private final static LatencyHistogram SEND_LATENCY = new LatencyHistogram();
+    private final static LatencyHistogram RECEIVE_LATENCY = new LatencyHistogram();
+    private final static LatencyHistogram DELETE_LATENCY = new LatencyHistogram();
+
     /**
      * Runs the SQS batching demonstration with user-configured parameters.
      * 
      * Prompts for queue name, thread counts, batch size, message size, and runtime.
      * Creates producer and consumer threads to demonstrate batching performance.
      * 
-     * @param args command line arguments (not used)
+     * @param args command line arguments; pass {@code virtual} to use virtual-thread load generation mode
      * @throws InterruptedException if thread operations are interrupted
      */
     public static void main(String[] args) throws InterruptedException {
 
         final Scanner input = new Scanner(System.in);
+        final boolean virtualThreadMode = args.length > 0 && "virtual".equalsIgnoreCase(args[0]);
 
         System.out.print("Enter the queue name: ");
         final String queueName = input.nextLine();
@@ -103,12 +131,35 @@ public class SimpleProducerConsumer {
         System.out.print("Enter the run time in minutes: ");
         final int runTimeMinutes = input.nextInt();
 
+        int targetSendRate = 0;
+        int targetReceiveRate = 0;
+        int maxInFlight = 0;
+        if (virtualThreadMode) {
+            System.out.print("Enter the target send rate in messages per second (0 for unlimited): ");
+            targetSendRate = input.nextInt();
+
+            System.out.print("Enter the target receive rate in requests per second (0 for unlimited): ");
+            targetReceiveRate = input.nextInt();
+
+            System.out.print("Enter the maximum number of requests in flight: ");
+            maxInFlight = input.nextInt();
+            // A semaphore with no permits would block every request forever.
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("The maximum number of requests in flight must be at least 1.");
+            }
+        }
+
         // Create SQS async client and batch manager for all operations.
         // The SqsAsyncBatchManager is created from the SqsAsyncClient using the
         // batchManager() factory method, which provides default batching configuration.
         // This high-level library automatically handles request buffering and batching
         // while maintaining the same method signatures as SqsAsyncClient.
-        final SqsAsyncClient sqsAsyncClient = SqsAsyncClient.create();
+        // In virtual-thread mode, the HTTP client must allow as many connections as requests in flight.
+        final SqsAsyncClient sqsAsyncClient = virtualThreadMode
+                ? SqsAsyncClient.builder()
+                        .httpClientBuilder(NettyNioAsyncHttpClient.builder().maxConcurrency(maxInFlight))
+                        .build()
+                : SqsAsyncClient.create();
         final SqsAsyncBatchManager batchManager = sqsAsyncClient.batchManager();
 
         final String queueUrl = sqsAsyncClient.getQueueUrl(GetQueueUrlRequest.builder()
@@ -118,11 +169,21 @@ public class SimpleProducerConsumer {
         // The flag used to stop producer, consumer, and monitor threads.
         final AtomicBoolean stop = new AtomicBoolean(false);
 
+        // In virtual-thread mode, every request runs on its own virtual thread and the
+        // semaphore bounds how many requests are in flight across all producers and consumers.
+        final ExecutorService virtualThreads = virtualThreadMode
+                ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        final Semaphore inFlight = virtualThreadMode ? new Semaphore(maxInFlight) : null;
+
         // Start the producers.
-        final AtomicInteger producedCount = new AtomicInteger();
+        final LongAdder producedCount = new LongAdder();
         final Thread[] producers = new Thread[producerCount];
         for (int i = 0; i < producerCount; i++) {
-            if (batchSize == 1) {
+            if (virtualThreadMode) {
+                producers[i] = new RateLimitedProducer(sqsAsyncClient, batchManager, queueUrl, batchSize,
+                        messageSizeByte, (double) targetSendRate / producerCount, virtualThreads, inFlight,
+                        producedCount, stop);
+            } else if (batchSize == 1) {
                 producers[i] = new Producer(sqsAsyncClient, queueUrl, messageSizeByte,
                         producedCount, stop);
             } else {
@@ -133,10 +194,14 @@ public class SimpleProducerConsumer {
         }
 
         // Start the consumers.
-        final AtomicInteger consumedCount = new AtomicInteger();
+        final LongAdder consumedCount = new LongAdder();
         final Thread[] consumers = new Thread[consumerCount];
         for (int i = 0; i < consumerCount; i++) {
-            if (batchSize == 1) {
+            if (virtualThreadMode) {
+                consumers[i] = new RateLimitedConsumer(sqsAsyncClient, batchManager, queueUrl, batchSize,
+                        (double) targetReceiveRate / consumerCount, virtualThreads, inFlight,
+                        consumedCount, stop);
+            } else if (batchSize == 1) {
                 consumers[i] = new Consumer(sqsAsyncClient, queueUrl, consumedCount, stop);
             } else {
                 consumers[i] = new BatchConsumer(batchManager, queueUrl, batchSize,
@@ -146,7 +211,10 @@ public class SimpleProducerConsumer {
         }
 
         // Start the monitor thread.
-        final Thread monitor = new Monitor(producedCount, consumedCount, stop);
+        final String runSettings = (virtualThreadMode ? "virtual" : batchSize == 1 ? "client" : "batchManager")
+                + "," + producerCount + "," + consumerCount + "," + batchSize + "," + messageSizeByte;
+        final Path resultFile = Paths.get("sqs-load-test-" + System.currentTimeMillis() + ".csv");
+        final Thread monitor = new Monitor(producedCount, consumedCount, stop, runSettings, resultFile);
         monitor.start();
 
         // Wait for the specified amount of time then stop.
@@ -166,6 +234,12 @@ public class SimpleProducerConsumer {
         monitor.interrupt();
         monitor.join();
 
+        // Let the requests that are still in flight finish.
+        if (virtualThreads != null) {
+            virtualThreads.shutdown();
+            virtualThreads.awaitTermination(30, TimeUnit.SECONDS);
+        }
+
         // Close resources
         batchManager.close();
         sqsAsyncClient.close();
@@ -198,7 +272,7 @@ public class SimpleProducerConsumer {
     private static class Producer extends Thread {
         final SqsAsyncClient sqsAsyncClient;
         final String queueUrl;
-        final AtomicInteger producedCount;
+        final LongAdder producedCount;
         final AtomicBoolean stop;
         final String theMessage;
 
@@ -212,7 +286,7 @@ public class SimpleProducerConsumer {
          * @param stop shared flag to signal thread termination
          */
         Producer(SqsAsyncClient sqsAsyncClient, String queueUrl, int messageSizeByte,
-                 AtomicInteger producedCount, AtomicBoolean stop) {
+                 LongAdder producedCount, AtomicBoolean stop) {
             this.sqsAsyncClient = sqsAsyncClient;
             this.queueUrl = queueUrl;
             this.producedCount = producedCount;
@@ -231,11 +305,13 @@ public class SimpleProducerConsumer {
         public void run() {
             try {
                 while (!stop.get()) {
+                    final long start = System.nanoTime();
                     sqsAsyncClient.sendMessage(SendMessageRequest.builder()
                             .queueUrl(queueUrl)
                             .messageBody(theMessage)
                             .build()).join();
-                    producedCount.incrementAndGet();
+                    SEND_LATENCY.recordSince(start);
+                    producedCount.increment();
                 }
             } catch (SdkException | java.util.concurrent.CompletionException e) {
                 // Handle both SdkException and CompletionException from async operations.
@@ -267,7 +343,7 @@ public class SimpleProducerConsumer {
         final SqsAsyncBatchManager batchManager;
         final String queueUrl;
         final int batchSize;
-        final AtomicInteger producedCount;
+        final LongAdder producedCount;
         final AtomicBoolean stop;
         final String theMessage;
 
@@ -282,7 +358,7 @@ public class SimpleProducerConsumer {
          * @param stop shared flag to signal thread termination
          */
         BatchProducer(SqsAsyncBatchManager batchManager, String queueUrl, int batchSize,
-                      int messageSizeByte, AtomicInteger producedCount,
+                      int messageSizeByte, LongAdder producedCount,
                       AtomicBoolean stop) {
             this.batchManager = batchManager;
             this.queueUrl = queueUrl;
@@ -318,6 +394,7 @@ public class SimpleProducerConsumer {
                     // batch operations when maxBatchSize (10) or sendRequestFrequency (200ms)
                     // thresholds are reached, significantly improving throughput.
                     for (int i = 0; i < batchSize; i++) {
+                        final long start = System.nanoTime();
                         CompletableFuture<SendMessageResponse> future = batchManager.sendMessage(
                                 SendMessageRequest.builder()
                                         .queueUrl(queueUrl)
@@ -327,7 +404,8 @@ public class SimpleProducerConsumer {
                         // Handle the response asynchronously
                         future.whenComplete((response, throwable) -> {
                             if (throwable == null) {
-                                producedCount.incrementAndGet();
+                                SEND_LATENCY.recordSince(start);
+                                producedCount.increment();
                             } else if (!(throwable instanceof java.util.concurrent.CancellationException) &&
                                       !(throwable.getMessage() != null && throwable.getMessage().contains("executor not accepting a task"))) {
                                 log.error("BatchProducer: Failed to send message", throwable);
@@ -365,7 +443,7 @@ public class SimpleProducerConsumer {
     private static class Consumer extends Thread {
         final SqsAsyncClient sqsAsyncClient;
         final String queueUrl;
-        final AtomicInteger consumedCount;
+        final LongAdder consumedCount;
         final AtomicBoolean stop;
 
         /**
@@ -376,7 +454,7 @@ public class SimpleProducerConsumer {
          * @param consumedCount shared counter for tracking processed messages
          * @param stop shared flag to signal thread termination
          */
-        Consumer(SqsAsyncClient sqsAsyncClient, String queueUrl, AtomicInteger consumedCount,
+        Consumer(SqsAsyncClient sqsAsyncClient, String queueUrl, LongAdder consumedCount,
                  AtomicBoolean stop) {
             this.sqsAsyncClient = sqsAsyncClient;
             this.queueUrl = queueUrl;
@@ -399,19 +477,23 @@ public class SimpleProducerConsumer {
             try {
                 while (!stop.get()) {
                     try {
+                        final long receiveStart = System.nanoTime();
                         final ReceiveMessageResponse result = sqsAsyncClient.receiveMessage(
                                 ReceiveMessageRequest.builder()
                                         .queueUrl(queueUrl)
                                         .build()).join();
+                        RECEIVE_LATENCY.recordSince(receiveStart);
 
                         if (!result.messages().isEmpty()) {
                             final Message m = result.messages().get(0);
                             // Note: deleteMessage() signature identical to batchManager.deleteMessage()
+                            final long deleteStart = System.nanoTime();
                             sqsAsyncClient.deleteMessage(DeleteMessageRequest.builder()
                                     .queueUrl(queueUrl)
                                     .receiptHandle(m.receiptHandle())
                                     .build()).join();
-                            consumedCount.incrementAndGet();
+                            DELETE_LATENCY.recordSince(deleteStart);
+                            consumedCount.increment();
                         }
                     } catch (SdkException | java.util.concurrent.CompletionException e) {
                         log.error(e.getMessage());
@@ -455,7 +537,7 @@ public class SimpleProducerConsumer {
         final SqsAsyncBatchManager batchManager;
         final String queueUrl;
         final int batchSize;
-        final AtomicInteger consumedCount;
+        final LongAdder consumedCount;
         final AtomicBoolean stop;
 
         /**
@@ -468,7 +550,7 @@ public class SimpleProducerConsumer {
          * @param stop shared flag to signal thread termination
          */
         BatchConsumer(SqsAsyncBatchManager batchManager, String queueUrl, int batchSize,
-                      AtomicInteger consumedCount, AtomicBoolean stop) {
+                      LongAdder consumedCount, AtomicBoolean stop) {
             this.batchManager = batchManager;
             this.queueUrl = queueUrl;
             this.batchSize = batchSize;
@@ -500,11 +582,13 @@ public class SimpleProducerConsumer {
                     // Receive messages using the high-level batch manager.
                     // This call uses identical syntax to sqsAsyncClient.receiveMessage()
                     // but benefits from internal message buffering for improved performance.
+                    final long receiveStart = System.nanoTime();
                     final ReceiveMessageResponse result = batchManager.receiveMessage(
                             ReceiveMessageRequest.builder()
                                     .queueUrl(queueUrl)
                                     .maxNumberOfMessages(Math.min(batchSize, 10))
                                     .build()).join();
+                    RECEIVE_LATENCY.recordSince(receiveStart);
 
                     if (!result.messages().isEmpty()) {
                         final List<Message> messages = result.messages();
@@ -514,6 +598,7 @@ public class SimpleProducerConsumer {
                         // but the SDK automatically buffers these calls and sends them
                         // as DeleteMessageBatchRequest operations for optimal performance.
                         for (Message message : messages) {
+                            final long deleteStart = System.nanoTime();
                             CompletableFuture<DeleteMessageResponse> future = batchManager.deleteMessage(
                                     DeleteMessageRequest.builder()
                                             .queueUrl(queueUrl)
@@ -522,7 +607,8 @@ public class SimpleProducerConsumer {
                             
                             future.whenComplete((response, throwable) -> {
                                 if (throwable == null) {
-                                    consumedCount.incrementAndGet();
+                                    DELETE_LATENCY.recordSince(deleteStart);
+                                    consumedCount.increment();
                                 } else if (!(throwable instanceof java.util.concurrent.CancellationException) &&
                                           !(throwable.getMessage() != null && throwable.getMessage().contains("executor not accepting a task"))) {
                                     log.error("BatchConsumer: Failed to delete message", throwable);
@@ -548,47 +634,325 @@ public class SimpleProducerConsumer {
     }
 
     /**
-     * Displays real-time throughput statistics every second.
+     * Paces requests at a target rate for virtual-thread load generation mode.
+     *
+     * Each call to {@link #awaitNext()} waits until the next request is due. The schedule advances
+     * by a fixed interval per request, so short stalls are made up for by sending the missed
+     * requests right away. A rate of zero or less means no pacing.
+     */
+    private static class Pacer {
+        private final long intervalNanos;
+        private long nextNanos = System.nanoTime();
+
+        Pacer(double ratePerSecond) {
+            this.intervalNanos = ratePerSecond > 0 ? (long) (1_000_000_000L / ratePerSecond) : 0;
+        }
+
+        void awaitNext() {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long waitNanos = nextNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            nextNanos += intervalNanos;
+        }
+    }
+
+    /**
+     * Sends messages at a target rate, one virtual thread per request.
+     *
+     * The pacing loop runs on this thread and hands each send to a virtual thread. The virtual
+     * thread blocks on {@code join()} just like {@link Producer}, but blocking a virtual thread
+     * doesn't tie up a platform thread, so thousands of sends can be in flight at once. The
+     * shared semaphore stops the pacer when the in-flight limit is reached.
+     */
+    private static class RateLimitedProducer extends Thread {
+        final SqsAsyncClient sqsAsyncClient;
+        final SqsAsyncBatchManager batchManager;
+        final String queueUrl;
+        final int batchSize;
+        final Pacer pacer;
+        final ExecutorService virtualThreads;
+        final Semaphore inFlight;
+        final LongAdder producedCount;
+        final AtomicBoolean stop;
+        final String theMessage;
+
+        /**
+         * Creates a pacing thread for sends.
+         *
+         * @param sqsAsyncClient the SQS client, used when the batch size is 1
+         * @param batchManager the batch manager, used when the batch size is greater than 1
+         * @param queueUrl the URL of the target queue
+         * @param batchSize the number of messages per batch
+         * @param messageSizeByte the size of messages to generate
+         * @param ratePerSecond this thread's share of the target send rate
+         * @param virtualThreads the executor that runs each request on a virtual thread
+         * @param inFlight shared semaphore that limits requests in flight
+         * @param producedCount shared counter for tracking sent messages
+         * @param stop shared flag to signal thread termination
+         */
+        RateLimitedProducer(SqsAsyncClient sqsAsyncClient, SqsAsyncBatchManager batchManager, String queueUrl,
+                            int batchSize, int messageSizeByte, double ratePerSecond,
+                            ExecutorService virtualThreads, Semaphore inFlight, LongAdder producedCount,
+                            AtomicBoolean stop) {
+            this.sqsAsyncClient = sqsAsyncClient;
+            this.batchManager = batchManager;
+            this.queueUrl = queueUrl;
+            this.batchSize = batchSize;
+            this.pacer = new Pacer(ratePerSecond);
+            this.virtualThreads = virtualThreads;
+            this.inFlight = inFlight;
+            this.producedCount = producedCount;
+            this.stop = stop;
+            this.theMessage = makeRandomString(messageSizeByte);
+        }
+
+        /**
+         * Starts one send per pacing interval until the stop flag is set.
+         */
+        public void run() {
+            try {
+                while (!stop.get()) {
+                    pacer.awaitNext();
+                    inFlight.acquire();
+                    virtualThreads.execute(() -> {
+                        try {
+                            SendMessageRequest request = SendMessageRequest.builder()
+                                    .queueUrl(queueUrl)
+                                    .messageBody(theMessage)
+                                    .build();
+                            final long start = System.nanoTime();
+                            if (batchSize == 1) {
+                                sqsAsyncClient.sendMessage(request).join();
+                            } else {
+                                batchManager.sendMessage(request).join();
+                            }
+                            SEND_LATENCY.recordSince(start);
+                            producedCount.increment();
+                        } catch (SdkException | java.util.concurrent.CompletionException e) {
+                            if (!stop.get()) {
+                                log.error("RateLimitedProducer: " + e.getMessage());
+                            }
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("RateLimitedProducer interrupted: " + e.getMessage());
+            } catch (java.util.concurrent.RejectedExecutionException e) {
+                // The executor was shut down at the end of the run.
+            }
+        }
+    }
+
+    /**
+     * Receives and deletes messages at a target receive rate, one virtual thread per request.
+     *
+     * Each virtual thread receives up to {@code min(batchSize, 10)} messages and deletes every
+     * message it receives, so unlike {@link Consumer} no received messages are left behind.
+     */
+    private static class RateLimitedConsumer extends Thread {
+        final SqsAsyncClient sqsAsyncClient;
+        final SqsAsyncBatchManager batchManager;
+        final String queueUrl;
+        final int batchSize;
+        final Pacer pacer;
+        final ExecutorService virtualThreads;
+        final Semaphore inFlight;
+        final LongAdder consumedCount;
+        final AtomicBoolean stop;
+
+        /**
+         * Creates a pacing thread for receives.
+         *
+         * @param sqsAsyncClient the SQS client, used when the batch size is 1
+         * @param batchManager the batch manager, used when the batch size is greater than 1
+         * @param queueUrl the URL of the source queue
+         * @param batchSize the maximum number of messages to receive per request
+         * @param ratePerSecond this thread's share of the target receive rate
+         * @param virtualThreads the executor that runs each request on a virtual thread
+         * @param inFlight shared semaphore that limits requests in flight
+         * @param consumedCount shared counter for tracking processed messages
+         * @param stop shared flag to signal thread termination
+         */
+        RateLimitedConsumer(SqsAsyncClient sqsAsyncClient, SqsAsyncBatchManager batchManager, String queueUrl,
+                            int batchSize, double ratePerSecond, ExecutorService virtualThreads,
+                            Semaphore inFlight, LongAdder consumedCount, AtomicBoolean stop) {
+            this.sqsAsyncClient = sqsAsyncClient;
+            this.batchManager = batchManager;
+            this.queueUrl = queueUrl;
+            this.batchSize = batchSize;
+            this.pacer = new Pacer(ratePerSecond);
+            this.virtualThreads = virtualThreads;
+            this.inFlight = inFlight;
+            this.consumedCount = consumedCount;
+            this.stop = stop;
+        }
+
+        /**
+         * Starts one receive per pacing interval until the stop flag is set.
+         */
+        public void run() {
+            try {
+                while (!stop.get()) {
+                    pacer.awaitNext();
+                    inFlight.acquire();
+                    virtualThreads.execute(() -> {
+                        try {
+                            receiveAndDelete();
+                        } catch (SdkException | java.util.concurrent.CompletionException e) {
+                            if (!stop.get()) {
+                                log.error("RateLimitedConsumer: " + e.getMessage());
+                            }
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("RateLimitedConsumer interrupted: " + e.getMessage());
+            } catch (java.util.concurrent.RejectedExecutionException e) {
+                // The executor was shut down at the end of the run.
+            }
+        }
+
+        private void receiveAndDelete() {
+            final ReceiveMessageRequest request = ReceiveMessageRequest.builder()
+                    .queueUrl(queueUrl)
+                    .maxNumberOfMessages(Math.min(batchSize, 10))
+                    .build();
+            final long receiveStart = System.nanoTime();
+            final List<Message> messages = batchSize == 1
+                    ? sqsAsyncClient.receiveMessage(request).join().messages()
+                    : batchManager.receiveMessage(request).join().messages();
+            RECEIVE_LATENCY.recordSince(receiveStart);
+
+            for (Message message : messages) {
+                final DeleteMessageRequest deleteRequest = DeleteMessageRequest.builder()
+                        .queueUrl(queueUrl)
+                        .receiptHandle(message.receiptHandle())
+                        .build();
+                final long deleteStart = System.nanoTime();
+                if (batchSize == 1) {
+                    sqsAsyncClient.deleteMessage(deleteRequest).join();
+                } else {
+                    batchManager.deleteMessage(deleteRequest).join();
+                }
+                DELETE_LATENCY.recordSince(deleteStart);
+                consumedCount.increment();
+            }
+        }
+    }
+
+    /**
+     * Displays real-time throughput and latency statistics every second.
      * 
-     * This thread logs the current count of produced and consumed messages
-     * to help you monitor the performance comparison.
+     * This thread logs the current count of produced and consumed messages, and the
+     * throughput and p50, p99, and p99.9 latency of each operation type during the last
+     * second. Each interval is also written as rows of a CSV result file, followed by
+     * summary rows for the whole run, so that runs with different SqsAsyncBatchManager
+     * settings can be compared.
      */
     private static class Monitor extends Thread {
-        private final AtomicInteger producedCount;
-        private final AtomicInteger consumedCount;
+        private static final String CSV_HEADER = "elapsed_seconds,mode,producers,consumers,batch_size,"
+                + "message_size,operation,count,ops_per_second,p50_ms,p99_ms,p999_ms,max_ms";
+
+        private final LongAdder producedCount;
+        private final LongAdder consumedCount;
         private final AtomicBoolean stop;
+        private final String runSettings;
+        private final Path resultFile;
+        private final String[] operations = {"send", "receive", "delete"};
+        private final LatencyHistogram[] histograms = {SEND_LATENCY, RECEIVE_LATENCY, DELETE_LATENCY};
 
         /**
-         * Creates a monitoring thread that displays throughput statistics.
+         * Creates a monitoring thread that displays throughput and latency statistics.
          * 
          * @param producedCount shared counter for messages sent
          * @param consumedCount shared counter for messages processed
          * @param stop shared flag to signal thread termination
+         * @param runSettings the run's mode, producers, consumers, batch size, and message size, as CSV columns
+         * @param resultFile the CSV file to write the results to
          */
-        Monitor(AtomicInteger producedCount, AtomicInteger consumedCount,
-                AtomicBoolean stop) {
+        Monitor(LongAdder producedCount, LongAdder consumedCount,
+                AtomicBoolean stop, String runSettings, Path resultFile) {
             this.producedCount = producedCount;
             this.consumedCount = consumedCount;
             this.stop = stop;
+            this.runSettings = runSettings;
+            this.resultFile = resultFile;
         }
 
         /**
-         * Logs throughput statistics every second until stopped.
-         * 
-         * Displays the current count of produced and consumed messages
-         * to help monitor the performance comparison between batching strategies.
+         * Logs throughput and latency statistics every second until stopped, then
+         * logs and writes the summary for the whole run.
          */
         public void run() {
-            try {
-                while (!stop.get()) {
-                    Thread.sleep(1000);
-                    log.info("produced messages = " + producedCount.get()
-                            + ", consumed messages = " + consumedCount.get());
+            final long start = System.nanoTime();
+            final LatencyHistogram.Snapshot[] first = new LatencyHistogram.Snapshot[histograms.length];
+            final LatencyHistogram.Snapshot[] previous = new LatencyHistogram.Snapshot[histograms.length];
+            for (int i = 0; i < histograms.length; i++) {
+                first[i] = histograms[i].snapshot();
+                previous[i] = first[i];
+            }
+
+            try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(resultFile))) {
+                csv.println(CSV_HEADER);
+                long intervalStart = start;
+                try {
+                    while (!stop.get()) {
+                        Thread.sleep(1000);
+                        log.info("produced messages = " + producedCount.sum()
+                                + ", consumed messages = " + consumedCount.sum());
+
+                        final long now = System.nanoTime();
+                        final String elapsed = String.valueOf((now - start) / 1_000_000_000L);
+                        for (int i = 0; i < histograms.length; i++) {
+                            final LatencyHistogram.Snapshot current = histograms[i].snapshot();
+                            report(csv, elapsed, operations[i], current.minus(previous[i]), now - intervalStart);
+                            previous[i] = current;
+                        }
+                        intervalStart = now;
+                        csv.flush();
+                    }
+                } catch (InterruptedException e) {
+                    // Allow the thread to exit.
                 }
-            } catch (InterruptedException e) {
-                // Allow the thread to exit.
+
+                final long runNanos = System.nanoTime() - start;
+                for (int i = 0; i < histograms.length; i++) {
+                    report(csv, "total", operations[i], histograms[i].snapshot().minus(first[i]), runNanos);
+                }
+                log.info("Results written to " + resultFile.toAbsolutePath());
+            } catch (IOException e) {
+                log.error("Monitor: could not write " + resultFile + ": " + e.getMessage());
             }
         }
+
+        private void report(PrintWriter csv, String elapsed, String operation, LatencyHistogram.Snapshot snapshot,
+                            long intervalNanos) {
+            final double opsPerSecond = snapshot.count() * 1_000_000_000.0 / Math.max(1, intervalNanos);
+            final String p50 = millis(snapshot.percentileMicros(50));
+            final String p99 = millis(snapshot.percentileMicros(99));
+            final String p999 = millis(snapshot.percentileMicros(99.9));
+            final String max = millis(snapshot.maxMicros());
+            if (snapshot.count() > 0) {
+                log.info(String.format(Locale.ROOT, "%s [%s]: %.1f ops/s, p50 = %s ms, p99 = %s ms, p99.9 = %s ms, max = %s ms",
+                        operation, elapsed, opsPerSecond, p50, p99, p999, max));
+            }
+            csv.println(String.join(",", elapsed, runSettings, operation, String.valueOf(snapshot.count()),
+                    String.format(Locale.ROOT, "%.1f", opsPerSecond), p50, p99, p999, max));
+        }
+
+        private static String millis(long micros) {
+            return String.format(Locale.ROOT, "%.3f", micros / 1000.0);
+        }
     }
 }
 // snippet-end:[sqs.java2.batch_demo.main]
\ No newline at end of file
@@ -0,0 +1,44 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.sqs;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+    /**
+     * Verifies that every value falls in a bucket whose upper bound is within 2% above it.
+     */
+    @Test
+    public void testBucketUpperBoundIsCloseToValue() {
+        for (long micros = 0; micros < 10_000_000; micros = micros * 3 / 2 + 1) {
+            long upperBound = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(micros));
+            assertTrue(upperBound >= micros, "Upper bound below value " + micros);
+            assertTrue(upperBound - micros <= micros / 50 + 1, "Upper bound too far above value " + micros);
+        }
+    }
+
+    /**
+     * Verifies percentiles of a uniform distribution and the difference between snapshots.
+     */
+    @Test
+    public void testPercentilesAndSnapshotDifference() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.recordMicros(i * 1000L);
+        }
+        LatencyHistogram.Snapshot first = histogram.snapshot();
+        assertEquals(1000, first.count());
+        assertEquals(500_000, first.percentileMicros(50), 500_000 / 50.0);
+        assertEquals(990_000, first.percentileMicros(99), 990_000 / 50.0);
+        assertEquals(1_000_000, first.maxMicros(), 1_000_000 / 50.0);
+
+        histogram.recordMicros(5_000_000);
+        LatencyHistogram.Snapshot interval = histogram.snapshot().minus(first);
+        assertEquals(1, interval.count());
+        assertEquals(5_000_000, interval.percentileMicros(50), 5_000_000 / 50.0);
+    }
+}
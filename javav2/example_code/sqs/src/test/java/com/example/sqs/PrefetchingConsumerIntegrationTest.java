@@ -0,0 +1,101 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+package com.example.sqs;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration test for PrefetchingConsumer. It sends messages to a temporary queue, consumes them
+ * with a handler that is slower than the visibility timeout, and checks that every message is
+ * handled once and deleted.
+ */
+@Tag("IntegrationTest")
+public class PrefetchingConsumerIntegrationTest {
+    private static final int MESSAGE_COUNT = 100;
+
+    private SqsAsyncClient sqsClient;
+    private String queueUrl;
+
+    @BeforeEach
+    void setUp() {
+        sqsClient = SqsAsyncClient.create();
+        queueUrl = sqsClient.createQueue(b -> b.queueName("prefetch-test-" + System.currentTimeMillis()))
+                .join().queueUrl();
+
+        for (int batch = 0; batch < MESSAGE_COUNT / 10; batch++) {
+            List<SendMessageBatchRequestEntry> entries = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                entries.add(SendMessageBatchRequestEntry.builder()
+                        .id(Integer.toString(i))
+                        .messageBody("message-" + (batch * 10 + i))
+                        .build());
+            }
+            sqsClient.sendMessageBatch(b -> b.queueUrl(queueUrl).entries(entries)).join();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (queueUrl != null) {
+            sqsClient.deleteQueue(b -> b.queueUrl(queueUrl)).join();
+        }
+        sqsClient.close();
+    }
+
+    @Test
+    void testEveryMessageIsHandledOnceAndDeleted() throws Exception {
+        Set<String> bodies = ConcurrentHashMap.newKeySet();
+        Map<String, Integer> deliveries = new ConcurrentHashMap<>();
+
+        // Each handler call outlasts the visibility timeout, so only the heartbeat keeps
+        // the messages from being delivered again.
+        try (PrefetchingConsumer consumer = new PrefetchingConsumer(sqsClient, queueUrl, 2, 50, 100,
+                Duration.ofSeconds(3), message -> {
+                    deliveries.merge(message.messageId(), 1, Integer::sum);
+                    bodies.add(message.body());
+                    try {
+                        Thread.sleep(5000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                })) {
+            consumer.start();
+            long deadline = System.currentTimeMillis() + 120_000;
+            while (consumer.handledCount() < MESSAGE_COUNT && System.currentTimeMillis() < deadline) {
+                Thread.sleep(500);
+            }
+            assertEquals(MESSAGE_COUNT, consumer.handledCount());
+
+            // The queue is empty, so the pollers are waiting in long polls. Closing cancels them
+            // instead of waiting up to 20 seconds for them to return.
+            long closeStart = System.nanoTime();
+            consumer.close();
+            long closeSeconds = Duration.ofNanos(System.nanoTime() - closeStart).toSeconds();
+            assertTrue(closeSeconds < 10, "close() took " + closeSeconds + " seconds");
+        }
+
+        assertEquals(MESSAGE_COUNT, bodies.size());
+        assertTrue(deliveries.values().stream().allMatch(count -> count == 1),
+                "A message was delivered more than once");
+        String visible = sqsClient.getQueueAttributes(b -> b.queueUrl(queueUrl)
+                        .attributeNames(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES))
+                .join().attributes().get(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES);
+        assertEquals("0", visible);
+    }
+}
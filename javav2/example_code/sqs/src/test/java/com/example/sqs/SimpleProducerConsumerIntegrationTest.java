@@ -213,6 +213,50 @@ public class SimpleProducerConsumerIntegrationTest {
         }
     }
     
+    /**
+     * Tests that the SimpleProducerConsumer program works in virtual-thread load generation mode.
+     * 
+     * Verifies that:
+     * - The virtual argument enables the extra rate and in-flight prompts
+     * - Rate-limited producers and consumers send and receive messages on virtual threads
+     * 
+     * Uses configuration: 2 pacers each, batch size 1, 100-byte messages, 1-minute runtime,
+     * 50 sends/sec, 50 receives/sec, 100 requests in flight
+     */
+    @Test
+    void testVirtualThreadModeProducesAndConsumes() throws Exception {
+        // Simulate user input: standard prompts + send rate + receive rate + max in flight
+        String simulatedInput = testQueueName + "\n2\n2\n1\n100\n1\n50\n50\n100\n";
+        
+        InputStream originalSystemIn = System.in;
+        
+        try {
+            System.setIn(new ByteArrayInputStream(simulatedInput.getBytes()));
+            
+            CompletableFuture<Void> programExecution = CompletableFuture.runAsync(() -> {
+                try {
+                    SimpleProducerConsumer.main(new String[]{"virtual"});
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            
+            final int TIMEOUT_SECONDS = 100;
+            programExecution.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            
+            List<LogEvent> logEvents = testAppender.getLogEvents();
+            MessageCounts counts = parseMessageCounts(logEvents);
+            
+            assertTrue(counts.maxProduced > 0, "Expected messages to be produced in virtual-thread mode");
+            assertTrue(counts.maxConsumed > 0, "Expected messages to be consumed in virtual-thread mode");
+            System.out.println("Virtual-thread test passed - Produced: " + counts.maxProduced
+                    + ", Consumed: " + counts.maxConsumed);
+            
+        } finally {
+            System.setIn(originalSystemIn);
+        }
+    }
+    
     /**
      * Helper method to parse message counts from log events.
      * 
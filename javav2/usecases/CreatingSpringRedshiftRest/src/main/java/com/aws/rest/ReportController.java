@@ -3,15 +3,21 @@
 
 package com.aws.rest;
 
-import jxl.write.WriteException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 
 @CrossOrigin(origins = "*")
@@ -20,9 +26,7 @@ import java.util.Map;
 public class ReportController {
 
     private final WorkItemRepository repository;
-
     private final WriteExcel writeExcel;
-
     private final WriteExcel.SendMessages sm;
 
     @Autowired()
@@ -35,16 +39,46 @@ public class ReportController {
         this.sm = sm;
     }
 
+    // Emails the report. The body can set "format" to "xlsx" (the default) or "csv".
     @PostMapping("")
     public String sendReport(@RequestBody Map<String, String> body) {
-        var list = repository.getData("0");
+        ReportWriter.Format format = ReportWriter.Format.of(body.get("format"));
+        Iterable<WorkItem> list = repository.getReportData("0");
+        Path report = null;
         try {
-            InputStream is = writeExcel.write(list);
-            sm.sendReport(is, body.get("email"));
+            report = writeExcel.writeToFile(list, format);
+            sm.sendReport(report, format, body.get("email"));
             return "Report generated & sent";
-        } catch (IOException | WriteException e) {
+
+        } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            deleteQuietly(report);
         }
         return "Failed to generate report";
     }
-}
\ No newline at end of file
+
+    // Streams the report into the response as it's written, instead of building it in memory first.
+    @GetMapping("")
+    public ResponseEntity<StreamingResponseBody> downloadReport(@RequestParam(required = false) String format) {
+        ReportWriter.Format reportFormat = ReportWriter.Format.of(format);
+        Iterable<WorkItem> list = repository.getReportData("0");
+        StreamingResponseBody body = out -> writeExcel.write(list, reportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(reportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + reportFormat.fileName(WriteExcel.REPORT_NAME) + "\"")
+                .body(body);
+    }
+
+    private static void deleteQuietly(Path report) {
+        if (report == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(report);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
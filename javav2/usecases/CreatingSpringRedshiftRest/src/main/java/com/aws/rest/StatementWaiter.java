@@ -0,0 +1,55 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.aws.rest;
+
+import software.amazon.awssdk.services.redshiftdata.RedshiftDataClient;
+import software.amazon.awssdk.services.redshiftdata.model.DescribeStatementRequest;
+import software.amazon.awssdk.services.redshiftdata.model.DescribeStatementResponse;
+import software.amazon.awssdk.services.redshiftdata.model.StatusString;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocks until an Amazon Redshift Data API statement finishes. This is the synchronous counterpart of
+ * the StatementWaiter in the Redshift code examples: each poll waits a quarter of the time the statement
+ * has run so far, between {@value #MIN_DELAY_MILLIS} ms and {@value #MAX_DELAY_MILLIS} ms.
+ */
+class StatementWaiter {
+    private static final long MIN_DELAY_MILLIS = 50;
+    private static final long MAX_DELAY_MILLIS = 5_000;
+
+    private final RedshiftDataClient client;
+
+    StatementWaiter(RedshiftDataClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Waits for a statement to finish.
+     *
+     * @param statementId the ID returned by ExecuteStatement
+     * @return the final description of the statement
+     * @throws IllegalStateException if the statement failed or was aborted
+     */
+    DescribeStatementResponse waitFor(String statementId) throws InterruptedException {
+        DescribeStatementRequest request = DescribeStatementRequest.builder()
+                .id(statementId)
+                .build();
+
+        long start = System.nanoTime();
+        while (true) {
+            DescribeStatementResponse response = client.describeStatement(request);
+            StatusString status = response.status();
+            if (status == StatusString.FINISHED) {
+                return response;
+            }
+            if (status == StatusString.FAILED || status == StatusString.ABORTED) {
+                throw new IllegalStateException(
+                        "Statement " + statementId + " " + response.statusAsString() + ": " + response.error());
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Thread.sleep(Math.max(MIN_DELAY_MILLIS, Math.min(MAX_DELAY_MILLIS, elapsedMillis / 4)));
+        }
+    }
+}
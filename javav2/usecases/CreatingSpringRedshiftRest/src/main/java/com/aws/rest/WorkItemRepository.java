@@ -7,12 +7,9 @@ import org.springframework.stereotype.Component;
 import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.redshiftdata.RedshiftDataClient;
-import software.amazon.awssdk.services.redshiftdata.model.DescribeStatementRequest;
-import software.amazon.awssdk.services.redshiftdata.model.DescribeStatementResponse;
 import software.amazon.awssdk.services.redshiftdata.model.ExecuteStatementRequest;
 import software.amazon.awssdk.services.redshiftdata.model.ExecuteStatementResponse;
 import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultRequest;
-import software.amazon.awssdk.services.redshiftdata.model.GetStatementResultResponse;
 import software.amazon.awssdk.services.redshiftdata.model.RedshiftDataException;
 import software.amazon.awssdk.services.redshiftdata.model.SqlParameter;
 import java.text.ParseException;
@@ -34,27 +31,47 @@ public class WorkItemRepository {
     private static final String dbUser = "awsuser";
     private static final String clusterId = "redshift-cluster-1";
 
+    // The client is thread-safe and owns a connection pool, so build it once and share it.
+    private final RedshiftDataClient client = RedshiftDataClient.builder()
+            .region(Region.US_WEST_2)
+            .credentialsProvider(ProfileCredentialsProvider.create())
+            .build();
+    private final StatementWaiter statementWaiter = new StatementWaiter(client);
+
     RedshiftDataClient getClient() {
-        Region region = Region.US_WEST_2;
-        return RedshiftDataClient.builder()
-                .region(region)
-                .credentialsProvider(ProfileCredentialsProvider.create())
-                .build();
+        return client;
     }
 
     // Return items from the work table.
     public List<WorkItem> getData(String arch) {
+        return getResults(runQuery(arch));
+    }
+
+    // Return items from the work table for a report. The rows are read one result page at a time as the
+    // report is written, so a large table is never held in memory.
+    public Iterable<WorkItem> getReportData(String arch) {
+        String id = runQuery(arch);
+        GetStatementResultRequest resultRequest = GetStatementResultRequest.builder()
+                .id(id)
+                .build();
+        return () -> getClient().getStatementResultPaginator(resultRequest)
+                .stream()
+                .flatMap(page -> page.records().stream())
+                .map(WorkItem::from)
+                .iterator();
+    }
+
+    // Runs the query for the given archive value ("" for all records) and waits for it to finish.
+    // Returns the identifier of the statement.
+    String runQuery(String arch) {
         String sqlStatement;
         List<SqlParameter> parameters;
+        ExecuteStatementResponse response;
 
         // Get all records from the Amazon Redshift table.
         if (arch.compareTo("") == 0) {
             sqlStatement = "SELECT idwork, date, description, guide, status, username, archive FROM work";
-            ExecuteStatementResponse response = executeAll(sqlStatement);
-            String id = response.id();
-            System.out.println("The identifier of the statement is " + id);
-            checkStatement(id);
-            return getResults(id);
+            response = executeAll(sqlStatement);
         } else {
             sqlStatement = "SELECT idwork, date, description, guide, status, username, archive " +
                     "FROM work WHERE username = :username and archive = :arch ;";
@@ -62,12 +79,12 @@ public class WorkItemRepository {
             parameters = List.of(
                     param("username", username),
                     param("arch", arch));
-            ExecuteStatementResponse response = execute(sqlStatement, parameters);
-            String id = response.id();
-            System.out.println("The identifier of the statement is " + id);
-            checkStatement(id);
-            return getResults(id);
+            response = execute(sqlStatement, parameters);
         }
+        String id = response.id();
+        System.out.println("The identifier of the statement is " + id);
+        checkStatement(id);
+        return id;
     }
 
     List<WorkItem> getResults(String statementId) {
@@ -76,10 +93,10 @@ public class WorkItemRepository {
                     .id(statementId)
                     .build();
 
-            GetStatementResultResponse response = getClient().getStatementResult(resultRequest);
-            return response
-                    .records()
+            // A large result comes back in several pages. The paginator follows nextToken so no row is missed.
+            return getClient().getStatementResultPaginator(resultRequest)
                     .stream()
+                    .flatMap(page -> page.records().stream())
                     .map(WorkItem::from)
                     .collect(Collectors.toUnmodifiableList());
 
@@ -111,22 +128,8 @@ public class WorkItemRepository {
 
     void checkStatement(String sqlId) {
         try {
-            DescribeStatementRequest statementRequest = DescribeStatementRequest.builder()
-                    .id(sqlId)
-                    .build();
-
             // Wait until the sql statement processing is finished.
-            String status;
-            while (true) {
-                DescribeStatementResponse response = getClient().describeStatement(statementRequest);
-                status = response.statusAsString();
-                System.out.println("..." + status);
-
-                if (status.compareTo("FINISHED") == 0) {
-                    break;
-                }
-                Thread.sleep(500);
-            }
+            statementWaiter.waitFor(sqlId);
             System.out.println("The statement is finished!");
 
         } catch (RedshiftDataException | InterruptedException e) {
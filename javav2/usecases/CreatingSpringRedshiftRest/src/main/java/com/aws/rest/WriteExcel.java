@@ -3,17 +3,6 @@
 
 package com.aws.rest;
 
-import jxl.CellView;
-import jxl.Workbook;
-import jxl.WorkbookSettings;
-import jxl.format.UnderlineStyle;
-import jxl.write.Label;
-import jxl.write.WritableCellFormat;
-import jxl.write.WritableFont;
-import jxl.write.WritableSheet;
-import jxl.write.WritableWorkbook;
-import jxl.write.WriteException;
-import org.apache.commons.io.IOUtils;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.regions.Region;
@@ -23,6 +12,7 @@ import software.amazon.awssdk.services.ses.model.SendRawEmailRequest;
 import software.amazon.awssdk.services.ses.model.SesException;
 import javax.activation.DataHandler;
 import javax.activation.DataSource;
+import javax.activation.FileDataSource;
 import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.Session;
@@ -30,90 +20,41 @@ import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
-import javax.mail.util.ByteArrayDataSource;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.util.Locale;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Properties;
 
 @Component
 public class WriteExcel {
-    static WritableCellFormat times;
-    static WritableCellFormat timesBoldUnderline;
-
-    static {
-        try {
-            WritableFont times10pt = new WritableFont(WritableFont.TIMES, 10);
-            times = new WritableCellFormat(times10pt);
-            times.setWrap(true);
-
-            WritableFont times10ptBoldUnderline = new WritableFont(WritableFont.TIMES, 10, WritableFont.BOLD, false,
-                    UnderlineStyle.SINGLE);
-            timesBoldUnderline = new WritableCellFormat(times10ptBoldUnderline);
-            timesBoldUnderline.setWrap(true);
-        } catch (WriteException e) {
-            e.printStackTrace();
+    static final String REPORT_NAME = "WorkReport";
+    private static final List<String> HEADERS = List.of("Writer", "Date", "Guide", "Description", "Status");
+
+    // Writes the report to the stream one row at a time. The stream is left open.
+    public void write(Iterable<WorkItem> items, ReportWriter.Format format, OutputStream out) throws IOException {
+        try (ReportWriter writer = ReportWriter.create(format, out)) {
+            writer.startSheet("Work Item Report", HEADERS);
+            for (WorkItem item : items) {
+                writer.addRow(item.getName(), item.getDate(), item.getGuide(), item.getDescription(), item.getStatus());
+            }
         }
     }
 
-    public InputStream write(Iterable<WorkItem> items) throws IOException, WriteException {
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
-        WorkbookSettings wbSettings = new WorkbookSettings();
-        wbSettings.setLocale(new Locale("en", "US"));
-
-        WritableWorkbook workbook = Workbook.createWorkbook(os, wbSettings);
-        workbook.createSheet("Work Item Report", 0);
-        WritableSheet excelSheet = workbook.getSheet(0);
-
-        addLabels(excelSheet);
-        fillContent(excelSheet, items);
-
-        workbook.write();
-        workbook.close();
-
-        return new ByteArrayInputStream(os.toByteArray());
-    }
-
-    private void addLabels(WritableSheet sheet) throws WriteException {
-        CellView cv = new CellView();
-        cv.setFormat(timesBoldUnderline);
-        cv.setAutosize(true);
-
-        addCaption(sheet, 0, 0, "Writer");
-        addCaption(sheet, 1, 0, "Date");
-        addCaption(sheet, 2, 0, "Guide");
-        addCaption(sheet, 3, 0, "Description");
-        addCaption(sheet, 4, 0, "Status");
-    }
-
-    private void addCaption(WritableSheet sheet, int column, int row, String s) throws WriteException {
-        Label label = new Label(column, row, s, timesBoldUnderline);
-        int cc = s.length();
-        sheet.setColumnView(column, cc);
-        sheet.addCell(label);
-    }
-
-    private void addField(WritableSheet sheet, int column, int row, String s) throws WriteException {
-        Label label = new Label(column, row, s, timesBoldUnderline);
-        int cc = s.length();
-        cc = cc > 200 ? 150 : cc + 6;
-        sheet.setColumnView(column, cc);
-        sheet.addCell(label);
-    }
-
-    private void fillContent(WritableSheet sheet, Iterable<WorkItem> items) throws WriteException {
-        int row = 2;
-        for (WorkItem item : items) {
-            addField(sheet, 0, row, item.getName());
-            addField(sheet, 1, row, item.getDate());
-            addField(sheet, 2, row, item.getGuide());
-            addField(sheet, 3, row, item.getDescription());
-            addField(sheet, 4, row, item.getStatus());
-            row += 1;
+    // Writes the report to a temporary file, so it can be attached to an email without holding it in memory.
+    // The caller deletes the file.
+    public Path writeToFile(Iterable<WorkItem> items, ReportWriter.Format format) throws IOException {
+        Path file = Files.createTempFile(REPORT_NAME, "." + format.extension());
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(items, format, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
         }
+        return file;
     }
 
     @Component
@@ -122,38 +63,36 @@ public class WriteExcel {
         private static String subject = "Weekly AWS Status Report";
         private static String bodyText = "Hello,\r\n\r\nPlease see the attached file for a weekly update.";
         private static String bodyHTML = "<!DOCTYPE html><html lang=\"en-US\"><body><h1>Hello!</h1><p>Please see the attached file for a weekly update.</p></body></html>";
-        private static String attachmentName = "WorkReport.xls";
 
-        public void sendReport(InputStream is, String emailAddress) throws IOException {
-            byte[] fileContent = IOUtils.toByteArray(is);
+        private final SesClient client = SesClient.builder().region(Region.US_WEST_2).build();
 
+        public void sendReport(Path report, ReportWriter.Format format, String emailAddress) throws IOException {
             try {
-                send(makeEmail(fileContent, emailAddress));
+                send(makeEmail(report, format, emailAddress));
             } catch (MessagingException e) {
                 e.printStackTrace();
             }
         }
 
+        // SendRawEmail takes the whole message in the request, so the encoded message is the one copy
+        // that's held in memory. The attachment is read from the file while the message is encoded.
         public void send(MimeMessage message) throws MessagingException, IOException {
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             message.writeTo(outputStream);
-            ByteBuffer buf = ByteBuffer.wrap(outputStream.toByteArray());
-            byte[] arr = new byte[buf.remaining()];
-            buf.get(arr);
-            SdkBytes data = SdkBytes.fromByteArray(arr);
+            SdkBytes data = SdkBytes.fromByteArrayUnsafe(outputStream.toByteArray());
             RawMessage rawMessage = RawMessage.builder().data(data).build();
             SendRawEmailRequest rawEmailRequest = SendRawEmailRequest.builder().rawMessage(rawMessage).build();
 
             try {
                 System.out.println("Attempting to send an email through Amazon SES...");
-                SesClient client = SesClient.builder().region(Region.US_WEST_2).build();
                 client.sendRawEmail(rawEmailRequest);
             } catch (SesException e) {
                 e.printStackTrace();
             }
         }
 
-        private MimeMessage makeEmail(byte[] attachment, String emailAddress) throws MessagingException {
+        private MimeMessage makeEmail(Path report, ReportWriter.Format format, String emailAddress)
+                throws MessagingException {
             Session session = Session.getDefaultInstance(new Properties());
             MimeMessage message = new MimeMessage(session);
 
@@ -178,14 +117,18 @@ public class WriteExcel {
             msg.addBodyPart(wrap);
 
             MimeBodyPart att = new MimeBodyPart();
-            DataSource fds = new ByteArrayDataSource(attachment,
-                    "application/vnc.openxmlformats-officedocument.spreadsheetml.sheet");
+            DataSource fds = new FileDataSource(report.toFile()) {
+                @Override
+                public String getContentType() {
+                    return format.contentType();
+                }
+            };
             att.setDataHandler(new DataHandler(fds));
-            att.setFileName(attachmentName);
+            att.setFileName(format.fileName(REPORT_NAME));
 
             msg.addBodyPart(att);
             message.setContent(msg);
             return message;
         }
     }
-}
\ No newline at end of file
+}
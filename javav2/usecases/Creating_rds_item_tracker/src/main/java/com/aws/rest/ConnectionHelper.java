@@ -3,32 +3,124 @@
 
 package com.aws.rest;
 
+import com.google.gson.Gson;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Objects;
 
-public class ConnectionHelper {
+/**
+ * Hands out pooled connections to the Amazon RDS for MySQL database.
+ *
+ * The database credentials are read from AWS Secrets Manager through a {@link SecretCache}, and
+ * connections come from a HikariCP pool, so a request doesn't pay for a Secrets Manager call or a
+ * MySQL login. The pool size, the secret time-to-live, and the connection timeout are read from the
+ * itemtracker.pool.size, itemtracker.secret.ttl, and itemtracker.pool.connection-timeout properties.
+ *
+ * When the secret is rotated, new connections use the new credentials as soon as the cache has them.
+ * If MySQL refuses a login before that, the secret is fetched again and the login is retried once.
+ */
+@Component
+public class ConnectionHelper implements AutoCloseable {
+    private static final String SECRET_NAME = "itemtracker/mysql";
 
-    public static Connection getConnection(String host, String user, String password) throws SQLException {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            String url2 = "jdbc:mysql://" + host + ":3306/mydb?useSSL=false";
-            return DriverManager.getConnection(url2, user, password);
+    private final SecretsManagerClient secretClient;
+    private final SecretCache secrets;
+    private final HikariDataSource dataSource;
+    private final Gson gson = new Gson();
+    private volatile String appliedVersion;
 
-        } catch (SQLException | ClassNotFoundException e) {
-            e.printStackTrace();
-        }
-        return null;
+    public ConnectionHelper(@Value("${itemtracker.pool.size:10}") int poolSize,
+                            @Value("${itemtracker.secret.ttl:PT1H}") Duration secretTtl,
+                            @Value("${itemtracker.pool.connection-timeout:PT5S}") Duration connectionTimeout) {
+        secretClient = SecretsManagerClient.builder()
+                .region(Region.US_WEST_2)
+                .credentialsProvider(ProfileCredentialsProvider.create())
+                .build();
+        secrets = new SecretCache(secretClient, SECRET_NAME, secretTtl);
+        User user = gson.fromJson(secrets.get(), User.class);
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("itemtracker");
+        config.setJdbcUrl("jdbc:mysql://" + user.getHost() + ":3306/mydb?useSSL=false");
+        config.setUsername(user.getUsername());
+        config.setPassword(user.getPassword());
+        config.setMaximumPoolSize(poolSize);
+        config.setConnectionTimeout(connectionTimeout.toMillis());
+        // Start even if the database can't be reached yet; requests fail until it can.
+        config.setInitializationFailTimeout(-1);
+        // Let the driver keep each prepared statement on its connection, so the SQL is parsed once
+        // per pooled connection instead of once per request.
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        dataSource = new HikariDataSource(config);
+        appliedVersion = secrets.versionId();
     }
 
-    public static void close(Connection connection) {
+    /**
+     * Returns a connection from the pool. Closing it returns it to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        applyCredentials();
         try {
-            if (connection != null) {
-                connection.close();
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            if (!isLoginRefused(e)) {
+                throw e;
             }
+            // The secret was probably rotated after it was cached.
+            secrets.refresh();
+            applyCredentials();
+            return dataSource.getConnection();
+        }
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Gives the pool the cached credentials if they've changed. Connections that are already open
+     * stay open; new ones log in with the new credentials.
+     */
+    private void applyCredentials() {
+        if (Objects.equals(secrets.versionId(), appliedVersion)) {
+            return;
         }
+        synchronized (this) {
+            String version = secrets.versionId();
+            if (Objects.equals(version, appliedVersion)) {
+                return;
+            }
+            User user = gson.fromJson(secrets.get(), User.class);
+            HikariConfigMXBean config = dataSource.getHikariConfigMXBean();
+            config.setUsername(user.getUsername());
+            config.setPassword(user.getPassword());
+            appliedVersion = version;
+        }
+    }
+
+    // MySQL reports an access denied error with SQLSTATE class 28 (invalid authorization).
+    private static boolean isLoginRefused(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null
+                    && sqlException.getSQLState().startsWith("28")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+        secrets.close();
+        secretClient.close();
     }
-}
\ No newline at end of file
+}
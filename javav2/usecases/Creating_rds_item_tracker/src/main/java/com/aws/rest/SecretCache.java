@@ -0,0 +1,91 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.aws.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
+import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the value of one AWS Secrets Manager secret.
+ *
+ * The value is fetched once and then refreshed in the background every time-to-live, so requests
+ * read it from memory instead of calling Secrets Manager. If a background refresh fails, the last
+ * value is kept and the refresh is tried again at the next interval. After the secret is rotated,
+ * the cached value can be stale until the next refresh; callers that are refused with the old
+ * value call {@link #refresh()} to fetch the new one right away.
+ */
+public class SecretCache implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SecretCache.class);
+
+    private final SecretsManagerClient client;
+    private final String secretId;
+    private final ScheduledExecutorService refresher;
+    private volatile GetSecretValueResponse current;
+
+    /**
+     * @param client   the client to fetch the secret with
+     * @param secretId the name or ARN of the secret
+     * @param ttl      how long a value is used before it's fetched again
+     */
+    public SecretCache(SecretsManagerClient client, String secretId, Duration ttl) {
+        this.client = client;
+        this.secretId = secretId;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "secret-cache-" + secretId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = ttl.toMillis();
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the cached secret string, fetching it on first use.
+     */
+    public String get() {
+        GetSecretValueResponse value = current;
+        return value != null ? value.secretString() : refresh();
+    }
+
+    /**
+     * Returns the version ID of the cached value, so callers can tell when the secret has rotated.
+     */
+    public String versionId() {
+        GetSecretValueResponse value = current;
+        return value != null ? value.versionId() : null;
+    }
+
+    /**
+     * Fetches the current value of the secret and caches it.
+     *
+     * @return the new secret string
+     */
+    public synchronized String refresh() {
+        current = client.getSecretValue(GetSecretValueRequest.builder()
+                .secretId(secretId)
+                .build());
+        return current.secretString();
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (SdkException e) {
+            logger.warn("Couldn't refresh secret {}, keeping the cached value: {}", secretId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+}
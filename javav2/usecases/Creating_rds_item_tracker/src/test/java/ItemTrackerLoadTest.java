@@ -0,0 +1,113 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+import com.aws.rest.ConnectionHelper;
+import com.aws.rest.DatabaseService;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the requests per second of the item list query before and after connection pooling.
+ *
+ * "Before" repeats what DatabaseService used to do on every request: build a Secrets Manager
+ * client, fetch the secret, open a new MySQL connection, and run the query. "After" runs the
+ * same query through DatabaseService with its pooled connections and cached secret. Both run
+ * with the same number of threads for the same time against the database in the
+ * itemtracker/mysql secret.
+ */
+@Tag("IntegrationTest")
+public class ItemTrackerLoadTest {
+    private static final int THREADS = 16;
+    private static final Duration DURATION = Duration.ofSeconds(30);
+    private static final String QUERY = "SELECT idwork, username, date, description, guide, status, archive "
+            + "FROM work WHERE username = ? AND archive = ?;";
+
+    @Test
+    public void compareRequestsPerSecond() throws InterruptedException {
+        double before = run(ItemTrackerLoadTest::unpooledRequest);
+
+        double after;
+        try (ConnectionHelper connections = new ConnectionHelper(THREADS, Duration.ofHours(1), Duration.ofSeconds(5))) {
+            DatabaseService service = new DatabaseService(connections);
+            after = run(() -> {
+                if (service.getItemsDataSQLReport(0) == null) {
+                    throw new IllegalStateException("The query failed.");
+                }
+            });
+        }
+
+        assertTrue(after > before,
+                String.format("Before: %.1f requests/s, after: %.1f requests/s", before, after));
+    }
+
+    /**
+     * Calls the request from every thread until the time is up, and returns the completed requests
+     * per second. Fails if any request failed, because failed requests would make the rate
+     * meaningless.
+     */
+    private static double run(Runnable request) throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        LongAdder failed = new LongAdder();
+        long deadline = System.nanoTime() + DURATION.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            executor.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    try {
+                        request.run();
+                        completed.increment();
+                    } catch (RuntimeException e) {
+                        failed.increment();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(DURATION.toSeconds() + 60, TimeUnit.SECONDS);
+        assertEquals(0, failed.sum(), completed.sum() + " requests completed, " + failed.sum() + " failed");
+        return completed.sum() / (double) DURATION.toSeconds();
+    }
+
+    private static void unpooledRequest() {
+        try (SecretsManagerClient secretClient = SecretsManagerClient.builder()
+                .region(Region.US_WEST_2)
+                .credentialsProvider(ProfileCredentialsProvider.create())
+                .build()) {
+            String secret = secretClient.getSecretValue(GetSecretValueRequest.builder()
+                    .secretId("itemtracker/mysql")
+                    .build()).secretString();
+            JsonObject user = JsonParser.parseString(secret).getAsJsonObject();
+            String url = "jdbc:mysql://" + user.get("host").getAsString() + ":3306/mydb?useSSL=false";
+            try (Connection c = DriverManager.getConnection(url, user.get("username").getAsString(),
+                    user.get("password").getAsString());
+                 PreparedStatement pstmt = c.prepareStatement(QUERY)) {
+                pstmt.setString(1, "user");
+                pstmt.setInt(2, 0);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        rs.getString(1);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
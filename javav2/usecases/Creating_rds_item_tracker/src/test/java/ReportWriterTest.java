@@ -0,0 +1,122 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+import com.aws.rest.ReportWriter;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the report writer locally. No AWS calls are made.
+ */
+public class ReportWriterTest {
+
+    @Test
+    public void csvStartsWithByteOrderMark() throws IOException {
+        byte[] report = write(ReportWriter.Format.CSV, 1);
+        assertEquals((byte) 0xEF, report[0]);
+        assertEquals((byte) 0xBB, report[1]);
+        assertEquals((byte) 0xBF, report[2]);
+    }
+
+    @Test
+    public void csvQuotesOnlyValuesThatNeedIt() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReportWriter writer = ReportWriter.create(ReportWriter.Format.CSV, out)) {
+            writer.startSheet("Report", List.of("Plain", "Comma", "Quote", "Line", "Null"));
+            writer.addRow("value", "a,b", "say \"hi\"", "one\ntwo", null);
+        }
+
+        String csv = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals("\uFEFFPlain,Comma,Quote,Line,Null\r\n"
+                + "value,\"a,b\",\"say \"\"hi\"\"\",\"one\ntwo\",\r\n", csv);
+    }
+
+    @Test
+    public void csvSeparatesSheetsWithBlankLine() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReportWriter writer = ReportWriter.create(ReportWriter.Format.CSV, out)) {
+            writer.startSheet("First", List.of("A"));
+            writer.addRow("1");
+            writer.startSheet("Second", List.of("B"));
+            writer.addRow("2");
+        }
+
+        assertEquals("\uFEFFA\r\n1\r\n\r\nB\r\n2\r\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    // Writes more rows than the in-memory window holds, so most of them are flushed before the workbook
+    // is finished. Every row still has to be in the output.
+    @Test
+    public void xlsxKeepsRowsFlushedOutOfTheWindow() throws IOException {
+        int rows = 1_000;
+        byte[] report = write(ReportWriter.Format.XLSX, rows);
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(report))) {
+            Sheet sheet = workbook.getSheet("Report");
+            assertEquals(rows, sheet.getLastRowNum());
+            assertEquals("Name", sheet.getRow(0).getCell(0).getStringCellValue());
+            assertEquals("name 0", sheet.getRow(1).getCell(0).getStringCellValue());
+            assertEquals("name 999", sheet.getRow(rows).getCell(0).getStringCellValue());
+            assertEquals("", sheet.getRow(rows).getCell(1).getStringCellValue());
+        }
+    }
+
+    @Test
+    public void writerLeavesOutputOpen() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ClosedCheck target = new ClosedCheck(out);
+        try (ReportWriter writer = ReportWriter.create(ReportWriter.Format.CSV, target)) {
+            writer.startSheet("Report", List.of("Name"));
+        }
+        assertFalse(target.closed);
+    }
+
+    @Test
+    public void formatIsChosenByExtension() {
+        assertEquals(ReportWriter.Format.XLSX, ReportWriter.Format.of(null));
+        assertEquals(ReportWriter.Format.XLSX, ReportWriter.Format.of(""));
+        assertEquals(ReportWriter.Format.CSV, ReportWriter.Format.of("csv"));
+        assertEquals(ReportWriter.Format.CSV, ReportWriter.Format.of("CSV"));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> ReportWriter.Format.of("pdf"));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+
+    private static byte[] write(ReportWriter.Format format, int rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReportWriter writer = ReportWriter.create(format, out)) {
+            writer.startSheet("Report", List.of("Name", "Note"));
+            for (int i = 0; i < rows; i++) {
+                writer.addRow("name " + i, null);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static class ClosedCheck extends FilterOutputStream {
+        boolean closed;
+
+        ClosedCheck(ByteArrayOutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
@@ -3,6 +3,7 @@
 
 package com.aws.rest;
 
+import software.amazon.awssdk.core.pagination.sync.SdkIterable;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.Expression;
@@ -97,52 +98,11 @@ public class DynamoDBService {
 
     // Get Open items from the DynamoDB table.
     public List<WorkItem> getOpenItems() {
-        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder()
-                .dynamoDbClient(getClient())
-                .build();
-
         try {
-            DynamoDbTable<Work> table = enhancedClient.table("Work", TableSchema.fromBean(Work.class));
-            AttributeValue attr = AttributeValue.builder()
-                    .n("0")
-                    .build();
-
-            Map<String, AttributeValue> myMap = new HashMap<>();
-            myMap.put(":val1", attr);
-
-            Map<String, String> myExMap = new HashMap<>();
-            myExMap.put("#archive", "archive");
-
-            // Set the Expression so only active items are queried from the Work table.
-            Expression expression = Expression.builder()
-                    .expressionValues(myMap)
-                    .expressionNames(myExMap)
-                    .expression("#archive = :val1")
-                    .build();
-
-            ScanEnhancedRequest enhancedRequest = ScanEnhancedRequest.builder()
-                    .filterExpression(expression)
-                    .limit(15)
-                    .build();
-
-            // Scan items.
-            Iterator<Work> results = table.scan(enhancedRequest).items().iterator();
-            WorkItem workItem;
             ArrayList<WorkItem> itemList = new ArrayList<>();
-
-            while (results.hasNext()) {
-                workItem = new WorkItem();
-                Work work = results.next();
-                workItem.setName(work.getName());
-                workItem.setGuide(work.getGuide());
-                workItem.setDescription(work.getDescription());
-                workItem.setStatus(work.getStatus());
-                workItem.setDate(work.getDate());
-                workItem.setId(work.getId());
-                workItem.setArchived(work.getArchive());
-
+            for (Work work : scanOpenItems()) {
                 // Push the workItem to the list.
-                itemList.add(workItem);
+                itemList.add(toWorkItem(work));
             }
             return itemList;
 
@@ -153,6 +113,57 @@ public class DynamoDBService {
         return null;
     }
 
+    // Get Open items for a report. The scan reads the next page only when the report writer reaches it,
+    // so a large table is never held in memory.
+    public Iterable<WorkItem> getOpenItemsForReport() {
+        SdkIterable<Work> results = scanOpenItems();
+        return () -> results.stream().map(DynamoDBService::toWorkItem).iterator();
+    }
+
+    private SdkIterable<Work> scanOpenItems() {
+        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder()
+                .dynamoDbClient(getClient())
+                .build();
+
+        DynamoDbTable<Work> table = enhancedClient.table("Work", TableSchema.fromBean(Work.class));
+        AttributeValue attr = AttributeValue.builder()
+                .n("0")
+                .build();
+
+        Map<String, AttributeValue> myMap = new HashMap<>();
+        myMap.put(":val1", attr);
+
+        Map<String, String> myExMap = new HashMap<>();
+        myExMap.put("#archive", "archive");
+
+        // Set the Expression so only active items are queried from the Work table.
+        Expression expression = Expression.builder()
+                .expressionValues(myMap)
+                .expressionNames(myExMap)
+                .expression("#archive = :val1")
+                .build();
+
+        ScanEnhancedRequest enhancedRequest = ScanEnhancedRequest.builder()
+                .filterExpression(expression)
+                .limit(15)
+                .build();
+
+        // Scan items. The results follow LastEvaluatedKey from page to page as they're iterated.
+        return table.scan(enhancedRequest).items();
+    }
+
+    private static WorkItem toWorkItem(Work work) {
+        WorkItem workItem = new WorkItem();
+        workItem.setName(work.getName());
+        workItem.setGuide(work.getGuide());
+        workItem.setDescription(work.getDescription());
+        workItem.setStatus(work.getStatus());
+        workItem.setDate(work.getDate());
+        workItem.setId(work.getId());
+        workItem.setArchived(work.getArchive());
+        return workItem;
+    }
+
     // Get Closed Items from the DynamoDB table.
     public List<WorkItem> getClosedItems() {
         DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder()
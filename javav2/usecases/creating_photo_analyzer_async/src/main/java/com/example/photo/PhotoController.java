@@ -14,6 +14,8 @@ import org.springframework.web.servlet.view.RedirectView;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 @Controller
@@ -62,6 +64,7 @@ public class PhotoController {
     String report(HttpServletRequest request, HttpServletResponse response) {
         // Get a list of key names in the given bucket.
         String email = request.getParameter("email");
+        ReportWriter.Format format = ReportWriter.Format.of(request.getParameter("format"));
         ArrayList<String> myKeys = (ArrayList<String>) s3Service.ListBucketObjects(bucketName);
         ArrayList<List<WorkItem>> myList = new ArrayList<>();
         for (String myKey : myKeys) {
@@ -71,17 +74,53 @@ public class PhotoController {
         }
 
         // Now we have a list of WorkItems describing the photos in the S3 bucket.
-        InputStream excelData = excel.exportExcel(myList);
+        Path report = null;
         try {
-            // Email the report.
-            sendMessage.sendReport(excelData, email);
+            // Write the report to a file and email it.
+            report = excel.writeToFile(myList, format);
+            sendMessage.sendReport(report, format, email);
 
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            deleteQuietly(report);
         }
         return "The photos have been analyzed and the report is sent";
     }
 
+    // Generates the report and streams it into the response as it's written.
+    @RequestMapping(value = "/report", method = RequestMethod.GET)
+    void downloadReport(HttpServletRequest request, HttpServletResponse response) {
+        ReportWriter.Format format = ReportWriter.Format.of(request.getParameter("format"));
+        List<List<WorkItem>> myList = new ArrayList<>();
+        for (String myKey : s3Service.ListBucketObjects(bucketName)) {
+            byte[] keyData = s3Service.getObjectBytes(bucketName, myKey);
+            myList.add(photos.DetectLabels(keyData, myKey));
+        }
+
+        try {
+            response.setContentType(format.contentType());
+            response.setHeader("Content-disposition",
+                    "attachment; filename=" + format.fileName(WriteExcel.REPORT_NAME));
+            excel.write(myList, format, response.getOutputStream());
+            response.flushBuffer();
+
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void deleteQuietly(Path report) {
+        if (report == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(report);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     // Upload an image to an Amazon S3 bucket.
     @RequestMapping(value = "/upload", method = RequestMethod.POST)
     @ResponseBody
@@ -0,0 +1,238 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: Apache-2.0
+
+package com.example.photo;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes a tabular report one row at a time, so memory use stays the same however many rows there are.
+ *
+ * An XLSX report keeps only the last {@value #ROW_WINDOW} rows of a sheet in memory. Older rows are
+ * flushed to a compressed temporary file, which is copied into the output when the writer is closed
+ * and then deleted. A CSV report is written straight to the output. Closing the writer finishes and
+ * flushes the report but leaves the output stream open, so it can write into an HTTP response.
+ */
+public abstract class ReportWriter implements Closeable {
+    private static final int ROW_WINDOW = 100;
+    private static final int MAX_COLUMN_CHARS = 100;
+
+    /**
+     * The file formats a report can be written in.
+     */
+    public enum Format {
+        XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+        CSV("csv", "text/csv; charset=UTF-8");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String fileName(String baseName) {
+            return baseName + "." + extension;
+        }
+
+        /**
+         * Returns the format with the given extension, or XLSX if none is given.
+         *
+         * @throws ResponseStatusException with status 400 if the extension isn't a known format
+         */
+        public static Format of(String name) {
+            if (name == null || name.isEmpty()) {
+                return XLSX;
+            }
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown report format: " + name);
+        }
+    }
+
+    /**
+     * Creates a writer for the given format.
+     *
+     * @param format the format of the report
+     * @param out    the stream to write the report to; it isn't closed with the writer
+     */
+    public static ReportWriter create(Format format, OutputStream out) {
+        return format == Format.CSV ? new Csv(out) : new Xlsx(out);
+    }
+
+    /**
+     * Starts a new sheet and writes its header row. A CSV report separates sheets with a blank line.
+     */
+    public abstract void startSheet(String name, List<String> headers) throws IOException;
+
+    /**
+     * Writes a row to the current sheet. A null value is written as an empty cell.
+     */
+    public abstract void addRow(String... values) throws IOException;
+
+    private static class Xlsx extends ReportWriter {
+        private final OutputStream out;
+        private final SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        private final CellStyle headerStyle;
+        private final CellStyle cellStyle;
+        private SXSSFSheet sheet;
+        private int rowIndex;
+        private int[] widths;
+
+        Xlsx(OutputStream out) {
+            this.out = out;
+            workbook.setCompressTempFiles(true);
+
+            Font headerFont = workbook.createFont();
+            headerFont.setFontName("Times New Roman");
+            headerFont.setFontHeightInPoints((short) 10);
+            headerFont.setBold(true);
+            headerFont.setUnderline(Font.U_SINGLE);
+            headerStyle = workbook.createCellStyle();
+            headerStyle.setFont(headerFont);
+            headerStyle.setWrapText(true);
+
+            Font font = workbook.createFont();
+            font.setFontName("Times New Roman");
+            font.setFontHeightInPoints((short) 10);
+            cellStyle = workbook.createCellStyle();
+            cellStyle.setFont(font);
+            cellStyle.setWrapText(true);
+        }
+
+        @Override
+        public void startSheet(String name, List<String> headers) {
+            finishSheet();
+            sheet = workbook.createSheet(name);
+            rowIndex = 0;
+            widths = new int[headers.size()];
+            writeRow(headers, headerStyle);
+        }
+
+        @Override
+        public void addRow(String... values) {
+            if (sheet == null) {
+                throw new IllegalStateException("Start a sheet before adding rows.");
+            }
+            writeRow(Arrays.asList(values), cellStyle);
+        }
+
+        private void writeRow(List<String> values, CellStyle style) {
+            Row row = sheet.createRow(rowIndex++);
+            for (int i = 0; i < values.size(); i++) {
+                String value = values.get(i) == null ? "" : values.get(i);
+                Cell cell = row.createCell(i);
+                cell.setCellValue(value);
+                cell.setCellStyle(style);
+                if (i < widths.length) {
+                    widths[i] = Math.max(widths[i], value.length());
+                }
+            }
+        }
+
+        // Column widths are tracked as rows are written, because rows that were flushed can't be measured.
+        private void finishSheet() {
+            if (sheet == null) {
+                return;
+            }
+            for (int i = 0; i < widths.length; i++) {
+                sheet.setColumnWidth(i, Math.min(widths[i] + 2, MAX_COLUMN_CHARS) * 256);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                finishSheet();
+                workbook.write(out);
+                out.flush();
+            } finally {
+                workbook.dispose();
+                workbook.close();
+            }
+        }
+    }
+
+    private static class Csv extends ReportWriter {
+        private final Writer writer;
+        private boolean started;
+
+        Csv(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void startSheet(String name, List<String> headers) throws IOException {
+            if (started) {
+                writer.write("\r\n");
+            } else {
+                // A byte order mark lets Excel open the file as UTF-8.
+                writer.write('\uFEFF');
+                started = true;
+            }
+            writeRow(headers);
+        }
+
+        @Override
+        public void addRow(String... values) throws IOException {
+            writeRow(Arrays.asList(values));
+        }
+
+        private void writeRow(List<String> values) throws IOException {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeValue(values.get(i));
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeValue(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\r') < 0
+                    && value.indexOf('\n') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -3,11 +3,11 @@
 
 package com.example.photo;
 
-import org.apache.commons.io.IOUtils;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.ses.SesClient;
 import javax.activation.DataHandler;
 import javax.activation.DataSource;
+import javax.activation.FileDataSource;
 import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.Session;
@@ -15,11 +15,9 @@ import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
 import javax.mail.internet.MimeBodyPart;
-import javax.mail.util.ByteArrayDataSource;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.Properties;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.ses.model.SendRawEmailRequest;
@@ -29,18 +27,21 @@ import org.springframework.stereotype.Component;
 
 @Component
 public class SendMessages {
-    public void sendReport(InputStream is, String emailAddress) throws IOException {
+    private final SesClient client = SesClient.builder()
+            // .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+            .region(Region.US_WEST_2)
+            .build();
 
-        // Convert the InputStream to a byte[].
-        byte[] fileContent = IOUtils.toByteArray(is);
+    public void sendReport(Path report, ReportWriter.Format format, String emailAddress) throws IOException {
         try {
-            send(fileContent, emailAddress);
+            send(report, format, emailAddress);
         } catch (MessagingException e) {
             e.printStackTrace();
         }
     }
 
-    public void send(byte[] attachment, String emailAddress) throws MessagingException, IOException {
+    public void send(Path report, ReportWriter.Format format, String emailAddress)
+            throws MessagingException, IOException {
         Session session = Session.getDefaultInstance(new Properties());
         MimeMessage message = new MimeMessage(session);
 
@@ -90,12 +91,15 @@ public class SendMessages {
 
         // Define the attachment
         MimeBodyPart att = new MimeBodyPart();
-        DataSource fds = new ByteArrayDataSource(attachment,
-                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        // The attachment is read from the report file while the message is encoded.
+        DataSource fds = new FileDataSource(report.toFile()) {
+            @Override
+            public String getContentType() {
+                return format.contentType();
+            }
+        };
         att.setDataHandler(new DataHandler(fds));
-
-        String reportName = "PhotoReport.xls";
-        att.setFileName(reportName);
+        att.setFileName(format.fileName(WriteExcel.REPORT_NAME));
 
         // Add the attachment to the message.
         msg.addBodyPart(att);
@@ -104,20 +108,12 @@ public class SendMessages {
         try {
             System.out.println("Attempting to send an email through Amazon SES " + "using the AWS SDK for Java...");
 
-            Region region = Region.US_WEST_2;
-            SesClient client = SesClient.builder()
-                    // .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
-                    .region(region)
-                    .build();
-
+            // SendRawEmail takes the whole message in the request, so the encoded message is the
+            // one copy that's held in memory.
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             message.writeTo(outputStream);
 
-            ByteBuffer buf = ByteBuffer.wrap(outputStream.toByteArray());
-            byte[] arr = new byte[buf.remaining()];
-            buf.get(arr);
-
-            SdkBytes data = SdkBytes.fromByteArray(arr);
+            SdkBytes data = SdkBytes.fromByteArrayUnsafe(outputStream.toByteArray());
             RawMessage rawMessage = RawMessage.builder()
                     .data(data)
                     .build();
@@ -8,9 +8,7 @@ import com.example.photo.services.DynamoDBService;
 import com.example.photo.services.S3Service;
 import com.example.photo.services.SnsService;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -31,21 +29,12 @@ public class DownloadEndpoint {
             Set<String> images = labels.stream().parallel().flatMap(
                     (label) -> this.dbService.getImagesByLabel(label).stream())
                     .collect(Collectors.toSet());
-            Map<String, byte[]> imageMap = new HashMap<>();
-
-            for (String imageName : images) {
-                byte[] imageBytes = this.s3Service.getObjectBytes(PhotoApplicationResources.STORAGE_BUCKET, imageName);
-                imageMap.put(imageName, imageBytes);
-                System.out.println("Add " + imageName + " to the map.");
-            }
-
-            // Now ZIP the images.
-            byte[] zipFile = this.s3Service.listBytesToZip(imageMap);
             String uuid = java.util.UUID.randomUUID().toString();
             String zipName = uuid + ".zip";
 
-            // Place the ZIP file into the working bucket and get back a presigned URL.
-            s3Service.putObject(zipFile, PhotoApplicationResources.WORKING_BUCKET, zipName);
+            // Stream the images into a ZIP file in the working bucket, then get back a presigned URL.
+            this.s3Service.zipObjectsToBucket(PhotoApplicationResources.STORAGE_BUCKET, images,
+                    PhotoApplicationResources.WORKING_BUCKET, zipName);
             String presignedURL = s3Service.signObjectToDownload(PhotoApplicationResources.WORKING_BUCKET, zipName);
             String message = "Your Archived images can be located here " + presignedURL;
             this.snsService.pubTopic(message);
@@ -6,7 +6,10 @@ package com.example.photo.services;
 import com.example.photo.PhotoApplicationResources;
 import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
 import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
@@ -24,14 +27,25 @@ import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequ
 import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 public class S3Service {
+    private static final int ZIP_PART_SIZE = 8 * 1024 * 1024;
+    private static final int ZIP_PARTS_IN_FLIGHT = 4;
+    private static final int ZIP_PREFETCH_WINDOW = 8;
+
     // Create the S3Client object.
     private S3Client getClient() {
         return S3Client.builder()
@@ -39,6 +53,13 @@ public class S3Service {
                 .build();
     }
 
+    // Create the S3AsyncClient object.
+    private S3AsyncClient getAsyncClient() {
+        return S3AsyncClient.builder()
+                .region(PhotoApplicationResources.REGION)
+                .build();
+    }
+
     public byte[] getObjectBytes(String bucketName, String keyName) {
         S3Client s3 = getClient();
         try {
@@ -101,6 +122,7 @@ public class S3Service {
     }
 
     // Pass a map and get back a byte[] that represents a ZIP of all images.
+    // The whole archive is held in memory; use zipObjectsToBucket for large archives.
     public byte[] listBytesToZip(Map<String, byte[]> mapReport) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         ZipOutputStream zos = new ZipOutputStream(baos);
@@ -115,6 +137,53 @@ public class S3Service {
         return baos.toByteArray();
     }
 
+    // Streams the given objects into a ZIP file that is written straight to the target bucket
+    // with a multipart upload. A few objects are requested ahead of the one being written, and
+    // only a few part-sized buffers are held, so memory use does not grow with the archive size.
+    public void zipObjectsToBucket(String sourceBucket, Collection<String> keys, String targetBucket,
+                                   String zipName) throws IOException {
+        try (S3AsyncClient s3 = getAsyncClient()) {
+            Deque<CompletableFuture<ResponseInputStream<GetObjectResponse>>> window = new ArrayDeque<>();
+            Iterator<String> nextKey = keys.iterator();
+            MultipartUploadOutputStream uploadStream = new MultipartUploadOutputStream(s3, targetBucket, zipName,
+                    ZIP_PART_SIZE, ZIP_PARTS_IN_FLIGHT);
+            try {
+                ZipOutputStream zos = new ZipOutputStream(uploadStream);
+                for (String key : keys) {
+                    while (nextKey.hasNext() && window.size() < ZIP_PREFETCH_WINDOW) {
+                        String prefetchKey = nextKey.next();
+                        window.add(s3.getObject(b -> b.bucket(sourceBucket).key(prefetchKey),
+                                AsyncResponseTransformer.toBlockingInputStream()));
+                    }
+                    try (InputStream objectStream = window.poll().join()) {
+                        zos.putNextEntry(new ZipEntry(key));
+                        objectStream.transferTo(zos);
+                        zos.closeEntry();
+                    }
+                }
+                // Closing the ZipOutputStream writes the central directory and completes the upload.
+                zos.close();
+            } catch (IOException | CompletionException | S3Exception e) {
+                System.err.println(e.getMessage());
+                window.forEach(response -> response.thenAccept(this::closeQuietly));
+                try {
+                    uploadStream.abort();
+                } catch (RuntimeException abortFailure) {
+                    e.addSuppressed(abortFailure);
+                }
+                throw new IOException("Failed to create " + zipName, e);
+            }
+        }
+    }
+
+    private void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
     // Returns true if object exists.
     public boolean checkS3ObjectDoesNotExist(String keyName) {
         S3Client s3 = getClient();